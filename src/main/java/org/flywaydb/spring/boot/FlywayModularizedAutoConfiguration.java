@@ -1,35 +1,87 @@
 package org.flywaydb.spring.boot;
 
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
 
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.Location;
 import org.flywaydb.core.api.MigrationVersion;
 import org.flywaydb.core.api.callback.Callback;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.resolver.MigrationResolver;
+import org.flywaydb.spring.boot.ext.FlywayDataSourceScheduler;
+import org.flywaydb.spring.boot.ext.backfill.FlywayBackfillMigrationResolver;
+import org.flywaydb.spring.boot.ext.backfill.FlywayBackfillRecovery;
 import org.flywaydb.spring.boot.ext.FlywayFluentConfiguration;
 import org.flywaydb.spring.boot.ext.FlywayMigrationProvider;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.FlywayModuleBarrier;
+import org.flywaydb.spring.boot.ext.background.FlywayBackgroundMigrations;
+import org.flywaydb.spring.boot.ext.background.FlywayBackgroundThrottle;
+import org.flywaydb.spring.boot.ext.FlywayModuleDependencyPostProcessor;
+import org.flywaydb.spring.boot.ext.FlywayModuleFilter;
 import org.flywaydb.spring.boot.ext.FlywayModularizedMigrationInitializer;
+import org.flywaydb.spring.boot.ext.FlywayModularizedOperations;
 import org.flywaydb.spring.boot.ext.FlywayModularizedProperties;
 import org.flywaydb.spring.boot.ext.FlywayModularizedSchemaManagementProvider;
-import org.flywaydb.spring.boot.ext.resolver.LocationModuleResolver;
-import org.flywaydb.spring.boot.ext.resolver.LocationVendorResolver;
-import org.flywaydb.spring.boot.ext.resolver.TableModuleResolver;
+import org.flywaydb.spring.boot.ext.lease.FlywayModuleLeaseCoordinator;
+import org.flywaydb.spring.boot.ext.lease.FlywayModuleLeaseRepository;
+import org.flywaydb.spring.boot.ext.migration.FlywayModuleMigrationCustomizer;
+import org.flywaydb.spring.boot.ext.migration.FlywayModuleMigrations;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementInterceptingDataSource;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementListener;
+import org.flywaydb.spring.boot.ext.jpa.FlywayJpaBootstrapPostProcessor;
+import org.flywaydb.spring.boot.ext.jpa.FlywaySchemaValidationCache;
+import org.flywaydb.spring.boot.ext.jpa.FlywaySchemaValidationGate;
+import org.flywaydb.spring.boot.ext.placeholder.FlywayPlaceholderTemplateCache;
+import org.flywaydb.spring.boot.ext.profile.FlywayStatementProfiler;
+import org.flywaydb.spring.boot.ext.progress.FlywayProgressPublisher;
+import org.flywaydb.spring.boot.ext.resource.FlywayLocationIndex;
+import org.flywaydb.spring.boot.ext.resource.FlywaySpringResourceProvider;
+import org.flywaydb.spring.boot.ext.resource.FlywayTemplateChecksumRepair;
+import org.flywaydb.spring.boot.ext.retry.FlywayRetryPolicy;
+import org.flywaydb.spring.boot.ext.session.FlywaySharedSessionDataSource;
+import org.flywaydb.spring.boot.ext.snapshot.FlywayDatabaseSnapshots;
+import org.flywaydb.spring.boot.ext.squash.FlywayBaselineSquashes;
+import org.flywaydb.spring.boot.ext.snapshot.FlywaySnapshotStrategy;
+import org.flywaydb.spring.boot.ext.snapshot.H2FlywaySnapshotStrategy;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatusRegistry;
+import org.flywaydb.spring.boot.ext.watch.FlywayLocationWatcher;
+import org.flywaydb.spring.boot.ext.resolver.FlywayTemplateResolver;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantMigrationExecutor;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantProvider;
+import org.flywaydb.spring.boot.ext.tenant.JdbcFlywayTenantProvider;
+import org.flywaydb.spring.boot.ext.tenant.StaticFlywayTenantProvider;
+import org.flywaydb.spring.boot.ext.timeout.FlywayMigrationWatchdog;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
 import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
 import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
 import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
@@ -39,15 +91,27 @@ import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.autoconfigure.jdbc.JdbcOperationsDependsOnPostProcessor;
 import org.springframework.boot.autoconfigure.jdbc.NamedParameterJdbcOperationsDependsOnPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.context.properties.ConfigurationPropertiesBinding;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.metadata.CompositeDataSourcePoolMetadataProvider;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadataProvider;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.ConditionContext;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.NativeDetector;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
@@ -83,6 +147,25 @@ public class FlywayModularizedAutoConfiguration{
 	}
 	
 	@Bean
+	public static FlywayModuleDependencyPostProcessor flywayModuleDependencyPostProcessor(Environment environment) {
+		// 后处理器需在属性绑定之前创建，直接读取配置
+		FlywayModuleDependencyPostProcessor postProcessor = new FlywayModuleDependencyPostProcessor(
+				environment.getProperty("spring.flyway.concurrent-startup", Boolean.class, false));
+		postProcessor.setParallelJpaBootstrap(
+				environment.getProperty("spring.flyway.jpa.parallel-bootstrap", Boolean.class, false));
+		postProcessor.setStartupTimeout(Binder.get(environment).bind("spring.flyway.startup-timeout", Duration.class)
+				.orElse(Duration.ofMinutes(30)));
+		return postProcessor;
+	}
+	
+	@Bean
+	public static FlywayModuleMigrationCustomizer flywayModuleMigrationCustomizer(ListableBeanFactory beanFactory) {
+		// 模块的迁移 Bean 不交给 Spring Boot 的 Flyway
+		return new FlywayModuleMigrationCustomizer(beanFactory);
+	}
+	
+	@Bean
+	@ConditionalOnMissingBean(FlywayMigrationStrategy.class)
 	public FlywayMigrationProvider flywayMigration() {
 		return new FlywayMigrationProvider();
 	}
@@ -105,6 +188,8 @@ public class FlywayModularizedAutoConfiguration{
 		FlywayModularizedMigrationInitializerJdbcOperationsDependsOnPostProcessor.class,
 		FlywayModularizedMigrationInitializerNamedParameterJdbcOperationsDependsOnPostProcessor.class })
 	public static class FlywayModularizedConfiguration {
+		
+		private static final String OPERATIONS_EXECUTOR_BEAN_NAME = "flywayOperationsExecutor";
 
 		private final FlywayProperties properties;
 		private final FlywayModularizedMigrationProperties modularizedProperties;
@@ -112,6 +197,8 @@ public class FlywayModularizedAutoConfiguration{
 		private final DataSourceProperties dataSourceProperties;
 
 		private final ResourceLoader resourceLoader;
+		
+		private final BeanFactory beanFactory;
 
 		private final DataSource dataSource;
 
@@ -122,40 +209,101 @@ public class FlywayModularizedAutoConfiguration{
 		private final ObjectProvider<Callback> callbacks;
 		
 		private final List<FlywayFluentConfiguration> configurations;
+		
+		private final FlywayModuleFilter moduleFilter;
+		
+		private final FlywayTemplateResolver templateResolver;
+		
+		private final FlywayModuleFilter tenantFilter;
+
+		private final FlywayModuleFilter resourceFilter;
+		
+		private final Map<DataSource, FlywaySharedSessionDataSource> sharedSessions = new IdentityHashMap<>();
+		
+		private final List<FlywayStatementListener> statementListeners;
+		
+		private final Map<DataSource, FlywayStatementInterceptingDataSource> interceptingDataSources = new IdentityHashMap<>();
+		
+		private final ResourcePatternResolver resourcePatternResolver;
+		
+		private final FlywayLocationIndex locationIndex;
+		
+		private final FlywayBackfillMigrationResolver backfillResolver;
 
 		public FlywayModularizedConfiguration(
 				FlywayProperties properties,
 				FlywayModularizedMigrationProperties modularizedProperties,
 				DataSourceProperties dataSourceProperties, 
 				ResourceLoader resourceLoader,
+				BeanFactory beanFactory,
 				ObjectProvider<DataSource> dataSource, 
 				@FlywayDataSource ObjectProvider<DataSource> flywayDataSource,
 				ObjectProvider<FlywayConfigurationCustomizer> fluentConfigurationCustomizers,
 				ObjectProvider<Callback> callbacks,
-				ObjectProvider<FlywayFluentConfiguration> configurations) {
+				ObjectProvider<FlywayFluentConfiguration> configurations,
+				ObjectProvider<FlywayStatementListener> statementListeners,
+				Environment environment) {
 			this.properties = properties;
 			this.modularizedProperties = modularizedProperties;
 			this.dataSourceProperties = dataSourceProperties;
 			this.resourceLoader = resourceLoader;
+			this.beanFactory = beanFactory;
 			this.dataSource = dataSource.getIfUnique();
 			this.flywayDataSource = flywayDataSource.getIfAvailable();
 			this.configurationCustomizers = fluentConfigurationCustomizers.orderedStream().collect(Collectors.toList());
 			this.callbacks = callbacks;
 			this.configurations = configurations.orderedStream().collect(Collectors.toList());
+			this.statementListeners = statementListeners.orderedStream().collect(Collectors.toList());
+			this.moduleFilter = new FlywayModuleFilter(modularizedProperties.getIncludeModules(),
+					modularizedProperties.getExcludeModules(), modularizedProperties.getModuleCaseSensitivity());
+			this.templateResolver = new FlywayTemplateResolver(getProfile(environment),
+					modularizedProperties.getTemplateVariables());
+			this.tenantFilter = new FlywayModuleFilter(modularizedProperties.getTenant().getModules(),
+					Collections.emptyList(), modularizedProperties.getModuleCaseSensitivity());
+			// 资源名称数量远多于模块，通配符预编译一次后对每个资源匹配
+			this.resourceFilter = new FlywayModuleFilter(Collections.emptyList(),
+					modularizedProperties.getExcludeResources(), modularizedProperties.getModuleCaseSensitivity());
+			this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+			// 索引默认只在原生镜像中使用
+			Boolean useLocationIndex = modularizedProperties.getUseLocationIndex();
+			this.locationIndex = ((useLocationIndex != null) ? useLocationIndex : NativeDetector.inNativeImage())
+					? FlywayLocationIndex.load(this.resourcePatternResolver) : null;
+			this.backfillResolver = modularizedProperties.getBackfill().isEnabled()
+					? createBackfillResolver(modularizedProperties.getBackfill()) : null;
+		}
+		
+		private FlywayBackfillMigrationResolver createBackfillResolver(FlywayModularizedMigrationProperties.Backfill backfill) {
+			FlywayBackfillMigrationResolver resolver = new FlywayBackfillMigrationResolver(this.resourcePatternResolver);
+			resolver.setBatchSize(backfill.getBatchSize());
+			resolver.setProgressTable(backfill.getProgressTable());
+			resolver.setPause(backfill.getPause());
+			return resolver;
 		}
 		
 		@Bean("flyways")
-		public List<Flyway> flyways() {
+		public List<Flyway> flyways(ObjectProvider<FlywayTenantProvider> tenantProvider) {
 			
 			List<Flyway> flyways = new ArrayList<>();
+			List<String> tenants = getTenants(tenantProvider);
+			FlywayModuleMigrations moduleMigrations = FlywayModuleMigrations.of((ListableBeanFactory) this.beanFactory);
 			
 			// 基于配置文件的多模块
 			if(!CollectionUtils.isEmpty(this.modularizedProperties.getModules())) {
 				
 				for (FlywayModularizedProperties properties : this.modularizedProperties.getModules()) {
 					
-					FluentConfiguration configuration = new FluentConfiguration();
-					DataSource dataSource = configureDataSource(properties, configuration);
+					// 未包含或被排除的模块不做任何处理（不访问数据源、不检查路径）
+					if (!this.moduleFilter.accept(properties.getModule())) {
+						continue;
+					}
+					
+					FlywayFluentConfiguration configuration = new FlywayFluentConfiguration(properties.getModule(),
+							properties.getBaselineDescription(), properties.getBaselineVersion());
+					configuration.tier(properties.getTier());
+					configuration.dependsOn(properties.getDependsOn().toArray(new String[0]));
+					DataSource dataSource = configureSharedSession(
+							configureStatementListeners(configureDataSource(properties, configuration), configuration),
+							configuration);
 					configureProperties(properties, configuration);
 					checkLocationExists(properties, dataSource);
 					
@@ -163,7 +311,10 @@ public class FlywayModularizedAutoConfiguration{
 					configureCallbacks(configuration, orderedCallbacks);
 					
 					this.configurationCustomizers.forEach((customizer) -> customizer.customize(configuration));
-					flyways.add(configuration.load());
+					configureJavaMigrations(configuration, moduleMigrations.getMigrations(properties.getModule()));
+					configureResolvers(configuration);
+					addFlyways(flyways, configuration, properties.getModule(), properties.isPlaceholderTemplate(),
+							properties.getTier(), configuration.getDependsOn(), tenants);
 				}
 				
 			}
@@ -173,7 +324,12 @@ public class FlywayModularizedAutoConfiguration{
 				
 				for (FlywayFluentConfiguration configuration : this.configurations) {
 					
-					configureDataSource(configuration);
+					if (!this.moduleFilter.accept(configuration.getModule())) {
+						continue;
+					}
+					
+					configureSharedSession(configureStatementListeners(configureDataSource(configuration), configuration),
+							configuration);
 					checkLocationExists(configuration);
 					configureConfiguration(configuration);
 					
@@ -181,7 +337,10 @@ public class FlywayModularizedAutoConfiguration{
 					configureCallbacks(configuration, orderedCallbacks);
 					
 					this.configurationCustomizers.forEach((customizer) -> customizer.customize(configuration));
-					flyways.add(configuration.load());
+					configureJavaMigrations(configuration, moduleMigrations.getMigrations(configuration.getModule()));
+					configureResolvers(configuration);
+					addFlyways(flyways, configuration, configuration.getModule(), configuration.isPlaceholderTemplate(),
+							configuration.getTier(), configuration.getDependsOn(), tenants);
 				}
 				
 			}
@@ -189,6 +348,54 @@ public class FlywayModularizedAutoConfiguration{
 			return flyways;
 		}
 		
+		private List<String> getTenants(ObjectProvider<FlywayTenantProvider> tenantProvider) {
+			if (!this.modularizedProperties.getTenant().isEnabled()) {
+				return null;
+			}
+			FlywayTenantProvider provider = tenantProvider.getIfAvailable();
+			Assert.state(provider != null, "No FlywayTenantProvider available");
+			return provider.getTenants();
+		}
+		
+		private void addFlyways(List<Flyway> flyways, FluentConfiguration configuration, String module,
+				boolean placeholderTemplate, int tier, List<String> dependsOn, List<String> tenants) {
+			if (tenants == null || !this.tenantFilter.accept(module)) {
+				configurePlaceholderTemplate(configuration, placeholderTemplate);
+				configureScanning(configuration);
+				flyways.add(configuration.load());
+				return;
+			}
+			// 每个租户基于模块配置复制出独立的配置，{tenant} 变量在此时解析
+			for (String tenant : tenants) {
+				FluentConfiguration tenantConfiguration = configureTenant(configuration, module, tenant);
+				configurePlaceholderTemplate(tenantConfiguration, placeholderTemplate);
+				configureScanning(tenantConfiguration);
+				flyways.add(new FlywayModule(module, tenant, tier, dependsOn, tenantConfiguration));
+			}
+		}
+		
+		private FluentConfiguration configureTenant(FluentConfiguration configuration, String module, String tenant) {
+			FluentConfiguration tenantConfiguration = Flyway.configure(configuration.getClassLoader())
+					.configuration(configuration);
+			Function<String, String> variables = this.templateResolver.variables(module, tenant,
+					configuration.getDataSource());
+			String[] locations = Arrays.stream(configuration.getLocations()).map(Location::getDescriptor)
+					.toArray(String[]::new);
+			tenantConfiguration.locations(this.templateResolver.resolve(locations, variables));
+			tenantConfiguration.table(this.templateResolver.resolve(configuration.getTable(), variables));
+			String[] schemas = ObjectUtils.isEmpty(configuration.getSchemas())
+					? new String[] { this.modularizedProperties.getTenant().getSchema() }
+					: configuration.getSchemas();
+			tenantConfiguration.schemas(this.templateResolver.resolve(schemas, variables));
+			if (configuration.getDefaultSchema() != null) {
+				tenantConfiguration.defaultSchema(this.templateResolver.resolve(configuration.getDefaultSchema(), variables));
+			}
+			Map<String, String> placeholders = new HashMap<>(configuration.getPlaceholders());
+			placeholders.put(FlywayTemplateResolver.TENANT_VARIABLE, tenant);
+			tenantConfiguration.placeholders(placeholders);
+			return tenantConfiguration;
+		}
+		
 		private DataSource configureDataSource(FlywayModularizedProperties properties, FluentConfiguration configuration) {
 			if (properties.isCreateDataSource()) {
 				String url = getProperty(properties::getUrl, this.dataSourceProperties::getUrl);
@@ -199,6 +406,9 @@ public class FlywayModularizedAutoConfiguration{
 					String initSql = StringUtils.collectionToDelimitedString(properties.getInitSqls(), "\n");
 					configuration.initSql(initSql);
 				}
+			} else if (StringUtils.hasText(properties.getDataSource())) {
+				// 按名称引用的数据源，如分片部署时每个分片库一个数据源
+				configuration.dataSource(this.beanFactory.getBean(properties.getDataSource(), DataSource.class));
 			} else if (this.flywayDataSource != null) {
 				configuration.dataSource(this.flywayDataSource);
 			} else {
@@ -219,10 +429,32 @@ public class FlywayModularizedAutoConfiguration{
 			return configuration.getDataSource();
 		}
 			
+		private DataSource configureStatementListeners(DataSource dataSource, FluentConfiguration configuration) {
+			if (this.statementListeners.isEmpty() || dataSource == null) {
+				return dataSource;
+			}
+			// 语句拦截位于会话数据源之内，复用的连接同样会被拦截
+			DataSource interceptingDataSource = this.interceptingDataSources.computeIfAbsent(dataSource,
+					(target) -> new FlywayStatementInterceptingDataSource(target, this.statementListeners));
+			configuration.dataSource(interceptingDataSource);
+			return interceptingDataSource;
+		}
+		
+		private DataSource configureSharedSession(DataSource dataSource, FluentConfiguration configuration) {
+			if (!this.modularizedProperties.isSharedSession() || dataSource == null) {
+				return dataSource;
+			}
+			// 同一数据源上的模块共用一个会话数据源，以便复用连接及元数据
+			DataSource sharedSession = this.sharedSessions.computeIfAbsent(dataSource,
+					FlywaySharedSessionDataSource::new);
+			configuration.dataSource(sharedSession);
+			return sharedSession;
+		}
+		
 		private void checkLocationExists(FlywayModularizedProperties properties, DataSource dataSource) {
 			if (properties.isCheckLocation()) {
-				String[] locations = new LocationVendorResolver(dataSource)
-						.resolveLocations(properties.getLocations());
+				String[] locations = this.templateResolver.resolve(properties.getLocations(),
+						this.templateResolver.variables(properties.getModule(), null, dataSource));
 				Assert.state(locations.length != 0,
 						"Migration script locations not configured");
 				boolean exists = hasAtLeastOneLocation(locations);
@@ -233,8 +465,8 @@ public class FlywayModularizedAutoConfiguration{
 		}
 		
 		private void checkLocationExists(FlywayFluentConfiguration configuration) {
-			String[] locations = new LocationVendorResolver(configuration.getDataSource())
-					.resolveLocations(configuration.getLocationAsStrings());
+			String[] locations = this.templateResolver.resolve(configuration.getLocationAsStrings(),
+					this.templateResolver.variables(configuration.getModule(), null, configuration.getDataSource()));
 			Assert.state(locations.length != 0,
 					"Migration script locations not configured");
 			boolean exists = hasAtLeastOneLocation(locations);
@@ -245,15 +477,15 @@ public class FlywayModularizedAutoConfiguration{
 
 		private void configureProperties(FlywayModularizedProperties properties, FluentConfiguration configuration) {
 			PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
-			String[] locations = new LocationVendorResolver(configuration.getDataSource())
-					.resolveLocations(properties.getLocations());
-			locations = new LocationModuleResolver(properties.getModule()).resolveLocations(locations);
+			Function<String, String> variables = this.templateResolver.variables(properties.getModule(), null,
+					configuration.getDataSource());
+			String[] locations = this.templateResolver.resolve(properties.getLocations(), variables);
 			map.from(locations).to(configuration::locations);
 			properties.setLocations(Arrays.asList(locations));
 			map.from(properties.getEncoding()).to(configuration::encoding);
 			map.from(properties.getConnectRetries()).to(configuration::connectRetries);
 			map.from(properties.getSchemas()).as(StringUtils::toStringArray).to(configuration::schemas);
-			String table = new TableModuleResolver(properties.getModule()).resolveTable(properties.getTable());
+			String table = this.templateResolver.resolve(properties.getTable(), variables);
 			map.from(table).to(configuration::table);
 			// No method reference for compatibility with Flyway 5.x
 			map.from(properties.getTablespace()).whenNonNull().to((tablespace) -> configuration.tablespace(tablespace));
@@ -299,13 +531,14 @@ public class FlywayModularizedAutoConfiguration{
 		private void configureConfiguration(FlywayFluentConfiguration configuration) {
 			
 			PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
-			String[] locations = new LocationVendorResolver(configuration.getDataSource())
-					.resolveLocations(configuration.getLocationAsStrings());
+			Function<String, String> variables = this.templateResolver.variables(configuration.getModule(), null,
+					configuration.getDataSource());
+			String[] locations = this.templateResolver.resolve(configuration.getLocationAsStrings(), variables);
 			map.from(locations).to(configuration::locations);
 			map.from(properties.getEncoding()).to(configuration::encoding);
 			map.from(properties.getConnectRetries()).to(configuration::connectRetries);
 			map.from(properties.getSchemas()).as(StringUtils::toStringArray).to(configuration::schemas);
-			String table = new TableModuleResolver(configuration.getModule()).resolveTable(configuration.getTable());
+			String table = this.templateResolver.resolve(configuration.getTable(), variables);
 			map.from(table).to(configuration::table);
 			// No method reference for compatibility with Flyway 5.x
 			map.from(properties.getTablespace()).whenNonNull().to((tablespace) -> configuration.tablespace(tablespace));
@@ -345,12 +578,79 @@ public class FlywayModularizedAutoConfiguration{
 			
 		}
 		
+		private void configurePlaceholderTemplate(FluentConfiguration configuration, boolean placeholderTemplate) {
+			if (!placeholderTemplate || !configuration.isPlaceholderReplacement()) {
+				return;
+			}
+			// 由预编译模板完成占位符替换，关闭 Flyway 自身的替换
+			FlywaySpringResourceProvider resourceProvider = new FlywaySpringResourceProvider(
+					this.resourcePatternResolver, configuration, FlywayPlaceholderTemplateCache.getSharedInstance());
+			resourceProvider.setLocationIndex(this.locationIndex);
+			resourceProvider.setResourceFilter(this.resourceFilter.isEmpty() ? null : this.resourceFilter);
+			configuration.resourceProvider(resourceProvider);
+			configuration.placeholderReplacement(false);
+			// 将未启用模板时按原始内容记录的校验和对齐为替换后内容的校验和
+			List<Callback> callbacks = new ArrayList<>(Arrays.asList(configuration.getCallbacks()));
+			callbacks.add(new FlywayTemplateChecksumRepair(resourceProvider));
+			configuration.callbacks(callbacks.toArray(new Callback[0]));
+		}
+		
+		private void configureJavaMigrations(FluentConfiguration configuration, List<JavaMigration> migrations) {
+			if (migrations.isEmpty()) {
+				return;
+			}
+			List<JavaMigration> javaMigrations = new ArrayList<>(Arrays.asList(configuration.getJavaMigrations()));
+			javaMigrations.addAll(migrations);
+			configuration.javaMigrations(javaMigrations.toArray(new JavaMigration[0]));
+		}
+		
+		private void configureResolvers(FluentConfiguration configuration) {
+			if (this.backfillResolver == null) {
+				return;
+			}
+			// 分批回填迁移与 SQL 迁移一同解析，共享一个解析器
+			List<MigrationResolver> resolvers = new ArrayList<>(Arrays.asList(configuration.getResolvers()));
+			resolvers.add(this.backfillResolver);
+			configuration.resolvers(resolvers.toArray(new MigrationResolver[0]));
+			// 失败的回填从进度继续，而不是中止之后的迁移
+			List<Callback> callbacks = new ArrayList<>(Arrays.asList(configuration.getCallbacks()));
+			callbacks.add(new FlywayBackfillRecovery());
+			configuration.callbacks(callbacks.toArray(new Callback[0]));
+		}
+		
+		private void configureScanning(FluentConfiguration configuration) {
+			boolean scanJavaMigrations = this.modularizedProperties.isScanJavaMigrations();
+			if (scanJavaMigrations && this.resourceFilter.isEmpty()) {
+				return;
+			}
+			if (!scanJavaMigrations) {
+				// Flyway 仅在资源及 Java 迁移类均有提供者时才不创建类路径扫描器
+				configuration.javaMigrationClassProvider(Collections::emptyList);
+			}
+			if (configuration.getResourceProvider() == null) {
+				// 排除资源需由 Spring 资源提供者扫描，Flyway 自身的扫描器无法过滤
+				FlywaySpringResourceProvider resourceProvider = new FlywaySpringResourceProvider(
+						this.resourcePatternResolver, configuration);
+				resourceProvider.setLocationIndex(this.locationIndex);
+				resourceProvider.setResourceFilter(this.resourceFilter.isEmpty() ? null : this.resourceFilter);
+				configuration.resourceProvider(resourceProvider);
+			}
+		}
+		
 		private void configureCallbacks(FluentConfiguration configuration, List<Callback> callbacks) {
 			if (!callbacks.isEmpty()) {
 				configuration.callbacks(callbacks.toArray(new Callback[0]));
 			}
 		}
 		
+		private String getProfile(Environment environment) {
+			String[] profiles = environment.getActiveProfiles();
+			if (profiles.length == 0) {
+				profiles = environment.getDefaultProfiles();
+			}
+			return (profiles.length > 0) ? profiles[0] : null;
+		}
+		
 		private String getProperty(Supplier<String> property, Supplier<String> defaultValue) {
 			String value = property.get();
 			return (value != null) ? value : defaultValue.get();
@@ -358,6 +658,11 @@ public class FlywayModularizedAutoConfiguration{
 
 		private boolean hasAtLeastOneLocation(String... locations) {
 			for (String location : locations) {
+				// 存在索引时类路径目录在原生镜像中不可作为资源访问，按索引判断
+				if (this.locationIndex != null && location.startsWith("classpath:")
+						&& !this.locationIndex.getRelativePaths(new Location(location).getRootPath()).isEmpty()) {
+					return true;
+				}
 				if (this.resourceLoader.getResource(normalizePrefix(location)).exists()) {
 					return true;
 				}
@@ -371,19 +676,308 @@ public class FlywayModularizedAutoConfiguration{
 		
 		@Bean
 		public FlywayModularizedMigrationInitializer flywayModuleInitializer(@Qualifier("flyways") List<Flyway> flyways,
-				ObjectProvider<FlywayMigrationStrategy> migrationStrategy) {
-			return new FlywayModularizedMigrationInitializer(flyways, migrationStrategy.getIfAvailable());
+				ObjectProvider<FlywayMigrationStrategy> migrationStrategy,
+				ObjectProvider<FlywayModuleLeaseCoordinator> leaseCoordinator,
+				ObjectProvider<FlywayTenantMigrationExecutor> tenantExecutor,
+				ObjectProvider<FlywayDataSourceScheduler> dataSourceScheduler,
+				ObjectProvider<FlywayMigrationWatchdog> watchdog,
+				ObjectProvider<FlywayRetryPolicy> retryPolicy,
+				ObjectProvider<FlywayDatabaseSnapshots> snapshots,
+				ObjectProvider<FlywayBaselineSquashes> squashes,
+				ObjectProvider<FlywayStatementProfiler> profiler,
+				FlywayModuleStatusRegistry statusRegistry,
+				FlywayModuleBarrier barrier) {
+			FlywayModularizedMigrationInitializer initializer = new FlywayModularizedMigrationInitializer(flyways,
+					migrationStrategy.getIfAvailable());
+			initializer.setLeaseCoordinator(leaseCoordinator.getIfAvailable());
+			initializer.setTenantExecutor(tenantExecutor.getIfAvailable());
+			initializer.setDataSourceScheduler(dataSourceScheduler.getIfAvailable());
+			initializer.setStatusRegistry(statusRegistry);
+			initializer.setWatchdog(watchdog.getIfAvailable());
+			initializer.setRetryPolicy(retryPolicy.getIfAvailable());
+			initializer.setBarrier(barrier);
+			initializer.setSnapshots(snapshots.getIfAvailable());
+			initializer.setSquashes(squashes.getIfAvailable());
+			initializer.setProfiler(profiler.getIfAvailable());
+			initializer.setConcurrentStartup(this.modularizedProperties.isConcurrentStartup());
+			return initializer;
+		}
+		
+		@Bean
+		public FlywayModuleBarrier flywayModuleBarrier(@Qualifier("flyways") List<Flyway> flyways) {
+			return new FlywayModuleBarrier(flyways);
+		}
+		
+		@Bean
+		public FlywayModuleStatusRegistry flywayModuleStatusRegistry(@Qualifier("flyways") List<Flyway> flyways) {
+			FlywayModuleStatusRegistry statusRegistry = new FlywayModuleStatusRegistry(flyways);
+			statusRegistry.setRefreshInterval(this.modularizedProperties.getStatusRefreshInterval());
+			return statusRegistry;
+		}
+		
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = "spring.flyway.retry", name = "enabled", havingValue = "true")
+		public FlywayRetryPolicy flywayRetryPolicy() {
+			FlywayModularizedMigrationProperties.Retry retry = this.modularizedProperties.getRetry();
+			// 厂商与 {vendor} 变量一致，按数据源探测一次
+			FlywayRetryPolicy retryPolicy = new FlywayRetryPolicy(this.templateResolver::getVendor);
+			retryPolicy.setMaxAttempts(retry.getMaxAttempts());
+			retryPolicy.setInitialInterval(retry.getInitialInterval());
+			retryPolicy.setMultiplier(retry.getMultiplier());
+			retryPolicy.setMaxInterval(retry.getMaxInterval());
+			retry.getSqlStates().forEach(retryPolicy::setSqlStates);
+			return retryPolicy;
+		}
+		
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = "spring.flyway.background", name = "enabled", havingValue = "true")
+		public FlywayBackgroundMigrations flywayBackgroundMigrations(@Qualifier("flyways") List<Flyway> flyways,
+				FlywayModuleBarrier barrier) {
+			FlywayModularizedMigrationProperties.Background background = this.modularizedProperties.getBackground();
+			FlywayBackgroundThrottle throttle = new FlywayBackgroundThrottle();
+			throttle.setStatementsPerSecond(background.getStatementsPerSecond());
+			throttle.setRowsPerSecond(background.getRowsPerSecond());
+			throttle.setMaxLatency(background.getMaxLatency());
+			throttle.setProbeInterval(background.getProbeInterval());
+			throttle.setPauseInterval(background.getPauseInterval());
+			FlywayBackgroundMigrations backgroundMigrations = new FlywayBackgroundMigrations(flyways, throttle);
+			backgroundMigrations.setBarrier(barrier);
+			backgroundMigrations.setPrefix(background.getPrefix());
+			backgroundMigrations.setTableSuffix(background.getTableSuffix());
+			backgroundMigrations.setMaxConcurrent(background.getMaxConcurrent());
+			return backgroundMigrations;
+		}
+		
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = "spring.flyway.squash", name = "enabled", havingValue = "true")
+		public FlywayBaselineSquashes flywayBaselineSquashes() {
+			FlywayBaselineSquashes squashes = new FlywayBaselineSquashes(this.resourcePatternResolver,
+					this.templateResolver, this.modularizedProperties.getSquash().getLocation());
+			// 合并锁位于模块租约表中，未启用租约时也使用
+			FlywayModularizedMigrationProperties.Lease lease = this.modularizedProperties.getLease();
+			squashes.setLockTable(lease.getTable());
+			if (StringUtils.hasText(lease.getOwner())) {
+				squashes.setOwner(lease.getOwner());
+			}
+			squashes.setLockDuration(this.modularizedProperties.getSquash().getLockDuration());
+			squashes.setPollInterval(lease.getPollInterval());
+			squashes.setWaitTimeout(lease.getWaitTimeout());
+			return squashes;
+		}
+		
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = "spring.flyway.snapshot", name = "enabled", havingValue = "true")
+		public FlywayDatabaseSnapshots flywayDatabaseSnapshots(ObjectProvider<FlywaySnapshotStrategy> strategies) {
+			String directory = this.modularizedProperties.getSnapshot().getDirectory();
+			List<FlywaySnapshotStrategy> snapshotStrategies = strategies.orderedStream().collect(Collectors.toList());
+			snapshotStrategies.add(new H2FlywaySnapshotStrategy(StringUtils.hasText(directory) ? Paths.get(directory)
+					: Paths.get(System.getProperty("java.io.tmpdir"), "flyway-snapshots")));
+			return new FlywayDatabaseSnapshots(snapshotStrategies, this.templateResolver::getVendor);
+		}
+		
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway.timeout", name = "enabled", havingValue = "true")
+		public static FlywayMigrationWatchdog flywayMigrationWatchdog(FlywayModularizedMigrationProperties properties) {
+			FlywayModularizedMigrationProperties.Timeout timeout = properties.getTimeout();
+			FlywayMigrationWatchdog watchdog = new FlywayMigrationWatchdog();
+			watchdog.setTimeout(timeout.getModule());
+			watchdog.setStatementTimeout(timeout.getStatement());
+			watchdog.setFailFast(timeout.isFailFast());
+			for (FlywayModularizedProperties module : properties.getModules()) {
+				if (module.getTimeout() != null || module.getStatementTimeout() != null) {
+					watchdog.setModuleTimeouts(module.getModule(), module.getTimeout(), module.getStatementTimeout());
+				}
+			}
+			return watchdog;
+		}
+		
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway.profile", name = "enabled", havingValue = "true")
+		public static FlywayStatementProfiler flywayStatementProfiler(FlywayModularizedMigrationProperties properties,
+				ResourceLoader resourceLoader) {
+			FlywayModularizedMigrationProperties.Profile profile = properties.getProfile();
+			FlywayStatementProfiler profiler = new FlywayStatementProfiler();
+			profiler.setTop(profile.getTop());
+			profiler.setCapacity(profile.getCapacity());
+			profiler.setResourceLoader(resourceLoader);
+			if (StringUtils.hasText(profile.getExport())) {
+				profiler.setExport(Paths.get(profile.getExport()));
+			}
+			return profiler;
+		}
+		
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway.progress", name = "enabled", havingValue = "true")
+		public static FlywayProgressPublisher flywayProgressPublisher(FlywayModularizedMigrationProperties properties,
+				ResourceLoader resourceLoader) {
+			FlywayProgressPublisher publisher = new FlywayProgressPublisher();
+			publisher.setInterval(properties.getProgress().getInterval());
+			publisher.setResourceLoader(resourceLoader);
+			return publisher;
+		}
+		
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway.watch", name = "enabled", havingValue = "true")
+		@Conditional(OnWatchProfileCondition.class)
+		public FlywayLocationWatcher flywayLocationWatcher(FlywayModularizedMigrationInitializer initializer) {
+			FlywayModularizedMigrationProperties.Watch watch = this.modularizedProperties.getWatch();
+			FlywayLocationWatcher watcher = new FlywayLocationWatcher(initializer);
+			watcher.setDebounce(watch.getDebounce());
+			watcher.setCleanOnChange(watch.isCleanOnChange());
+			return watcher;
+		}
+		
+		@Bean
+		@ConditionalOnMissingBean
+		public FlywayModularizedOperations flywayModularizedOperations(FlywayModularizedMigrationInitializer initializer) {
+			// 未定义 Executor Bean 时使用自建线程池，避免注册 Executor Bean 影响 Spring Boot 默认的 applicationTaskExecutor
+			return this.beanFactory.containsBean(OPERATIONS_EXECUTOR_BEAN_NAME)
+					? new FlywayModularizedOperations(initializer,
+							this.beanFactory.getBean(OPERATIONS_EXECUTOR_BEAN_NAME, Executor.class))
+					: new FlywayModularizedOperations(initializer, this.modularizedProperties.getOperationsPoolSize());
+		}
+		
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = "spring.flyway.tenant", name = "enabled", havingValue = "true")
+		public FlywayTenantProvider flywayTenantProvider() {
+			FlywayModularizedMigrationProperties.Tenant tenant = this.modularizedProperties.getTenant();
+			if (StringUtils.hasText(tenant.getQuery())) {
+				DataSource dataSource = (this.flywayDataSource != null) ? this.flywayDataSource : this.dataSource;
+				return new JdbcFlywayTenantProvider(dataSource, tenant.getQuery());
+			}
+			return new StaticFlywayTenantProvider(tenant.getTenants());
+		}
+		
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway.tenant", name = "enabled", havingValue = "true")
+		public FlywayTenantMigrationExecutor flywayTenantMigrationExecutor(
+				ObjectProvider<DataSourcePoolMetadataProvider> poolMetadataProviders) {
+			FlywayModularizedMigrationProperties.Tenant tenant = this.modularizedProperties.getTenant();
+			FlywayTenantMigrationExecutor executor = new FlywayTenantMigrationExecutor();
+			executor.setConcurrency(tenant.getConcurrency());
+			executor.setFailOnError(tenant.isFailOnError());
+			executor.setPoolMetadataProvider(new CompositeDataSourcePoolMetadataProvider(
+					poolMetadataProviders.orderedStream().collect(Collectors.toList())));
+			return executor;
+		}
+		
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway", name = "parallel-data-sources", havingValue = "true")
+		public FlywayDataSourceScheduler flywayDataSourceScheduler() {
+			return new FlywayDataSourceScheduler();
+		}
+
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway.lease", name = "enabled", havingValue = "true")
+		public static FlywayModuleLeaseCoordinator flywayModuleLeaseCoordinator(
+				FlywayModularizedMigrationProperties properties, ObjectProvider<DataSource> dataSources,
+				@FlywayDataSource ObjectProvider<DataSource> flywayDataSource) {
+			// 作为语句监听器在创建模块前注入，故为静态 Bean
+			FlywayModularizedMigrationProperties.Lease lease = properties.getLease();
+			// 租约表存放在 Flyway 数据源中
+			DataSource dataSource = flywayDataSource.getIfAvailable(dataSources::getIfUnique);
+			FlywayModuleLeaseCoordinator coordinator = new FlywayModuleLeaseCoordinator(
+					new FlywayModuleLeaseRepository(dataSource, lease.getTable()));
+			coordinator.setOwner(lease.getOwner());
+			coordinator.setLeaseDuration(lease.getDuration());
+			coordinator.setHeartbeatInterval(lease.getHeartbeatInterval());
+			coordinator.setPollInterval(lease.getPollInterval());
+			coordinator.setWaitTimeout(lease.getWaitTimeout());
+			return coordinator;
 		}
 
 	}
 	 
 
+	/**
+	 * Hibernate schema validation alongside the module migrations: the {@link EntityManagerFactory}
+	 * may be built in the background while the modules are migrated, and the validation skipped
+	 * when the modules are verified current.
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "org.hibernate.tool.schema.internal.HibernateSchemaManagementTool")
+	static class FlywayHibernateConfiguration {
+
+		@Bean
+		@ConditionalOnProperty(prefix = "spring.flyway.jpa", name = "parallel-bootstrap", havingValue = "true")
+		public static FlywayJpaBootstrapPostProcessor flywayJpaBootstrapPostProcessor() {
+			return new FlywayJpaBootstrapPostProcessor();
+		}
+
+		@Bean
+		@Conditional(OnSchemaValidationGateCondition.class)
+		public HibernatePropertiesCustomizer flywaySchemaValidationGateCustomizer(
+				ObjectProvider<FlywayModuleBarrier> barrier, FlywayModularizedSchemaManagementProvider schemaManagementProvider,
+				FlywayModularizedMigrationProperties properties) {
+			FlywayModularizedMigrationProperties.Jpa jpa = properties.getJpa();
+			// 未并行构建时 EntityManagerFactory 已等待迁移完成
+			FlywaySchemaValidationGate gate = new FlywaySchemaValidationGate(
+					jpa.isParallelBootstrap() ? barrier::getIfAvailable : null, jpa.getModules());
+			gate.setTimeout(properties.getStartupTimeout());
+			if (jpa.isSkipValidation()) {
+				FlywaySchemaValidationCache validationCache = new FlywaySchemaValidationCache(schemaManagementProvider,
+						jpa.getValidationTable());
+				validationCache.setForceInterval(jpa.getForceValidationInterval());
+				gate.setValidationCache(validationCache);
+			}
+			return (hibernateProperties) -> hibernateProperties.putIfAbsent(FlywaySchemaValidationGate.SCHEMA_MANAGEMENT_TOOL, gate);
+		}
+
+	}
+
+	static class OnSchemaValidationGateCondition extends AnyNestedCondition {
+
+		OnSchemaValidationGateCondition() {
+			super(ConfigurationPhase.REGISTER_BEAN);
+		}
+
+		@ConditionalOnProperty(prefix = "spring.flyway.jpa", name = "parallel-bootstrap", havingValue = "true")
+		static class ParallelBootstrap {
+
+		}
+
+		@ConditionalOnProperty(prefix = "spring.flyway.jpa", name = "skip-validation", havingValue = "true")
+		static class SkipValidation {
+
+		}
+
+	}
+
+	/**
+	 * Condition matching when one of the profiles of {@code spring.flyway.watch.profiles} is
+	 * explicitly active, the location watcher being able to clean modules.
+	 */
+	static class OnWatchProfileCondition extends SpringBootCondition {
+
+		@Override
+		public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			ConditionMessage.Builder message = ConditionMessage.forCondition("Flyway watch profiles");
+			List<String> profiles = Binder.get(context.getEnvironment())
+					.bind("spring.flyway.watch.profiles", Bindable.listOf(String.class))
+					.orElse(Collections.singletonList("dev"));
+			// 只认显式激活的 Profile，不使用默认 Profile
+			for (String active : context.getEnvironment().getActiveProfiles()) {
+				if (profiles.contains(active)) {
+					return ConditionOutcome.match(message.found("active profile").items(active));
+				}
+			}
+			return ConditionOutcome.noMatch(message.didNotFind("active profile").items(profiles));
+		}
+
+	}
+
 	/**
 	 * Post processor to ensure that {@link EntityManagerFactory} beans depend on any
 	 * {@link FlywayModularizedMigrationInitializer} beans.
 	 */
 	@ConditionalOnClass(LocalContainerEntityManagerFactoryBean.class)
 	@ConditionalOnBean(AbstractEntityManagerFactoryBean.class)
+	@ConditionalOnProperty(prefix = "spring.flyway.jpa", name = "parallel-bootstrap", havingValue = "false", matchIfMissing = true)
 	static class FlywayModularizedMigrationInitializerEntityManagerFactoryDependsOnPostProcessor
 			extends EntityManagerFactoryDependsOnPostProcessor {
 
@@ -395,10 +989,12 @@ public class FlywayModularizedAutoConfiguration{
 
 	/**
 	 * Post processor to ensure that {@link JdbcOperations} beans depend on any
-	 * {@link FlywayModularizedMigrationInitializer} beans.
+	 * {@link FlywayModularizedMigrationInitializer} beans, unless they are created
+	 * concurrently with the migrations.
 	 */
 	@ConditionalOnClass(JdbcOperations.class)
 	@ConditionalOnBean(JdbcOperations.class)
+	@ConditionalOnProperty(prefix = "spring.flyway", name = "concurrent-startup", havingValue = "false", matchIfMissing = true)
 	static class FlywayModularizedMigrationInitializerJdbcOperationsDependsOnPostProcessor
 			extends JdbcOperationsDependsOnPostProcessor {
 
@@ -410,10 +1006,12 @@ public class FlywayModularizedAutoConfiguration{
 
 	/**
 	 * Post processor to ensure that {@link NamedParameterJdbcOperations} beans depend on
-	 * any {@link FlywayMigrationInitializer} beans.
+	 * any {@link FlywayMigrationInitializer} beans, unless they are created concurrently with
+	 * the migrations.
 	 */
 	@ConditionalOnClass(NamedParameterJdbcOperations.class)
 	@ConditionalOnBean(NamedParameterJdbcOperations.class)
+	@ConditionalOnProperty(prefix = "spring.flyway", name = "concurrent-startup", havingValue = "false", matchIfMissing = true)
 	static class FlywayModularizedMigrationInitializerNamedParameterJdbcOperationsDependsOnPostProcessor
 			extends NamedParameterJdbcOperationsDependsOnPostProcessor {
 
@@ -494,4 +1092,4 @@ public class FlywayModularizedAutoConfiguration{
 
 	}
 	
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot;
+
+import org.flywaydb.spring.boot.actuate.FlywayModularizedEndpoint;
+import org.flywaydb.spring.boot.actuate.FlywayModularizedHealthIndicator;
+import org.flywaydb.spring.boot.actuate.FlywayProgressSseEndpoint;
+import org.flywaydb.spring.boot.ext.FlywayModularizedOperations;
+import org.flywaydb.spring.boot.ext.progress.FlywayProgressPublisher;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatusRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 模块迁移状态的监控端点及健康检查，需引入 spring-boot-starter-actuator
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint")
+@ConditionalOnBean(FlywayModuleStatusRegistry.class)
+@AutoConfigureAfter(FlywayModularizedAutoConfiguration.class)
+public class FlywayModularizedEndpointAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnAvailableEndpoint(endpoint = FlywayModularizedEndpoint.class)
+	public FlywayModularizedEndpoint flywayModularizedEndpoint(FlywayModuleStatusRegistry statusRegistry,
+			ObjectProvider<FlywayModularizedOperations> operations) {
+		return new FlywayModularizedEndpoint(statusRegistry, operations.getIfAvailable());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(name = "flywayModulesHealthIndicator")
+	@ConditionalOnEnabledHealthIndicator("flywayModules")
+	public FlywayModularizedHealthIndicator flywayModulesHealthIndicator(FlywayModuleStatusRegistry statusRegistry) {
+		return new FlywayModularizedHealthIndicator(statusRegistry);
+	}
+
+	/**
+	 * 迁移进度的 SSE 端点，需 Spring MVC 及启用进度发布
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.web.servlet.mvc.method.annotation.SseEmitter")
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+	@ConditionalOnBean(FlywayProgressPublisher.class)
+	public static class FlywayProgressEndpointConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnAvailableEndpoint(endpoint = FlywayProgressSseEndpoint.class)
+		public FlywayProgressSseEndpoint flywayProgressSseEndpoint(FlywayModularizedMigrationProperties properties) {
+			return new FlywayProgressSseEndpoint(properties.getProgress().getSseTimeout().toMillis(),
+					properties.getProgress().getSseQueueCapacity());
+		}
+
+	}
+
+}
@@ -1,9 +1,14 @@
 package org.flywaydb.spring.boot;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.flywaydb.spring.boot.ext.FlywayModularizedProperties;
+import org.flywaydb.spring.boot.ext.io.IOCase;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(FlywayModularizedMigrationProperties.PREFIX)
@@ -12,9 +17,116 @@ public class FlywayModularizedMigrationProperties {
 	public static final String PREFIX = "spring.flyway";
 
 	private List<FlywayModularizedProperties> modules = new ArrayList<>();
-	
+
 	private boolean moduleable = false;
-	
+
+	/**
+	 * Patterns of the modules to migrate, using '?' and '*' wildcards. All modules when empty.
+	 */
+	private List<String> includeModules = new ArrayList<>();
+
+	/**
+	 * Patterns of the modules not to migrate, using '?' and '*' wildcards. Takes precedence
+	 * over the included modules.
+	 */
+	private List<String> excludeModules = new ArrayList<>();
+
+	/**
+	 * Patterns of the migration resources to ignore, matched against their path relative to the
+	 * location using '?' and '*' wildcards, e.g. "*.bak" or "draft/*".
+	 */
+	private List<String> excludeResources = new ArrayList<>();
+
+	/**
+	 * Case sensitivity used when matching module patterns.
+	 */
+	private IOCase moduleCaseSensitivity = IOCase.SENSITIVE;
+
+	/**
+	 * Custom variables available to the location and table patterns of every module, next to
+	 * "{module}", "{vendor}", "{profile}" and "{tenant}".
+	 */
+	private Map<String, String> templateVariables = new HashMap<>();
+
+	/**
+	 * Whether to migrate the modules of different databases in parallel, the modules of one
+	 * database (same JDBC URL and user) still being migrated in order.
+	 */
+	private boolean parallelDataSources = false;
+
+	/**
+	 * Whether consecutive modules on the same DataSource should reuse the connections of
+	 * the previous module and its database metadata during the startup migration.
+	 */
+	private boolean sharedSession = false;
+
+	/**
+	 * Whether Flyway should scan the locations for Java migration classes. When disabled, the Java
+	 * migrations of a module are only the beans annotated with @FlywayModuleMigration and the
+	 * scripts are resolved through Spring, so no Flyway classpath scanning happens at all.
+	 */
+	private boolean scanJavaMigrations = true;
+
+	/**
+	 * Whether to locate the classpath scripts through the build-time index
+	 * META-INF/flyway/locations.idx instead of scanning, when the index exists. Defaults to
+	 * true in native images only. Outside native images the indexed locations are scanned as
+	 * well and a stale index fails the startup. Only applies to modules whose scripts are
+	 * resolved through Spring (placeholder templates or scan-java-migrations=false).
+	 */
+	private Boolean useLocationIndex;
+
+	/**
+	 * Whether to migrate the modules of tier 0 concurrently with the creation of the other beans.
+	 * Beans annotated with @DependsOnFlywayModule wait for their modules only and
+	 * EntityManagerFactory beans for the whole tier. Other beans, including JdbcOperations, do
+	 * not wait: beans accessing migrated objects while initializing must be annotated.
+	 */
+	private boolean concurrentStartup = false;
+
+	/**
+	 * Maximum time a bean or the JPA schema validation waits for the modules of tier 0
+	 * during the startup before failing it.
+	 */
+	private Duration startupTimeout = Duration.ofMinutes(30);
+
+	/**
+	 * Interval at which the status of the modules exposed by the health indicator and the
+	 * "flywaymodules" endpoint is refreshed from the schema history tables. Zero to only
+	 * capture it when the modules are migrated.
+	 */
+	private Duration statusRefreshInterval = Duration.ofMinutes(5);
+
+	/**
+	 * Number of threads running the on-demand operations of FlywayModularizedOperations,
+	 * unless an Executor bean named "flywayOperationsExecutor" is defined.
+	 */
+	private int operationsPoolSize = 2;
+
+	private Lease lease = new Lease();
+
+	private Tenant tenant = new Tenant();
+
+	private Watch watch = new Watch();
+
+	private Progress progress = new Progress();
+
+	private Timeout timeout = new Timeout();
+
+	private Retry retry = new Retry();
+
+	private Jpa jpa = new Jpa();
+
+	private Snapshot snapshot = new Snapshot();
+
+	private Squash squash = new Squash();
+
+	private Backfill backfill = new Backfill();
+
+	private Background background = new Background();
+
+	private Profile profile = new Profile();
+
 	public List<FlywayModularizedProperties> getModules() {
 		return modules;
 	}
@@ -31,4 +143,1065 @@ public class FlywayModularizedMigrationProperties {
 		this.moduleable = moduleable;
 	}
 
-}
\ No newline at end of file
+	public List<String> getIncludeModules() {
+		return includeModules;
+	}
+
+	public void setIncludeModules(List<String> includeModules) {
+		this.includeModules = includeModules;
+	}
+
+	public List<String> getExcludeModules() {
+		return excludeModules;
+	}
+
+	public void setExcludeModules(List<String> excludeModules) {
+		this.excludeModules = excludeModules;
+	}
+
+	public List<String> getExcludeResources() {
+		return excludeResources;
+	}
+
+	public void setExcludeResources(List<String> excludeResources) {
+		this.excludeResources = excludeResources;
+	}
+
+	public IOCase getModuleCaseSensitivity() {
+		return moduleCaseSensitivity;
+	}
+
+	public void setModuleCaseSensitivity(IOCase moduleCaseSensitivity) {
+		this.moduleCaseSensitivity = moduleCaseSensitivity;
+	}
+
+	public Map<String, String> getTemplateVariables() {
+		return templateVariables;
+	}
+
+	public void setTemplateVariables(Map<String, String> templateVariables) {
+		this.templateVariables = templateVariables;
+	}
+
+	public boolean isParallelDataSources() {
+		return parallelDataSources;
+	}
+
+	public void setParallelDataSources(boolean parallelDataSources) {
+		this.parallelDataSources = parallelDataSources;
+	}
+
+	public boolean isSharedSession() {
+		return sharedSession;
+	}
+
+	public void setSharedSession(boolean sharedSession) {
+		this.sharedSession = sharedSession;
+	}
+
+	public boolean isConcurrentStartup() {
+		return concurrentStartup;
+	}
+
+	public void setConcurrentStartup(boolean concurrentStartup) {
+		this.concurrentStartup = concurrentStartup;
+	}
+
+	public Duration getStartupTimeout() {
+		return startupTimeout;
+	}
+
+	public void setStartupTimeout(Duration startupTimeout) {
+		this.startupTimeout = startupTimeout;
+	}
+
+	public Boolean getUseLocationIndex() {
+		return useLocationIndex;
+	}
+
+	public void setUseLocationIndex(Boolean useLocationIndex) {
+		this.useLocationIndex = useLocationIndex;
+	}
+
+	public boolean isScanJavaMigrations() {
+		return scanJavaMigrations;
+	}
+
+	public void setScanJavaMigrations(boolean scanJavaMigrations) {
+		this.scanJavaMigrations = scanJavaMigrations;
+	}
+
+	public Duration getStatusRefreshInterval() {
+		return statusRefreshInterval;
+	}
+
+	public void setStatusRefreshInterval(Duration statusRefreshInterval) {
+		this.statusRefreshInterval = statusRefreshInterval;
+	}
+
+	public int getOperationsPoolSize() {
+		return operationsPoolSize;
+	}
+
+	public void setOperationsPoolSize(int operationsPoolSize) {
+		this.operationsPoolSize = operationsPoolSize;
+	}
+
+	public Lease getLease() {
+		return lease;
+	}
+
+	public void setLease(Lease lease) {
+		this.lease = lease;
+	}
+
+	public Watch getWatch() {
+		return watch;
+	}
+
+	public void setWatch(Watch watch) {
+		this.watch = watch;
+	}
+
+	public Progress getProgress() {
+		return progress;
+	}
+
+	public void setProgress(Progress progress) {
+		this.progress = progress;
+	}
+
+	public Jpa getJpa() {
+		return jpa;
+	}
+
+	public void setJpa(Jpa jpa) {
+		this.jpa = jpa;
+	}
+
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(Snapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public Squash getSquash() {
+		return squash;
+	}
+
+	public void setSquash(Squash squash) {
+		this.squash = squash;
+	}
+
+	public Backfill getBackfill() {
+		return backfill;
+	}
+
+	public void setBackfill(Backfill backfill) {
+		this.backfill = backfill;
+	}
+
+	public Background getBackground() {
+		return background;
+	}
+
+	public void setBackground(Background background) {
+		this.background = background;
+	}
+
+	public Profile getProfile() {
+		return profile;
+	}
+
+	public void setProfile(Profile profile) {
+		this.profile = profile;
+	}
+
+	public Timeout getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Timeout timeout) {
+		this.timeout = timeout;
+	}
+
+	public Retry getRetry() {
+		return retry;
+	}
+
+	public void setRetry(Retry retry) {
+		this.retry = retry;
+	}
+
+	public Tenant getTenant() {
+		return tenant;
+	}
+
+	public void setTenant(Tenant tenant) {
+		this.tenant = tenant;
+	}
+
+	/**
+	 * Module leases used to share the migration of modules between replicas.
+	 */
+	public static class Lease {
+
+		/**
+		 * Whether replicas should claim module leases instead of each migrating every module.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Name of the lease table, created in the Flyway DataSource when missing.
+		 */
+		private String table = "flyway_module_lease";
+
+		/**
+		 * Name of this node in the lease table. Defaults to the host name with a random suffix.
+		 */
+		private String owner;
+
+		/**
+		 * Time after which a lease that is not renewed can be claimed by another node.
+		 */
+		private Duration duration = Duration.ofMinutes(1);
+
+		/**
+		 * Interval at which a held lease is renewed.
+		 */
+		private Duration heartbeatInterval = Duration.ofSeconds(20);
+
+		/**
+		 * Interval at which leases held by other nodes are polled.
+		 */
+		private Duration pollInterval = Duration.ofSeconds(2);
+
+		/**
+		 * Maximum time to wait for the modules leased by other nodes.
+		 */
+		private Duration waitTimeout = Duration.ofMinutes(30);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		public void setTable(String table) {
+			this.table = table;
+		}
+
+		public String getOwner() {
+			return owner;
+		}
+
+		public void setOwner(String owner) {
+			this.owner = owner;
+		}
+
+		public Duration getDuration() {
+			return duration;
+		}
+
+		public void setDuration(Duration duration) {
+			this.duration = duration;
+		}
+
+		public Duration getHeartbeatInterval() {
+			return heartbeatInterval;
+		}
+
+		public void setHeartbeatInterval(Duration heartbeatInterval) {
+			this.heartbeatInterval = heartbeatInterval;
+		}
+
+		public Duration getPollInterval() {
+			return pollInterval;
+		}
+
+		public void setPollInterval(Duration pollInterval) {
+			this.pollInterval = pollInterval;
+		}
+
+		public Duration getWaitTimeout() {
+			return waitTimeout;
+		}
+
+		public void setWaitTimeout(Duration waitTimeout) {
+			this.waitTimeout = waitTimeout;
+		}
+
+	}
+
+	/**
+	 * Development mode watching the "filesystem:" locations of the modules.
+	 */
+	public static class Watch {
+
+		/**
+		 * Whether to migrate a module again when its scripts change. Development only, also
+		 * requires one of the profiles to be active.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Profiles, one of which must be explicitly active for the scripts to be watched.
+		 */
+		private List<String> profiles = new ArrayList<>(Collections.singletonList("dev"));
+
+		/**
+		 * Quiet period after the last change before the changed modules are migrated.
+		 */
+		private Duration debounce = Duration.ofMillis(500);
+
+		/**
+		 * Whether to clean a module whose applied scripts changed before migrating it again.
+		 * Refused when another module migrates the same schema of the same database.
+		 */
+		private boolean cleanOnChange = false;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public List<String> getProfiles() {
+			return profiles;
+		}
+
+		public void setProfiles(List<String> profiles) {
+			this.profiles = profiles;
+		}
+
+		public Duration getDebounce() {
+			return debounce;
+		}
+
+		public void setDebounce(Duration debounce) {
+			this.debounce = debounce;
+		}
+
+		public boolean isCleanOnChange() {
+			return cleanOnChange;
+		}
+
+		public void setCleanOnChange(boolean cleanOnChange) {
+			this.cleanOnChange = cleanOnChange;
+		}
+
+	}
+
+	/**
+	 * Retry of the migrations failing with a transient error such as a deadlock.
+	 */
+	public static class Retry {
+
+		/**
+		 * Whether to migrate a module again after a transient failure.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum number of attempts per module, including the first one.
+		 */
+		private int maxAttempts = 3;
+
+		/**
+		 * Delay before the first retry, multiplied for each further retry.
+		 */
+		private Duration initialInterval = Duration.ofMillis(200);
+
+		private double multiplier = 2;
+
+		private Duration maxInterval = Duration.ofSeconds(5);
+
+		/**
+		 * Transient SQL states by vendor ("postgresql", "mysql", ... or "default"), replacing the
+		 * built-in states of the vendor.
+		 */
+		private Map<String, List<String>> sqlStates = new HashMap<>();
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public Duration getInitialInterval() {
+			return initialInterval;
+		}
+
+		public void setInitialInterval(Duration initialInterval) {
+			this.initialInterval = initialInterval;
+		}
+
+		public double getMultiplier() {
+			return multiplier;
+		}
+
+		public void setMultiplier(double multiplier) {
+			this.multiplier = multiplier;
+		}
+
+		public Duration getMaxInterval() {
+			return maxInterval;
+		}
+
+		public void setMaxInterval(Duration maxInterval) {
+			this.maxInterval = maxInterval;
+		}
+
+		public Map<String, List<String>> getSqlStates() {
+			return sqlStates;
+		}
+
+		public void setSqlStates(Map<String, List<String>> sqlStates) {
+			this.sqlStates = sqlStates;
+		}
+
+	}
+
+	/**
+	 * Time budgets of the module migrations, enforced by a watchdog cancelling the running statement.
+	 */
+	public static class Timeout {
+
+		/**
+		 * Whether to enforce the time budgets.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Default time budget of the whole migration of a module, none by default.
+		 */
+		private Duration module;
+
+		/**
+		 * Default time budget of a single statement, none by default.
+		 */
+		private Duration statement;
+
+		/**
+		 * Whether to cancel the modules migrated in parallel as soon as one module fails.
+		 */
+		private boolean failFast = false;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getModule() {
+			return module;
+		}
+
+		public void setModule(Duration module) {
+			this.module = module;
+		}
+
+		public Duration getStatement() {
+			return statement;
+		}
+
+		public void setStatement(Duration statement) {
+			this.statement = statement;
+		}
+
+		public boolean isFailFast() {
+			return failFast;
+		}
+
+		public void setFailFast(boolean failFast) {
+			this.failFast = failFast;
+		}
+
+	}
+
+	/**
+	 * Chunked backfill migrations, V{version}__{description}.backfill.
+	 */
+	public static class Backfill {
+
+		/**
+		 * Whether to resolve the backfill migrations of the modules.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Default number of keys updated per batch.
+		 */
+		private int batchSize = 10000;
+
+		/**
+		 * Name of the table recording the progress of interrupted backfills.
+		 */
+		private String progressTable = "flyway_backfill_progress";
+
+		/**
+		 * Pause between two batches, none by default.
+		 */
+		private Duration pause;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public String getProgressTable() {
+			return progressTable;
+		}
+
+		public void setProgressTable(String progressTable) {
+			this.progressTable = progressTable;
+		}
+
+		public Duration getPause() {
+			return pause;
+		}
+
+		public void setPause(Duration pause) {
+			this.pause = pause;
+		}
+
+	}
+
+	/**
+	 * Statement level profiling of the migrations.
+	 */
+	public static class Profile {
+
+		/**
+		 * Whether to record the duration of every executed statement and report the slowest ones.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Number of slowest statements logged at the end of the migration.
+		 */
+		private int top = 20;
+
+		/**
+		 * Number of slowest statements retained in memory and exported.
+		 */
+		private int capacity = 1000;
+
+		/**
+		 * File the retained statements are exported to as JSON, none by default.
+		 */
+		private String export;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getTop() {
+			return top;
+		}
+
+		public void setTop(int top) {
+			this.top = top;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+
+		public String getExport() {
+			return export;
+		}
+
+		public void setExport(String export) {
+			this.export = export;
+		}
+
+	}
+
+	/**
+	 * Background migrations, B{version}__{description}.sql, run after the application is ready.
+	 */
+	public static class Background {
+
+		/**
+		 * Whether to run the background migrations of the modules.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Prefix of the versioned background migrations, repeatable ones use the prefix followed by R.
+		 */
+		private String prefix = "B";
+
+		/**
+		 * Suffix appended to the schema history table of a module to record its background migrations.
+		 */
+		private String tableSuffix = "_background";
+
+		/**
+		 * Maximum number of modules migrated in the background at the same time.
+		 */
+		private int maxConcurrent = 1;
+
+		/**
+		 * Maximum number of statements executed per second, unlimited if not positive.
+		 */
+		private double statementsPerSecond = 0;
+
+		/**
+		 * Maximum number of rows affected per second, unlimited if not positive.
+		 */
+		private double rowsPerSecond = 0;
+
+		/**
+		 * Round trip latency of the database above which the background migrations pause, none by default.
+		 */
+		private Duration maxLatency;
+
+		/**
+		 * Minimum interval between two latency probes.
+		 */
+		private Duration probeInterval = Duration.ofSeconds(1);
+
+		/**
+		 * Pause before probing again when the latency is too high.
+		 */
+		private Duration pauseInterval = Duration.ofSeconds(5);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getPrefix() {
+			return prefix;
+		}
+
+		public void setPrefix(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public String getTableSuffix() {
+			return tableSuffix;
+		}
+
+		public void setTableSuffix(String tableSuffix) {
+			this.tableSuffix = tableSuffix;
+		}
+
+		public int getMaxConcurrent() {
+			return maxConcurrent;
+		}
+
+		public void setMaxConcurrent(int maxConcurrent) {
+			this.maxConcurrent = maxConcurrent;
+		}
+
+		public double getStatementsPerSecond() {
+			return statementsPerSecond;
+		}
+
+		public void setStatementsPerSecond(double statementsPerSecond) {
+			this.statementsPerSecond = statementsPerSecond;
+		}
+
+		public double getRowsPerSecond() {
+			return rowsPerSecond;
+		}
+
+		public void setRowsPerSecond(double rowsPerSecond) {
+			this.rowsPerSecond = rowsPerSecond;
+		}
+
+		public Duration getMaxLatency() {
+			return maxLatency;
+		}
+
+		public void setMaxLatency(Duration maxLatency) {
+			this.maxLatency = maxLatency;
+		}
+
+		public Duration getProbeInterval() {
+			return probeInterval;
+		}
+
+		public void setProbeInterval(Duration probeInterval) {
+			this.probeInterval = probeInterval;
+		}
+
+		public Duration getPauseInterval() {
+			return pauseInterval;
+		}
+
+		public void setPauseInterval(Duration pauseInterval) {
+			this.pauseInterval = pauseInterval;
+		}
+
+	}
+
+	/**
+	 * Baseline squashes applied to fresh installs instead of every historic migration.
+	 */
+	public static class Squash {
+
+		/**
+		 * Whether to apply the latest squash of a module without applied migrations and
+		 * baseline it at the squash version.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Location template of the squash files of a module.
+		 */
+		private String location = "classpath:db/squash/{module}";
+
+		/**
+		 * Time after which the lock taken while applying a squash can be claimed by another
+		 * node if not released, e.g. after a crash. Must exceed the time applying a squash takes.
+		 */
+		private Duration lockDuration = Duration.ofMinutes(10);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getLocation() {
+			return location;
+		}
+
+		public void setLocation(String location) {
+			this.location = location;
+		}
+
+		public Duration getLockDuration() {
+			return lockDuration;
+		}
+
+		public void setLockDuration(Duration lockDuration) {
+			this.lockDuration = lockDuration;
+		}
+
+	}
+
+	/**
+	 * Database snapshots restored into empty databases instead of migrating them, meant for
+	 * tests starting many contexts.
+	 */
+	public static class Snapshot {
+
+		/**
+		 * Whether to restore the snapshot of the module scripts into empty databases, saving it
+		 * after the first migration.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Directory of the H2 snapshots, "flyway-snapshots" in the temporary directory by default.
+		 */
+		private String directory;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getDirectory() {
+			return directory;
+		}
+
+		public void setDirectory(String directory) {
+			this.directory = directory;
+		}
+
+	}
+
+	/**
+	 * JPA bootstrap alongside the module migrations.
+	 */
+	public static class Jpa {
+
+		/**
+		 * Whether to build the EntityManagerFactory in the background while the modules are
+		 * migrated, only the schema validation waiting for the migrations.
+		 */
+		private boolean parallelBootstrap = false;
+
+		/**
+		 * Modules the schema validation waits for, every module of tier 0 by default.
+		 */
+		private List<String> modules = new ArrayList<>();
+
+		/**
+		 * Whether to skip the Hibernate schema validation when every module of the DataSource is
+		 * current and the same schema history and entity mappings were already validated.
+		 */
+		private boolean skipValidation = false;
+
+		/**
+		 * Name of the table recording the validated fingerprints.
+		 */
+		private String validationTable = "flyway_schema_validation";
+
+		/**
+		 * Maximum age of a validation, after which the schema is validated again even though
+		 * nothing changed.
+		 */
+		private Duration forceValidationInterval = Duration.ofDays(7);
+
+		public boolean isParallelBootstrap() {
+			return parallelBootstrap;
+		}
+
+		public void setParallelBootstrap(boolean parallelBootstrap) {
+			this.parallelBootstrap = parallelBootstrap;
+		}
+
+		public List<String> getModules() {
+			return modules;
+		}
+
+		public void setModules(List<String> modules) {
+			this.modules = modules;
+		}
+
+		public boolean isSkipValidation() {
+			return skipValidation;
+		}
+
+		public void setSkipValidation(boolean skipValidation) {
+			this.skipValidation = skipValidation;
+		}
+
+		public String getValidationTable() {
+			return validationTable;
+		}
+
+		public void setValidationTable(String validationTable) {
+			this.validationTable = validationTable;
+		}
+
+		public Duration getForceValidationInterval() {
+			return forceValidationInterval;
+		}
+
+		public void setForceValidationInterval(Duration forceValidationInterval) {
+			this.forceValidationInterval = forceValidationInterval;
+		}
+
+	}
+
+	/**
+	 * Live migration progress published as FlywayProgressEvent.
+	 */
+	public static class Progress {
+
+		/**
+		 * Whether to publish the progress of the migrations.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Minimum interval between two progress events of a running script.
+		 */
+		private Duration interval = Duration.ofSeconds(1);
+
+		/**
+		 * Timeout of a subscription to the "flywayprogress" server-sent events endpoint.
+		 */
+		private Duration sseTimeout = Duration.ofMinutes(30);
+
+		/**
+		 * Maximum number of progress events waiting to be sent to the server-sent events
+		 * subscribers. Further events are dropped instead of blocking the migrations.
+		 */
+		private int sseQueueCapacity = 1000;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public Duration getSseTimeout() {
+			return sseTimeout;
+		}
+
+		public void setSseTimeout(Duration sseTimeout) {
+			this.sseTimeout = sseTimeout;
+		}
+
+		public int getSseQueueCapacity() {
+			return sseQueueCapacity;
+		}
+
+		public void setSseQueueCapacity(int sseQueueCapacity) {
+			this.sseQueueCapacity = sseQueueCapacity;
+		}
+
+	}
+
+	/**
+	 * Tenants multiplied by the tenant-aware modules, each tenant migrated separately.
+	 */
+	public static class Tenant {
+
+		/**
+		 * Whether to migrate the tenant-aware modules once per tenant.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Static list of tenants, used when no query is set and no FlywayTenantProvider bean
+		 * is defined.
+		 */
+		private List<String> tenants = new ArrayList<>();
+
+		/**
+		 * SQL query returning the tenants in its first column, run against the Flyway
+		 * DataSource.
+		 */
+		private String query;
+
+		/**
+		 * Patterns of the tenant-aware modules, using '?' and '*' wildcards. All modules when
+		 * empty; other modules are migrated once, before the tenants.
+		 */
+		private List<String> modules = new ArrayList<>();
+
+		/**
+		 * Schema of a tenant for the modules that do not declare schemas. Can contain the
+		 * "{tenant}" and "{module}" variables.
+		 */
+		private String schema = "{tenant}";
+
+		/**
+		 * Maximum number of tenants migrated at the same time on one DataSource, further
+		 * capped by the size of its connection pool.
+		 */
+		private int concurrency = 4;
+
+		/**
+		 * Whether to fail the startup when a tenant failed, once every tenant was attempted.
+		 */
+		private boolean failOnError = true;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public List<String> getTenants() {
+			return tenants;
+		}
+
+		public void setTenants(List<String> tenants) {
+			this.tenants = tenants;
+		}
+
+		public String getQuery() {
+			return query;
+		}
+
+		public void setQuery(String query) {
+			this.query = query;
+		}
+
+		public List<String> getModules() {
+			return modules;
+		}
+
+		public void setModules(List<String> modules) {
+			this.modules = modules;
+		}
+
+		public String getSchema() {
+			return schema;
+		}
+
+		public void setSchema(String schema) {
+			this.schema = schema;
+		}
+
+		public int getConcurrency() {
+			return concurrency;
+		}
+
+		public void setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+		}
+
+		public boolean isFailOnError() {
+			return failOnError;
+		}
+
+		public void setFailOnError(boolean failOnError) {
+			this.failOnError = failOnError;
+		}
+
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.actuate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import org.flywaydb.spring.boot.ext.FlywayModularizedOperations;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatus;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatusRegistry;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * 模块迁移状态端点（/actuator/flywaymodules），读取的数据来自状态快照，不会访问数据库；
+ * 写操作（POST /actuator/flywaymodules/{module}）可按需迁移或校验模块，模块名为 * 时迁移全部模块
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@Endpoint(id = "flywaymodules")
+public class FlywayModularizedEndpoint {
+
+	private static final String ALL_MODULES = "*";
+
+	private final FlywayModuleStatusRegistry statusRegistry;
+
+	private final FlywayModularizedOperations operations;
+
+	public FlywayModularizedEndpoint(FlywayModuleStatusRegistry statusRegistry) {
+		this(statusRegistry, null);
+	}
+
+	public FlywayModularizedEndpoint(FlywayModuleStatusRegistry statusRegistry,
+			FlywayModularizedOperations operations) {
+		this.statusRegistry = statusRegistry;
+		this.operations = operations;
+	}
+
+	@ReadOperation
+	public List<FlywayModuleStatus> modules() {
+		return this.statusRegistry.getStatuses();
+	}
+
+	@ReadOperation
+	public List<FlywayModuleStatus> module(@Selector String module) {
+		return this.statusRegistry.getStatuses().stream().filter((status) -> status.getModule().equals(module))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Run an operation on a module and wait for its completion.
+	 * @param module the module name, or <code>*</code> to migrate every module
+	 * @param action <code>migrate</code> (default) or <code>validate</code>
+	 * @return the statuses of the module after a migration, or the validation results
+	 */
+	@WriteOperation
+	public Object operate(@Selector String module, @Nullable String action) {
+		if (this.operations == null) {
+			throw new InvalidEndpointRequestException("On-demand operations are not available",
+					"No FlywayModularizedOperations bean");
+		}
+		boolean all = ALL_MODULES.equals(module);
+		if (!all && !this.operations.getModules().contains(module)) {
+			throw new InvalidEndpointRequestException("Unknown Flyway module: " + module, "Unknown module");
+		}
+		if (action == null || "migrate".equals(action)) {
+			join(all ? this.operations.migrateAll() : this.operations.migrate(module));
+			return all ? modules() : module(module);
+		}
+		if ("validate".equals(action) && !all) {
+			return join(this.operations.validate(module));
+		}
+		throw new InvalidEndpointRequestException("Unsupported action: " + action, "Unsupported action");
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException ex) {
+			// 直接抛出迁移异常，便于调用方看到失败原因
+			throw (ex.getCause() instanceof RuntimeException) ? (RuntimeException) ex.getCause() : ex;
+		}
+	}
+
+}
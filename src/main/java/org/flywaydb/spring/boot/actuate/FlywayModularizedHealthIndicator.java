@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.actuate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatus;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatus.State;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatusRegistry;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * 模块迁移健康检查：任一模块迁移失败时为 DOWN，按状态汇总模块数量，数据来自状态快照
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModularizedHealthIndicator extends AbstractHealthIndicator {
+
+	private final FlywayModuleStatusRegistry statusRegistry;
+
+	public FlywayModularizedHealthIndicator(FlywayModuleStatusRegistry statusRegistry) {
+		super("Flyway modules health check failed");
+		this.statusRegistry = statusRegistry;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) throws Exception {
+		Map<State, Integer> counts = new EnumMap<>(State.class);
+		List<String> failed = new ArrayList<>();
+		for (FlywayModuleStatus status : this.statusRegistry.getStatuses()) {
+			counts.merge(status.getState(), 1, Integer::sum);
+			if (status.getState() == State.FAILED) {
+				failed.add((status.getTenant() != null) ? status.getModule() + "@" + status.getTenant()
+						: status.getModule());
+			}
+		}
+		if (failed.isEmpty()) {
+			builder.up();
+		}
+		else {
+			builder.down().withDetail("failed", failed);
+		}
+		counts.forEach((state, count) -> builder.withDetail(state.name().toLowerCase(Locale.ENGLISH), count));
+	}
+
+}
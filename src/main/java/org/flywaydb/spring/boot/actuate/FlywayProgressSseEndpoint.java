@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.actuate;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.flywaydb.spring.boot.ext.progress.FlywayProgressEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 迁移进度的 Server-Sent Events 端点（/actuator/flywayprogress），将 {@link FlywayProgressEvent} 推送给所有订阅者，
+ * 需 Spring MVC 环境。事件由独立线程发送，不阻塞执行迁移的线程；发送队列已满（客户端过慢）时丢弃事件
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@RestControllerEndpoint(id = "flywayprogress")
+public class FlywayProgressSseEndpoint implements ApplicationListener<FlywayProgressEvent>, DisposableBean {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayProgressSseEndpoint.class);
+
+	private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final long timeout;
+
+	private final ThreadPoolExecutor sender;
+
+	/**
+	 * Create a new endpoint.
+	 * @param timeout the timeout of a subscription in milliseconds, 0 for none
+	 * @param queueCapacity the maximum number of events waiting to be sent, further events
+	 * being dropped
+	 */
+	public FlywayProgressSseEndpoint(long timeout, int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be positive");
+		this.timeout = timeout;
+		this.sender = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+				(runnable) -> {
+					Thread thread = new Thread(runnable, "flyway-progress-sse");
+					thread.setDaemon(true);
+					return thread;
+				}, (runnable, executor) -> {
+					// 不阻塞迁移线程，丢弃事件
+					long count = this.dropped.incrementAndGet();
+					LOG.debug("Progress event dropped, {} so far, the subscribers are too slow", count);
+				});
+		this.sender.allowCoreThreadTimeOut(true);
+	}
+
+	@GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter subscribe() {
+		SseEmitter emitter = createEmitter(this.timeout);
+		emitter.onCompletion(() -> this.emitters.remove(emitter));
+		emitter.onTimeout(() -> this.emitters.remove(emitter));
+		emitter.onError((ex) -> this.emitters.remove(emitter));
+		this.emitters.add(emitter);
+		return emitter;
+	}
+
+	/**
+	 * Create the emitter of a subscription.
+	 */
+	protected SseEmitter createEmitter(long timeout) {
+		return new SseEmitter(timeout);
+	}
+
+	@Override
+	public void onApplicationEvent(FlywayProgressEvent event) {
+		if (this.emitters.isEmpty()) {
+			return;
+		}
+		Map<String, Object> data = toMap(event);
+		this.sender.execute(() -> send(event, data));
+	}
+
+	private void send(FlywayProgressEvent event, Map<String, Object> data) {
+		for (SseEmitter emitter : this.emitters) {
+			try {
+				emitter.send(SseEmitter.event().name(event.getType().name()).data(data));
+			}
+			catch (IOException | IllegalStateException ex) {
+				// 客户端已断开
+				this.emitters.remove(emitter);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of events dropped because the send queue was full.
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	@Override
+	public void destroy() {
+		this.sender.shutdownNow();
+	}
+
+	private static Map<String, Object> toMap(FlywayProgressEvent event) {
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("type", event.getType());
+		data.put("module", event.getModule());
+		data.put("tenant", event.getTenant());
+		data.put("script", event.getScript());
+		data.put("statements", event.getStatements());
+		data.put("bytes", event.getBytes());
+		data.put("bytesTotal", event.getBytesTotal());
+		data.put("elapsedMillis", event.getElapsedMillis());
+		data.put("timestamp", event.getTimestamp());
+		return data;
+	}
+
+}
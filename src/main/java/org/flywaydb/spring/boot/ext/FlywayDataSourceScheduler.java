@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * 按数据库并行迁移：同一数据库上的模块按声明顺序依次迁移，不同数据库（如各个分片库）之间完全并行。
+ * 模块的数据源各自包装或按模块配置创建，同一数据库常有多个数据源实例，故按 JDBC URL 及用户分组
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayDataSourceScheduler {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayDataSourceScheduler.class);
+
+	/**
+	 * Migrate the given modules, one thread per database.
+	 * @param flyways the modules to migrate
+	 * @param migration the migration to apply to a module
+	 */
+	public void migrate(List<Flyway> flyways, Consumer<Flyway> migration) {
+		migrateGroups(flyways, (group) -> group.forEach(migration));
+	}
+
+	/**
+	 * Migrate the given modules, one thread per database.
+	 * @param flyways the modules to migrate
+	 * @param migration the migration to apply to the modules of a database, in declaration order
+	 */
+	public void migrateGroups(List<Flyway> flyways, Consumer<List<Flyway>> migration) {
+		Map<DataSource, String> databases = new IdentityHashMap<>();
+		Map<String, List<Flyway>> index = new HashMap<>();
+		List<List<Flyway>> groups = new ArrayList<>();
+		for (Flyway flyway : flyways) {
+			String database = databases.computeIfAbsent(flyway.getConfiguration().getDataSource(), this::getDatabase);
+			index.computeIfAbsent(database, (key) -> {
+				List<Flyway> group = new ArrayList<>();
+				groups.add(group);
+				return group;
+			}).add(flyway);
+		}
+		if (groups.size() <= 1) {
+			migration.accept(flyways);
+			return;
+		}
+		LOG.info("Migrating {} modules on {} databases in parallel .. ", flyways.size(), groups.size());
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(groups.size(), (runnable) -> {
+			Thread thread = new Thread(runnable, "flyway-datasource-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		RuntimeException failure = null;
+		try {
+			List<Future<?>> futures = new ArrayList<>(groups.size());
+			for (List<Flyway> group : groups) {
+				futures.add(executor.submit(() -> migration.accept(group)));
+			}
+			// 等待所有数据源完成后再抛出首个异常，避免中断其他数据源上正在执行的迁移
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException ex) {
+					RuntimeException cause = (ex.getCause() instanceof RuntimeException)
+							? (RuntimeException) ex.getCause()
+							: new IllegalStateException(ex.getCause());
+					if (failure == null) {
+						failure = cause;
+					}
+					else {
+						failure.addSuppressed(cause);
+					}
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while migrating modules", ex);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Return the key of the database of the given DataSource: its JDBC URL and user, or the
+	 * DataSource itself if they cannot be read.
+	 */
+	protected String getDatabase(DataSource dataSource) {
+		try {
+			return JdbcUtils.extractDatabaseMetaData(dataSource,
+					(metaData) -> metaData.getURL() + " (" + metaData.getUserName() + ")");
+		}
+		catch (MetaDataAccessException ex) {
+			LOG.warn("Unable to read the JDBC URL of {}, grouping its modules by instance", dataSource, ex);
+			return ObjectUtils.identityToString(dataSource);
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.Assert;
+
+/**
+ * 延迟发布迁移期间的事件：全部单例创建完成之前只缓存事件，之后按顺序发布。
+ * 并发启动时主线程持有单例锁等待迁移，迁移线程若在此时发布事件，事件广播需创建监听器 Bean，二者将互相等待
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayDeferredEventPublisher implements ApplicationEventPublisher {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayDeferredEventPublisher.class);
+
+	private final ApplicationEventPublisher target;
+
+	private final List<Object> deferred = new ArrayList<>();
+
+	private volatile boolean ready = false;
+
+	public FlywayDeferredEventPublisher(ApplicationEventPublisher target) {
+		Assert.notNull(target, "ApplicationEventPublisher must not be null");
+		this.target = target;
+	}
+
+	@Override
+	public void publishEvent(Object event) {
+		if (!this.ready) {
+			synchronized (this.deferred) {
+				if (!this.ready) {
+					this.deferred.add(event);
+					return;
+				}
+			}
+		}
+		this.target.publishEvent(event);
+	}
+
+	/**
+	 * Determine whether the events are published immediately.
+	 */
+	public boolean isReady() {
+		return this.ready;
+	}
+
+	/**
+	 * Publish the deferred events and the following ones immediately, to be called once every
+	 * singleton was created, e.g. from {@code SmartInitializingSingleton#afterSingletonsInstantiated()}.
+	 */
+	public void ready() {
+		synchronized (this.deferred) {
+			if (this.ready) {
+				return;
+			}
+			// 在锁内发布，保证缓存的事件先于之后的事件
+			for (Object event : this.deferred) {
+				try {
+					this.target.publishEvent(event);
+				}
+				catch (RuntimeException ex) {
+					// 监听器的异常不影响启动
+					LOG.warn("Unable to publish {}", event, ex);
+				}
+			}
+			this.deferred.clear();
+			this.ready = true;
+		}
+	}
+
+}
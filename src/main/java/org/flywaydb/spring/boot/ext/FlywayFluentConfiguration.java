@@ -19,8 +19,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
-import org.flywaydb.spring.boot.ext.resolver.LocationModuleResolver;
+import org.flywaydb.spring.boot.ext.resolver.FlywayTemplate;
+import org.flywaydb.spring.boot.ext.resolver.FlywayTemplateResolver;
 
 /**
  * 增加模块名称参数
@@ -39,6 +41,18 @@ public class FlywayFluentConfiguration extends FluentConfiguration {
 	 * The locations of migrations scripts.
 	 */
 	private List<String> locationAsStrings = new ArrayList<>();
+	/**
+	 * Whether to replace placeholders with compiled templates instead of Flyway's own replacement.
+	 */
+	private boolean placeholderTemplate = false;
+	/**
+	 * Priority tier of the module, 0 being migrated during startup.
+	 */
+	private int tier = 0;
+	/**
+	 * The modules of the same tier this module depends on.
+	 */
+	private List<String> dependsOn = new ArrayList<>();
 
     /**
      * Creates a new default configuration.
@@ -68,12 +82,49 @@ public class FlywayFluentConfiguration extends FluentConfiguration {
 
     @Override
     public FluentConfiguration locations(String... locations) {
-		String[] moduleLocations = new LocationModuleResolver(this.getModule())
-				.resolveLocations(locations);
+		String[] moduleLocations = new String[locations.length];
+		for (int i = 0; i < locations.length; i++) {
+			moduleLocations[i] = FlywayTemplate.of(locations[i]).resolve(
+					(name) -> FlywayTemplateResolver.MODULE_VARIABLE.equals(name) ? this.getModule() : null);
+		}
 		this.locationAsStrings = Arrays.asList(moduleLocations);
     	return super.locations(moduleLocations);
     }
     
+    /**
+     * Whether to replace placeholders with templates compiled once per script and cached by checksum,
+     * instead of Flyway's own replacement. Checksums of versioned migrations are then computed on
+     * the replaced text.
+     * @param placeholderTemplate {@code true} to use compiled templates (default: false)
+     * @return this configuration
+     */
+    public FlywayFluentConfiguration placeholderTemplate(boolean placeholderTemplate) {
+    	this.placeholderTemplate = placeholderTemplate;
+    	return this;
+    }
+    
+    /**
+     * Set the priority tier of the module. Tier 0 is migrated during startup, higher tiers in
+     * the background once the application is ready.
+     * @param tier the tier (default: 0)
+     * @return this configuration
+     */
+    public FlywayFluentConfiguration tier(int tier) {
+    	this.tier = tier;
+    	return this;
+    }
+    
+    /**
+     * Set the modules of the same tier this module depends on. They are migrated before it,
+     * also when the modules are shared between replicas through leases.
+     * @param modules the modules (default: none)
+     * @return this configuration
+     */
+    public FlywayFluentConfiguration dependsOn(String... modules) {
+    	this.dependsOn = new ArrayList<>(Arrays.asList(modules));
+    	return this;
+    }
+    
     protected void init(String baselineDescription, String baselineVersion) {
     	this.locations(DEFAULT_FLYWAY_MODULE_PATH)
     	 	.table(DEFAULT_FLYWAY_MODULE_TABLE)
@@ -82,6 +133,11 @@ public class FlywayFluentConfiguration extends FluentConfiguration {
     	 	.baselineVersion(baselineVersion);
 	}
 
+    @Override
+    public Flyway load() {
+    	return new FlywayModule(this.getModule(), null, this.getTier(), this.getDependsOn(), this);
+    }
+
     @Override
     public String getTable() {
     	return super.getTable();
@@ -94,5 +150,17 @@ public class FlywayFluentConfiguration extends FluentConfiguration {
 	public List<String> getLocationAsStrings() {
 		return locationAsStrings;
 	}
+
+	public boolean isPlaceholderTemplate() {
+		return placeholderTemplate;
+	}
+
+	public int getTier() {
+		return tier;
+	}
+
+	public List<String> getDependsOn() {
+		return dependsOn;
+	}
 	
 }
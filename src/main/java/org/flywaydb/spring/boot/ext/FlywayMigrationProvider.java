@@ -1,8 +1,10 @@
 package org.flywaydb.spring.boot.ext;
 
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
@@ -11,33 +13,53 @@ import org.springframework.context.ApplicationEventPublisherAware;
  * TODO
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
  */
-public class FlywayMigrationProvider implements FlywayMigrationStrategy, ApplicationEventPublisherAware {
+public class FlywayMigrationProvider implements FlywayMigrationStrategy, ApplicationEventPublisherAware,
+		SmartInitializingSingleton {
 	
 	protected static Logger LOG = LoggerFactory.getLogger(FlywayMigrationProvider.class);
 
-	private ApplicationEventPublisher applicationEventPublisher;
+	private FlywayDeferredEventPublisher applicationEventPublisher;
 	 
 	@Override
 	public void migrate(Flyway flyway) {
+		this.execute(flyway);
+	}
+
+	/**
+	 * Migrate the given module and publish a {@link FlywayMigratedEvent}.
+	 * @param flyway the module to migrate
+	 * @return the result of the migration
+	 * @throws RuntimeException the failure of the migration, logged and rethrown so that the
+	 * retry policy, the watchdog and the startup see it
+	 */
+	public MigrateResult execute(Flyway flyway) {
 		
         try {
         	LOG.info("[Start] Flyway Migration run .. ");
         	// 执行migrate操作
-			flyway.migrate();
+        	MigrateResult result = flyway.migrate();
 			// 推送迁移完成后的通知
 			getApplicationEventPublisher().publishEvent(new FlywayMigratedEvent(this));
 			
 			LOG.info("[End] Flyway Migration run .. ");
+			return result;
 			
-		} catch (Exception e) {
+		} catch (RuntimeException e) {
 			LOG.error("Flyway Migrated Error . ", e);
+			throw e;
 		}
 		
 	}
 
 	@Override
 	public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
-		this.applicationEventPublisher = applicationEventPublisher;
+		// 启动迁移可能在其他线程中执行，单例创建完成之前延迟发布
+		this.applicationEventPublisher = new FlywayDeferredEventPublisher(applicationEventPublisher);
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		this.applicationEventPublisher.ready();
 	}
 
 	public ApplicationEventPublisher getApplicationEventPublisher() {
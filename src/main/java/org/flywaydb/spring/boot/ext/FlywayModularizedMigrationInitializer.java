@@ -15,11 +15,52 @@
  */
 package org.flywaydb.spring.boot.ext;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.output.MigrateOutput;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.core.internal.license.VersionPrinter;
+import org.flywaydb.spring.boot.ext.lease.FlywayModuleLeaseCoordinator;
+import org.flywaydb.spring.boot.ext.profile.FlywayStatementProfiler;
+import org.flywaydb.spring.boot.ext.retry.FlywayRetryPolicy;
+import org.flywaydb.spring.boot.ext.session.FlywaySharedSessionDataSource;
+import org.flywaydb.spring.boot.ext.snapshot.FlywayDatabaseSnapshots;
+import org.flywaydb.spring.boot.ext.squash.FlywayBaselineSquashes;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatusRegistry;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantMigrationExecutor;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantMigrationReport;
+import org.flywaydb.spring.boot.ext.timeout.FlywayMigrationWatchdog;
+import org.flywaydb.spring.boot.ext.timeout.FlywayMigrationWatchdog.Round;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
 import org.springframework.util.Assert;
 
@@ -27,12 +68,54 @@ import org.springframework.util.Assert;
  * TODO
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
  */
-public class FlywayModularizedMigrationInitializer implements InitializingBean, Ordered {
+public class FlywayModularizedMigrationInitializer
+		implements InitializingBean, SmartInitializingSingleton, ApplicationListener<ApplicationReadyEvent>,
+		DisposableBean, Ordered {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayModularizedMigrationInitializer.class);
 
 	private final List<Flyway> flyways;
 
 	private final FlywayMigrationStrategy migrationStrategy;
 
+	private FlywayModuleLeaseCoordinator leaseCoordinator;
+
+	private FlywayTenantMigrationExecutor tenantExecutor;
+
+	private FlywayDataSourceScheduler dataSourceScheduler;
+
+	private FlywayModuleStatusRegistry statusRegistry;
+
+	private FlywayMigrationWatchdog watchdog;
+
+	private FlywayRetryPolicy retryPolicy;
+
+	private FlywayModuleBarrier barrier;
+
+	private FlywayDatabaseSnapshots snapshots;
+
+	private FlywayBaselineSquashes squashes;
+
+	private FlywayStatementProfiler profiler;
+
+	private final Set<Flyway> arrived = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+	/**
+	 * The locks serializing the operations on the same module, shared with the on-demand operations
+	 * and the location watcher.
+	 */
+	private final Map<Flyway, Object> locks = new ConcurrentHashMap<>();
+
+	private Map<Integer, List<Flyway>> backgroundTiers = Collections.emptyMap();
+
+	private ExecutorService backgroundExecutor;
+
+	private boolean concurrentStartup = false;
+
+	private ExecutorService startupExecutor;
+
+	private CompletableFuture<Void> startup;
+
 	private int order = 0;
 
 	/**
@@ -57,18 +140,387 @@ public class FlywayModularizedMigrationInitializer implements InitializingBean,
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
-		if (this.migrationStrategy != null) {
-			for (Flyway flyway : flyways) {
-				this.migrationStrategy.migrate(flyway);
+		TreeMap<Integer, List<Flyway>> tiers = new TreeMap<>();
+		Map<String, Integer> moduleTiers = new HashMap<>();
+		for (Flyway flyway : this.flyways) {
+			tiers.computeIfAbsent(Math.max(0, FlywayModule.getTier(flyway)), (key) -> new ArrayList<>()).add(flyway);
+			moduleTiers.merge(FlywayModule.getModule(flyway), Math.max(0, FlywayModule.getTier(flyway)), Math::min);
+		}
+		tiers.replaceAll((tier, modules) -> orderByDependencies(tier, modules, moduleTiers));
+		// 层级 0 在启动时同步迁移，其余层级在应用就绪后于后台按顺序迁移
+		List<Flyway> startup = tiers.remove(0);
+		this.backgroundTiers = tiers;
+		if (startup == null && this.snapshots == null) {
+			return;
+		}
+		if (this.concurrentStartup) {
+			// 与其他 Bean 的创建并行迁移，依赖模块的 Bean 由 FlywayModuleDependencyPostProcessor 按模块等待
+			this.startupExecutor = newExecutor("flyway-startup");
+			this.startup = CompletableFuture.runAsync(() -> this.migrateStartup(startup), this.startupExecutor);
+		}
+		else {
+			this.migrateStartup(startup);
+		}
+	}
+
+	/**
+	 * Order the modules of a tier after the modules they depend on, keeping the declared order
+	 * otherwise.
+	 */
+	private static List<Flyway> orderByDependencies(int tier, List<Flyway> flyways, Map<String, Integer> moduleTiers) {
+		Map<String, List<Flyway>> modules = new LinkedHashMap<>();
+		for (Flyway flyway : flyways) {
+			modules.computeIfAbsent(FlywayModule.getModule(flyway), (key) -> new ArrayList<>()).add(flyway);
+		}
+		List<Flyway> ordered = new ArrayList<>(flyways.size());
+		Set<String> visited = new HashSet<>();
+		for (String module : modules.keySet()) {
+			visit(module, tier, modules, moduleTiers, visited, new LinkedHashSet<>(), ordered);
+		}
+		return ordered;
+	}
+
+	private static void visit(String module, int tier, Map<String, List<Flyway>> modules,
+			Map<String, Integer> moduleTiers, Set<String> visited, Set<String> path, List<Flyway> ordered) {
+		if (visited.contains(module)) {
+			return;
+		}
+		Assert.state(path.add(module), () -> "Cyclic module dependencies: " + String.join(" -> ", path) + " -> " + module);
+		for (String dependency : FlywayModule.getDependsOn(modules.get(module).get(0))) {
+			Integer dependencyTier = moduleTiers.get(dependency);
+			Assert.state(dependencyTier != null,
+					() -> "Module '" + module + "' depends on unknown module '" + dependency + "'");
+			Assert.state(dependencyTier <= tier, () -> "Module '" + module + "' of tier " + tier
+					+ " depends on module '" + dependency + "' of the later tier " + dependencyTier);
+			// 较低层级的模块已先迁移
+			if (dependencyTier == tier) {
+				visit(dependency, tier, modules, moduleTiers, visited, path, ordered);
 			}
 		}
+		path.remove(module);
+		visited.add(module);
+		ordered.addAll(modules.get(module));
+	}
+
+	private void migrateStartup(List<Flyway> startup) {
+		if (this.snapshots != null) {
+			// 快照包含全部层级的模块
+			this.snapshots.restore(this.flyways);
+		}
+		if (startup != null) {
+			try {
+				this.migrateTier(startup);
+			}
+			catch (RuntimeException ex) {
+				this.completed(ex);
+				throw ex;
+			}
+		}
+		if (this.backgroundTiers.isEmpty()) {
+			this.completed(null);
+		}
+	}
+
+	private void completed(RuntimeException failure) {
+		if (this.profiler != null) {
+			this.profiler.report();
+		}
+		if (this.snapshots == null) {
+			return;
+		}
+		if (failure != null) {
+			this.snapshots.discard();
+		}
 		else {
-			for (Flyway flyway : flyways) {
-				flyway.migrate();
+			this.snapshots.save();
+		}
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (this.startup == null) {
+			return;
+		}
+		// 启动迁移失败时应用仍然启动失败
+		try {
+			this.startup.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
 			}
+			throw ex;
+		}
+		finally {
+			this.startupExecutor.shutdown();
 		}
 	}
 
+	@Override
+	public synchronized void onApplicationEvent(ApplicationReadyEvent event) {
+		if (this.backgroundTiers.isEmpty() || this.backgroundExecutor != null) {
+			return;
+		}
+		this.backgroundExecutor = newExecutor("flyway-background-tiers");
+		this.backgroundExecutor.execute(this::migrateBackgroundTiers);
+	}
+
+	/**
+	 * Determine whether the background tiers were started, i.e. the application is ready.
+	 */
+	public synchronized boolean isBackgroundStarted() {
+		return this.backgroundExecutor != null;
+	}
+
+	private static ExecutorService newExecutor(String name) {
+		return Executors.newSingleThreadExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private void migrateBackgroundTiers() {
+		RuntimeException failure = null;
+		for (Map.Entry<Integer, List<Flyway>> tier : this.backgroundTiers.entrySet()) {
+			if (failure != null) {
+				// 后续层级可能依赖失败的层级，不再迁移
+				this.arriveRemaining(tier.getValue(),
+						new IllegalStateException("Skipped after a failure of a previous tier", failure));
+				continue;
+			}
+			try {
+				LOG.info("Migrating {} module(s) of tier {} in the background", tier.getValue().size(), tier.getKey());
+				this.migrateTier(tier.getValue());
+			}
+			catch (RuntimeException ex) {
+				LOG.error("Background migration of tier {} failed", tier.getKey(), ex);
+				failure = ex;
+			}
+		}
+		this.completed(failure);
+	}
+
+	private void migrateTier(List<Flyway> flyways) {
+		Set<FlywaySharedSessionDataSource> sessions = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Flyway flyway : flyways) {
+			if (flyway.getConfiguration().getDataSource() instanceof FlywaySharedSessionDataSource) {
+				sessions.add((FlywaySharedSessionDataSource) flyway.getConfiguration().getDataSource());
+			}
+		}
+		sessions.forEach(FlywaySharedSessionDataSource::open);
+		try {
+			this.migrate(flyways);
+			this.arriveRemaining(flyways, null);
+		}
+		catch (RuntimeException ex) {
+			this.arriveRemaining(flyways, ex);
+			throw ex;
+		}
+		finally {
+			sessions.forEach(FlywaySharedSessionDataSource::close);
+		}
+	}
+
+	private void migrate(List<Flyway> flyways) {
+		// fail-fast 只取消本轮的模块，不影响后台层级及按需迁移
+		Round round = (this.watchdog != null) ? this.watchdog.newRound() : null;
+		Consumer<Flyway> migration = (flyway) -> this.migrate(flyway, round);
+		List<Flyway> shared = new ArrayList<>();
+		List<Flyway> tenants = new ArrayList<>();
+		for (Flyway flyway : flyways) {
+			if (this.tenantExecutor != null && FlywayModule.getTenant(flyway) != null) {
+				tenants.add(flyway);
+			}
+			else {
+				shared.add(flyway);
+			}
+		}
+		// 先迁移共享模块，租户模块可能依赖共享模块中的对象
+		if (this.leaseCoordinator != null && this.dataSourceScheduler != null) {
+			// 各数据源并行，同一数据源上的模块仍由租约在副本之间分配
+			this.dataSourceScheduler.migrateGroups(shared, (group) -> this.leaseCoordinator.migrate(group, migration));
+		}
+		else if (this.leaseCoordinator != null) {
+			this.leaseCoordinator.migrate(shared, migration);
+		}
+		else if (this.dataSourceScheduler != null) {
+			this.dataSourceScheduler.migrate(shared, migration);
+		}
+		else {
+			shared.forEach(migration);
+		}
+		if (!tenants.isEmpty()) {
+			this.tenantExecutor.migrate(tenants, migration);
+		}
+	}
+
+	/**
+	 * Release the barrier of the modules not migrated by this instance, e.g. migrated by another
+	 * node holding the lease or skipped after a failure.
+	 */
+	private void arriveRemaining(List<Flyway> flyways, RuntimeException failure) {
+		FlywayTenantMigrationReport report = (this.tenantExecutor != null) ? this.tenantExecutor.getLastReport()
+				: null;
+		for (Flyway flyway : flyways) {
+			String tenant = FlywayModule.getTenant(flyway);
+			if (failure == null && tenant != null && report != null && report.getFailedTenants().contains(tenant)) {
+				this.arrive(flyway, new IllegalStateException("Skipped after a failure of tenant '" + tenant + "'"));
+			}
+			else {
+				this.arrive(flyway, failure);
+			}
+		}
+	}
+
+	private void arrive(Flyway flyway, Throwable failure) {
+		if (this.barrier == null || !this.arrived.add(flyway)) {
+			return;
+		}
+		if (failure != null) {
+			this.barrier.failed(flyway, failure);
+		}
+		else {
+			this.barrier.migrated(flyway);
+		}
+	}
+
+	/**
+	 * Migrate the given module outside of the startup, e.g. on demand or after its scripts changed,
+	 * the same way as the tiers: through the lease, the watchdog, the retry policy, the squashes
+	 * and the migration strategy. The module is migrated on its own: its failure does not cancel
+	 * other modules in fail-fast mode, nor does a failure of another module cancel it.
+	 * @param flyway the module to migrate
+	 * @return the result, built from the schema history when migrated by a custom
+	 * {@link FlywayMigrationStrategy}
+	 * @throws RuntimeException if the migration failed
+	 */
+	public MigrateResult migrateModule(Flyway flyway) {
+		return this.locked(flyway, () -> {
+			// 与启动时一致，租户模块不经过租约
+			boolean tenant = this.tenantExecutor != null && FlywayModule.getTenant(flyway) != null;
+			if (this.leaseCoordinator == null || tenant) {
+				return this.migrateLocked(flyway, null);
+			}
+			MigrateResult[] result = new MigrateResult[1];
+			// 按需迁移不跳过已记录完成的模块，例如脚本变更或清理之后
+			this.leaseCoordinator.migrate(Collections.singletonList(flyway),
+					(leased) -> result[0] = this.migrateLocked(leased, null), false);
+			return result[0];
+		});
+	}
+
+	/**
+	 * Run the given operation holding the lock of the module, no other migration of the module
+	 * running in this instance meanwhile.
+	 */
+	public <T> T locked(Flyway flyway, Supplier<T> operation) {
+		synchronized (this.locks.computeIfAbsent(flyway, (key) -> new Object())) {
+			return operation.get();
+		}
+	}
+
+	protected void migrate(Flyway flyway, Round round) {
+		this.locked(flyway, () -> this.migrateLocked(flyway, round));
+	}
+
+	private MigrateResult migrateLocked(Flyway flyway, Round round) {
+		long start = System.currentTimeMillis();
+		try {
+			// 回调通过 FlywayModule.getMigrating 得知所属模块及租户
+			MigrateResult result = FlywayModule.migrating(flyway,
+					() -> (this.watchdog != null) ? this.watchdog.call(round, flyway, () -> doMigrate(flyway)) : doMigrate(flyway));
+			if (this.statusRegistry != null) {
+				this.statusRegistry.migrated(flyway, result, System.currentTimeMillis() - start);
+			}
+			this.arrive(flyway, null);
+			return result;
+		}
+		catch (RuntimeException ex) {
+			if (this.statusRegistry != null) {
+				this.statusRegistry.failed(flyway, ex, System.currentTimeMillis() - start);
+			}
+			this.arrive(flyway, ex);
+			throw ex;
+		}
+	}
+
+	private MigrateResult doMigrate(Flyway flyway) {
+		// 重试位于看门狗之内，模块的时间预算包含重试
+		return (this.retryPolicy != null) ? this.retryPolicy.call(flyway, () -> attemptMigrate(flyway))
+				: attemptMigrate(flyway);
+	}
+
+	private MigrateResult attemptMigrate(Flyway flyway) {
+		if (this.squashes != null) {
+			// 新安装从合并脚本的基线开始
+			this.squashes.baselineIfEmpty(flyway);
+		}
+		if (this.migrationStrategy instanceof FlywayMigrationProvider) {
+			return ((FlywayMigrationProvider) this.migrationStrategy).execute(flyway);
+		}
+		if (this.migrationStrategy != null) {
+			// 自定义策略不返回结果，由迁移前后的历史记录得出
+			MigrationInfo[] applied = flyway.info().applied();
+			this.migrationStrategy.migrate(flyway);
+			return getResult(flyway, applied);
+		}
+		return flyway.migrate();
+	}
+
+	/**
+	 * Build the result of a migration by a custom {@link FlywayMigrationStrategy} from the schema
+	 * history: the migrations applied after the given ones.
+	 * @throws FlywayException if the strategy left a failed migration behind, e.g. after
+	 * swallowing the failure
+	 */
+	private static MigrateResult getResult(Flyway flyway, MigrationInfo[] before) {
+		MigrationInfoService info = flyway.info();
+		MigrationInfo initial = (before.length > 0) ? before[before.length - 1] : null;
+		MigrationInfo current = info.current();
+		MigrateResult result = new MigrateResult(VersionPrinter.getVersion(), null,
+				String.join(",", flyway.getConfiguration().getSchemas()));
+		result.initialSchemaVersion = getVersion(initial);
+		result.targetSchemaVersion = getVersion(current);
+		result.success = true;
+		for (MigrationInfo migration : info.applied()) {
+			if (initial != null && migration.getInstalledRank() <= initial.getInstalledRank()) {
+				continue;
+			}
+			if (migration.getState().isFailed()) {
+				throw new FlywayException("Migration " + migration.getScript() + " of module '"
+						+ FlywayModule.getModule(flyway) + "' failed");
+			}
+			result.migrations.add(new MigrateOutput(migration.getType().isUndo() ? "Undo" : "Versioned",
+					Objects.toString(getVersion(migration), ""), migration.getDescription(),
+					migration.getType().name(), migration.getPhysicalLocation(),
+					(migration.getExecutionTime() != null) ? migration.getExecutionTime() : 0));
+			result.migrationsExecuted++;
+		}
+		return result;
+	}
+
+	private static String getVersion(MigrationInfo migration) {
+		return (migration != null && migration.getVersion() != null) ? migration.getVersion().getVersion() : null;
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (this.startupExecutor != null) {
+			this.startupExecutor.shutdownNow();
+		}
+		if (this.backgroundExecutor != null) {
+			this.backgroundExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Return the modules, in migration order.
+	 */
+	public List<Flyway> getFlyways() {
+		return this.flyways;
+	}
+
 	@Override
 	public int getOrder() {
 		return this.order;
@@ -77,5 +529,60 @@ public class FlywayModularizedMigrationInitializer implements InitializingBean,
 	public void setOrder(int order) {
 		this.order = order;
 	}
+
+	public void setLeaseCoordinator(FlywayModuleLeaseCoordinator leaseCoordinator) {
+		this.leaseCoordinator = leaseCoordinator;
+	}
+
+	public void setTenantExecutor(FlywayTenantMigrationExecutor tenantExecutor) {
+		this.tenantExecutor = tenantExecutor;
+	}
+
+	public void setDataSourceScheduler(FlywayDataSourceScheduler dataSourceScheduler) {
+		this.dataSourceScheduler = dataSourceScheduler;
+	}
+
+	public void setStatusRegistry(FlywayModuleStatusRegistry statusRegistry) {
+		this.statusRegistry = statusRegistry;
+	}
+
+	public void setWatchdog(FlywayMigrationWatchdog watchdog) {
+		this.watchdog = watchdog;
+	}
+
+	public void setRetryPolicy(FlywayRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	public void setBarrier(FlywayModuleBarrier barrier) {
+		this.barrier = barrier;
+	}
+
+	/**
+	 * Set the snapshots restored into empty databases instead of migrating them, meant for
+	 * tests starting many contexts.
+	 */
+	public void setSnapshots(FlywayDatabaseSnapshots snapshots) {
+		this.snapshots = snapshots;
+	}
+
+	public void setSquashes(FlywayBaselineSquashes squashes) {
+		this.squashes = squashes;
+	}
+
+	/**
+	 * Set the profiler reporting the slowest statements once every tier was migrated.
+	 */
+	public void setProfiler(FlywayStatementProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Set whether tier 0 should be migrated concurrently with the creation of the other beans
+	 * instead of blocking it. The refresh of the context still fails if the migration fails.
+	 */
+	public void setConcurrentStartup(boolean concurrentStartup) {
+		this.concurrentStartup = concurrentStartup;
+	}
 	
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.core.api.output.ValidateResult;
+import org.flywaydb.spring.boot.ext.squash.FlywayBaselineSquashGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+/**
+ * 运行期按需迁移：在指定线程池中异步执行单个模块或全部模块的 migrate、validate 及 info，
+ * 便于不重启应用即可为某个模块应用热修复脚本。migrate 与启动迁移一样经过
+ * {@link FlywayModularizedMigrationInitializer}（租约、看门狗、重试、合并基线及迁移策略），
+ * 同一模块的操作与启动迁移、开发模式的重新迁移共用模块锁，在本节点内串行执行。
+ * <p>
+ * 多租户模块的每个租户各对应一个结果。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModularizedOperations implements DisposableBean {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayModularizedOperations.class);
+
+	private final FlywayModularizedMigrationInitializer initializer;
+
+	private final List<Flyway> flyways;
+
+	private final Executor executor;
+
+	/**
+	 * The executor created by this instance, shut down with it.
+	 */
+	private final ExecutorService ownedExecutor;
+
+	public FlywayModularizedOperations(FlywayModularizedMigrationInitializer initializer, Executor executor) {
+		Assert.notNull(initializer, "Initializer must not be null");
+		Assert.notNull(executor, "Executor must not be null");
+		this.initializer = initializer;
+		this.flyways = initializer.getFlyways();
+		this.executor = executor;
+		this.ownedExecutor = null;
+	}
+
+	/**
+	 * Create an instance running the operations on its own pool of the given size.
+	 */
+	public FlywayModularizedOperations(FlywayModularizedMigrationInitializer initializer, int poolSize) {
+		Assert.notNull(initializer, "Initializer must not be null");
+		Assert.isTrue(poolSize > 0, "Pool size must be greater than 0");
+		AtomicInteger threadCount = new AtomicInteger();
+		this.initializer = initializer;
+		this.flyways = initializer.getFlyways();
+		this.ownedExecutor = Executors.newFixedThreadPool(poolSize, (runnable) -> {
+			Thread thread = new Thread(runnable, "flyway-operations-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor = this.ownedExecutor;
+	}
+
+	/**
+	 * Migrate the given module.
+	 * @param module the module name
+	 * @return the results, one per tenant of the module; the future completes exceptionally with
+	 * the failure of the migration
+	 */
+	public CompletableFuture<List<MigrateResult>> migrate(String module) {
+		return execute(module, this::doMigrate);
+	}
+
+	/**
+	 * Migrate every module, in order, stopping at the first failure.
+	 * @return the results of the migrated modules; the future completes exceptionally with the
+	 * first failure
+	 */
+	public CompletableFuture<List<MigrateResult>> migrateAll() {
+		return supply(() -> {
+			List<MigrateResult> results = new ArrayList<>(this.flyways.size());
+			for (Flyway flyway : this.flyways) {
+				results.add(doMigrate(flyway));
+			}
+			return results;
+		});
+	}
+
+	/**
+	 * Validate the applied migrations of the given module against the available ones.
+	 */
+	public CompletableFuture<List<ValidateResult>> validate(String module) {
+		return execute(module, (flyway) -> this.initializer.locked(flyway, flyway::validateWithResult));
+	}
+
+	/**
+	 * Return the migrations of the given module with their state.
+	 */
+	public CompletableFuture<List<MigrationInfoService>> info(String module) {
+		return execute(module, Flyway::info);
+	}
+
+	/**
+	 * Generate the baseline squash of the given module, see {@link FlywayBaselineSquashGenerator}.
+	 * @param module the module name
+	 * @param version the version to squash up to, inclusive
+	 * @param scratchDataSource an empty database of the same vendor, migrated by the generation
+	 * @param outputDirectory the root directory of the squash files
+	 * @return the written file
+	 * @throws IllegalStateException (through the future) if the module is migrated per tenant
+	 */
+	public CompletableFuture<Path> generateSquash(String module, String version, DataSource scratchDataSource,
+			Path outputDirectory) {
+		return execute(module, Function.identity()).thenApplyAsync((flyways) -> {
+			// 租户模块每个租户一个实例，合并脚本只适用于共享模块
+			Assert.state(flyways.size() == 1, () -> "Module '" + module + "' is migrated per tenant, unable to squash it");
+			return new FlywayBaselineSquashGenerator().generate(flyways.get(0), version, scratchDataSource,
+					outputDirectory);
+		}, this.executor);
+	}
+
+	/**
+	 * Return the names of the modules, in migration order.
+	 */
+	public Set<String> getModules() {
+		Set<String> modules = new LinkedHashSet<>();
+		for (Flyway flyway : this.flyways) {
+			modules.add(FlywayModule.getModule(flyway));
+		}
+		return modules;
+	}
+
+	private MigrateResult doMigrate(Flyway flyway) {
+		// 状态由初始化器记录
+		MigrateResult result = this.initializer.migrateModule(flyway);
+		LOG.info("Module '{}' migrated on demand, {} migrations executed", FlywayModule.getModule(flyway),
+				result.migrationsExecuted);
+		return result;
+	}
+
+	private <T> CompletableFuture<List<T>> execute(String module, Function<Flyway, T> operation) {
+		List<Flyway> targets = new ArrayList<>();
+		for (Flyway flyway : this.flyways) {
+			if (FlywayModule.getModule(flyway).equals(module)) {
+				targets.add(flyway);
+			}
+		}
+		if (targets.isEmpty()) {
+			CompletableFuture<List<T>> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalArgumentException("Unknown Flyway module: " + module));
+			return future;
+		}
+		return supply(() -> {
+			List<T> results = new ArrayList<>(targets.size());
+			for (Flyway flyway : targets) {
+				results.add(operation.apply(flyway));
+			}
+			return results;
+		});
+	}
+
+	private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+		return CompletableFuture.supplyAsync(operation, this.executor);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.ownedExecutor != null) {
+			this.ownedExecutor.shutdown();
+		}
+	}
+
+}
@@ -18,6 +18,7 @@ package org.flywaydb.spring.boot.ext;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -123,6 +124,29 @@ public class FlywayModularizedProperties {
 	 */
 	private boolean placeholderReplacement = true;
 
+	/**
+	 * Whether to replace placeholders with templates compiled once per script and cached
+	 * by checksum, instead of Flyway's own replacement. Unlike Flyway, checksums of versioned
+	 * migrations are then computed on the replaced text: checksums recorded on the raw text
+	 * before enabling templates are updated automatically, but changing the value of a
+	 * placeholder used by an applied versioned migration fails validation until repaired.
+	 */
+	private boolean placeholderTemplate;
+
+	/**
+	 * Priority tier of the module. Tier 0 is migrated during startup before the beans depending
+	 * on the migrations, higher tiers in ascending order in the background once the application
+	 * is ready.
+	 */
+	private int tier = 0;
+
+	/**
+	 * Modules of the same tier this module depends on. They are migrated before it, also when
+	 * replicas share the modules through leases; modules without dependencies may be migrated
+	 * by different replicas at the same time.
+	 */
+	private List<String> dependsOn = new ArrayList<>();
+
 	/**
 	 * File name prefix for SQL migrations.
 	 */
@@ -148,6 +172,22 @@ public class FlywayModularizedProperties {
 	 */
 	private String target;
 
+	/**
+	 * Name of the DataSource bean to migrate, e.g. one per shard. Ignored when a url or
+	 * user is set.
+	 */
+	private String dataSource;
+
+	/**
+	 * Time budget of the whole migration of the module, overriding spring.flyway.timeout.module.
+	 */
+	private Duration timeout;
+
+	/**
+	 * Time budget of a single statement of the module, overriding spring.flyway.timeout.statement.
+	 */
+	private Duration statementTimeout;
+
 	/**
 	 * JDBC url of the database to migrate. If not set, the primary configured data source
 	 * is used.
@@ -15,14 +15,20 @@
  */
 package org.flywaydb.spring.boot.ext;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
 
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
 
 import org.springframework.boot.jdbc.SchemaManagement;
 import org.springframework.boot.jdbc.SchemaManagementProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.util.DigestUtils;
 
 /**
  * A Flyway {@link SchemaManagementProvider} that determines if the schema is managed by
@@ -41,8 +47,56 @@ public class FlywayModularizedSchemaManagementProvider implements SchemaManageme
 	@Override
 	public SchemaManagement getSchemaManagement(DataSource dataSource) {
 		return StreamSupport.stream(this.flywayInstances.spliterator(), false)
-				.map((flyway) -> flyway.getConfiguration().getDataSource()).filter(dataSource::equals).findFirst()
-				.map((managedDataSource) -> SchemaManagement.MANAGED).orElse(SchemaManagement.UNMANAGED);
+				.filter((flyway) -> isMigrating(flyway, dataSource)).findFirst()
+				.map((flyway) -> SchemaManagement.MANAGED).orElse(SchemaManagement.UNMANAGED);
+	}
+
+	/**
+	 * Return the fingerprint of the schema history of every module migrating the given
+	 * DataSource, provided they are all verified current: no pending nor failed migration.
+	 * @param dataSource the DataSource
+	 * @return the fingerprint, or {@code null} if the DataSource is not managed or one of its
+	 * modules is not current
+	 */
+	public String getSchemaFingerprint(DataSource dataSource) {
+		StringBuilder history = new StringBuilder();
+		boolean managed = false;
+		for (Flyway flyway : this.flywayInstances) {
+			if (!isMigrating(flyway, dataSource)) {
+				continue;
+			}
+			MigrationInfoService info = flyway.info();
+			if (info.pending().length > 0) {
+				return null;
+			}
+			append(history, FlywayModule.getModule(flyway), FlywayModule.getTenant(flyway),
+					Arrays.toString(flyway.getConfiguration().getSchemas()), flyway.getConfiguration().getTable());
+			for (MigrationInfo migration : info.applied()) {
+				if (migration.getState().isFailed()) {
+					return null;
+				}
+				append(history, String.valueOf(migration.getVersion()), migration.getScript(),
+						String.valueOf(migration.getChecksum()), String.valueOf(migration.getState()));
+			}
+			managed = true;
+		}
+		return managed ? DigestUtils.md5DigestAsHex(history.toString().getBytes(StandardCharsets.UTF_8)) : null;
+	}
+
+	private static boolean isMigrating(Flyway flyway, DataSource dataSource) {
+		DataSource candidate = flyway.getConfiguration().getDataSource();
+		// 迁移使用的数据源可能经过拦截或会话共享的包装
+		while (!dataSource.equals(candidate) && candidate instanceof DelegatingDataSource) {
+			candidate = ((DelegatingDataSource) candidate).getTargetDataSource();
+		}
+		return dataSource.equals(candidate);
+	}
+
+	private static void append(StringBuilder history, String... values) {
+		for (String value : values) {
+			history.append(value).append('\u0000');
+		}
+		history.append('\n');
 	}
 
 }
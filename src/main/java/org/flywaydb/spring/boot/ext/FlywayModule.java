@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 携带模块名称的 {@link Flyway} 实例，便于按模块进行调度
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModule extends Flyway {
+
+	/**
+	 * The module migrated by the current thread.
+	 */
+	private static final ThreadLocal<Flyway> MIGRATING = new ThreadLocal<>();
+
+	/**
+     * The module of Sql migrations.
+     */
+	private final String module;
+
+	/**
+	 * The tenant migrated by this instance, or {@code null} for shared modules.
+	 */
+	private final String tenant;
+
+	/**
+	 * The priority tier of the module, 0 being migrated during startup.
+	 */
+	private final int tier;
+
+	/**
+	 * The modules of the same tier this module depends on, migrated before it.
+	 */
+	private final List<String> dependsOn;
+
+	public FlywayModule(String module, Configuration configuration) {
+		this(module, null, configuration);
+	}
+
+	public FlywayModule(String module, String tenant, Configuration configuration) {
+		this(module, tenant, 0, configuration);
+	}
+
+	public FlywayModule(String module, String tenant, int tier, Configuration configuration) {
+		this(module, tenant, tier, Collections.emptyList(), configuration);
+	}
+
+	public FlywayModule(String module, String tenant, int tier, List<String> dependsOn, Configuration configuration) {
+		super(configuration);
+		this.module = module;
+		this.tenant = tenant;
+		this.tier = tier;
+		this.dependsOn = (dependsOn != null) ? Collections.unmodifiableList(dependsOn) : Collections.emptyList();
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public int getTier() {
+		return tier;
+	}
+
+	public List<String> getDependsOn() {
+		return dependsOn;
+	}
+
+	/**
+	 * Determine the module name of the given {@link Flyway} instance.
+	 * @param flyway the flyway instance
+	 * @return the module name, or the schema history table for plain {@link Flyway} instances
+	 */
+	public static String getModule(Flyway flyway) {
+		if (flyway instanceof FlywayModule) {
+			return ((FlywayModule) flyway).getModule();
+		}
+		return flyway.getConfiguration().getTable();
+	}
+
+	/**
+	 * Determine the tenant of the given {@link Flyway} instance.
+	 * @param flyway the flyway instance
+	 * @return the tenant, or {@code null} for shared modules and plain {@link Flyway} instances
+	 */
+	public static String getTenant(Flyway flyway) {
+		if (flyway instanceof FlywayModule) {
+			return ((FlywayModule) flyway).getTenant();
+		}
+		return null;
+	}
+
+	/**
+	 * Determine the module migrated by the current thread from within one of its callbacks,
+	 * {@link Flyway#getConfiguration()} returning a new copy on every call.
+	 * @param configuration the configuration passed to the callback
+	 * @return the module, or {@code null} if the current thread is not migrating the module of
+	 * this configuration through {@link FlywayModularizedMigrationInitializer}
+	 */
+	public static Flyway getMigrating(Configuration configuration) {
+		Flyway flyway = MIGRATING.get();
+		if (flyway == null) {
+			return null;
+		}
+		Configuration migrating = flyway.getConfiguration();
+		// 回调中的配置同样是副本，按数据源及历史表确认是同一模块
+		return (migrating.getDataSource() == configuration.getDataSource()
+				&& migrating.getTable().equals(configuration.getTable())) ? flyway : null;
+	}
+
+	/**
+	 * Run the given migration of the given module, exposing the module to its callbacks.
+	 */
+	static <T> T migrating(Flyway flyway, Supplier<T> migration) {
+		Flyway previous = MIGRATING.get();
+		MIGRATING.set(flyway);
+		try {
+			return migration.get();
+		}
+		finally {
+			if (previous != null) {
+				MIGRATING.set(previous);
+			}
+			else {
+				MIGRATING.remove();
+			}
+		}
+	}
+
+	/**
+	 * Determine the priority tier of the given {@link Flyway} instance.
+	 * @param flyway the flyway instance
+	 * @return the tier, 0 for plain {@link Flyway} instances
+	 */
+	public static int getTier(Flyway flyway) {
+		if (flyway instanceof FlywayModule) {
+			return ((FlywayModule) flyway).getTier();
+		}
+		return 0;
+	}
+
+	/**
+	 * Determine the modules the given {@link Flyway} instance depends on.
+	 * @param flyway the flyway instance
+	 * @return the modules, empty for plain {@link Flyway} instances
+	 */
+	public static List<String> getDependsOn(Flyway flyway) {
+		if (flyway instanceof FlywayModule) {
+			return ((FlywayModule) flyway).getDependsOn();
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Determine the schema history table of the given configuration, quoted as Flyway creates it,
+	 * e.g. for callbacks updating the history.
+	 * @param connection the connection to the database of the table
+	 * @param configuration the configuration of the module
+	 * @return the table qualified with its schema
+	 */
+	public static String getHistoryTable(Connection connection, Configuration configuration) throws SQLException {
+		String quote = connection.getMetaData().getIdentifierQuoteString();
+		quote = (quote != null) ? quote.trim() : "";
+		String schema = StringUtils.hasText(configuration.getDefaultSchema()) ? configuration.getDefaultSchema()
+				: !ObjectUtils.isEmpty(configuration.getSchemas()) ? configuration.getSchemas()[0] : null;
+		String table = quote + configuration.getTable() + quote;
+		return (schema != null) ? quote + schema + quote + "." + table : table;
+	}
+
+	/**
+	 * Determine the checksum of the given migration for fingerprints. Java migrations have no
+	 * checksum unless they override {@code getChecksum()}, a hash of their class file is used
+	 * instead so that changing the class changes the fingerprint.
+	 * @param configuration the configuration of the module, providing the class loader
+	 * @param migration the resolved migration
+	 * @return the checksum, or {@code null} if the migration has none
+	 */
+	public static String getChecksum(Configuration configuration, MigrationInfo migration) {
+		if (migration.getChecksum() != null) {
+			return String.valueOf(migration.getChecksum());
+		}
+		MigrationType type = migration.getType();
+		if ((type != MigrationType.JDBC && type != MigrationType.JDBC_BASELINE && type != MigrationType.UNDO_JDBC)
+				|| migration.getScript() == null) {
+			return null;
+		}
+		// 脚本名为迁移类的类名，Spring 代理类取其原始类
+		String className = migration.getScript();
+		int proxy = className.indexOf(ClassUtils.CGLIB_CLASS_SEPARATOR);
+		if (proxy > 0) {
+			className = className.substring(0, proxy);
+		}
+		String resource = ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX;
+		try (InputStream input = configuration.getClassLoader().getResourceAsStream(resource)) {
+			return (input != null) ? DigestUtils.md5DigestAsHex(input) : null;
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+}
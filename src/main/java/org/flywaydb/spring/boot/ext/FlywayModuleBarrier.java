@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.util.Assert;
+
+/**
+ * 模块迁移屏障：按模块及优先级层级记录迁移是否完成，需要某个模块或层级的代码可只等待它完成，
+ * 而不必等待全部模块；同一模块的多个租户实例全部完成后模块才视为完成
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleBarrier {
+
+	private final Map<String, Barrier> modules = new HashMap<>();
+
+	private final Map<Integer, Barrier> tiers = new TreeMap<>();
+
+	private final Map<String, Integer> moduleTiers = new HashMap<>();
+
+	public FlywayModuleBarrier(List<Flyway> flyways) {
+		for (Flyway flyway : flyways) {
+			this.modules.computeIfAbsent(FlywayModule.getModule(flyway), (key) -> new Barrier()).expect();
+			this.tiers.computeIfAbsent(tier(flyway), (key) -> new Barrier()).expect();
+			this.moduleTiers.merge(FlywayModule.getModule(flyway), tier(flyway), Math::min);
+		}
+	}
+
+	/**
+	 * Record that the given module instance was migrated.
+	 */
+	public void migrated(Flyway flyway) {
+		getModuleBarrier(FlywayModule.getModule(flyway)).arrive(null);
+		getTierBarrier(tier(flyway)).arrive(null);
+	}
+
+	/**
+	 * Record that the migration of the given module instance failed or was skipped.
+	 */
+	public void failed(Flyway flyway, Throwable failure) {
+		getModuleBarrier(FlywayModule.getModule(flyway)).arrive(failure);
+		getTierBarrier(tier(flyway)).arrive(failure);
+	}
+
+	/**
+	 * Return a future completed once every instance of the given module is migrated.
+	 * @param module the module
+	 * @return the future, completed exceptionally if the migration of the module failed
+	 */
+	public CompletableFuture<Void> getModule(String module) {
+		return getModuleBarrier(module).future;
+	}
+
+	/**
+	 * Return a future completed once every module of the given tier is migrated.
+	 * @param tier the tier
+	 * @return the future, already completed for a tier without modules
+	 */
+	public CompletableFuture<Void> getTier(int tier) {
+		Barrier barrier = this.tiers.get(tier);
+		return (barrier != null) ? barrier.future : CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Block until the given module is migrated.
+	 * @param module the module
+	 * @param timeout the maximum time to wait, or {@code null} to wait indefinitely
+	 * @throws IllegalStateException if the migration failed, timed out or the thread was interrupted
+	 */
+	public void awaitModule(String module, Duration timeout) {
+		await(getModule(module), "module '" + module + "'", timeout);
+	}
+
+	/**
+	 * Block until every module of the given tier is migrated.
+	 * @param tier the tier
+	 * @param timeout the maximum time to wait, or {@code null} to wait indefinitely
+	 * @throws IllegalStateException if the migration failed, timed out or the thread was interrupted
+	 */
+	public void awaitTier(int tier, Duration timeout) {
+		await(getTier(tier), "tier " + tier, timeout);
+	}
+
+	public boolean hasModule(String module) {
+		return this.modules.containsKey(module);
+	}
+
+	/**
+	 * Return the tier of the given module.
+	 * @throws IllegalStateException if the module is unknown
+	 */
+	public int getModuleTier(String module) {
+		Integer tier = this.moduleTiers.get(module);
+		Assert.state(tier != null, () -> "Unknown module '" + module + "'");
+		return tier;
+	}
+
+	private Barrier getModuleBarrier(String module) {
+		Barrier barrier = this.modules.get(module);
+		Assert.state(barrier != null, () -> "Unknown module '" + module + "'");
+		return barrier;
+	}
+
+	private Barrier getTierBarrier(int tier) {
+		Barrier barrier = this.tiers.get(tier);
+		Assert.state(barrier != null, () -> "Unknown tier " + tier);
+		return barrier;
+	}
+
+	private static int tier(Flyway flyway) {
+		// 与迁移时一致，负数层级视为 0
+		return Math.max(0, FlywayModule.getTier(flyway));
+	}
+
+	private static void await(CompletableFuture<Void> future, String description, Duration timeout) {
+		try {
+			if (timeout != null) {
+				future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			}
+			else {
+				future.get();
+			}
+		}
+		catch (ExecutionException ex) {
+			throw new IllegalStateException("Migration of " + description + " failed", ex.getCause());
+		}
+		catch (TimeoutException ex) {
+			throw new IllegalStateException("Timed out waiting for the migration of " + description, ex);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for the migration of " + description, ex);
+		}
+	}
+
+	private static class Barrier {
+
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		private final AtomicInteger remaining = new AtomicInteger();
+
+		private void expect() {
+			this.remaining.incrementAndGet();
+		}
+
+		private void arrive(Throwable failure) {
+			// 任一实例失败即以失败完成，其余实例到达时不再改变结果
+			if (failure != null) {
+				this.future.completeExceptionally(failure);
+			}
+			if (this.remaining.decrementAndGet() <= 0) {
+				this.future.complete(null);
+			}
+		}
+
+	}
+
+}
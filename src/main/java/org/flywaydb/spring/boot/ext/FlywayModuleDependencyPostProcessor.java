@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 按 {@link DependsOnFlywayModule} 让 Bean 在初始化之前只等待其依赖的模块。并发启动时只有标注的 Bean 等待：
+ * JdbcOperations、NamedParameterJdbcOperations 等共享的数据库访问 Bean 不等待，否则使用它们的所有 Bean 都要等待全部模块；
+ * 初始化期间即访问迁移对象的 Bean 须自行标注，上下文刷新结束前仍等待层级 0 迁移完成。
+ * 未标注的 EntityManagerFactory 构建时即校验或更新模式，仍等待层级 0 的全部模块（JPA 并行构建时由模式管理工具等待）
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleDependencyPostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayModuleDependencyPostProcessor.class);
+
+	private static final String ENTITY_MANAGER_FACTORY_BEAN_TYPE = "org.springframework.orm.jpa.AbstractEntityManagerFactoryBean";
+
+	private static final String[] ENTITY_MANAGER_FACTORY_TYPES = { ENTITY_MANAGER_FACTORY_BEAN_TYPE,
+			"javax.persistence.EntityManagerFactory" };
+
+	private final List<Class<?>> entityManagerFactoryTypes = new ArrayList<>();
+
+	private ConfigurableListableBeanFactory beanFactory;
+
+	private final boolean concurrentStartup;
+
+	private boolean parallelJpaBootstrap = false;
+
+	private Duration startupTimeout = Duration.ofMinutes(30);
+
+	public FlywayModuleDependencyPostProcessor(boolean concurrentStartup) {
+		this.concurrentStartup = concurrentStartup;
+		ClassLoader classLoader = FlywayModuleDependencyPostProcessor.class.getClassLoader();
+		for (String type : ENTITY_MANAGER_FACTORY_TYPES) {
+			if (ClassUtils.isPresent(type, classLoader)) {
+				this.entityManagerFactoryTypes.add(ClassUtils.resolveClassName(type, classLoader));
+			}
+		}
+	}
+
+	/**
+	 * Set whether the EntityManagerFactory is built alongside the migrations, its schema
+	 * validation waiting for them instead of the whole bean.
+	 */
+	public void setParallelJpaBootstrap(boolean parallelJpaBootstrap) {
+		this.parallelJpaBootstrap = parallelJpaBootstrap;
+	}
+
+	/**
+	 * Set the maximum time a bean waits for the modules it depends on, failing the startup
+	 * instead of blocking it indefinitely, e.g. when the migration itself waits for a bean.
+	 */
+	public void setStartupTimeout(Duration startupTimeout) {
+		Assert.notNull(startupTimeout, "Startup timeout must not be null");
+		this.startupTimeout = startupTimeout;
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		Assert.isInstanceOf(ConfigurableListableBeanFactory.class, beanFactory);
+		this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		DependsOnFlywayModule dependsOn = findAnnotation(bean, beanName);
+		if (dependsOn == null && !(this.concurrentStartup && isEntityManagerFactory(bean))) {
+			return bean;
+		}
+		// 确保迁移已经开始，再等待
+		FlywayModularizedMigrationInitializer initializer = this.beanFactory
+				.getBeanProvider(FlywayModularizedMigrationInitializer.class).getIfAvailable();
+		FlywayModuleBarrier barrier = this.beanFactory.getBeanProvider(FlywayModuleBarrier.class).getIfAvailable();
+		if (initializer == null || barrier == null) {
+			return bean;
+		}
+		// 主线程持有单例锁等待，迁移线程若需要创建 Bean 将互相等待，故等待有上限
+		long deadline = System.nanoTime() + this.startupTimeout.toNanos();
+		if (dependsOn == null) {
+			barrier.awaitTier(0, this.startupTimeout);
+			return bean;
+		}
+		for (String module : dependsOn.value()) {
+			if (!barrier.hasModule(module)) {
+				LOG.warn("Bean '{}' depends on unknown or excluded module '{}'", beanName, module);
+				continue;
+			}
+			// 后台层级在应用就绪后才开始迁移，启动期间等待会一直阻塞
+			Assert.state(barrier.getModuleTier(module) == 0 || barrier.getModule(module).isDone()
+					|| initializer.isBackgroundStarted(), () -> "Bean '" + beanName + "' depends on module '" + module
+							+ "' of background tier " + barrier.getModuleTier(module)
+							+ ", which is only migrated once the application is ready");
+			LOG.debug("Bean '{}' waiting for module '{}'", beanName, module);
+			barrier.awaitModule(module, Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+		}
+		return bean;
+	}
+
+	private DependsOnFlywayModule findAnnotation(Object bean, String beanName) {
+		DependsOnFlywayModule dependsOn = AnnotatedElementUtils.findMergedAnnotation(ClassUtils.getUserClass(bean),
+				DependsOnFlywayModule.class);
+		if (dependsOn == null && this.beanFactory.containsBeanDefinition(beanName)) {
+			// @Bean 方法上的声明
+			BeanDefinition definition = this.beanFactory.getMergedBeanDefinition(beanName);
+			if (definition instanceof RootBeanDefinition) {
+				Method factoryMethod = ((RootBeanDefinition) definition).getResolvedFactoryMethod();
+				if (factoryMethod != null) {
+					dependsOn = AnnotatedElementUtils.findMergedAnnotation(factoryMethod, DependsOnFlywayModule.class);
+				}
+			}
+		}
+		return dependsOn;
+	}
+
+	private boolean isEntityManagerFactory(Object bean) {
+		if (this.parallelJpaBootstrap) {
+			// 并行构建时只有模式操作等待迁移
+			return false;
+		}
+		for (Class<?> type : this.entityManagerFactoryTypes) {
+			if (type.isInstance(bean)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
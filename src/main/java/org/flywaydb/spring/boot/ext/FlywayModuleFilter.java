@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.flywaydb.spring.boot.ext.io.FilenameUtils;
+import org.flywaydb.spring.boot.ext.io.IOCase;
+import org.flywaydb.spring.boot.ext.io.WildcardMatcher;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * 按名称通配符（'?' 和 '*'）过滤需要迁移的模块或迁移资源，排除规则优先于包含规则
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleFilter {
+
+	private final List<WildcardMatcher> includes;
+
+	private final List<WildcardMatcher> excludes;
+
+	public FlywayModuleFilter(Collection<String> includes, Collection<String> excludes, IOCase caseSensitivity) {
+		this.includes = compile(includes, caseSensitivity);
+		this.excludes = compile(excludes, caseSensitivity);
+	}
+
+	/**
+	 * Determine whether this filter accepts every name.
+	 */
+	public boolean isEmpty() {
+		return this.includes.isEmpty() && this.excludes.isEmpty();
+	}
+
+	/**
+	 * Determine whether the given module should be migrated.
+	 * @param module the module name
+	 * @return {@code true} if the module is included and not excluded
+	 */
+	public boolean accept(String module) {
+		if (!this.includes.isEmpty() && !WildcardMatcher.matchesAny(module, this.includes)) {
+			return false;
+		}
+		return !WildcardMatcher.matchesAny(module, this.excludes);
+	}
+
+	private static List<WildcardMatcher> compile(Collection<String> patterns, IOCase caseSensitivity) {
+		if (CollectionUtils.isEmpty(patterns)) {
+			return Collections.emptyList();
+		}
+		return patterns.stream().map((pattern) -> FilenameUtils.compileWildcard(pattern.trim(), caseSensitivity))
+				.collect(Collectors.toList());
+	}
+
+}
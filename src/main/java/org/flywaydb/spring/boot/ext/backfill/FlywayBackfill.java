@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.backfill;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.flywaydb.core.api.FlywayException;
+import org.springframework.util.StringUtils;
+
+/**
+ * 分批回填的定义：按键范围分批执行的更新语句，文件头为 <code>名称: 值</code>，空行之后为语句，
+ * 语句以 <code>:from</code>（不含）和 <code>:to</code>（含）引用本批的键范围，例如：
+ * <pre>
+ * table: orders
+ * key: id
+ * batch-size: 10000
+ *
+ * UPDATE orders SET status_code = 1 WHERE status = 'NEW' AND id &gt; :from AND id &lt;= :to
+ * </pre>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayBackfill {
+
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$.]*");
+
+	private static final Pattern BOUND = Pattern.compile(":(from|to)\\b");
+
+	private final String table;
+
+	private final String key;
+
+	private final Integer batchSize;
+
+	private final String where;
+
+	private final String update;
+
+	private final List<String> bounds;
+
+	FlywayBackfill(String table, String key, Integer batchSize, String where, String update) {
+		this.table = checkIdentifier("table", table);
+		this.key = checkIdentifier("key", key);
+		this.batchSize = batchSize;
+		this.where = where;
+		List<String> bounds = new ArrayList<>();
+		Matcher matcher = BOUND.matcher(update);
+		StringBuffer statement = new StringBuffer();
+		while (matcher.find()) {
+			bounds.add(matcher.group(1));
+			matcher.appendReplacement(statement, "?");
+		}
+		matcher.appendTail(statement);
+		if (!bounds.contains("from") || !bounds.contains("to")) {
+			throw new FlywayException("Backfill statement must restrict the key with :from and :to: " + update);
+		}
+		this.update = statement.toString();
+		this.bounds = Collections.unmodifiableList(bounds);
+	}
+
+	/**
+	 * Parse the text of a backfill file.
+	 */
+	public static FlywayBackfill parse(String text) {
+		String table = null;
+		String key = null;
+		Integer batchSize = null;
+		String where = null;
+		StringBuilder update = new StringBuilder();
+		boolean header = true;
+		try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!header) {
+					update.append(line).append('\n');
+					continue;
+				}
+				String trimmed = line.trim();
+				if (trimmed.startsWith("--") || trimmed.startsWith("#")) {
+					continue;
+				}
+				if (trimmed.isEmpty()) {
+					header = (table == null && key == null);
+					continue;
+				}
+				int separator = trimmed.indexOf(':');
+				if (separator < 0) {
+					throw new FlywayException("Invalid backfill header line: " + line);
+				}
+				String value = trimmed.substring(separator + 1).trim();
+				switch (trimmed.substring(0, separator).trim().toLowerCase(Locale.ENGLISH)) {
+					case "table":
+						table = value;
+						break;
+					case "key":
+						key = value;
+						break;
+					case "batch-size":
+						batchSize = Integer.valueOf(value);
+						break;
+					case "where":
+						where = value;
+						break;
+					default:
+						throw new FlywayException("Unknown backfill header: " + line);
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		String statement = update.toString().trim();
+		if (statement.endsWith(";")) {
+			statement = statement.substring(0, statement.length() - 1).trim();
+		}
+		if (!StringUtils.hasText(statement)) {
+			throw new FlywayException("Backfill has no update statement");
+		}
+		return new FlywayBackfill(table, key, batchSize, where, statement);
+	}
+
+	private static String checkIdentifier(String name, String value) {
+		if (value == null || !IDENTIFIER.matcher(value).matches()) {
+			throw new FlywayException("Invalid backfill " + name + ": " + value);
+		}
+		return value;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Return the batch size of this backfill, or {@code null} for the default one.
+	 */
+	public Integer getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Return the condition restricting the rows to backfill, or {@code null}.
+	 */
+	public String getWhere() {
+		return where;
+	}
+
+	/**
+	 * Return the update statement, the bounds replaced by parameters.
+	 */
+	public String getUpdate() {
+		return update;
+	}
+
+	/**
+	 * Return the bound of each parameter of the update statement, <code>from</code> or
+	 * <code>to</code>.
+	 */
+	public List<String> getBounds() {
+		return bounds;
+	}
+
+}
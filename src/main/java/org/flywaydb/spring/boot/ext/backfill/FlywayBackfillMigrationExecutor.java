@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.backfill;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import org.flywaydb.core.api.executor.Context;
+import org.flywaydb.core.api.executor.MigrationExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 分批执行回填：按键范围每批更新 N 行并提交，同时在进度表中记录已完成的键；中断后再次迁移时从记录的键继续，
+ * 全部完成后删除进度记录。回填不在迁移事务中执行，失败时历史表中的失败记录由 {@link FlywayBackfillRecovery} 删除
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayBackfillMigrationExecutor implements MigrationExecutor {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayBackfillMigrationExecutor.class);
+
+	private final FlywayBackfill backfill;
+
+	private final String id;
+
+	private final int batchSize;
+
+	private final String progressTable;
+
+	private final Duration pause;
+
+	/**
+	 * Create a new executor.
+	 * @param backfill the backfill
+	 * @param id the identifier of the progress record
+	 * @param batchSize the number of keys per batch
+	 * @param progressTable the table recording the progress
+	 * @param pause the pause between two batches, or {@code null}
+	 */
+	public FlywayBackfillMigrationExecutor(FlywayBackfill backfill, String id, int batchSize, String progressTable,
+			Duration pause) {
+		this.backfill = backfill;
+		this.id = id;
+		this.batchSize = batchSize;
+		this.progressTable = progressTable;
+		this.pause = pause;
+	}
+
+	@Override
+	public void execute(Context context) throws SQLException {
+		Connection connection = context.getConnection();
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(true);
+		try {
+			createTableIfNecessary(connection);
+			long[] range = getRange(connection);
+			if (range == null) {
+				deleteProgress(connection);
+				return;
+			}
+			Long resumed = getProgress(connection);
+			long from = (resumed != null) ? Math.max(resumed, range[0] - 1) : range[0] - 1;
+			if (resumed != null) {
+				LOG.info("Resuming backfill {} after key {}", this.id, resumed);
+			}
+			connection.setAutoCommit(false);
+			long rows = 0;
+			long batches = 0;
+			while (from < range[1]) {
+				long to = Math.min(from + this.batchSize, range[1]);
+				rows += update(connection, from, to);
+				saveProgress(connection, to);
+				// 每批单独提交，避免长事务及过大的回滚段
+				connection.commit();
+				from = to;
+				if (++batches % 100 == 0) {
+					LOG.info("Backfill {} reached key {} of {}, {} row(s) updated", this.id, to, range[1], rows);
+				}
+				sleep();
+			}
+			connection.setAutoCommit(true);
+			deleteProgress(connection);
+			LOG.info("Backfill {} updated {} row(s) in {} batch(es)", this.id, rows, batches);
+		}
+		catch (SQLException | RuntimeException ex) {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+			}
+			throw ex;
+		}
+		finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	private long[] getRange(Connection connection) throws SQLException {
+		String sql = "SELECT MIN(" + this.backfill.getKey() + "), MAX(" + this.backfill.getKey() + ") FROM "
+				+ this.backfill.getTable()
+				+ ((this.backfill.getWhere() != null) ? " WHERE " + this.backfill.getWhere() : "");
+		try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+			result.next();
+			long min = result.getLong(1);
+			if (result.wasNull()) {
+				return null;
+			}
+			return new long[] { min, result.getLong(2) };
+		}
+	}
+
+	private int update(Connection connection, long from, long to) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(this.backfill.getUpdate())) {
+			int index = 1;
+			for (String bound : this.backfill.getBounds()) {
+				statement.setLong(index++, "from".equals(bound) ? from : to);
+			}
+			return statement.executeUpdate();
+		}
+	}
+
+	private void sleep() {
+		if (this.pause == null || this.pause.isZero() || this.pause.isNegative()) {
+			return;
+		}
+		try {
+			Thread.sleep(this.pause.toMillis());
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void createTableIfNecessary(Connection connection) throws SQLException {
+		if (tableExists(connection)) {
+			return;
+		}
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE " + this.progressTable + " ("
+					+ "backfill_id VARCHAR(300) NOT NULL PRIMARY KEY, "
+					+ "last_key BIGINT NOT NULL)");
+		}
+		catch (SQLException ex) {
+			// 其他节点已创建
+			if (!tableExists(connection)) {
+				throw ex;
+			}
+		}
+	}
+
+	private boolean tableExists(Connection connection) {
+		try (Statement statement = connection.createStatement()) {
+			statement.executeQuery("SELECT COUNT(*) FROM " + this.progressTable + " WHERE 1 = 0").close();
+			return true;
+		}
+		catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	private Long getProgress(Connection connection) throws SQLException {
+		try (PreparedStatement statement = connection
+				.prepareStatement("SELECT last_key FROM " + this.progressTable + " WHERE backfill_id = ?")) {
+			statement.setString(1, this.id);
+			try (ResultSet result = statement.executeQuery()) {
+				return result.next() ? result.getLong(1) : null;
+			}
+		}
+	}
+
+	private void saveProgress(Connection connection, long key) throws SQLException {
+		try (PreparedStatement update = connection
+				.prepareStatement("UPDATE " + this.progressTable + " SET last_key = ? WHERE backfill_id = ?")) {
+			update.setLong(1, key);
+			update.setString(2, this.id);
+			if (update.executeUpdate() > 0) {
+				return;
+			}
+		}
+		try (PreparedStatement insert = connection
+				.prepareStatement("INSERT INTO " + this.progressTable + " (backfill_id, last_key) VALUES (?, ?)")) {
+			insert.setString(1, this.id);
+			insert.setLong(2, key);
+			insert.executeUpdate();
+		}
+	}
+
+	private void deleteProgress(Connection connection) throws SQLException {
+		try (PreparedStatement statement = connection
+				.prepareStatement("DELETE FROM " + this.progressTable + " WHERE backfill_id = ?")) {
+			statement.setString(1, this.id);
+			statement.executeUpdate();
+		}
+	}
+
+	@Override
+	public boolean canExecuteInTransaction() {
+		return false;
+	}
+
+	@Override
+	public boolean shouldExecute() {
+		return true;
+	}
+
+	public FlywayBackfill getBackfill() {
+		return backfill;
+	}
+
+}
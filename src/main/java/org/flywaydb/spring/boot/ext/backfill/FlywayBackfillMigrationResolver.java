@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.backfill;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.executor.MigrationExecutor;
+import org.flywaydb.core.api.resolver.Context;
+import org.flywaydb.core.api.resolver.MigrationResolver;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.spring.boot.ext.resource.FlywaySpringResourceProvider;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.Assert;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * 解析模块路径下的分批回填迁移 <code>V{版本}__{描述}.backfill</code>：作为版本化迁移（类型 CUSTOM）
+ * 与 SQL 迁移一起排序执行并记录在模块的迁移历史中，校验和按文件内容计算
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ * @see FlywayBackfill
+ */
+public class FlywayBackfillMigrationResolver implements MigrationResolver {
+
+	public static final String SUFFIX = ".backfill";
+
+	private final ResourcePatternResolver resourcePatternResolver;
+
+	private int batchSize = 10000;
+
+	private String progressTable = "flyway_backfill_progress";
+
+	private Duration pause;
+
+	public FlywayBackfillMigrationResolver(ResourcePatternResolver resourcePatternResolver) {
+		Assert.notNull(resourcePatternResolver, "ResourcePatternResolver must not be null");
+		this.resourcePatternResolver = resourcePatternResolver;
+	}
+
+	@Override
+	public Collection<ResolvedMigration> resolveMigrations(Context context) {
+		Configuration configuration = context.getConfiguration();
+		ResourceProvider resourceProvider = (configuration.getResourceProvider() != null)
+				? configuration.getResourceProvider()
+				: new FlywaySpringResourceProvider(this.resourcePatternResolver, configuration);
+		List<ResolvedMigration> migrations = new ArrayList<>();
+		String prefix = configuration.getSqlMigrationPrefix();
+		String separator = configuration.getSqlMigrationSeparator();
+		for (LoadableResource resource : resourceProvider.getResources(prefix, new String[] { SUFFIX })) {
+			String name = resource.getFilename();
+			String stem = name.substring(prefix.length(), name.length() - SUFFIX.length());
+			int index = stem.indexOf(separator);
+			if (index <= 0) {
+				throw new FlywayException("Invalid backfill migration name: " + resource.getRelativePath());
+			}
+			MigrationVersion version = MigrationVersion.fromVersion(stem.substring(0, index).replace('_', '.'));
+			String description = stem.substring(index + separator.length()).replace('_', ' ');
+			String text = read(resource);
+			FlywayBackfill backfill = FlywayBackfill.parse(text);
+			FlywayBackfillMigrationExecutor executor = new FlywayBackfillMigrationExecutor(backfill,
+					getId(configuration, version),
+					(backfill.getBatchSize() != null) ? backfill.getBatchSize() : this.batchSize, this.progressTable,
+					this.pause);
+			migrations.add(new BackfillMigration(version, description, resource.getRelativePath(), checksum(text),
+					resource.getAbsolutePathOnDisk(), executor));
+		}
+		return migrations;
+	}
+
+	/**
+	 * The identifier of the progress record: schema, schema history table and version.
+	 */
+	private static String getId(Configuration configuration, MigrationVersion version) {
+		String schema = (configuration.getDefaultSchema() != null) ? configuration.getDefaultSchema()
+				: !ObjectUtils.isEmpty(configuration.getSchemas()) ? configuration.getSchemas()[0] : "";
+		return schema + "." + configuration.getTable() + ":" + version.getVersion();
+	}
+
+	private static String read(LoadableResource resource) {
+		try (Reader reader = resource.read()) {
+			return FileCopyUtils.copyToString(reader);
+		}
+		catch (IOException ex) {
+			throw new FlywayException("Unable to read backfill " + resource.getRelativePath() + ": " + ex.getMessage(),
+					ex);
+		}
+	}
+
+	private static int checksum(String text) {
+		CRC32 crc32 = new CRC32();
+		// 与 Flyway 一致，忽略换行符差异
+		for (String line : text.split("\r\n|\r|\n")) {
+			crc32.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+		return (int) crc32.getValue();
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Set the default number of keys per batch.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	public String getProgressTable() {
+		return progressTable;
+	}
+
+	public void setProgressTable(String progressTable) {
+		Assert.hasText(progressTable, "Progress table must not be empty");
+		this.progressTable = progressTable;
+	}
+
+	public Duration getPause() {
+		return pause;
+	}
+
+	/**
+	 * Set the pause between two batches, easing the load of the database.
+	 */
+	public void setPause(Duration pause) {
+		this.pause = pause;
+	}
+
+	private static class BackfillMigration implements ResolvedMigration {
+
+		private final MigrationVersion version;
+
+		private final String description;
+
+		private final String script;
+
+		private final Integer checksum;
+
+		private final String physicalLocation;
+
+		private final MigrationExecutor executor;
+
+		BackfillMigration(MigrationVersion version, String description, String script, Integer checksum,
+				String physicalLocation, MigrationExecutor executor) {
+			this.version = version;
+			this.description = description;
+			this.script = script;
+			this.checksum = checksum;
+			this.physicalLocation = physicalLocation;
+			this.executor = executor;
+		}
+
+		@Override
+		public MigrationVersion getVersion() {
+			return this.version;
+		}
+
+		@Override
+		public String getDescription() {
+			return this.description;
+		}
+
+		@Override
+		public String getScript() {
+			return this.script;
+		}
+
+		@Override
+		public Integer getChecksum() {
+			return this.checksum;
+		}
+
+		@Override
+		public MigrationType getType() {
+			return MigrationType.CUSTOM;
+		}
+
+		@Override
+		public String getPhysicalLocation() {
+			return this.physicalLocation;
+		}
+
+		@Override
+		public MigrationExecutor getExecutor() {
+			return this.executor;
+		}
+
+		@Override
+		public boolean checksumMatches(Integer checksum) {
+			return Objects.equals(this.checksum, checksum);
+		}
+
+		@Override
+		public boolean checksumMatchesWithoutBeingIdentical(Integer checksum) {
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.backfill;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 分批回填失败后的恢复：回填不在迁移事务中执行，失败时 Flyway 在历史表中记录一条失败记录，
+ * 之后的校验及迁移会因此中止而无法从进度表继续。每批更新与其进度在同一事务中提交，从进度表（或从头）重新执行总是安全的，
+ * 因此在校验及迁移之前删除回填迁移的失败记录，使其在本次迁移中从上次完成的键继续；其他类型迁移的失败记录仍需 repair
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ * @see FlywayBackfillMigrationExecutor
+ */
+public class FlywayBackfillRecovery implements Callback {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayBackfillRecovery.class);
+
+	/**
+	 * Determine whether the given failed migration is a backfill this callback recovers.
+	 */
+	public static boolean isRecoverable(MigrationInfo info) {
+		return info.getType() == MigrationType.CUSTOM && info.getScript() != null
+				&& info.getScript().endsWith(FlywayBackfillMigrationResolver.SUFFIX);
+	}
+
+	@Override
+	public boolean supports(Event event, Context context) {
+		return event == Event.BEFORE_VALIDATE || event == Event.BEFORE_MIGRATE;
+	}
+
+	@Override
+	public boolean canHandleInTransaction(Event event, Context context) {
+		// 历史表不存在时查询失败，不能在事务中执行
+		return false;
+	}
+
+	@Override
+	public void handle(Event event, Context context) {
+		Connection connection = context.getConnection();
+		String table;
+		List<Integer> failed;
+		try {
+			table = FlywayModule.getHistoryTable(connection, context.getConfiguration());
+			failed = getFailed(connection, table);
+		}
+		catch (SQLException ex) {
+			// 历史表尚不存在
+			LOG.debug("Unable to read the failed backfills of {}", context.getConfiguration().getTable(), ex);
+			return;
+		}
+		for (Integer rank : failed) {
+			try (PreparedStatement statement = connection
+					.prepareStatement("DELETE FROM " + table + " WHERE installed_rank = ?")) {
+				statement.setInt(1, rank);
+				statement.executeUpdate();
+			}
+			catch (SQLException ex) {
+				throw new FlywayException("Unable to remove the failed backfill " + rank + " from " + table + ": "
+						+ ex.getMessage(), ex);
+			}
+		}
+	}
+
+	private List<Integer> getFailed(Connection connection, String table) throws SQLException {
+		List<Integer> failed = new ArrayList<>();
+		try (PreparedStatement statement = connection
+				.prepareStatement("SELECT installed_rank, script FROM " + table + " WHERE success = ?")) {
+			statement.setBoolean(1, false);
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					String script = result.getString(2);
+					if (script != null && script.endsWith(FlywayBackfillMigrationResolver.SUFFIX)) {
+						LOG.warn("Removing the failed backfill {} from {}, it resumes from its recorded progress",
+								script, table);
+						failed.add(result.getInt(1));
+					}
+				}
+			}
+		}
+		return failed;
+	}
+
+	@Override
+	public String getCallbackName() {
+		return "backfill-recovery";
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.background;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.FlywayModuleBarrier;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementInterceptingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.util.Assert;
+
+/**
+ * 后台数据迁移队列：模块路径下以 <code>B</code> 为前缀的脚本（如 <code>B1__backfill_status.sql</code>，
+ * 启用分批回填时也包括 <code>B{版本}__{描述}.backfill</code>）不阻塞启动，在应用就绪后由后台线程按模块迁移，
+ * 记录在模块迁移历史表加 <code>_background</code> 后缀的独立历史表中，执行时受 {@link FlywayBackgroundThrottle} 限流。
+ * 后台可重复脚本的前缀为 <code>BR</code>
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayBackgroundMigrations implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayBackgroundMigrations.class);
+
+	public static final String BASELINE_DESCRIPTION = "<< Background Baseline >>";
+
+	private final List<Flyway> flyways;
+
+	private final FlywayBackgroundThrottle throttle;
+
+	private FlywayModuleBarrier barrier;
+
+	private String prefix = "B";
+
+	private String tableSuffix = "_background";
+
+	private int maxConcurrent = 1;
+
+	private ExecutorService executor;
+
+	private CompletableFuture<Void> completion;
+
+	public FlywayBackgroundMigrations(List<Flyway> flyways, FlywayBackgroundThrottle throttle) {
+		Assert.notNull(flyways, "Flyways must not be null");
+		Assert.notNull(throttle, "Throttle must not be null");
+		this.flyways = flyways;
+		this.throttle = throttle;
+	}
+
+	@Override
+	public synchronized void onApplicationEvent(ApplicationReadyEvent event) {
+		if (this.executor != null) {
+			return;
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.maxConcurrent, (runnable) -> {
+			Thread thread = new Thread(runnable, "flyway-background-migrations-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<CompletableFuture<?>> migrations = new ArrayList<>(this.flyways.size());
+		for (Flyway flyway : this.flyways) {
+			migrations.add(CompletableFuture.runAsync(() -> migrate(flyway), this.executor));
+		}
+		this.completion = CompletableFuture.allOf(migrations.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * Return the completion of the background migrations, or {@code null} if they were not
+	 * started yet. Failures of single modules are logged and do not complete it exceptionally.
+	 */
+	public synchronized CompletableFuture<Void> getCompletion() {
+		return this.completion;
+	}
+
+	private void migrate(Flyway flyway) {
+		String module = FlywayModule.getModule(flyway);
+		try {
+			if (this.barrier != null && this.barrier.hasModule(module)) {
+				// 模块自身可能位于后台层级，须先完成
+				this.barrier.getModule(module).join();
+			}
+		}
+		catch (CompletionException ex) {
+			LOG.warn("Background migrations of module '{}' skipped, the module failed to migrate", module);
+			return;
+		}
+		try {
+			Flyway background = createBackgroundFlyway(flyway);
+			if (background.info().pending().length == 0) {
+				return;
+			}
+			long start = System.currentTimeMillis();
+			MigrateResult result = background.migrate();
+			LOG.info("Module '{}' executed {} background migration(s) in {}ms", module, result.migrationsExecuted,
+					System.currentTimeMillis() - start);
+		}
+		catch (RuntimeException ex) {
+			// 后台迁移失败不影响应用运行，下次启动时继续
+			LOG.error("Background migration of module '{}' failed", module, ex);
+		}
+	}
+
+	/**
+	 * Create the {@link Flyway} instance running the background migrations of the given module.
+	 */
+	protected Flyway createBackgroundFlyway(Flyway flyway) {
+		Configuration configuration = flyway.getConfiguration();
+		return Flyway.configure(configuration.getClassLoader()).configuration(configuration)
+				.dataSource(new FlywayStatementInterceptingDataSource(configuration.getDataSource(),
+						Collections.singletonList(this.throttle)))
+				.table(configuration.getTable() + this.tableSuffix)
+				.sqlMigrationPrefix(this.prefix)
+				.repeatableSqlMigrationPrefix(this.prefix + "R")
+				// 模块的 Java 迁移由模块自身执行
+				.javaMigrations(new JavaMigration[0])
+				.javaMigrationClassProvider(Collections::emptyList)
+				.target(MigrationVersion.LATEST)
+				// 模块的表已存在，独立历史表从空基线开始
+				.baselineOnMigrate(true)
+				.baselineVersion(MigrationVersion.fromVersion("0"))
+				.baselineDescription(BASELINE_DESCRIPTION)
+				.load();
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+		}
+	}
+
+	public void setBarrier(FlywayModuleBarrier barrier) {
+		this.barrier = barrier;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public void setPrefix(String prefix) {
+		Assert.hasText(prefix, "Prefix must not be empty");
+		this.prefix = prefix;
+	}
+
+	public String getTableSuffix() {
+		return tableSuffix;
+	}
+
+	public void setTableSuffix(String tableSuffix) {
+		Assert.hasText(tableSuffix, "Table suffix must not be empty");
+		this.tableSuffix = tableSuffix;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * Set the maximum number of modules migrated in the background at the same time.
+	 */
+	public void setMaxConcurrent(int maxConcurrent) {
+		Assert.isTrue(maxConcurrent > 0, "Max concurrent must be greater than 0");
+		this.maxConcurrent = maxConcurrent;
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.background;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 后台迁移的限流：限制每秒语句数及每秒影响行数（由所有后台模块共享），并在探测到数据库响应延迟超过阈值时暂停，
+ * 直至延迟恢复；线程被中断时在下一条语句之前中止迁移。
+ * 等待只发生在没有打开事务的时刻：自动提交的语句之前，或事务提交、回滚之后，事务中的语句只累计等待时间，
+ * 避免在持有锁时休眠而阻塞应用。因此在事务中执行的脚本（普通 SQL 迁移）只在整个脚本提交后才限流，
+ * 逐批提交的分批回填（.backfill）及非事务脚本则在批次或语句之间限流
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayBackgroundThrottle implements FlywayStatementListener {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayBackgroundThrottle.class);
+
+	private double statementsPerSecond = 0;
+
+	private double rowsPerSecond = 0;
+
+	private Duration maxLatency;
+
+	private Duration probeInterval = Duration.ofSeconds(1);
+
+	private Duration pauseInterval = Duration.ofSeconds(5);
+
+	/**
+	 * The time in nanoseconds from which the next statement may run.
+	 */
+	private long nextStatementAt = System.nanoTime();
+
+	private long nextProbeAt = System.nanoTime();
+
+	@Override
+	public void beforeStatement(Statement statement, String sql) throws SQLException {
+		Connection connection = statement.getConnection();
+		boolean autoCommit = connection.getAutoCommit();
+		try {
+			if (autoCommit) {
+				awaitLatency(connection);
+			}
+			else if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException();
+			}
+			long delay;
+			synchronized (this) {
+				long now = System.nanoTime();
+				delay = Math.max(0, this.nextStatementAt - now);
+				if (this.statementsPerSecond > 0) {
+					this.nextStatementAt = Math.max(now, this.nextStatementAt)
+							+ (long) (TimeUnit.SECONDS.toNanos(1) / this.statementsPerSecond);
+				}
+			}
+			// 事务中不休眠，等待时间在事务结束后补足
+			if (autoCommit && delay > 0) {
+				TimeUnit.NANOSECONDS.sleep(delay);
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Background migration interrupted");
+		}
+	}
+
+	@Override
+	public void afterCompletion(Connection connection) {
+		try {
+			awaitLatency(connection);
+			long delay;
+			synchronized (this) {
+				delay = this.nextStatementAt - System.nanoTime();
+			}
+			if (delay > 0) {
+				TimeUnit.NANOSECONDS.sleep(delay);
+			}
+		}
+		catch (InterruptedException ex) {
+			// 事务已结束，在下一条语句之前中止
+			Thread.currentThread().interrupt();
+		}
+		catch (SQLException ex) {
+			LOG.debug("Unable to probe the database latency", ex);
+		}
+	}
+
+	@Override
+	public void afterStatement(Statement statement, String sql, long elapsedNanos, Throwable failure) {
+		if (this.rowsPerSecond <= 0 || failure != null) {
+			return;
+		}
+		int rows;
+		try {
+			rows = statement.getUpdateCount();
+		}
+		catch (SQLException ex) {
+			return;
+		}
+		if (rows > 0) {
+			// 影响的行数事后才知道，计入后续语句的等待时间
+			synchronized (this) {
+				this.nextStatementAt = Math.max(System.nanoTime(), this.nextStatementAt)
+						+ (long) (rows * TimeUnit.SECONDS.toNanos(1) / this.rowsPerSecond);
+			}
+		}
+	}
+
+	private void awaitLatency(Connection connection) throws SQLException, InterruptedException {
+		if (this.maxLatency == null) {
+			return;
+		}
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (now < this.nextProbeAt) {
+				return;
+			}
+			this.nextProbeAt = now + this.probeInterval.toNanos();
+		}
+		boolean paused = false;
+		long latency;
+		while ((latency = probe(connection)) > this.maxLatency.toNanos()) {
+			if (!paused) {
+				LOG.info("Database latency {}ms exceeds {}ms, pausing the background migrations",
+						TimeUnit.NANOSECONDS.toMillis(latency), this.maxLatency.toMillis());
+				paused = true;
+			}
+			TimeUnit.MILLISECONDS.sleep(this.pauseInterval.toMillis());
+		}
+		if (paused) {
+			LOG.info("Database latency back to {}ms, resuming the background migrations",
+					TimeUnit.NANOSECONDS.toMillis(latency));
+		}
+	}
+
+	private static long probe(Connection connection) throws SQLException {
+		long start = System.nanoTime();
+		connection.isValid(30);
+		return System.nanoTime() - start;
+	}
+
+	public double getStatementsPerSecond() {
+		return statementsPerSecond;
+	}
+
+	/**
+	 * Set the maximum number of statements per second, or 0 for no limit.
+	 */
+	public void setStatementsPerSecond(double statementsPerSecond) {
+		this.statementsPerSecond = statementsPerSecond;
+	}
+
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	/**
+	 * Set the maximum number of rows affected per second, or 0 for no limit.
+	 */
+	public void setRowsPerSecond(double rowsPerSecond) {
+		this.rowsPerSecond = rowsPerSecond;
+	}
+
+	public Duration getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * Set the round trip time of the database above which the migrations are paused, or
+	 * {@code null} to never pause.
+	 */
+	public void setMaxLatency(Duration maxLatency) {
+		this.maxLatency = maxLatency;
+	}
+
+	public Duration getProbeInterval() {
+		return probeInterval;
+	}
+
+	public void setProbeInterval(Duration probeInterval) {
+		this.probeInterval = probeInterval;
+	}
+
+	public Duration getPauseInterval() {
+		return pauseInterval;
+	}
+
+	public void setPauseInterval(Duration pauseInterval) {
+		this.pauseInterval = pauseInterval;
+	}
+
+}
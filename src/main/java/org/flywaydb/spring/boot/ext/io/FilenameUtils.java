@@ -1406,6 +1406,27 @@ public class FilenameUtils {
         return false;
     }
 
+    /**
+     * Compiles a wildcard matcher once so that it can be matched against many
+     * filenames without re-tokenizing the pattern.
+     * <p>
+     * The wildcard matcher uses the characters '?' and '*' to represent a
+     * single or multiple (zero or more) wildcard characters, with the same
+     * results as {@link #wildcardMatch(String, String, IOCase)}.
+     * <pre>
+     * compileWildcard("*.txt", IOCase.SENSITIVE).matches("c.txt")  --&gt; true
+     * compileWildcard("*.TXT", IOCase.INSENSITIVE).matches("c.txt") --&gt; true
+     * </pre>
+     *
+     * @param wildcardMatcher  the wildcard string to match against, not null
+     * @param caseSensitivity  what case sensitivity rule to use, null means case-sensitive
+     * @return the compiled matcher, never null
+     * @throws NullPointerException if the wildcard string is null
+     */
+    public static WildcardMatcher compileWildcard(final String wildcardMatcher, final IOCase caseSensitivity) {
+        return new WildcardMatcher(wildcardMatcher, caseSensitivity);
+    }
+
     /**
      * Splits a string into a number of tokens.
      * The text is split by '?' and '*'.
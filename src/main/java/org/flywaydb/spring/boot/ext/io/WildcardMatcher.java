@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.flywaydb.spring.boot.ext.io;
+
+import java.util.Collection;
+
+/**
+ * A wildcard pattern compiled once and matched against many filenames.
+ * <p>
+ * The pattern uses the characters '?' and '*' to represent a single or
+ * multiple (zero or more) wildcard characters, exactly like
+ * {@link FilenameUtils#wildcardMatch(String, String, IOCase)}. Unlike that
+ * method the pattern is not re-tokenized on every call and matching does not
+ * allocate, which makes it suitable for filtering large numbers of names
+ * against the same pattern.
+ * <pre>
+ * WildcardMatcher matcher = FilenameUtils.compileWildcard("*.sql", IOCase.INSENSITIVE);
+ * matcher.matches("V1__init.SQL")   --&gt; true
+ * matcher.matches("V1__init.java")  --&gt; false
+ * </pre>
+ * Instances are immutable and thread-safe.
+ *
+ * @see FilenameUtils#compileWildcard(String, IOCase)
+ */
+public final class WildcardMatcher {
+
+    /** Pattern shapes, see {@link #shape}. */
+    private static final int LITERAL = 0;
+    private static final int SUFFIX = 1;
+    private static final int PREFIX = 2;
+    private static final int GENERIC = 3;
+
+    /** The original pattern. */
+    private final String pattern;
+
+    /** The pattern characters with consecutive '*' collapsed into one. */
+    private final char[] chars;
+
+    /** The pattern characters folded to upper case, used when case-insensitive. */
+    private final char[] upperChars;
+
+    /** The pattern characters folded to lower case, used when case-insensitive. */
+    private final char[] lowerChars;
+
+    /** The literal text of a pattern of the form "text", "*text" or "text*", otherwise null. */
+    private final String fixedText;
+
+    /** The shape of the pattern, one of LITERAL, SUFFIX, PREFIX or GENERIC. */
+    private final int shape;
+
+    /** The case sensitivity flag. */
+    private final boolean sensitive;
+
+    /**
+     * Compiles the specified wildcard pattern.
+     *
+     * @param pattern  the wildcard string to match against, not null
+     * @param caseSensitivity  what case sensitivity rule to use, null means case-sensitive
+     */
+    WildcardMatcher(final String pattern, final IOCase caseSensitivity) {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern must not be null");
+        }
+        this.pattern = pattern;
+        this.sensitive = caseSensitivity == null || caseSensitivity.isCaseSensitive();
+        final StringBuilder buffer = new StringBuilder(pattern.length());
+        char prevChar = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char ch = pattern.charAt(i);
+            if (ch != '*' || prevChar != '*') {
+                buffer.append(ch);
+            }
+            prevChar = ch;
+        }
+        this.chars = buffer.toString().toCharArray();
+        this.upperChars = new char[chars.length];
+        this.lowerChars = new char[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            upperChars[i] = Character.toUpperCase(chars[i]);
+            lowerChars[i] = Character.toLowerCase(upperChars[i]);
+        }
+        // most patterns are a plain name, an extension or a directory prefix
+        final String collapsed = buffer.toString();
+        final int last = collapsed.length() - 1;
+        if (isFixed(collapsed, 0, collapsed.length())) {
+            this.shape = LITERAL;
+            this.fixedText = collapsed;
+        } else if (collapsed.charAt(0) == '*' && isFixed(collapsed, 1, collapsed.length())) {
+            this.shape = SUFFIX;
+            this.fixedText = collapsed.substring(1);
+        } else if (collapsed.charAt(last) == '*' && isFixed(collapsed, 0, last)) {
+            this.shape = PREFIX;
+            this.fixedText = collapsed.substring(0, last);
+        } else {
+            this.shape = GENERIC;
+            this.fixedText = null;
+        }
+    }
+
+    private static boolean isFixed(final String text, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            final char ch = text.charAt(i);
+            if (ch == '*' || ch == '?') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a filename to see if it matches this pattern.
+     *
+     * @param filename  the filename to match on
+     * @return true if the filename matches the pattern, false if it does not or is null
+     */
+    public boolean matches(final String filename) {
+        if (filename == null) {
+            return false;
+        }
+        final int length = filename.length();
+        switch (shape) {
+            case LITERAL:
+                return length == fixedText.length() && filename.regionMatches(!sensitive, 0, fixedText, 0, length);
+            case SUFFIX:
+                return length >= fixedText.length() && filename.regionMatches(!sensitive,
+                        length - fixedText.length(), fixedText, 0, fixedText.length());
+            case PREFIX:
+                return filename.regionMatches(!sensitive, 0, fixedText, 0, fixedText.length());
+            default:
+                break;
+        }
+        int patternIdx = 0;
+        int textIdx = 0;
+        // position of the last '*' and the text index it is currently matched up to
+        int starIdx = -1;
+        int starTextIdx = 0;
+        while (textIdx < length) {
+            if (patternIdx < chars.length && chars[patternIdx] == '*') {
+                starIdx = patternIdx++;
+                starTextIdx = textIdx;
+            } else if (patternIdx < chars.length
+                    && (chars[patternIdx] == '?' || equals(patternIdx, filename.charAt(textIdx)))) {
+                patternIdx++;
+                textIdx++;
+            } else if (starIdx >= 0) {
+                // backtrack: let the last '*' swallow one more character
+                patternIdx = starIdx + 1;
+                textIdx = ++starTextIdx;
+            } else {
+                return false;
+            }
+        }
+        while (patternIdx < chars.length && chars[patternIdx] == '*') {
+            patternIdx++;
+        }
+        return patternIdx == chars.length;
+    }
+
+    /**
+     * Checks a filename to see if it matches any of the specified matchers.
+     *
+     * @param filename  the filename to match on
+     * @param matchers  the compiled matchers, null or empty matches nothing
+     * @return true if the filename matches at least one of the matchers
+     */
+    public static boolean matchesAny(final String filename, final Collection<WildcardMatcher> matchers) {
+        if (matchers != null) {
+            for (final WildcardMatcher matcher : matchers) {
+                if (matcher.matches(filename)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares a pattern character with a filename character following the rules of
+     * {@link String#regionMatches(boolean, int, String, int, int)}.
+     */
+    private boolean equals(final int patternIdx, final char ch) {
+        if (chars[patternIdx] == ch) {
+            return true;
+        }
+        if (sensitive) {
+            return false;
+        }
+        final char upper = Character.toUpperCase(ch);
+        return upperChars[patternIdx] == upper || lowerChars[patternIdx] == Character.toLowerCase(upper);
+    }
+
+    /**
+     * Gets the pattern this matcher was compiled from.
+     *
+     * @return the wildcard pattern
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Gets whether this matcher compares case-sensitively.
+     *
+     * @return true if case-sensitive
+     */
+    public boolean isCaseSensitive() {
+        return sensitive;
+    }
+
+    /**
+     * Gets a string describing this matcher.
+     *
+     * @return the pattern
+     */
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.util.Assert;
+
+/**
+ * 拦截迁移语句的数据源：代理连接及其创建的语句，在每条 SQL 执行前后及每个事务结束后通知 {@link FlywayStatementListener}，
+ * 用于进度、超时、限流及性能分析等扩展
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayStatementInterceptingDataSource extends DelegatingDataSource {
+
+	private final List<FlywayStatementListener> listeners;
+
+	public FlywayStatementInterceptingDataSource(DataSource targetDataSource, List<FlywayStatementListener> listeners) {
+		super(targetDataSource);
+		Assert.notEmpty(listeners, "Listeners must not be empty");
+		this.listeners = new ArrayList<>(listeners);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return proxy(obtainTargetDataSource().getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return proxy(obtainTargetDataSource().getConnection(username, password));
+	}
+
+	public List<FlywayStatementListener> getListeners() {
+		return listeners;
+	}
+
+	private Connection proxy(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(FlywayStatementInterceptingDataSource.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		}
+		catch (InvocationTargetException ex) {
+			throw ex.getTargetException();
+		}
+	}
+
+	private class ConnectionHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		ConnectionHandler(Connection target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "equals":
+					return (proxy == args[0]);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "unwrap":
+					return ((Class<?>) args[0]).isInstance(proxy) ? proxy : this.target.unwrap((Class<?>) args[0]);
+				case "isWrapperFor":
+					return ((Class<?>) args[0]).isInstance(proxy) || this.target.isWrapperFor((Class<?>) args[0]);
+				default:
+					break;
+			}
+			Object result = FlywayStatementInterceptingDataSource.invoke(this.target, method, args);
+			if (isCompletion(method, args)) {
+				for (FlywayStatementListener listener : listeners) {
+					listener.afterCompletion((Connection) proxy);
+				}
+			}
+			if (result instanceof Statement) {
+				// prepareStatement/prepareCall 的 SQL 在创建时给出
+				String sql = (method.getName().startsWith("prepare") && args != null && args[0] instanceof String)
+						? (String) args[0] : null;
+				Class<?> type = (result instanceof CallableStatement) ? CallableStatement.class
+						: (result instanceof PreparedStatement) ? PreparedStatement.class : Statement.class;
+				return Proxy.newProxyInstance(FlywayStatementInterceptingDataSource.class.getClassLoader(),
+						new Class<?>[] { type }, new StatementHandler((Statement) result, (Connection) proxy, sql));
+			}
+			return result;
+		}
+
+		private boolean isCompletion(Method method, Object[] args) {
+			switch (method.getName()) {
+				case "commit":
+					return true;
+				case "rollback":
+					// 回滚到保存点时事务仍未结束
+					return args == null || args.length == 0;
+				case "setAutoCommit":
+					return Boolean.TRUE.equals(args[0]);
+				default:
+					return false;
+			}
+		}
+
+	}
+
+	private class StatementHandler implements InvocationHandler {
+
+		private final Statement target;
+
+		private final Connection connection;
+
+		private final String preparedSql;
+
+		StatementHandler(Statement target, Connection connection, String preparedSql) {
+			this.target = target;
+			this.connection = connection;
+			this.preparedSql = preparedSql;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			switch (name) {
+				case "equals":
+					return (proxy == args[0]);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "getConnection":
+					return this.connection;
+				case "unwrap":
+					return ((Class<?>) args[0]).isInstance(proxy) ? proxy : this.target.unwrap((Class<?>) args[0]);
+				case "isWrapperFor":
+					return ((Class<?>) args[0]).isInstance(proxy) || this.target.isWrapperFor((Class<?>) args[0]);
+				default:
+					break;
+			}
+			if (!name.startsWith("execute")) {
+				return FlywayStatementInterceptingDataSource.invoke(this.target, method, args);
+			}
+			String sql = (args != null && args.length > 0 && args[0] instanceof String) ? (String) args[0]
+					: this.preparedSql;
+			Statement statement = (Statement) proxy;
+			for (FlywayStatementListener listener : listeners) {
+				listener.beforeStatement(statement, sql);
+			}
+			long start = System.nanoTime();
+			Throwable failure = null;
+			try {
+				return FlywayStatementInterceptingDataSource.invoke(this.target, method, args);
+			}
+			catch (Throwable ex) {
+				failure = ex;
+				throw ex;
+			}
+			finally {
+				long elapsed = System.nanoTime() - start;
+				for (FlywayStatementListener listener : listeners) {
+					listener.afterStatement(statement, sql, elapsed, failure);
+				}
+			}
+		}
+
+	}
+
+}
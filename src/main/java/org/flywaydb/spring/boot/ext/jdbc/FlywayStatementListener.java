@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 迁移语句监听器：在执行迁移的线程上，于每条 SQL 语句执行前后及每个事务结束后回调
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ * @see FlywayStatementInterceptingDataSource
+ */
+public interface FlywayStatementListener {
+
+	/**
+	 * Called before a statement is executed.
+	 * @param statement the JDBC statement
+	 * @param sql the SQL, or {@code null} for a batch
+	 * @throws SQLException to abort the execution
+	 */
+	default void beforeStatement(Statement statement, String sql) throws SQLException {
+	}
+
+	/**
+	 * Called after a statement was executed.
+	 * @param statement the JDBC statement
+	 * @param sql the SQL, or {@code null} for a batch
+	 * @param elapsedNanos the execution time
+	 * @param failure the failure of the statement, or {@code null} if it succeeded
+	 */
+	default void afterStatement(Statement statement, String sql, long elapsedNanos, Throwable failure) {
+	}
+
+	/**
+	 * Called after a transaction of the connection was committed or rolled back, or after
+	 * auto-commit was switched on, when the connection holds no open transaction.
+	 * @param connection the JDBC connection
+	 */
+	default void afterCompletion(Connection connection) {
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.jpa;
+
+import org.flywaydb.spring.boot.ext.FlywayModularizedMigrationInitializer;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.util.Assert;
+
+/**
+ * 并行构建 EntityManagerFactory：为其设置后台构建执行器（优先使用 applicationTaskExecutor），
+ * 并在其提交构建之后才创建迁移初始化器，使 Hibernate 元模型构建与模块迁移同时进行；
+ * 模式校验、更新、创建及删除由 {@link FlywaySchemaValidationGate} 等待迁移完成
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayJpaBootstrapPostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+	private static final String APPLICATION_TASK_EXECUTOR_BEAN_NAME = "applicationTaskExecutor";
+
+	private ListableBeanFactory beanFactory;
+
+	private AsyncTaskExecutor bootstrapExecutor;
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		Assert.isInstanceOf(ListableBeanFactory.class, beanFactory);
+		this.beanFactory = (ListableBeanFactory) beanFactory;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof AbstractEntityManagerFactoryBean) {
+			AbstractEntityManagerFactoryBean factoryBean = (AbstractEntityManagerFactoryBean) bean;
+			if (factoryBean.getBootstrapExecutor() == null) {
+				factoryBean.setBootstrapExecutor(getBootstrapExecutor());
+			}
+		}
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof AbstractEntityManagerFactoryBean) {
+			// 构建已在后台开始，此时再创建初始化器，迁移与构建并行
+			this.beanFactory.getBeansOfType(FlywayModularizedMigrationInitializer.class);
+		}
+		return bean;
+	}
+
+	private synchronized AsyncTaskExecutor getBootstrapExecutor() {
+		if (this.bootstrapExecutor == null) {
+			if (this.beanFactory.containsBean(APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+					&& this.beanFactory.isTypeMatch(APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncTaskExecutor.class)) {
+				this.bootstrapExecutor = this.beanFactory.getBean(APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+						AsyncTaskExecutor.class);
+			}
+			else {
+				this.bootstrapExecutor = new SimpleAsyncTaskExecutor("flyway-jpa-bootstrap-");
+			}
+		}
+		return this.bootstrapExecutor;
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.jpa;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.spring.boot.ext.FlywayModularizedSchemaManagementProvider;
+import org.hibernate.boot.Metadata;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+
+/**
+ * 记录已通过 Hibernate 模式校验的指纹（数据源上全部模块的迁移历史 + 实体表映射）：
+ * 模块均为最新且指纹已校验过时跳过 ddl-auto=validate 的元数据读取；超过强制校验间隔后重新校验
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywaySchemaValidationCache {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywaySchemaValidationCache.class);
+
+	private static final String[] DATA_SOURCE_SETTINGS = { "hibernate.connection.datasource",
+			"javax.persistence.nonJtaDataSource", "javax.persistence.jtaDataSource" };
+
+	private final FlywayModularizedSchemaManagementProvider schemaManagementProvider;
+
+	private final String table;
+
+	private Duration forceInterval = Duration.ofDays(7);
+
+	public FlywaySchemaValidationCache(FlywayModularizedSchemaManagementProvider schemaManagementProvider,
+			String table) {
+		Assert.notNull(schemaManagementProvider, "SchemaManagementProvider must not be null");
+		Assert.hasText(table, "Validation table must not be empty");
+		this.schemaManagementProvider = schemaManagementProvider;
+		this.table = table;
+	}
+
+	/**
+	 * Return the fingerprint to validate the given metadata against.
+	 * @param metadata the entity mappings
+	 * @param settings the Hibernate settings, holding the DataSource
+	 * @return the fingerprint, or {@code null} if the schema must be validated and the result
+	 * not recorded: unknown DataSource, module not current
+	 */
+	public Fingerprint getFingerprint(Metadata metadata, Map<?, ?> settings) {
+		DataSource dataSource = getDataSource(settings);
+		if (dataSource == null) {
+			return null;
+		}
+		String schema = this.schemaManagementProvider.getSchemaFingerprint(dataSource);
+		if (schema == null) {
+			return null;
+		}
+		String model = getModelFingerprint(metadata);
+		return new Fingerprint(dataSource,
+				DigestUtils.md5DigestAsHex((schema + ":" + model).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Determine whether the fingerprint was validated within the force interval.
+	 */
+	public boolean isValidated(Fingerprint fingerprint) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(fingerprint.dataSource);
+		try {
+			List<Long> validatedAt = jdbcTemplate.queryForList(
+					"SELECT validated_at FROM " + this.table + " WHERE fingerprint = ?", Long.class, fingerprint.value);
+			if (validatedAt.isEmpty()) {
+				return false;
+			}
+			return this.forceInterval == null
+					|| System.currentTimeMillis() - validatedAt.get(0) < this.forceInterval.toMillis();
+		}
+		catch (DataAccessException ex) {
+			// 表尚不存在
+			LOG.debug("Unable to read the validated fingerprints: {}", ex.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Record a successful validation of the fingerprint.
+	 */
+	public void validated(Fingerprint fingerprint) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(fingerprint.dataSource);
+		try {
+			createTableIfNecessary(jdbcTemplate);
+			long now = System.currentTimeMillis();
+			int updated = jdbcTemplate.update("UPDATE " + this.table + " SET validated_at = ? WHERE fingerprint = ?",
+					now, fingerprint.value);
+			if (updated == 0) {
+				jdbcTemplate.update("INSERT INTO " + this.table + " (fingerprint, validated_at) VALUES (?, ?)",
+						fingerprint.value, now);
+			}
+		}
+		catch (DataIntegrityViolationException ex) {
+			// 其他节点同时记录了相同指纹
+		}
+		catch (DataAccessException ex) {
+			LOG.warn("Unable to record the validated fingerprint, the schema will be validated again: {}",
+					ex.getMessage());
+		}
+	}
+
+	private void createTableIfNecessary(JdbcTemplate jdbcTemplate) {
+		if (tableExists(jdbcTemplate)) {
+			return;
+		}
+		try {
+			jdbcTemplate.execute("CREATE TABLE " + this.table + " ("
+					+ "fingerprint VARCHAR(64) NOT NULL PRIMARY KEY, "
+					+ "validated_at BIGINT NOT NULL)");
+		}
+		catch (DataAccessException ex) {
+			Assert.state(tableExists(jdbcTemplate),
+					() -> "Unable to create validation table " + this.table + ": " + ex.getMessage());
+		}
+	}
+
+	private boolean tableExists(JdbcTemplate jdbcTemplate) {
+		try {
+			jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + this.table + " WHERE 1 = 0", Integer.class);
+			return true;
+		}
+		catch (DataAccessException ex) {
+			return false;
+		}
+	}
+
+	private static DataSource getDataSource(Map<?, ?> settings) {
+		for (String setting : DATA_SOURCE_SETTINGS) {
+			Object value = settings.get(setting);
+			if (value instanceof DataSource) {
+				return (DataSource) value;
+			}
+		}
+		return null;
+	}
+
+	private static String getModelFingerprint(Metadata metadata) {
+		List<Table> tables = new ArrayList<>(metadata.collectTableMappings());
+		tables.sort(Comparator.comparing(FlywaySchemaValidationCache::getQualifiedName));
+		StringBuilder model = new StringBuilder();
+		for (Table table : tables) {
+			model.append(getQualifiedName(table)).append('(');
+			for (Iterator<Column> columns = table.getColumnIterator(); columns.hasNext();) {
+				Column column = columns.next();
+				model.append(column.getName()).append(' ').append(column.getSqlType()).append(' ')
+						.append((column.getValue() != null) ? column.getValue().getType().getName() : null)
+						.append(' ').append(column.getLength()).append(column.isNullable() ? " null," : " not null,");
+			}
+			model.append(")\n");
+		}
+		return DigestUtils.md5DigestAsHex(model.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String getQualifiedName(Table table) {
+		return table.getCatalog() + "." + table.getSchema() + "." + table.getName();
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public Duration getForceInterval() {
+		return forceInterval;
+	}
+
+	/**
+	 * Set the maximum age of a validation, after which the schema is validated again even
+	 * though nothing changed, or {@code null} to trust it forever.
+	 */
+	public void setForceInterval(Duration forceInterval) {
+		this.forceInterval = forceInterval;
+	}
+
+	/**
+	 * A fingerprint of a schema and the entity mappings validated against it.
+	 */
+	public static final class Fingerprint {
+
+		private final DataSource dataSource;
+
+		private final String value;
+
+		Fingerprint(DataSource dataSource, String value) {
+			this.dataSource = dataSource;
+			this.value = value;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return this.value;
+		}
+
+	}
+
+}
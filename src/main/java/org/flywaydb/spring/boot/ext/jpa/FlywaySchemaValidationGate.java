@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.jpa;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.flywaydb.spring.boot.ext.FlywayModuleBarrier;
+import org.flywaydb.spring.boot.ext.jpa.FlywaySchemaValidationCache.Fingerprint;
+import org.hibernate.boot.Metadata;
+import org.hibernate.tool.schema.internal.HibernateSchemaManagementTool;
+import org.hibernate.tool.schema.spi.DelayedDropAction;
+import org.hibernate.tool.schema.spi.ExecutionOptions;
+import org.hibernate.tool.schema.spi.SchemaCreator;
+import org.hibernate.tool.schema.spi.SchemaDropper;
+import org.hibernate.tool.schema.spi.SchemaMigrator;
+import org.hibernate.tool.schema.spi.SchemaValidator;
+import org.hibernate.tool.schema.spi.SourceDescriptor;
+import org.hibernate.tool.schema.spi.TargetDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Hibernate 的模式管理工具：EntityManagerFactory 与模块迁移并行构建时，
+ * 元模型构建不等待迁移，访问数据库的模式操作（ddl-auto 的校验、更新、创建及删除）等待相关模块迁移完成，
+ * 不会与迁移同时修改模式；配置 {@link FlywaySchemaValidationCache} 时，模块均为最新且指纹已校验过则跳过校验
+ * <p>
+ * 通过 <code>hibernate.schema_management_tool</code> 属性以实例方式注册。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@SuppressWarnings({ "serial", "rawtypes" })
+public class FlywaySchemaValidationGate extends HibernateSchemaManagementTool {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywaySchemaValidationGate.class);
+
+	public static final String SCHEMA_MANAGEMENT_TOOL = "hibernate.schema_management_tool";
+
+	private final transient Supplier<FlywayModuleBarrier> barrier;
+
+	private final List<String> modules;
+
+	private transient FlywaySchemaValidationCache validationCache;
+
+	private Duration timeout = Duration.ofMinutes(30);
+
+	/**
+	 * Create a new gate.
+	 * @param barrier supplies the barrier of the module migrations, or {@code null} if the
+	 * EntityManagerFactory already waits for the migrations
+	 * @param modules the modules to wait for, or empty for every module of tier 0
+	 */
+	public FlywaySchemaValidationGate(Supplier<FlywayModuleBarrier> barrier, List<String> modules) {
+		this.barrier = barrier;
+		this.modules = new ArrayList<>(modules);
+	}
+
+	@Override
+	public SchemaCreator getSchemaCreator(Map options) {
+		SchemaCreator creator = super.getSchemaCreator(options);
+		return (metadata, executionOptions, sourceDescriptor, targetDescriptor) -> {
+			awaitMigrations();
+			creator.doCreation(metadata, executionOptions, sourceDescriptor, targetDescriptor);
+		};
+	}
+
+	@Override
+	public SchemaDropper getSchemaDropper(Map options) {
+		SchemaDropper dropper = super.getSchemaDropper(options);
+		return new SchemaDropper() {
+
+			@Override
+			public void doDrop(Metadata metadata, ExecutionOptions executionOptions, SourceDescriptor sourceDescriptor,
+					TargetDescriptor targetDescriptor) {
+				awaitMigrations();
+				dropper.doDrop(metadata, executionOptions, sourceDescriptor, targetDescriptor);
+			}
+
+			@Override
+			public DelayedDropAction buildDelayedAction(Metadata metadata, ExecutionOptions executionOptions,
+					SourceDescriptor sourceDescriptor) {
+				// 延迟删除在关闭时执行，此时迁移已结束
+				return dropper.buildDelayedAction(metadata, executionOptions, sourceDescriptor);
+			}
+
+		};
+	}
+
+	@Override
+	public SchemaMigrator getSchemaMigrator(Map options) {
+		SchemaMigrator migrator = super.getSchemaMigrator(options);
+		return (metadata, executionOptions, targetDescriptor) -> {
+			awaitMigrations();
+			migrator.doMigration(metadata, executionOptions, targetDescriptor);
+		};
+	}
+
+	@Override
+	public SchemaValidator getSchemaValidator(Map options) {
+		SchemaValidator validator = super.getSchemaValidator(options);
+		return (metadata, executionOptions) -> {
+			awaitMigrations();
+			FlywaySchemaValidationCache validationCache = this.validationCache;
+			Fingerprint fingerprint = (validationCache != null)
+					? validationCache.getFingerprint(metadata, executionOptions.getConfigurationValues())
+					: null;
+			if (fingerprint != null && validationCache.isValidated(fingerprint)) {
+				LOG.info("Schema validation skipped, the modules are current and fingerprint {} was validated",
+						fingerprint);
+				return;
+			}
+			validator.doValidation(metadata, executionOptions);
+			if (fingerprint != null) {
+				validationCache.validated(fingerprint);
+			}
+		};
+	}
+
+	/**
+	 * Set the cache of the validated fingerprints, or {@code null} to always validate.
+	 */
+	public void setValidationCache(FlywaySchemaValidationCache validationCache) {
+		this.validationCache = validationCache;
+	}
+
+	/**
+	 * Set the maximum time the schema actions wait for the module migrations.
+	 */
+	public void setTimeout(Duration timeout) {
+		Assert.notNull(timeout, "Timeout must not be null");
+		this.timeout = timeout;
+	}
+
+	private void awaitMigrations() {
+		FlywayModuleBarrier barrier = (this.barrier != null) ? this.barrier.get() : null;
+		if (barrier == null) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		long deadline = System.nanoTime() + this.timeout.toNanos();
+		if (this.modules.isEmpty()) {
+			barrier.awaitTier(0, this.timeout);
+		}
+		else {
+			for (String module : this.modules) {
+				if (barrier.hasModule(module)) {
+					barrier.awaitModule(module, Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+				}
+			}
+		}
+		LOG.debug("Schema management waited {}ms for the module migrations", System.currentTimeMillis() - start);
+	}
+
+}
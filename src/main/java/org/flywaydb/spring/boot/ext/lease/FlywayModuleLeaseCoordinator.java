@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.lease;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 基于数据库租约在多个副本之间分配模块迁移：
+ * <p>
+ * 每个节点依次领取模块租约，领取成功则在心跳续约的保护下执行该模块的迁移，完成后释放租约并记录模块的迁移指纹；
+ * 已被其他节点持有的模块先跳过，继续迁移其他模块，之后再回到它，因此互不依赖的模块可由不同节点同时迁移。
+ * 只有声明了依赖（{@link FlywayModule#getDependsOn(Flyway)}）的模块等待其依赖的模块完成。
+ * 记录的指纹与本节点的迁移指纹一致且模块没有待执行的迁移时，模块视为已完成，不再重复迁移；
+ * 每个节点确认所有模块均已完成后才结束。
+ * <p>
+ * 租约时间取自数据库时钟。续约失败导致租约丢失时，作为 {@link FlywayStatementListener} 取消模块正在执行的语句并拒绝后续语句，
+ * 模块迁移随之失败。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleLeaseCoordinator implements FlywayStatementListener {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayModuleLeaseCoordinator.class);
+
+	private final FlywayModuleLeaseRepository repository;
+
+	private final ThreadLocal<Lease> current = new ThreadLocal<>();
+
+	private String owner = defaultOwner();
+
+	private Duration leaseDuration = Duration.ofMinutes(1);
+
+	private Duration heartbeatInterval = Duration.ofSeconds(20);
+
+	private Duration pollInterval = Duration.ofSeconds(2);
+
+	private Duration waitTimeout = Duration.ofMinutes(30);
+
+	public FlywayModuleLeaseCoordinator(FlywayModuleLeaseRepository repository) {
+		Assert.notNull(repository, "Lease repository must not be null");
+		this.repository = repository;
+	}
+
+	/**
+	 * Migrate the given modules, sharing the work with the other replicas and skipping the
+	 * modules already migrated by another replica.
+	 * @param flyways the modules to migrate
+	 * @param migration the migration to apply to a module while its lease is held
+	 */
+	public void migrate(List<Flyway> flyways, Consumer<Flyway> migration) {
+		this.migrate(flyways, migration, true);
+	}
+
+	/**
+	 * Migrate the given modules, sharing the work with the other replicas.
+	 * @param flyways the modules to migrate
+	 * @param migration the migration to apply to a module while its lease is held
+	 * @param skipCompleted whether to skip the modules recorded as migrated with the same
+	 * migrations, {@code false} to migrate them again, e.g. on demand
+	 */
+	public void migrate(List<Flyway> flyways, Consumer<Flyway> migration, boolean skipCompleted) {
+		this.repository.createTableIfNecessary();
+		long deadline = System.currentTimeMillis() + this.waitTimeout.toMillis();
+		ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "flyway-lease-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		Map<String, Flyway> pending = new LinkedHashMap<>();
+		flyways.forEach((flyway) -> pending.put(FlywayModule.getModule(flyway), flyway));
+		try {
+			while (!pending.isEmpty()) {
+				boolean progressed = false;
+				for (Iterator<Flyway> iterator = pending.values().iterator(); iterator.hasNext();) {
+					Flyway flyway = iterator.next();
+					String module = FlywayModule.getModule(flyway);
+					// 只等待声明依赖的模块，互不依赖的模块由各节点并行迁移
+					if (dependsOnPending(flyway, pending.keySet())) {
+						continue;
+					}
+					if (migrateWithLease(module, flyway, migration, heartbeat, skipCompleted)) {
+						iterator.remove();
+						progressed = true;
+					}
+				}
+				if (!pending.isEmpty() && !progressed) {
+					Assert.state(System.currentTimeMillis() < deadline, () -> "Timed out after " + this.waitTimeout
+							+ " waiting for the leases of modules " + pending.keySet());
+					LOG.debug("Modules {} are leased by other nodes, waiting .. ", pending.keySet());
+					sleep(this.pollInterval);
+				}
+			}
+		}
+		finally {
+			heartbeat.shutdownNow();
+		}
+	}
+
+	private static boolean dependsOnPending(Flyway flyway, Set<String> pending) {
+		for (String dependency : FlywayModule.getDependsOn(flyway)) {
+			if (pending.contains(dependency)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Migrate the given module unless another node holds its lease.
+	 * @return {@code true} if the module is migrated, by this node or by another one
+	 */
+	private boolean migrateWithLease(String module, Flyway flyway, Consumer<Flyway> migration,
+			ScheduledExecutorService heartbeat, boolean skipCompleted) {
+		long now = this.repository.currentTimeMillis();
+		if (this.repository.isHeld(module, this.owner, now)) {
+			return false;
+		}
+		String fingerprint = getFingerprint(flyway);
+		if (skipCompleted && isCompleted(module, flyway, fingerprint)) {
+			LOG.info("Module '{}' was migrated by another node, skipping", module);
+			return true;
+		}
+		if (!this.repository.tryAcquire(module, this.owner, now, now + this.leaseDuration.toMillis())) {
+			return false;
+		}
+		LOG.info("Lease of module '{}' acquired by {}", module, this.owner);
+		Lease lease = new Lease(module);
+		long interval = this.heartbeatInterval.toMillis();
+		ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renew(lease), interval, interval,
+				TimeUnit.MILLISECONDS);
+		this.current.set(lease);
+		boolean migrated = false;
+		try {
+			migration.accept(flyway);
+			migrated = true;
+		}
+		catch (RuntimeException ex) {
+			if (lease.lost != null) {
+				// 由租约丢失取消，以原因替换驱动的取消异常
+				throw new FlywayException("Migration of module '" + module + "' aborted: " + lease.lost, ex);
+			}
+			throw ex;
+		}
+		finally {
+			this.current.remove();
+			renewal.cancel(false);
+			if (lease.lost == null && migrated) {
+				this.repository.complete(module, this.owner, fingerprint);
+			}
+			else if (lease.lost == null) {
+				this.repository.release(module, this.owner);
+			}
+		}
+		if (lease.lost != null) {
+			// 迁移已在租约丢失前执行完毕，其结果仍有效
+			LOG.warn("Lease of module '{}' was lost after its migration completed: {}", module, lease.lost);
+		}
+		return true;
+	}
+
+	/**
+	 * Determine whether the given module was migrated by another node with the same migrations
+	 * as this node, and has nothing left to migrate.
+	 */
+	protected boolean isCompleted(String module, Flyway flyway, String fingerprint) {
+		if (fingerprint == null || !fingerprint.equals(this.repository.getCompleted(module))) {
+			return false;
+		}
+		// 记录之后数据库可能被清理或修复，以历史表确认
+		MigrationInfoService info = flyway.info();
+		if (info.pending().length > 0) {
+			return false;
+		}
+		for (MigrationInfo migration : info.all()) {
+			if (migration.getState().isFailed()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compute the fingerprint of the migrations resolved for the given module: two nodes
+	 * deploying the same migrations compute the same fingerprint.
+	 * @return the fingerprint, or {@code null} if the migrations cannot be resolved
+	 */
+	protected String getFingerprint(Flyway flyway) {
+		StringBuilder migrations = new StringBuilder();
+		try {
+			for (MigrationInfo migration : flyway.info().all()) {
+				if (migration.getState().isResolved()) {
+					migrations.append(migration.getVersion()).append('|').append(migration.getDescription())
+							.append('|').append(migration.getType()).append('|')
+							.append(FlywayModule.getChecksum(flyway.getConfiguration(), migration))
+							.append('\n');
+				}
+			}
+		}
+		catch (RuntimeException ex) {
+			LOG.debug("Unable to resolve the migrations of module '{}'", FlywayModule.getModule(flyway), ex);
+			return null;
+		}
+		return DigestUtils.md5DigestAsHex(migrations.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void renew(Lease lease) {
+		if (lease.lost != null) {
+			return;
+		}
+		long attempt = System.nanoTime();
+		try {
+			long expiresAt = this.repository.currentTimeMillis() + this.leaseDuration.toMillis();
+			if (this.repository.renew(lease.module, this.owner, expiresAt)) {
+				lease.renewed = attempt;
+			}
+			else {
+				lease.lose("lease no longer held by " + this.owner);
+			}
+		}
+		catch (RuntimeException ex) {
+			LOG.warn("Failed to renew lease of module '{}'", lease.module, ex);
+			// 租约在上次成功续约后已到期，其他节点可能已领取
+			if (attempt - lease.renewed >= this.leaseDuration.toNanos()) {
+				lease.lose("lease expired after failed renewals");
+			}
+		}
+	}
+
+	@Override
+	public void beforeStatement(Statement statement, String sql) throws SQLException {
+		Lease lease = this.current.get();
+		if (lease == null) {
+			return;
+		}
+		if (lease.lost != null) {
+			throw new SQLException("Migration of module '" + lease.module + "' aborted: " + lease.lost);
+		}
+		lease.statement = statement;
+	}
+
+	@Override
+	public void afterStatement(Statement statement, String sql, long elapsedNanos, Throwable failure) {
+		Lease lease = this.current.get();
+		if (lease != null) {
+			lease.statement = null;
+		}
+	}
+
+	private void sleep(Duration duration) {
+		try {
+			Thread.sleep(duration.toMillis());
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for module leases", ex);
+		}
+	}
+
+	/**
+	 * Return a name for this node: the host name with a random suffix.
+	 */
+	public static String defaultOwner() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		}
+		catch (UnknownHostException ex) {
+			host = "unknown";
+		}
+		return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public void setOwner(String owner) {
+		if (StringUtils.hasText(owner)) {
+			this.owner = owner;
+		}
+	}
+
+	public Duration getLeaseDuration() {
+		return leaseDuration;
+	}
+
+	public void setLeaseDuration(Duration leaseDuration) {
+		this.leaseDuration = leaseDuration;
+	}
+
+	public Duration getHeartbeatInterval() {
+		return heartbeatInterval;
+	}
+
+	public void setHeartbeatInterval(Duration heartbeatInterval) {
+		this.heartbeatInterval = heartbeatInterval;
+	}
+
+	public Duration getPollInterval() {
+		return pollInterval;
+	}
+
+	public void setPollInterval(Duration pollInterval) {
+		this.pollInterval = pollInterval;
+	}
+
+	public Duration getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	public void setWaitTimeout(Duration waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	private static class Lease {
+
+		private final String module;
+
+		private volatile long renewed = System.nanoTime();
+
+		private volatile Statement statement;
+
+		private volatile String lost;
+
+		Lease(String module) {
+			this.module = module;
+		}
+
+		void lose(String reason) {
+			this.lost = reason;
+			LOG.error("Lease of module '{}' lost, aborting its migration: {}", this.module, reason);
+			Statement statement = this.statement;
+			if (statement != null) {
+				try {
+					statement.cancel();
+				}
+				catch (SQLException | RuntimeException ex) {
+					LOG.warn("Unable to cancel the running statement of module '{}'", this.module, ex);
+				}
+			}
+		}
+
+	}
+
+}
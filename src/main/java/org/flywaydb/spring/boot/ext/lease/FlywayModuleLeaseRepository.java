@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.lease;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * 模块租约表的读写：每个模块一行，记录持有者、租约到期时间（毫秒时间戳）及最近一次完成迁移时的迁移指纹；
+ * 时间均取自数据库时钟并在数据库中换算为纪元毫秒，避免副本之间的时钟偏差及时区差异导致仍有效的租约被抢占
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleLeaseRepository {
+
+	/**
+	 * Queries of the current time in milliseconds since the epoch, computed by the database
+	 * independently of the time zone of the session and of the JVM.
+	 */
+	private static final String[] CURRENT_TIME_QUERIES = {
+			// PostgreSQL, H2
+			"SELECT CAST(EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000 AS BIGINT)",
+			// MySQL, MariaDB
+			"SELECT CAST(UNIX_TIMESTAMP(CURRENT_TIMESTAMP(3)) * 1000 AS SIGNED)",
+			// Oracle
+			"SELECT CAST((CAST(SYS_EXTRACT_UTC(SYSTIMESTAMP) AS DATE) - DATE '1970-01-01') * 86400000 AS NUMBER(19)) FROM DUAL",
+			// SQL Server
+			"SELECT CAST(DATEDIFF(SECOND, '1970-01-01', SYSUTCDATETIME()) AS BIGINT) * 1000 + DATEPART(MILLISECOND, SYSUTCDATETIME())",
+			// DB2
+			"SELECT (DAYS(CURRENT_TIMESTAMP - CURRENT_TIMEZONE) - DAYS('1970-01-01')) * 86400000"
+					+ " + MIDNIGHT_SECONDS(CURRENT_TIMESTAMP - CURRENT_TIMEZONE) * 1000 FROM SYSIBM.SYSDUMMY1",
+			// HSQLDB
+			"VALUES UNIX_MILLIS()" };
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String table;
+
+	private volatile String currentTimeQuery;
+
+	public FlywayModuleLeaseRepository(DataSource dataSource, String table) {
+		Assert.notNull(dataSource, "DataSource must not be null");
+		Assert.hasText(table, "Lease table must not be empty");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.table = table;
+	}
+
+	/**
+	 * Create the lease table unless it already exists, adding the completion column to tables
+	 * created by earlier versions. Concurrent creation by another node is tolerated.
+	 */
+	public void createTableIfNecessary() {
+		if (tableExists()) {
+			addCompletedIfNecessary();
+			return;
+		}
+		try {
+			this.jdbcTemplate.execute("CREATE TABLE " + this.table + " ("
+					+ "module_name VARCHAR(200) NOT NULL PRIMARY KEY, "
+					+ "owner VARCHAR(200) NOT NULL, "
+					+ "expires_at BIGINT NOT NULL, "
+					+ "completed VARCHAR(64))");
+		}
+		catch (DataAccessException ex) {
+			Assert.state(tableExists(), () -> "Unable to create lease table " + this.table + ": " + ex.getMessage());
+		}
+	}
+
+	private void addCompletedIfNecessary() {
+		if (columnExists()) {
+			return;
+		}
+		try {
+			this.jdbcTemplate.execute("ALTER TABLE " + this.table + " ADD completed VARCHAR(64)");
+		}
+		catch (DataAccessException ex) {
+			Assert.state(columnExists(), () -> "Unable to add the completed column to lease table " + this.table
+					+ ": " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Try to claim the lease of the given module.
+	 * @param module the module name
+	 * @param owner the owner claiming the lease
+	 * @param now the current time in milliseconds
+	 * @param expiresAt the time in milliseconds the lease expires unless renewed
+	 * @return {@code true} if the lease is now held by the owner
+	 */
+	public boolean tryAcquire(String module, String owner, long now, long expiresAt) {
+		int updated = this.jdbcTemplate.update("UPDATE " + this.table
+				+ " SET owner = ?, expires_at = ? WHERE module_name = ? AND (expires_at < ? OR owner = ?)",
+				owner, expiresAt, module, now, owner);
+		if (updated > 0) {
+			return true;
+		}
+		try {
+			return this.jdbcTemplate.update("INSERT INTO " + this.table
+					+ " (module_name, owner, expires_at) VALUES (?, ?, ?)", module, owner, expiresAt) > 0;
+		}
+		catch (DataIntegrityViolationException ex) {
+			// 租约已被其他节点持有
+			return false;
+		}
+	}
+
+	/**
+	 * Extend the lease of the given module.
+	 * @return {@code false} if the lease is no longer held by the owner
+	 */
+	public boolean renew(String module, String owner, long expiresAt) {
+		return this.jdbcTemplate.update("UPDATE " + this.table
+				+ " SET expires_at = ? WHERE module_name = ? AND owner = ?", expiresAt, module, owner) > 0;
+	}
+
+	/**
+	 * Release the lease of the given module so that other nodes may claim it immediately.
+	 */
+	public void release(String module, String owner) {
+		this.jdbcTemplate.update("UPDATE " + this.table
+				+ " SET expires_at = 0 WHERE module_name = ? AND owner = ?", module, owner);
+	}
+
+	/**
+	 * Release the lease of the given module, recording that it was migrated.
+	 * @param fingerprint the fingerprint of the migrations of the module
+	 */
+	public void complete(String module, String owner, String fingerprint) {
+		this.jdbcTemplate.update("UPDATE " + this.table
+				+ " SET expires_at = 0, completed = ? WHERE module_name = ? AND owner = ?", fingerprint, module, owner);
+	}
+
+	/**
+	 * Determine whether the lease of the given module is held by another owner.
+	 * @param now the current time in milliseconds
+	 */
+	public boolean isHeld(String module, String owner, long now) {
+		Integer held = this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + this.table
+				+ " WHERE module_name = ? AND owner <> ? AND expires_at >= ?", Integer.class, module, owner, now);
+		return held != null && held > 0;
+	}
+
+	/**
+	 * Return the fingerprint of the migrations recorded when the given module was last
+	 * migrated, or {@code null}.
+	 */
+	public String getCompleted(String module) {
+		List<String> completed = this.jdbcTemplate.queryForList("SELECT completed FROM " + this.table
+				+ " WHERE module_name = ?", String.class, module);
+		return completed.isEmpty() ? null : completed.get(0);
+	}
+
+	/**
+	 * Return the current time of the database in milliseconds since the epoch.
+	 */
+	public long currentTimeMillis() {
+		String query = this.currentTimeQuery;
+		if (query != null) {
+			return this.jdbcTemplate.queryForObject(query, Long.class);
+		}
+		DataAccessException failure = null;
+		// 各数据库查询当前时间的语法不同，依次尝试后记住可用的一种
+		for (String candidate : CURRENT_TIME_QUERIES) {
+			try {
+				long now = this.jdbcTemplate.queryForObject(candidate, Long.class);
+				this.currentTimeQuery = candidate;
+				return now;
+			}
+			catch (DataAccessException ex) {
+				failure = ex;
+			}
+		}
+		throw failure;
+	}
+
+	private boolean columnExists() {
+		try {
+			this.jdbcTemplate.queryForList("SELECT completed FROM " + this.table + " WHERE 1 = 0");
+			return true;
+		}
+		catch (DataAccessException ex) {
+			return false;
+		}
+	}
+
+	private boolean tableExists() {
+		try {
+			this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + this.table + " WHERE 1 = 0", Integer.class);
+			return true;
+		}
+		catch (DataAccessException ex) {
+			return false;
+		}
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+}
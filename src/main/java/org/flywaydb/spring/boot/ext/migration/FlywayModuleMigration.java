@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.migration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注 {@link org.flywaydb.core.api.migration.JavaMigration} 类型的 Spring Bean 所属的模块，
+ * 启动时从容器中收集并交给对应模块，无需扫描类路径，迁移中也可使用注入的服务
+ * <p>
+ * 迁移 Bean 在模块迁移之前创建，不能依赖于需要等待迁移完成的 Bean（如 EntityManagerFactory、JdbcTemplate），
+ * 访问数据库请使用 {@link org.flywaydb.core.api.migration.Context#getConnection()}。
+ * Spring Boot 自动配置的 Flyway 不会执行这些迁移，见 {@link FlywayModuleMigrationCustomizer}。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface FlywayModuleMigration {
+
+	/**
+	 * The modules the migration belongs to.
+	 */
+	String[] value();
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.util.Assert;
+
+/**
+ * 从其他 Flyway 配置中移除标注了 {@link FlywayModuleMigration} 的迁移 Bean：Spring Boot 的 FlywayAutoConfiguration
+ * 将容器中所有 JavaMigration Bean 交给其 Flyway，模块的迁移因此会在主库中执行。
+ * 模块配置在应用定制器之后才加入所属模块的迁移，不受影响
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleMigrationCustomizer implements FlywayConfigurationCustomizer {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayModuleMigrationCustomizer.class);
+
+	private final ListableBeanFactory beanFactory;
+
+	private volatile FlywayModuleMigrations migrations;
+
+	public FlywayModuleMigrationCustomizer(ListableBeanFactory beanFactory) {
+		Assert.notNull(beanFactory, "BeanFactory must not be null");
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public void customize(FluentConfiguration configuration) {
+		JavaMigration[] javaMigrations = configuration.getJavaMigrations();
+		if (javaMigrations.length == 0) {
+			return;
+		}
+		FlywayModuleMigrations moduleMigrations = getMigrations();
+		List<JavaMigration> retained = new ArrayList<>();
+		for (JavaMigration migration : javaMigrations) {
+			if (moduleMigrations.contains(migration)) {
+				LOG.debug("Module migration {} removed from a Flyway configuration outside its module",
+						migration.getClass().getName());
+				continue;
+			}
+			retained.add(migration);
+		}
+		if (retained.size() < javaMigrations.length) {
+			configuration.javaMigrations(retained.toArray(new JavaMigration[0]));
+		}
+	}
+
+	private FlywayModuleMigrations getMigrations() {
+		FlywayModuleMigrations migrations = this.migrations;
+		if (migrations == null) {
+			// 迁移 Bean 在首次定制时已由 Spring Boot 创建
+			migrations = FlywayModuleMigrations.of(this.beanFactory);
+			this.migrations = migrations;
+		}
+		return migrations;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.migration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+
+/**
+ * 按模块分组的 Spring Bean 形式的 Java 迁移，从容器中一次性收集
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ * @see FlywayModuleMigration
+ */
+public class FlywayModuleMigrations {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayModuleMigrations.class);
+
+	private final Map<String, List<JavaMigration>> migrations;
+
+	private final Set<JavaMigration> all = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	public FlywayModuleMigrations(Map<String, List<JavaMigration>> migrations) {
+		this.migrations = migrations;
+		migrations.values().forEach(this.all::addAll);
+	}
+
+	/**
+	 * Collect the {@link JavaMigration} beans annotated with {@link FlywayModuleMigration}.
+	 * @param beanFactory the bean factory
+	 * @return the migrations by module
+	 */
+	public static FlywayModuleMigrations of(ListableBeanFactory beanFactory) {
+		Map<String, List<JavaMigration>> migrations = new HashMap<>();
+		for (String beanName : beanFactory.getBeanNamesForType(JavaMigration.class, false, true)) {
+			FlywayModuleMigration annotation = beanFactory.findAnnotationOnBean(beanName, FlywayModuleMigration.class);
+			if (annotation == null) {
+				// 未标注模块的迁移留给 Spring Boot 的 Flyway
+				LOG.debug("Java migration bean '{}' has no module, ignored", beanName);
+				continue;
+			}
+			JavaMigration migration = beanFactory.getBean(beanName, JavaMigration.class);
+			for (String module : annotation.value()) {
+				migrations.computeIfAbsent(module, (key) -> new ArrayList<>()).add(migration);
+			}
+		}
+		return new FlywayModuleMigrations(migrations);
+	}
+
+	/**
+	 * Return the migrations of the given module.
+	 */
+	public List<JavaMigration> getMigrations(String module) {
+		return this.migrations.getOrDefault(module, Collections.emptyList());
+	}
+
+	/**
+	 * Determine whether the given migration belongs to a module.
+	 */
+	public boolean contains(JavaMigration migration) {
+		return this.all.contains(migration);
+	}
+
+	public boolean isEmpty() {
+		return this.migrations.isEmpty();
+	}
+
+}
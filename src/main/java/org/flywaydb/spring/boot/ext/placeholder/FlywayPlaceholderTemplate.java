@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.placeholder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.flywaydb.core.api.FlywayException;
+import org.springframework.util.Assert;
+
+/**
+ * 预编译的占位符模板：脚本只在编译时扫描一次，拆分为文本片段与占位符片段，
+ * 渲染时按片段顺序流式输出，不再构建中间字符串
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public final class FlywayPlaceholderTemplate {
+
+	private final String text;
+
+	/**
+	 * Offsets of the literal segments in the text; segment {@code i} spans
+	 * {@code [literalStarts[i], literalEnds[i])} and is followed by placeholder {@code names[i]}.
+	 */
+	private final int[] literalStarts;
+
+	private final int[] literalEnds;
+
+	private final String[] names;
+
+	private final String prefix;
+
+	private final String suffix;
+
+	private FlywayPlaceholderTemplate(String text, int[] literalStarts, int[] literalEnds, String[] names,
+			String prefix, String suffix) {
+		this.text = text;
+		this.literalStarts = literalStarts;
+		this.literalEnds = literalEnds;
+		this.names = names;
+		this.prefix = prefix;
+		this.suffix = suffix;
+	}
+
+	/**
+	 * Compile the given script text.
+	 * @param text the raw script text
+	 * @param prefix the placeholder prefix, e.g. <code>${</code>
+	 * @param suffix the placeholder suffix, e.g. <code>}</code>
+	 * @return the compiled template
+	 */
+	public static FlywayPlaceholderTemplate compile(String text, String prefix, String suffix) {
+		Assert.notNull(text, "Text must not be null");
+		Assert.hasLength(prefix, "Placeholder prefix must not be empty");
+		Assert.hasLength(suffix, "Placeholder suffix must not be empty");
+		List<int[]> literals = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		int position = 0;
+		int start;
+		while ((start = text.indexOf(prefix, position)) >= 0) {
+			int end = text.indexOf(suffix, start + prefix.length());
+			if (end < 0) {
+				break;
+			}
+			literals.add(new int[] { position, start });
+			names.add(text.substring(start + prefix.length(), end));
+			position = end + suffix.length();
+		}
+		literals.add(new int[] { position, text.length() });
+		int[] literalStarts = new int[literals.size()];
+		int[] literalEnds = new int[literals.size()];
+		for (int i = 0; i < literals.size(); i++) {
+			literalStarts[i] = literals.get(i)[0];
+			literalEnds[i] = literals.get(i)[1];
+		}
+		return new FlywayPlaceholderTemplate(text, literalStarts, literalEnds, names.toArray(new String[0]), prefix,
+				suffix);
+	}
+
+	/**
+	 * Create a reader streaming the script with every placeholder replaced.
+	 * @param values resolves a placeholder name to its value, or {@code null} if there is none
+	 * @return the reader
+	 * @throws FlywayException if a placeholder has no value
+	 */
+	public Reader reader(Function<String, String> values) {
+		if (this.names.length == 0) {
+			return new SegmentReader(this.text, this.literalStarts, this.literalEnds, new String[0]);
+		}
+		return new SegmentReader(this.text, this.literalStarts, this.literalEnds, resolve(values));
+	}
+
+	/**
+	 * Write the script with every placeholder replaced to the given writer.
+	 * @param out the writer
+	 * @param values resolves a placeholder name to its value, or {@code null} if there is none
+	 * @throws IOException if writing fails
+	 */
+	public void writeTo(Writer out, Function<String, String> values) throws IOException {
+		String[] resolved = resolve(values);
+		for (int i = 0; i < this.literalStarts.length; i++) {
+			out.write(this.text, this.literalStarts[i], this.literalEnds[i] - this.literalStarts[i]);
+			if (i < resolved.length) {
+				out.write(resolved[i]);
+			}
+		}
+	}
+
+	private String[] resolve(Function<String, String> values) {
+		String[] resolved = new String[this.names.length];
+		for (int i = 0; i < this.names.length; i++) {
+			String value = values.apply(this.names[i]);
+			if (value == null) {
+				throw new FlywayException("No value provided for placeholder: " + this.prefix + this.names[i]
+						+ this.suffix + ".  Check your configuration!");
+			}
+			resolved[i] = value;
+		}
+		return resolved;
+	}
+
+	public boolean hasPlaceholders() {
+		return this.names.length > 0;
+	}
+
+	public Set<String> getPlaceholderNames() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(this.names)));
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Reader over alternating literal segments of the raw text and placeholder values.
+	 */
+	private static final class SegmentReader extends Reader {
+
+		private final String text;
+
+		private final int[] literalStarts;
+
+		private final int[] literalEnds;
+
+		private final String[] values;
+
+		/** Index of the current segment, literals at even and values at odd positions. */
+		private int segment;
+
+		private int offset;
+
+		SegmentReader(String text, int[] literalStarts, int[] literalEnds, String[] values) {
+			this.text = text;
+			this.literalStarts = literalStarts;
+			this.literalEnds = literalEnds;
+			this.values = values;
+			this.offset = literalStarts[0];
+		}
+
+		@Override
+		public int read(char[] buffer, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			int count = 0;
+			while (count < len && this.segment < this.literalStarts.length * 2 - 1) {
+				String source;
+				int end;
+				if (this.segment % 2 == 0) {
+					source = this.text;
+					end = this.literalEnds[this.segment / 2];
+				}
+				else {
+					source = this.values[this.segment / 2];
+					end = source.length();
+				}
+				int n = Math.min(len - count, end - this.offset);
+				if (n > 0) {
+					source.getChars(this.offset, this.offset + n, buffer, off + count);
+					this.offset += n;
+					count += n;
+				}
+				if (this.offset >= end) {
+					this.segment++;
+					this.offset = (this.segment % 2 == 0) ? this.literalStarts[this.segment / 2] : 0;
+				}
+			}
+			return (count == 0) ? -1 : count;
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.placeholder;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * 按脚本资源（位置、最后修改时间及大小）缓存已编译的占位符模板，同一脚本在多个模块、租户及多次迁移
+ * （如测试中反复启动上下文）之间只读取、编译一次；命中时不读取也不比较脚本内容。
+ * 模板以软引用保存，内存紧张时可被回收
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayPlaceholderTemplateCache {
+
+	private static final FlywayPlaceholderTemplateCache SHARED = new FlywayPlaceholderTemplateCache(1024);
+
+	private final Map<String, SoftReference<FlywayPlaceholderTemplate>> templates;
+
+	public FlywayPlaceholderTemplateCache(int maxSize) {
+		this.templates = new LinkedHashMap<String, SoftReference<FlywayPlaceholderTemplate>>(64, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SoftReference<FlywayPlaceholderTemplate>> eldest) {
+				return size() > maxSize;
+			}
+
+		};
+	}
+
+	/**
+	 * The cache shared by all modules of the JVM.
+	 */
+	public static FlywayPlaceholderTemplateCache getSharedInstance() {
+		return SHARED;
+	}
+
+	/**
+	 * Return the compiled template of the given script resource, compiling it on first use.
+	 * @param resource the script resource, identifying the template
+	 * @param text supplies the text of the script, only called when the template is compiled
+	 * @param prefix the placeholder prefix
+	 * @param suffix the placeholder suffix
+	 */
+	public FlywayPlaceholderTemplate getTemplate(Resource resource, Supplier<String> text, String prefix,
+			String suffix) {
+		String key = getKey(resource, prefix, suffix);
+		if (key == null) {
+			// 无法确定资源是否变化，不缓存
+			return FlywayPlaceholderTemplate.compile(text.get(), prefix, suffix);
+		}
+		synchronized (this.templates) {
+			SoftReference<FlywayPlaceholderTemplate> reference = this.templates.get(key);
+			FlywayPlaceholderTemplate template = (reference != null) ? reference.get() : null;
+			if (template != null) {
+				return template;
+			}
+		}
+		FlywayPlaceholderTemplate template = FlywayPlaceholderTemplate.compile(text.get(), prefix, suffix);
+		synchronized (this.templates) {
+			this.templates.put(key, new SoftReference<>(template));
+		}
+		return template;
+	}
+
+	public int size() {
+		synchronized (this.templates) {
+			return this.templates.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (this.templates) {
+			this.templates.clear();
+		}
+	}
+
+	private static String getKey(Resource resource, String prefix, String suffix) {
+		try {
+			return resource.getURL() + ":" + resource.lastModified() + ":" + resource.contentLength() + ":" + prefix
+					+ ":" + suffix;
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+}
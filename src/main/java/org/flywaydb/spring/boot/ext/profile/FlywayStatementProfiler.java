@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.profile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementListener;
+import org.flywaydb.spring.boot.ext.resource.FlywayScriptLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.Assert;
+
+/**
+ * 语句级迁移剖析：通过 Flyway 回调跟踪模块及脚本，通过 {@link FlywayStatementListener} 记录脚本中每条语句的耗时及影响行数，
+ * 只保留最慢的若干条（有界的最小堆），迁移结束后按耗时降序输出前 N 条，并可导出为 JSON
+ * <p>
+ * 行号按语句首行在脚本中自上次匹配位置起查找得出，脚本经占位符替换等改写后无法匹配时为 -1。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayStatementProfiler implements Callback, FlywayStatementListener {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayStatementProfiler.class);
+
+	private static final int MAX_LOGGED_SQL_LENGTH = 120;
+
+	private static final Comparator<StatementProfile> BY_DURATION = Comparator
+			.comparingLong(StatementProfile::getDurationNanos);
+
+	private final ThreadLocal<ScriptProfile> script = new ThreadLocal<>();
+
+	private final PriorityQueue<StatementProfile> slowest = new PriorityQueue<>(BY_DURATION);
+
+	private final FlywayScriptLocator scriptLocator = new FlywayScriptLocator();
+
+	private int capacity = 1000;
+
+	private int top = 20;
+
+	private Path export;
+
+	private long statements;
+
+	private long totalNanos;
+
+	public void setResourceLoader(ResourceLoader resourceLoader) {
+		this.scriptLocator.setResourceLoader(resourceLoader);
+	}
+
+	/**
+	 * Set the number of slowest statements retained, and exported.
+	 */
+	public void setCapacity(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Set the number of slowest statements logged by {@link #report()}.
+	 */
+	public void setTop(int top) {
+		Assert.isTrue(top > 0, "Top must be greater than 0");
+		this.top = top;
+	}
+
+	/**
+	 * Set the file the retained statements are exported to as JSON by {@link #report()}.
+	 * @param export the file, or {@code null} not to export
+	 */
+	public void setExport(Path export) {
+		this.export = export;
+	}
+
+	@Override
+	public boolean supports(Event event, Context context) {
+		switch (event) {
+			case BEFORE_MIGRATE:
+			case AFTER_MIGRATE:
+			case AFTER_MIGRATE_ERROR:
+			case BEFORE_EACH_MIGRATE:
+			case AFTER_EACH_MIGRATE:
+			case AFTER_EACH_MIGRATE_ERROR:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public boolean canHandleInTransaction(Event event, Context context) {
+		return true;
+	}
+
+	@Override
+	public void handle(Event event, Context context) {
+		switch (event) {
+			case BEFORE_EACH_MIGRATE:
+				MigrationInfo info = context.getMigrationInfo();
+				if (info != null && info.getScript() != null) {
+					this.script.set(new ScriptProfile(context.getConfiguration(), info.getScript()));
+				}
+				break;
+			case BEFORE_MIGRATE:
+			case AFTER_EACH_MIGRATE:
+			case AFTER_EACH_MIGRATE_ERROR:
+			case AFTER_MIGRATE:
+			case AFTER_MIGRATE_ERROR:
+				this.script.remove();
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public String getCallbackName() {
+		return "profile";
+	}
+
+	@Override
+	public void afterStatement(Statement statement, String sql, long elapsedNanos, Throwable failure) {
+		ScriptProfile script = this.script.get();
+		// 仅记录脚本中的语句，不含历史表等 Flyway 自身的语句
+		if (script == null) {
+			return;
+		}
+		int line = (sql != null) ? script.locate(sql) : -1;
+		long rows = (failure == null) ? getUpdateCount(statement) : -1;
+		synchronized (this.slowest) {
+			this.statements++;
+			this.totalNanos += elapsedNanos;
+			StatementProfile fastest = this.slowest.peek();
+			if (this.slowest.size() >= this.capacity) {
+				if (fastest.durationNanos >= elapsedNanos) {
+					return;
+				}
+				this.slowest.poll();
+			}
+			this.slowest.add(new StatementProfile(script.module, script.tenant, script.script, line, elapsedNanos,
+					rows, sql, failure != null));
+		}
+	}
+
+	/**
+	 * Return the retained statements, slowest first.
+	 */
+	public List<StatementProfile> getStatements() {
+		List<StatementProfile> statements;
+		synchronized (this.slowest) {
+			statements = new ArrayList<>(this.slowest);
+		}
+		statements.sort(BY_DURATION.reversed());
+		return statements;
+	}
+
+	/**
+	 * Log the slowest statements recorded since the last reset and export the retained
+	 * statements if configured.
+	 */
+	public void report() {
+		List<StatementProfile> statements = getStatements();
+		long count;
+		long totalNanos;
+		synchronized (this.slowest) {
+			count = this.statements;
+			totalNanos = this.totalNanos;
+		}
+		if (count == 0) {
+			return;
+		}
+		StringBuilder report = new StringBuilder();
+		report.append(count).append(" statement(s) executed in ").append(TimeUnit.NANOSECONDS.toMillis(totalNanos))
+				.append("ms, slowest:");
+		for (int i = 0; i < Math.min(this.top, statements.size()); i++) {
+			StatementProfile profile = statements.get(i);
+			report.append(System.lineSeparator()).append(String.format("%4d. %8dms %10s  %s%s/%s:%d  %s", i + 1,
+					profile.getDurationMillis(), (profile.rows >= 0) ? profile.rows + " rows" : "",
+					profile.module, (profile.tenant != null) ? "[" + profile.tenant + "]" : "", profile.script,
+					profile.line, abbreviate(profile.sql)));
+		}
+		LOG.info(report.toString());
+		if (this.export != null) {
+			try {
+				export(statements, count, totalNanos);
+			}
+			catch (IOException ex) {
+				LOG.warn("Unable to export the statement profile to {}", this.export, ex);
+			}
+		}
+	}
+
+	/**
+	 * Forget the recorded statements.
+	 */
+	public void reset() {
+		synchronized (this.slowest) {
+			this.slowest.clear();
+			this.statements = 0;
+			this.totalNanos = 0;
+		}
+	}
+
+	private void export(List<StatementProfile> statements, long count, long totalNanos) throws IOException {
+		Path directory = this.export.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		// 先写临时文件再替换，避免读取到不完整的报告
+		Path temp = Files.createTempFile(directory, this.export.getFileName().toString(), ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writer.write("{\n  \"statements\": " + count + ",\n  \"totalMillis\": "
+						+ TimeUnit.NANOSECONDS.toMillis(totalNanos) + ",\n  \"slowest\": [");
+				String separator = "\n";
+				for (StatementProfile profile : statements) {
+					writer.write(separator + "    {\"module\": " + quote(profile.module) + ", \"tenant\": "
+							+ quote(profile.tenant) + ", \"script\": " + quote(profile.script) + ", \"line\": "
+							+ profile.line + ", \"durationMicros\": " + TimeUnit.NANOSECONDS.toMicros(profile.durationNanos)
+							+ ", \"rows\": " + profile.rows + ", \"failed\": " + profile.failed + ", \"sql\": "
+							+ quote(profile.sql) + "}");
+					separator = ",\n";
+				}
+				writer.write("\n  ]\n}\n");
+			}
+			Files.move(temp, this.export, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static long getUpdateCount(Statement statement) {
+		try {
+			return statement.getUpdateCount();
+		}
+		catch (SQLException ex) {
+			return -1;
+		}
+	}
+
+	private static String abbreviate(String sql) {
+		if (sql == null) {
+			return "<batch>";
+		}
+		String line = sql.trim().replaceAll("\\s+", " ");
+		return (line.length() > MAX_LOGGED_SQL_LENGTH) ? line.substring(0, MAX_LOGGED_SQL_LENGTH - 3) + "..." : line;
+	}
+
+	private static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					quoted.append("\\\"");
+					break;
+				case '\\':
+					quoted.append("\\\\");
+					break;
+				case '\n':
+					quoted.append("\\n");
+					break;
+				case '\r':
+					quoted.append("\\r");
+					break;
+				case '\t':
+					quoted.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						quoted.append(String.format("\\u%04x", (int) c));
+					}
+					else {
+						quoted.append(c);
+					}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	private class ScriptProfile {
+
+		private final Configuration configuration;
+
+		private final String module;
+
+		private final String tenant;
+
+		private final String script;
+
+		private boolean loaded;
+
+		private String text;
+
+		private int position;
+
+		private int line = 1;
+
+		ScriptProfile(Configuration configuration, String script) {
+			Flyway flyway = FlywayModule.getMigrating(configuration);
+			this.configuration = configuration;
+			this.module = (flyway != null) ? FlywayModule.getModule(flyway) : configuration.getTable();
+			this.tenant = (flyway != null) ? FlywayModule.getTenant(flyway) : null;
+			this.script = script;
+		}
+
+		/**
+		 * Return the line of the given statement, searching the script from the previous statement on.
+		 */
+		int locate(String sql) {
+			if (!this.loaded) {
+				this.loaded = true;
+				this.text = scriptLocator.load(this.configuration, this.script);
+			}
+			String first = sql.trim();
+			int end = first.indexOf('\n');
+			if (end >= 0) {
+				first = first.substring(0, end).trim();
+			}
+			int index = (this.text != null && !first.isEmpty()) ? this.text.indexOf(first, this.position) : -1;
+			if (index < 0) {
+				return -1;
+			}
+			for (int i = this.position; i < index; i++) {
+				if (this.text.charAt(i) == '\n') {
+					this.line++;
+				}
+			}
+			this.position = index;
+			return this.line;
+		}
+
+	}
+
+	/**
+	 * The profile of an executed statement.
+	 */
+	public static class StatementProfile {
+
+		private final String module;
+
+		private final String tenant;
+
+		private final String script;
+
+		private final int line;
+
+		private final long durationNanos;
+
+		private final long rows;
+
+		private final String sql;
+
+		private final boolean failed;
+
+		StatementProfile(String module, String tenant, String script, int line, long durationNanos, long rows,
+				String sql, boolean failed) {
+			this.module = module;
+			this.tenant = tenant;
+			this.script = script;
+			this.line = line;
+			this.durationNanos = durationNanos;
+			this.rows = rows;
+			this.sql = sql;
+			this.failed = failed;
+		}
+
+		public String getModule() {
+			return module;
+		}
+
+		public String getTenant() {
+			return tenant;
+		}
+
+		public String getScript() {
+			return script;
+		}
+
+		/**
+		 * Return the line of the statement in the script, or -1 if unknown.
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		public long getDurationMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+		}
+
+		/**
+		 * Return the number of rows affected, or -1 if unknown.
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * Return the SQL, or {@code null} for a batch.
+		 */
+		public String getSql() {
+			return sql;
+		}
+
+		public boolean isFailed() {
+			return failed;
+		}
+
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.progress;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 模块迁移进度事件：按模块、脚本及语句粒度发布，脚本执行中的进度按时间间隔合并后发布
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@SuppressWarnings("serial")
+public class FlywayProgressEvent extends ApplicationEvent {
+
+	public enum Type {
+
+		MODULE_STARTED, SCRIPT_STARTED, SCRIPT_PROGRESS, SCRIPT_COMPLETED, SCRIPT_FAILED, MODULE_COMPLETED, MODULE_FAILED
+
+	}
+
+	private final Type type;
+
+	private final String module;
+
+	private final String tenant;
+
+	/**
+	 * The script being migrated, {@code null} for module events.
+	 */
+	private final String script;
+
+	/**
+	 * Statements executed so far in the script, or scripts migrated so far in the module for module events.
+	 */
+	private final long statements;
+
+	/**
+	 * Bytes of SQL executed so far in the script.
+	 */
+	private final long bytes;
+
+	/**
+	 * Size of the script in bytes, or -1 if unknown.
+	 */
+	private final long bytesTotal;
+
+	private final long elapsedMillis;
+
+	public FlywayProgressEvent(Object source, Type type, String module, String tenant, String script,
+			long statements, long bytes, long bytesTotal, long elapsedMillis) {
+		super(source);
+		this.type = type;
+		this.module = module;
+		this.tenant = tenant;
+		this.script = script;
+		this.statements = statements;
+		this.bytes = bytes;
+		this.bytesTotal = bytesTotal;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public String getScript() {
+		return script;
+	}
+
+	public long getStatements() {
+		return statements;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getBytesTotal() {
+		return bytesTotal;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Return the progress of the script between 0 and 1 estimated from the bytes executed,
+	 * or -1 if the size of the script is unknown.
+	 */
+	public double getRatio() {
+		return (this.bytesTotal > 0) ? Math.min(1d, (double) this.bytes / this.bytesTotal) : -1d;
+	}
+
+	@Override
+	public String toString() {
+		return this.type + "[module=" + this.module + ", tenant=" + this.tenant + ", script=" + this.script
+				+ ", statements=" + this.statements + ", bytes=" + this.bytes + "/" + this.bytesTotal
+				+ ", elapsed=" + this.elapsedMillis + "ms]";
+	}
+
+}
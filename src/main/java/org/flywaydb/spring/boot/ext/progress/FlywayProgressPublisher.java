@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.progress;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.spring.boot.ext.FlywayDeferredEventPublisher;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementListener;
+import org.flywaydb.spring.boot.ext.progress.FlywayProgressEvent.Type;
+import org.flywaydb.spring.boot.ext.resource.FlywayScriptLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.Assert;
+
+/**
+ * 迁移进度发布器：通过 Flyway 回调跟踪模块及脚本，通过 {@link FlywayStatementListener} 统计已执行的语句及字节数，
+ * 以 {@link FlywayProgressEvent} 发布；脚本执行中的进度事件按间隔合并，每个迁移线程每个间隔至多发布一次
+ * <p>
+ * 语句总数需解析脚本才能得知，故以已执行字节数相对脚本大小估算进度。全部单例创建完成之前的事件延迟发布，
+ * 其间的脚本执行中进度事件直接丢弃，见 {@link FlywayDeferredEventPublisher}。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayProgressPublisher implements Callback, FlywayStatementListener, ApplicationEventPublisherAware,
+		SmartInitializingSingleton {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayProgressPublisher.class);
+
+	private final ThreadLocal<ModuleProgress> progress = new ThreadLocal<>();
+
+	private final Map<String, Long> scriptSizes = new ConcurrentHashMap<>();
+
+	private FlywayDeferredEventPublisher eventPublisher;
+
+	private final FlywayScriptLocator scriptLocator = new FlywayScriptLocator();
+
+	private long intervalNanos = TimeUnit.SECONDS.toNanos(1);
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = new FlywayDeferredEventPublisher(eventPublisher);
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (this.eventPublisher != null) {
+			this.eventPublisher.ready();
+		}
+	}
+
+	public void setResourceLoader(ResourceLoader resourceLoader) {
+		this.scriptLocator.setResourceLoader(resourceLoader);
+	}
+
+	/**
+	 * Set the minimum interval between two progress events of the same migration thread.
+	 */
+	public void setInterval(Duration interval) {
+		Assert.notNull(interval, "Interval must not be null");
+		this.intervalNanos = interval.toNanos();
+	}
+
+	@Override
+	public boolean supports(Event event, Context context) {
+		switch (event) {
+			case BEFORE_MIGRATE:
+			case AFTER_MIGRATE:
+			case AFTER_MIGRATE_ERROR:
+			case BEFORE_EACH_MIGRATE:
+			case AFTER_EACH_MIGRATE:
+			case AFTER_EACH_MIGRATE_ERROR:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public boolean canHandleInTransaction(Event event, Context context) {
+		return true;
+	}
+
+	@Override
+	public void handle(Event event, Context context) {
+		ModuleProgress module = this.progress.get();
+		switch (event) {
+			case BEFORE_MIGRATE:
+				module = new ModuleProgress(context.getConfiguration());
+				this.progress.set(module);
+				publish(module, Type.MODULE_STARTED, null);
+				break;
+			case BEFORE_EACH_MIGRATE:
+				if (module != null) {
+					MigrationInfo info = context.getMigrationInfo();
+					String script = (info != null) ? info.getScript() : null;
+					module.script = new ScriptProgress(script, getScriptSize(context.getConfiguration(), script));
+					publish(module, Type.SCRIPT_STARTED, module.script);
+				}
+				break;
+			case AFTER_EACH_MIGRATE:
+			case AFTER_EACH_MIGRATE_ERROR:
+				if (module != null && module.script != null) {
+					module.scripts++;
+					publish(module, (event == Event.AFTER_EACH_MIGRATE) ? Type.SCRIPT_COMPLETED : Type.SCRIPT_FAILED,
+							module.script);
+					module.script = null;
+				}
+				break;
+			case AFTER_MIGRATE:
+			case AFTER_MIGRATE_ERROR:
+				if (module != null) {
+					this.progress.remove();
+					publish(module, (event == Event.AFTER_MIGRATE) ? Type.MODULE_COMPLETED : Type.MODULE_FAILED, null);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public String getCallbackName() {
+		return "progress";
+	}
+
+	@Override
+	public void afterStatement(Statement statement, String sql, long elapsedNanos, Throwable failure) {
+		ModuleProgress module = this.progress.get();
+		// 仅统计脚本中的语句，不含历史表等 Flyway 自身的语句
+		if (module == null || module.script == null) {
+			return;
+		}
+		ScriptProgress script = module.script;
+		script.statements++;
+		if (sql != null) {
+			script.bytes += utf8Length(sql);
+		}
+		long now = System.nanoTime();
+		// 延迟期间不缓存执行中的进度
+		if (now - script.lastPublished >= this.intervalNanos && this.eventPublisher != null
+				&& this.eventPublisher.isReady()) {
+			script.lastPublished = now;
+			publish(module, Type.SCRIPT_PROGRESS, script);
+		}
+	}
+
+	private void publish(ModuleProgress module, Type type, ScriptProgress script) {
+		if (this.eventPublisher == null) {
+			return;
+		}
+		FlywayProgressEvent event;
+		long now = System.nanoTime();
+		if (script != null) {
+			event = new FlywayProgressEvent(this, type, module.module, module.tenant, script.script,
+					script.statements, script.bytes, script.bytesTotal, TimeUnit.NANOSECONDS.toMillis(now - script.started));
+		}
+		else {
+			event = new FlywayProgressEvent(this, type, module.module, module.tenant, null, module.scripts, 0, -1,
+					TimeUnit.NANOSECONDS.toMillis(now - module.started));
+		}
+		try {
+			this.eventPublisher.publishEvent(event);
+		}
+		catch (RuntimeException ex) {
+			// 进度监听器的异常不影响迁移
+			LOG.warn("Unable to publish {}", event, ex);
+		}
+	}
+
+	private long getScriptSize(Configuration configuration, String script) {
+		if (script == null) {
+			return -1;
+		}
+		String key = Arrays.toString(configuration.getLocations()) + "/" + script;
+		return this.scriptSizes.computeIfAbsent(key, (path) -> this.scriptLocator.contentLength(configuration, script));
+	}
+
+	private static long utf8Length(String sql) {
+		long length = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c < 0x80) {
+				length++;
+			}
+			else if (c < 0x800) {
+				length += 2;
+			}
+			else if (Character.isHighSurrogate(c)) {
+				length += 4;
+				i++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private class ModuleProgress {
+
+		private final String module;
+
+		private final String tenant;
+
+		private final long started = System.nanoTime();
+
+		private long scripts;
+
+		private ScriptProgress script;
+
+		ModuleProgress(Configuration configuration) {
+			Flyway flyway = FlywayModule.getMigrating(configuration);
+			this.module = (flyway != null) ? FlywayModule.getModule(flyway) : configuration.getTable();
+			this.tenant = (flyway != null) ? FlywayModule.getTenant(flyway) : null;
+		}
+
+	}
+
+	private static class ScriptProgress {
+
+		private final String script;
+
+		private final long bytesTotal;
+
+		private final long started = System.nanoTime();
+
+		private long lastPublished = this.started;
+
+		private long statements;
+
+		private long bytes;
+
+		ScriptProgress(String script, long bytesTotal) {
+			this.script = script;
+			this.bytesTotal = bytesTotal;
+		}
+
+	}
+
+}
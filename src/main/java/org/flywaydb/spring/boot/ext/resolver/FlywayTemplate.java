@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.util.Assert;
+
+/**
+ * 预编译的路径/表名模板，支持 {module}、{vendor}、{profile}、{tenant} 及自定义变量：
+ * 模板只在首次使用时解析一次，之后每次求值仅按片段拼接，不再重复扫描字符串
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public final class FlywayTemplate {
+
+	private static final int MAX_CACHED_TEMPLATES = 4096;
+
+	private static final Map<String, FlywayTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+	private final String pattern;
+
+	/**
+	 * Literal segments, each followed by the variable of the same index except the last one.
+	 */
+	private final String[] literals;
+
+	private final String[] variables;
+
+	private FlywayTemplate(String pattern, String[] literals, String[] variables) {
+		this.pattern = pattern;
+		this.literals = literals;
+		this.variables = variables;
+	}
+
+	/**
+	 * Return the compiled template of the given pattern, compiling it on first use.
+	 * @param pattern the pattern, e.g. <code>classpath:db/migration/{module}/{vendor}</code>
+	 * @return the compiled template
+	 */
+	public static FlywayTemplate of(String pattern) {
+		Assert.notNull(pattern, "Pattern must not be null");
+		FlywayTemplate template = TEMPLATES.get(pattern);
+		if (template == null) {
+			template = compile(pattern);
+			if (TEMPLATES.size() < MAX_CACHED_TEMPLATES) {
+				TEMPLATES.putIfAbsent(pattern, template);
+			}
+		}
+		return template;
+	}
+
+	private static FlywayTemplate compile(String pattern) {
+		List<String> literals = new ArrayList<>();
+		List<String> variables = new ArrayList<>();
+		int position = 0;
+		int start;
+		while ((start = pattern.indexOf('{', position)) >= 0) {
+			int end = pattern.indexOf('}', start + 1);
+			if (end < 0) {
+				break;
+			}
+			literals.add(pattern.substring(position, start));
+			variables.add(pattern.substring(start + 1, end));
+			position = end + 1;
+		}
+		literals.add(pattern.substring(position));
+		return new FlywayTemplate(pattern, literals.toArray(new String[0]), variables.toArray(new String[0]));
+	}
+
+	/**
+	 * Evaluate this template. Variables without a value are kept as is.
+	 * @param values resolves a variable name to its value, or {@code null} if there is none;
+	 * only called for the variables used by this template
+	 * @return the evaluated string
+	 */
+	public String resolve(Function<String, String> values) {
+		if (this.variables.length == 0) {
+			return this.pattern;
+		}
+		StringBuilder builder = new StringBuilder(this.pattern.length() + 16);
+		for (int i = 0; i < this.variables.length; i++) {
+			builder.append(this.literals[i]);
+			String value = values.apply(this.variables[i]);
+			if (value != null) {
+				builder.append(value);
+			}
+			else {
+				builder.append('{').append(this.variables[i]).append('}');
+			}
+		}
+		return builder.append(this.literals[this.variables.length]).toString();
+	}
+
+	/**
+	 * Determine whether this template uses the given variable.
+	 */
+	public boolean uses(String variable) {
+		for (String name : this.variables) {
+			if (name.equals(variable)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	@Override
+	public String toString() {
+		return this.pattern;
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resolver;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.util.StringUtils;
+
+/**
+ * 统一的模板变量解析：{module}、{tenant} 按模块给出，{vendor} 按数据源探测一次后缓存，
+ * {profile} 及自定义变量全局共享
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayTemplateResolver {
+
+	public static final String MODULE_VARIABLE = "module";
+
+	public static final String VENDOR_VARIABLE = "vendor";
+
+	public static final String PROFILE_VARIABLE = "profile";
+
+	public static final String TENANT_VARIABLE = "tenant";
+
+	private static final String UNKNOWN_VENDOR = "";
+
+	private final Map<String, String> variables;
+
+	private final Map<DataSource, String> vendors = new ConcurrentHashMap<>();
+
+	public FlywayTemplateResolver() {
+		this(null, Collections.emptyMap());
+	}
+
+	/**
+	 * Create a new resolver.
+	 * @param profile the value of the {profile} variable, or {@code null}
+	 * @param variables custom variables available to every module
+	 */
+	public FlywayTemplateResolver(String profile, Map<String, String> variables) {
+		this.variables = new HashMap<>(variables);
+		if (profile != null) {
+			this.variables.put(PROFILE_VARIABLE, profile);
+		}
+	}
+
+	/**
+	 * Return the variables of a module. The vendor is only looked up when a template uses it.
+	 * @param module the module name
+	 * @param tenant the tenant, or {@code null}
+	 * @param dataSource the DataSource of the module, or {@code null}
+	 * @return the variable lookup
+	 */
+	public Function<String, String> variables(String module, String tenant, DataSource dataSource) {
+		return (name) -> {
+			switch (name) {
+				case MODULE_VARIABLE:
+					return module;
+				case TENANT_VARIABLE:
+					return tenant;
+				case VENDOR_VARIABLE:
+					return (dataSource != null) ? getVendor(dataSource) : null;
+				default:
+					return this.variables.get(name);
+			}
+		};
+	}
+
+	public String resolve(String pattern, Function<String, String> variables) {
+		return (pattern != null) ? FlywayTemplate.of(pattern).resolve(variables) : null;
+	}
+
+	public String[] resolve(Collection<String> patterns, Function<String, String> variables) {
+		return resolve(StringUtils.toStringArray(patterns), variables);
+	}
+
+	public String[] resolve(String[] patterns, Function<String, String> variables) {
+		String[] resolved = new String[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			resolved[i] = resolve(patterns[i], variables);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Return the vendor id of the given DataSource, detected once.
+	 * @return the vendor, or {@code null} if unknown
+	 */
+	public String getVendor(DataSource dataSource) {
+		String vendor = this.vendors.computeIfAbsent(dataSource, FlywayTemplateResolver::detectVendor);
+		return (vendor != UNKNOWN_VENDOR) ? vendor : null;
+	}
+
+	private static String detectVendor(DataSource dataSource) {
+		try {
+			String url = JdbcUtils.extractDatabaseMetaData(dataSource, "getURL");
+			DatabaseDriver databaseDriver = DatabaseDriver.fromJdbcUrl(url);
+			return (databaseDriver != DatabaseDriver.UNKNOWN) ? databaseDriver.getId() : UNKNOWN_VENDOR;
+		}
+		catch (MetaDataAccessException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+/**
+ * 构建期生成的迁移脚本索引（META-INF/flyway/locations.idx，每行一个类路径资源），
+ * 存在时类路径 location 直接按索引定位脚本而不再扫描，适用于 GraalVM 原生镜像等无法或不宜扫描类路径的环境。
+ * 索引中没有任何脚本的 location 照常扫描；原生镜像之外仍扫描已索引的 location，索引缺少脚本时中止而不是遗漏迁移
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ * @see FlywayLocationIndexGenerator
+ */
+public class FlywayLocationIndex {
+
+	public static final String INDEX_LOCATION = "META-INF/flyway/locations.idx";
+
+	private final Set<String> paths;
+
+	public FlywayLocationIndex(Set<String> paths) {
+		this.paths = Collections.unmodifiableSet(paths);
+	}
+
+	/**
+	 * Load the indexes of the classpath, merged.
+	 * @param resourcePatternResolver the resolver of the classpath
+	 * @return the index, or {@code null} if the classpath has none
+	 */
+	public static FlywayLocationIndex load(ResourcePatternResolver resourcePatternResolver) {
+		try {
+			Resource[] indexes = resourcePatternResolver
+					.getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + INDEX_LOCATION);
+			if (indexes.length == 0) {
+				return null;
+			}
+			Set<String> paths = new LinkedHashSet<>();
+			for (Resource index : indexes) {
+				try (BufferedReader reader = new BufferedReader(
+						new InputStreamReader(index.getInputStream(), StandardCharsets.UTF_8))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						line = line.trim();
+						if (!line.isEmpty() && !line.startsWith("#")) {
+							paths.add(line);
+						}
+					}
+				}
+			}
+			return new FlywayLocationIndex(paths);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to load " + INDEX_LOCATION, ex);
+		}
+	}
+
+	/**
+	 * Return the paths of the indexed resources under the given root path, relative to it.
+	 * @param rootPath the root path of a classpath location, e.g. <code>db/migration/user</code>
+	 */
+	public List<String> getRelativePaths(String rootPath) {
+		String root = rootPath.endsWith("/") ? rootPath : rootPath + "/";
+		List<String> relativePaths = new ArrayList<>();
+		for (String path : this.paths) {
+			if (path.startsWith(root) && path.length() > root.length()) {
+				relativePaths.add(path.substring(root.length()));
+			}
+		}
+		return relativePaths;
+	}
+
+	public Set<String> getPaths() {
+		return paths;
+	}
+
+}
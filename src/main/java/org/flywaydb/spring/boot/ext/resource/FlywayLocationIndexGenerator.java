@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 构建期生成迁移脚本索引及 GraalVM 原生镜像配置，在应用构建的 process-classes 阶段以应用的运行时类路径执行，例如：
+ * <pre>
+ * java org.flywaydb.spring.boot.ext.resource.FlywayLocationIndexGenerator target/classes \
+ *     classpath:db/migration/{module}/{vendor} --class=com.example.AuditCallback
+ * </pre>
+ * location 中第一个变量之前的目录即扫描根路径，所有模块、厂商的脚本在构建期一次性解析；
+ * 生成 {@value FlywayLocationIndex#INDEX_LOCATION}，以及包含索引、脚本的 resource-config.json
+ * 和包含 Java 迁移类与 --class 指定类（如回调）的 reflect-config.json
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayLocationIndexGenerator {
+
+	private static final String DEFAULT_LOCATION = "classpath:db/migration";
+
+	private static final String NATIVE_IMAGE_DIRECTORY = "META-INF/native-image/flyway-locations";
+
+	private static final String CLASS_OPTION = "--class=";
+
+	private final ResourcePatternResolver resourcePatternResolver;
+
+	private final Set<String> paths = new TreeSet<>();
+
+	private final Set<String> classNames = new TreeSet<>();
+
+	public FlywayLocationIndexGenerator(ResourcePatternResolver resourcePatternResolver) {
+		this.resourcePatternResolver = resourcePatternResolver;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: FlywayLocationIndexGenerator <output directory> [location...] [--class=name...]");
+			System.exit(1);
+		}
+		FlywayLocationIndexGenerator generator = new FlywayLocationIndexGenerator(
+				new PathMatchingResourcePatternResolver(ClassUtils.getDefaultClassLoader()));
+		List<String> locations = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith(CLASS_OPTION)) {
+				generator.addClass(args[i].substring(CLASS_OPTION.length()));
+			}
+			else {
+				locations.add(args[i]);
+			}
+		}
+		if (locations.isEmpty()) {
+			locations.add(DEFAULT_LOCATION);
+		}
+		for (String location : locations) {
+			generator.scan(location);
+		}
+		generator.write(new File(args[0]));
+	}
+
+	/**
+	 * Add the resources and Java migrations under the given location.
+	 * @param location a classpath location, may contain template variables such as {module}
+	 */
+	public void scan(String location) throws IOException {
+		String root = getRootPath(location);
+		for (Resource resource : this.resourcePatternResolver
+				.getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + root + "/**/*")) {
+			if (!resource.isReadable() || !StringUtils.hasText(resource.getFilename())) {
+				continue;
+			}
+			String url = resource.getURL().toString().replace('\\', '/');
+			int index = url.lastIndexOf("/" + root + "/");
+			if (index < 0) {
+				continue;
+			}
+			String path = StringUtils.uriDecode(url.substring(index + 1), StandardCharsets.UTF_8);
+			if (path.endsWith(ClassUtils.CLASS_FILE_SUFFIX)) {
+				String className = ClassUtils.convertResourcePathToClassName(
+						path.substring(0, path.length() - ClassUtils.CLASS_FILE_SUFFIX.length()));
+				if (isJavaMigration(className)) {
+					this.classNames.add(className);
+				}
+			}
+			else {
+				this.paths.add(path);
+			}
+		}
+	}
+
+	public void addClass(String className) {
+		this.classNames.add(className);
+	}
+
+	/**
+	 * Write the index and the native-image configuration to the given directory.
+	 */
+	public void write(File outputDirectory) throws IOException {
+		File index = new File(outputDirectory, FlywayLocationIndex.INDEX_LOCATION);
+		index.getParentFile().mkdirs();
+		try (Writer writer = Files.newBufferedWriter(index.toPath(), StandardCharsets.UTF_8)) {
+			for (String path : this.paths) {
+				writer.write(path);
+				writer.write('\n');
+			}
+		}
+		File nativeImage = new File(outputDirectory, NATIVE_IMAGE_DIRECTORY);
+		nativeImage.mkdirs();
+		try (Writer writer = Files.newBufferedWriter(new File(nativeImage, "resource-config.json").toPath(),
+				StandardCharsets.UTF_8)) {
+			writer.write("{\n  \"resources\": {\n    \"includes\": [\n");
+			writer.write("      {\"pattern\": \"" + quote(FlywayLocationIndex.INDEX_LOCATION) + "\"}");
+			for (String path : this.paths) {
+				writer.write(",\n      {\"pattern\": \"" + quote(path) + "\"}");
+			}
+			writer.write("\n    ]\n  }\n}\n");
+		}
+		try (Writer writer = Files.newBufferedWriter(new File(nativeImage, "reflect-config.json").toPath(),
+				StandardCharsets.UTF_8)) {
+			writer.write("[");
+			String separator = "\n";
+			for (String className : this.classNames) {
+				writer.write(separator + "  {\"name\": \"" + escape(className)
+						+ "\", \"allDeclaredConstructors\": true, \"allPublicMethods\": true}");
+				separator = ",\n";
+			}
+			writer.write("\n]\n");
+		}
+	}
+
+	public Set<String> getPaths() {
+		return paths;
+	}
+
+	public Set<String> getClassNames() {
+		return classNames;
+	}
+
+	private boolean isJavaMigration(String className) {
+		try {
+			Class<?> type = ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+			return JavaMigration.class.isAssignableFrom(type) && !type.isInterface();
+		}
+		catch (ClassNotFoundException | LinkageError ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Return the directory of the location before its first template variable.
+	 */
+	static String getRootPath(String location) {
+		String path = location.startsWith("classpath:") ? location.substring("classpath:".length()) : location;
+		int variable = path.indexOf('{');
+		if (variable >= 0) {
+			path = path.substring(0, path.lastIndexOf('/', variable) + 1);
+		}
+		path = StringUtils.trimTrailingCharacter(StringUtils.trimLeadingCharacter(path, '/'), '/');
+		if (path.isEmpty()) {
+			throw new IllegalArgumentException("Location " + location + " has no static root directory");
+		}
+		return path;
+	}
+
+	private static String quote(String path) {
+		// native-image 的资源模式为正则表达式
+		return escape("\\Q" + path + "\\E");
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+}
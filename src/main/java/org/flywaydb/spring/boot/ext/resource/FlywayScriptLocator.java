@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * 按模块的 classpath: 及 filesystem: location 定位 Flyway 回调中的迁移脚本（{@code MigrationInfo#getScript()}），
+ * 供进度发布及语句剖析读取脚本大小与原文
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayScriptLocator {
+
+	private ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+	public void setResourceLoader(ResourceLoader resourceLoader) {
+		Assert.notNull(resourceLoader, "ResourceLoader must not be null");
+		this.resourceLoader = resourceLoader;
+	}
+
+	/**
+	 * Return the given script in the first location of the module containing it.
+	 * @param configuration the configuration of the module
+	 * @param script the script, relative to its location
+	 * @return the script, or {@code null} if not found
+	 */
+	public Resource getScript(Configuration configuration, String script) {
+		for (Location location : configuration.getLocations()) {
+			String prefix;
+			if (location.isClassPath()) {
+				prefix = "classpath:";
+			}
+			else if (location.isFileSystem()) {
+				prefix = "file:";
+			}
+			else {
+				continue;
+			}
+			Resource resource = this.resourceLoader.getResource(prefix + location.getRootPath() + "/" + script);
+			if (resource.exists()) {
+				return resource;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the size of the given script in bytes, or -1 if unknown.
+	 */
+	public long contentLength(Configuration configuration, String script) {
+		Resource resource = getScript(configuration, script);
+		try {
+			return (resource != null) ? resource.contentLength() : -1;
+		}
+		catch (IOException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Return the text of the given script, or {@code null} if not found.
+	 */
+	public String load(Configuration configuration, String script) {
+		Resource resource = getScript(configuration, script);
+		if (resource == null) {
+			return null;
+		}
+		try (InputStream input = resource.getInputStream()) {
+			return StreamUtils.copyToString(input, configuration.getEncoding());
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.spring.boot.ext.placeholder.FlywayPlaceholderTemplate;
+import org.flywaydb.spring.boot.ext.placeholder.FlywayPlaceholderTemplateCache;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * 基于 Spring {@link Resource} 的迁移脚本；启用占位符模板时读取的是替换后的脚本内容。
+ * <p>
+ * 此时 Flyway 自身的占位符替换已关闭，Flyway 计算校验和与解析脚本都通过 {@link #read()} 读取替换后的内容，
+ * 因此版本化脚本的校验和也按替换后的内容计算；原始内容的校验和由 {@link #getRawChecksum()} 给出，
+ * 用于对齐未启用模板时已迁移的数据库，见 {@link FlywayTemplateChecksumRepair}
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywaySpringResource extends LoadableResource {
+
+	private final Resource resource;
+
+	private final String absolutePath;
+
+	private final String relativePath;
+
+	private final Charset encoding;
+
+	private final FlywayPlaceholderTemplateCache templateCache;
+
+	private final String placeholderPrefix;
+
+	private final String placeholderSuffix;
+
+	private final Function<String, String> placeholders;
+
+	private volatile SoftReference<String> text;
+
+	/**
+	 * Create a resource read as is.
+	 */
+	public FlywaySpringResource(Resource resource, String absolutePath, String relativePath, Charset encoding) {
+		this(resource, absolutePath, relativePath, encoding, null, null, null, null);
+	}
+
+	/**
+	 * Create a resource whose placeholders are replaced with a compiled template.
+	 */
+	public FlywaySpringResource(Resource resource, String absolutePath, String relativePath, Charset encoding,
+			FlywayPlaceholderTemplateCache templateCache, String placeholderPrefix, String placeholderSuffix,
+			Function<String, String> placeholders) {
+		this.resource = resource;
+		this.absolutePath = absolutePath;
+		this.relativePath = relativePath;
+		this.encoding = encoding;
+		this.templateCache = templateCache;
+		this.placeholderPrefix = placeholderPrefix;
+		this.placeholderSuffix = placeholderSuffix;
+		this.placeholders = placeholders;
+	}
+
+	@Override
+	public Reader read() {
+		if (this.templateCache == null) {
+			return new StringReader(getText());
+		}
+		FlywayPlaceholderTemplate template = this.templateCache.getTemplate(this.resource, this::getText,
+				this.placeholderPrefix, this.placeholderSuffix);
+		return template.reader(this.placeholders);
+	}
+
+	/**
+	 * Determine whether the placeholders of this script are replaced with a compiled template.
+	 */
+	public boolean isTemplate() {
+		return this.templateCache != null;
+	}
+
+	/**
+	 * Compute the checksum Flyway computes for this script, over the text returned by
+	 * {@link #read()}.
+	 */
+	public int getChecksum() {
+		return checksum(read());
+	}
+
+	/**
+	 * Compute the checksum Flyway computes for this script without placeholder template, over
+	 * its raw text as for versioned migrations.
+	 */
+	public int getRawChecksum() {
+		return checksum(new StringReader(getText()));
+	}
+
+	private int checksum(Reader reader) {
+		// 与 Flyway 一致：逐行（不含换行符）按 UTF-8 计算 CRC32，忽略 BOM
+		CRC32 crc32 = new CRC32();
+		try (BufferedReader lines = new BufferedReader(reader, 4096)) {
+			String line;
+			while ((line = lines.readLine()) != null) {
+				if (!line.isEmpty() && line.charAt(0) == '\uFEFF') {
+					line = line.substring(1);
+				}
+				crc32.update(line.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		catch (IOException ex) {
+			throw new FlywayException("Unable to calculate the checksum of " + this.absolutePath + ": "
+					+ ex.getMessage(), ex);
+		}
+		return (int) crc32.getValue();
+	}
+
+	/**
+	 * Return the raw text of the script, read once and kept for the checksum and parse passes
+	 * as long as memory allows.
+	 */
+	public String getText() {
+		SoftReference<String> reference = this.text;
+		String text = (reference != null) ? reference.get() : null;
+		if (text == null) {
+			try (InputStream in = this.resource.getInputStream()) {
+				text = StreamUtils.copyToString(in, this.encoding);
+			}
+			catch (IOException ex) {
+				throw new FlywayException("Unable to read " + this.absolutePath + ": " + ex.getMessage(), ex);
+			}
+			// BOM
+			if (!text.isEmpty() && text.charAt(0) == '\uFEFF') {
+				text = text.substring(1);
+			}
+			this.text = new SoftReference<>(text);
+		}
+		return text;
+	}
+
+	@Override
+	public String getAbsolutePath() {
+		return this.absolutePath;
+	}
+
+	@Override
+	public String getAbsolutePathOnDisk() {
+		try {
+			return this.resource.getFile().getAbsolutePath();
+		}
+		catch (IOException ex) {
+			return this.absolutePath;
+		}
+	}
+
+	@Override
+	public String getFilename() {
+		int index = this.relativePath.lastIndexOf('/');
+		return (index < 0) ? this.relativePath : this.relativePath.substring(index + 1);
+	}
+
+	@Override
+	public String getRelativePath() {
+		return this.relativePath;
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+}
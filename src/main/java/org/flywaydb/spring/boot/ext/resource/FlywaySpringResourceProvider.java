@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.spring.boot.ext.FlywayModuleFilter;
+import org.flywaydb.spring.boot.ext.placeholder.FlywayPlaceholderTemplateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 基于 Spring {@link ResourcePatternResolver} 查找模块的迁移脚本，并可使用预编译的占位符模板替换脚本中的占位符。
+ * <p>
+ * 启用占位符模板时 Flyway 自身的占位符替换需关闭，脚本的校验和按替换后的内容计算（版本化脚本也是如此，与 Flyway 自身替换不同），
+ * 未启用模板时已迁移的版本化脚本由 {@link FlywayTemplateChecksumRepair} 对齐。flyway:database、flyway:user
+ * 及未配置时的 flyway:defaultSchema 与 Flyway 一样取自数据库连接，仅在脚本用到时查询一次。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywaySpringResourceProvider implements ResourceProvider {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywaySpringResourceProvider.class);
+
+	private static final String FLYWAY_PLACEHOLDER_PREFIX = "flyway:";
+
+	private final ResourcePatternResolver resourcePatternResolver;
+
+	private final Location[] locations;
+
+	private final Charset encoding;
+
+	private final FlywayPlaceholderTemplateCache templateCache;
+
+	private final String placeholderPrefix;
+
+	private final String placeholderSuffix;
+
+	private final Map<String, String> placeholders;
+
+	private final DataSource dataSource;
+
+	private volatile Map<String, String> connectionPlaceholders;
+
+	private FlywayLocationIndex locationIndex;
+
+	private FlywayModuleFilter resourceFilter;
+
+	private volatile Map<String, FlywaySpringResource> resources;
+
+	/**
+	 * Create a provider reading the scripts of the given configuration as is.
+	 */
+	public FlywaySpringResourceProvider(ResourcePatternResolver resourcePatternResolver, Configuration configuration) {
+		this(resourcePatternResolver, configuration, null);
+	}
+
+	/**
+	 * Create a provider replacing the placeholders of the given configuration with compiled
+	 * templates from the given cache.
+	 */
+	public FlywaySpringResourceProvider(ResourcePatternResolver resourcePatternResolver, Configuration configuration,
+			FlywayPlaceholderTemplateCache templateCache) {
+		this.resourcePatternResolver = resourcePatternResolver;
+		this.locations = configuration.getLocations();
+		this.encoding = configuration.getEncoding();
+		this.templateCache = templateCache;
+		this.placeholderPrefix = configuration.getPlaceholderPrefix();
+		this.placeholderSuffix = configuration.getPlaceholderSuffix();
+		this.placeholders = createPlaceholders(configuration);
+		this.dataSource = configuration.getDataSource();
+	}
+
+	@Override
+	public LoadableResource getResource(String name) {
+		return getResources().get(name);
+	}
+
+	@Override
+	public Collection<LoadableResource> getResources(String prefix, String[] suffixes) {
+		List<LoadableResource> matches = new ArrayList<>();
+		for (FlywaySpringResource resource : getResources().values()) {
+			String filename = resource.getFilename();
+			if (filename.startsWith(prefix) && hasSuffix(filename, suffixes)) {
+				matches.add(resource);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Return all resources of the configured locations keyed by relative path, scanned once.
+	 */
+	public Map<String, FlywaySpringResource> getResources() {
+		Map<String, FlywaySpringResource> resources = this.resources;
+		if (resources == null) {
+			synchronized (this) {
+				resources = this.resources;
+				if (resources == null) {
+					resources = scan();
+					this.resources = resources;
+				}
+			}
+		}
+		return resources;
+	}
+
+	/**
+	 * Set the build-time index of the classpath resources, used instead of scanning the classpath
+	 * locations.
+	 * @param locationIndex the index, or {@code null} to scan
+	 */
+	/**
+	 * Determine whether this provider replaces placeholders with compiled templates.
+	 */
+	public boolean isTemplate() {
+		return this.templateCache != null;
+	}
+
+	public void setLocationIndex(FlywayLocationIndex locationIndex) {
+		this.locationIndex = locationIndex;
+	}
+
+	/**
+	 * Set the filter of the resources, matched against their path relative to the location.
+	 * @param resourceFilter the filter, or {@code null} to keep every resource
+	 */
+	public void setResourceFilter(FlywayModuleFilter resourceFilter) {
+		this.resourceFilter = resourceFilter;
+	}
+
+	/**
+	 * Forget the scanned resources, the locations being scanned again on next access.
+	 */
+	public synchronized void refresh() {
+		this.resources = null;
+	}
+
+	private Map<String, FlywaySpringResource> scan() {
+		Map<String, FlywaySpringResource> resources = new LinkedHashMap<>();
+		for (Location location : this.locations) {
+			if (location.isClassPath() && this.locationIndex != null
+					&& !this.locationIndex.getRelativePaths(location.getRootPath()).isEmpty()) {
+				addIndexedResources(resources, location);
+				continue;
+			}
+			// 索引未包含的 location 照常扫描
+			scanLocation(resources, location);
+		}
+		return Collections.unmodifiableMap(resources);
+	}
+
+	private void scanLocation(Map<String, FlywaySpringResource> resources, Location location) {
+		String root;
+		if (location.isClassPath()) {
+			root = "classpath*:" + location.getRootPath();
+		}
+		else if (location.isFileSystem()) {
+			root = "file:" + location.getRootPath();
+		}
+		else {
+			LOG.warn("Unsupported location {} ignored", location);
+			return;
+		}
+		try {
+			for (Resource resource : this.resourcePatternResolver.getResources(root + "/**/*")) {
+				String relativePath = location.isFileSystem()
+						? getRelativeFilePath(resource, location.getRootPath())
+						: getRelativePath(resource, location.getRootPath());
+				if (relativePath == null || !accept(relativePath) || !resource.isReadable()) {
+					continue;
+				}
+				String path = location.getRootPath() + "/" + relativePath;
+				if (location.getPathRegex() != null && !location.matchesPath(path)) {
+					continue;
+				}
+				resources.putIfAbsent(relativePath, createResource(resource, path, relativePath));
+			}
+		}
+		catch (IOException ex) {
+			throw new FlywayException("Unable to scan location " + location + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	private void addIndexedResources(Map<String, FlywaySpringResource> resources, Location location) {
+		Map<String, FlywaySpringResource> indexed = new LinkedHashMap<>();
+		for (String relativePath : this.locationIndex.getRelativePaths(location.getRootPath())) {
+			if (!accept(relativePath)) {
+				continue;
+			}
+			String path = location.getRootPath() + "/" + relativePath;
+			if (location.getPathRegex() != null && !location.matchesPath(path)) {
+				continue;
+			}
+			Resource resource = this.resourcePatternResolver.getResource("classpath:" + path);
+			if (resource.isReadable()) {
+				indexed.putIfAbsent(relativePath, createResource(resource, path, relativePath));
+			}
+		}
+		if (!NativeDetector.inNativeImage()) {
+			// 原生镜像之外可以扫描类路径，过期的索引会遗漏迁移，与扫描结果不一致时中止
+			Map<String, FlywaySpringResource> scanned = new LinkedHashMap<>();
+			scanLocation(scanned, location);
+			Set<String> missing = new TreeSet<>(scanned.keySet());
+			missing.removeAll(indexed.keySet());
+			if (!missing.isEmpty()) {
+				throw new FlywayException("Location index " + FlywayLocationIndex.INDEX_LOCATION
+						+ " is stale, it lacks " + missing + " of " + location + ", regenerate it");
+			}
+		}
+		indexed.forEach(resources::putIfAbsent);
+	}
+
+	private boolean accept(String relativePath) {
+		return this.resourceFilter == null || this.resourceFilter.accept(relativePath);
+	}
+
+	private FlywaySpringResource createResource(Resource resource, String path, String relativePath) {
+		if (this.templateCache == null) {
+			return new FlywaySpringResource(resource, path, relativePath, this.encoding);
+		}
+		String filename = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+		Function<String, String> values = (name) -> getPlaceholder(name, filename);
+		return new FlywaySpringResource(resource, path, relativePath, this.encoding, this.templateCache,
+				this.placeholderPrefix, this.placeholderSuffix, values);
+	}
+
+	private String getPlaceholder(String name, String filename) {
+		String value = this.placeholders.get(name);
+		if (value == null) {
+			value = this.placeholders.get(name.toLowerCase(Locale.ENGLISH));
+		}
+		if (value == null && (FLYWAY_PLACEHOLDER_PREFIX + "filename").equals(name)) {
+			value = filename;
+		}
+		if (value == null && (FLYWAY_PLACEHOLDER_PREFIX + "timestamp").equals(name)) {
+			value = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+		}
+		if (value == null && name.startsWith(FLYWAY_PLACEHOLDER_PREFIX)) {
+			value = getConnectionPlaceholders().get(name);
+		}
+		return value;
+	}
+
+	/**
+	 * Return the placeholders Flyway reads from the connection, read once on first use.
+	 */
+	private Map<String, String> getConnectionPlaceholders() {
+		Map<String, String> placeholders = this.connectionPlaceholders;
+		if (placeholders == null) {
+			synchronized (this) {
+				placeholders = this.connectionPlaceholders;
+				if (placeholders == null) {
+					placeholders = readConnectionPlaceholders();
+					this.connectionPlaceholders = placeholders;
+				}
+			}
+		}
+		return placeholders;
+	}
+
+	private Map<String, String> readConnectionPlaceholders() {
+		Map<String, String> placeholders = new HashMap<>();
+		if (this.dataSource == null) {
+			return placeholders;
+		}
+		try (Connection connection = this.dataSource.getConnection()) {
+			putIfNotNull(placeholders, FLYWAY_PLACEHOLDER_PREFIX + "database", connection.getCatalog());
+			putIfNotNull(placeholders, FLYWAY_PLACEHOLDER_PREFIX + "user", connection.getMetaData().getUserName());
+			putIfNotNull(placeholders, FLYWAY_PLACEHOLDER_PREFIX + "defaultSchema", connection.getSchema());
+		}
+		catch (SQLException | AbstractMethodError ex) {
+			// 驱动不支持时与 Flyway 一样不提供这些占位符
+			LOG.debug("Unable to read the placeholders of the connection", ex);
+		}
+		return placeholders;
+	}
+
+	private static void putIfNotNull(Map<String, String> placeholders, String name, String value) {
+		if (value != null) {
+			placeholders.put(name, value);
+		}
+	}
+
+	private static Map<String, String> createPlaceholders(Configuration configuration) {
+		Map<String, String> placeholders = new HashMap<>();
+		configuration.getPlaceholders().forEach((key, value) -> {
+			placeholders.put(key, value);
+			placeholders.putIfAbsent(key.toLowerCase(Locale.ENGLISH), value);
+		});
+		String defaultSchema = configuration.getDefaultSchema();
+		if (defaultSchema == null && !ObjectUtils.isEmpty(configuration.getSchemas())) {
+			defaultSchema = configuration.getSchemas()[0];
+		}
+		if (defaultSchema != null) {
+			placeholders.put(FLYWAY_PLACEHOLDER_PREFIX + "defaultSchema", defaultSchema);
+		}
+		placeholders.put(FLYWAY_PLACEHOLDER_PREFIX + "table", configuration.getTable());
+		placeholders.put(FLYWAY_PLACEHOLDER_PREFIX + "workingDirectory", System.getProperty("user.dir"));
+		return placeholders;
+	}
+
+	private static String getRelativePath(Resource resource, String rootPath) throws IOException {
+		if (resource.getFilename() == null || resource.getFilename().isEmpty()) {
+			return null;
+		}
+		String url = resource.getURL().toString().replace('\\', '/');
+		String root = rootPath.endsWith("/") ? rootPath : rootPath + "/";
+		int index = url.indexOf(root);
+		if (index < 0) {
+			return null;
+		}
+		String relativePath = StringUtils.uriDecode(url.substring(index + root.length()), StandardCharsets.UTF_8);
+		// 目录本身
+		return (relativePath.isEmpty() || relativePath.endsWith("/")) ? null : relativePath;
+	}
+
+	private static String getRelativeFilePath(Resource resource, String rootPath) throws IOException {
+		File file = resource.getFile();
+		if (!file.isFile()) {
+			return null;
+		}
+		Path root = new File(rootPath).getAbsoluteFile().toPath().normalize();
+		Path path = file.getAbsoluteFile().toPath().normalize();
+		return path.startsWith(root) ? root.relativize(path).toString().replace('\\', '/') : null;
+	}
+
+	private static boolean hasSuffix(String filename, String[] suffixes) {
+		for (String suffix : suffixes) {
+			if (filename.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
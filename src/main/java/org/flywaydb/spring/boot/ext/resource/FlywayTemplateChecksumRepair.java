@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 启用占位符模板后对齐已迁移版本化脚本的校验和：Flyway 计算校验和与解析脚本读取的是同一内容，
+ * 启用模板时版本化脚本的校验和因此按替换后的内容计算，而未启用模板时 Flyway 按原始内容计算。
+ * 在校验及迁移之前，将历史表中等于脚本原始内容校验和的记录更新为替换后内容的校验和，
+ * 使未启用模板时已迁移的数据库在启用模板后仍能通过校验；其他不一致（脚本或占位符的值变更）照常由校验报告
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ * @see FlywaySpringResource#getRawChecksum()
+ */
+public class FlywayTemplateChecksumRepair implements Callback {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayTemplateChecksumRepair.class);
+
+	private final FlywaySpringResourceProvider resourceProvider;
+
+	public FlywayTemplateChecksumRepair(FlywaySpringResourceProvider resourceProvider) {
+		Assert.notNull(resourceProvider, "Resource provider must not be null");
+		this.resourceProvider = resourceProvider;
+	}
+
+	@Override
+	public boolean supports(Event event, Context context) {
+		return event == Event.BEFORE_VALIDATE || event == Event.BEFORE_MIGRATE;
+	}
+
+	@Override
+	public boolean canHandleInTransaction(Event event, Context context) {
+		// 历史表不存在时查询失败，不能在事务中执行
+		return false;
+	}
+
+	@Override
+	public void handle(Event event, Context context) {
+		Connection connection = context.getConnection();
+		String table;
+		Map<Integer, Integer> repairs;
+		try {
+			table = FlywayModule.getHistoryTable(connection, context.getConfiguration());
+			repairs = getRepairs(connection, table);
+		}
+		catch (SQLException ex) {
+			// 历史表尚不存在
+			LOG.debug("Unable to read the checksums of {}", context.getConfiguration().getTable(), ex);
+			return;
+		}
+		for (Map.Entry<Integer, Integer> repair : repairs.entrySet()) {
+			try (PreparedStatement statement = connection
+					.prepareStatement("UPDATE " + table + " SET checksum = ? WHERE installed_rank = ?")) {
+				statement.setInt(1, repair.getValue());
+				statement.setInt(2, repair.getKey());
+				statement.executeUpdate();
+			}
+			catch (SQLException ex) {
+				throw new FlywayException("Unable to update the checksum of migration " + repair.getKey() + " in "
+						+ table + ": " + ex.getMessage(), ex);
+			}
+		}
+	}
+
+	/**
+	 * Return the new checksums of the applied versioned migrations recorded with the checksum of
+	 * their raw text, by installed rank.
+	 */
+	private Map<Integer, Integer> getRepairs(Connection connection, String table) throws SQLException {
+		Map<Integer, Integer> repairs = new LinkedHashMap<>();
+		try (PreparedStatement statement = connection.prepareStatement("SELECT installed_rank, script, checksum FROM "
+				+ table + " WHERE type = ? AND version IS NOT NULL AND checksum IS NOT NULL")) {
+			statement.setString(1, MigrationType.SQL.name());
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					LoadableResource resource = this.resourceProvider.getResource(result.getString(2));
+					if (!(resource instanceof FlywaySpringResource) || !((FlywaySpringResource) resource).isTemplate()) {
+						continue;
+					}
+					FlywaySpringResource script = (FlywaySpringResource) resource;
+					int checksum = result.getInt(3);
+					if (checksum == script.getRawChecksum() && checksum != script.getChecksum()) {
+						LOG.info("Updating the checksum of {} in {} to its text with replaced placeholders",
+								script.getRelativePath(), table);
+						repairs.put(result.getInt(1), script.getChecksum());
+					}
+				}
+			}
+		}
+		return repairs;
+	}
+
+	@Override
+	public String getCallbackName() {
+		return "template-checksum-repair";
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.retry;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.backfill.FlywayBackfillRecovery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 瞬时错误重试策略：迁移因死锁、序列化冲突等瞬时错误失败时，按指数退避加随机抖动重新迁移模块
+ * <p>
+ * 事务中的单条语句出错后整个事务已回滚，因此以失败迁移的事务为单位重试：重新迁移会从失败的迁移继续；
+ * 失败的迁移已记录在历史表中（数据库不支持 DDL 事务时）则无法安全重试，直接抛出原异常，分批回填除外。
+ * 瞬时错误按数据源厂商（{vendor} 变量的取值）配置 SQL State。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayRetryPolicy {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayRetryPolicy.class);
+
+	private static final String DEFAULT_VENDOR = "default";
+
+	private static final Map<String, Set<String>> DEFAULT_SQL_STATES;
+
+	static {
+		Map<String, Set<String>> sqlStates = new HashMap<>();
+		// 40001: serialization failure / deadlock victim (SQL 标准)
+		sqlStates.put(DEFAULT_VENDOR, states("40001"));
+		// 40P01: deadlock_detected, 55P03: lock_not_available
+		sqlStates.put("postgresql", states("40001", "40P01", "55P03"));
+		sqlStates.put("mysql", states("40001"));
+		sqlStates.put("mariadb", states("40001"));
+		sqlStates.put("sqlserver", states("40001"));
+		// 61000: ORA-00060 deadlock detected
+		sqlStates.put("oracle", states("61000"));
+		// HYT00: lock timeout
+		sqlStates.put("h2", states("40001", "HYT00"));
+		DEFAULT_SQL_STATES = Collections.unmodifiableMap(sqlStates);
+	}
+
+	private final Map<String, Set<String>> sqlStates = new HashMap<>(DEFAULT_SQL_STATES);
+
+	private final Function<DataSource, String> vendorResolver;
+
+	private int maxAttempts = 3;
+
+	private Duration initialInterval = Duration.ofMillis(200);
+
+	private double multiplier = 2;
+
+	private Duration maxInterval = Duration.ofSeconds(5);
+
+	/**
+	 * Create a new policy.
+	 * @param vendorResolver resolves the vendor of a DataSource, e.g. "postgresql"
+	 */
+	public FlywayRetryPolicy(Function<DataSource, String> vendorResolver) {
+		Assert.notNull(vendorResolver, "Vendor resolver must not be null");
+		this.vendorResolver = vendorResolver;
+	}
+
+	/**
+	 * Run the migration of the given module, migrating again after a transient failure.
+	 * @param flyway the module
+	 * @param migration the migration of the module
+	 * @return the result of the migration
+	 */
+	public <T> T call(Flyway flyway, Supplier<T> migration) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				return migration.get();
+			}
+			catch (RuntimeException ex) {
+				if (attempt >= this.maxAttempts || !isTransient(flyway, ex) || hasFailedMigration(flyway)) {
+					throw ex;
+				}
+				long delay = getDelay(attempt);
+				LOG.warn("Transient failure migrating module '{}' (attempt {}/{}), retrying in {}ms: {}",
+						FlywayModule.getModule(flyway), attempt, this.maxAttempts, delay, ex.getMessage());
+				try {
+					Thread.sleep(delay);
+				}
+				catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the given failure is transient for the vendor of the module.
+	 */
+	protected boolean isTransient(Flyway flyway, Throwable failure) {
+		Set<String> sqlStates = getSqlStates(flyway.getConfiguration().getDataSource());
+		for (Throwable cause = failure; cause != null; cause = (cause.getCause() != cause) ? cause.getCause() : null) {
+			// 超时及取消由看门狗处理，不重试
+			if (cause instanceof SQLTimeoutException) {
+				return false;
+			}
+			if (cause instanceof SQLException) {
+				String sqlState = ((SQLException) cause).getSQLState();
+				if (sqlState != null && sqlStates.contains(sqlState)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private Set<String> getSqlStates(DataSource dataSource) {
+		String vendor = null;
+		if (dataSource != null) {
+			try {
+				vendor = this.vendorResolver.apply(dataSource);
+			}
+			catch (RuntimeException ex) {
+				LOG.debug("Unable to determine the vendor of {}", dataSource, ex);
+			}
+		}
+		Set<String> sqlStates = (vendor != null) ? this.sqlStates.get(vendor) : null;
+		return (sqlStates != null) ? sqlStates : this.sqlStates.get(DEFAULT_VENDOR);
+	}
+
+	private boolean hasFailedMigration(Flyway flyway) {
+		try {
+			for (MigrationInfo info : flyway.info().all()) {
+				// 失败的回填在重新迁移前由回填恢复删除，可以重试
+				if (info.getState() == MigrationState.FAILED && !FlywayBackfillRecovery.isRecoverable(info)) {
+					LOG.warn("Module '{}' has a failed migration {} in its history, not retrying",
+							FlywayModule.getModule(flyway), info.getScript());
+					return true;
+				}
+			}
+			return false;
+		}
+		catch (RuntimeException ex) {
+			LOG.debug("Unable to read the history of module '{}'", FlywayModule.getModule(flyway), ex);
+			return true;
+		}
+	}
+
+	private long getDelay(int attempt) {
+		double delay = this.initialInterval.toMillis() * Math.pow(this.multiplier, attempt - 1);
+		long capped = (long) Math.min(delay, this.maxInterval.toMillis());
+		// 一半固定一半随机，避免并发模块同时重试
+		return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+	}
+
+	/**
+	 * Set the transient SQL states of a vendor, replacing the defaults of the vendor.
+	 * @param vendor the vendor, e.g. "postgresql", or "default" for unknown vendors
+	 * @param sqlStates the SQL states
+	 */
+	public void setSqlStates(String vendor, Collection<String> sqlStates) {
+		this.sqlStates.put(vendor, Collections.unmodifiableSet(new HashSet<>(sqlStates)));
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "Max attempts must be positive");
+		this.maxAttempts = maxAttempts;
+	}
+
+	public void setInitialInterval(Duration initialInterval) {
+		this.initialInterval = initialInterval;
+	}
+
+	public void setMultiplier(double multiplier) {
+		this.multiplier = multiplier;
+	}
+
+	public void setMaxInterval(Duration maxInterval) {
+		this.maxInterval = maxInterval;
+	}
+
+	private static Set<String> states(String... sqlStates) {
+		return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(sqlStates)));
+	}
+
+}
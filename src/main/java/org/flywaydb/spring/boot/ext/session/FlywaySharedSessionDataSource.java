@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.session;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Objects;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * 共享会话数据源：会话期间模块关闭的连接不归还连接池而是保留下来，供同一数据源上的后续模块直接复用，
+ * 并缓存数据库元数据（产品名称、版本、URL 等）的查询结果；会话结束后关闭保留的连接并清除缓存。
+ * <p>
+ * 与连接池归还连接时一样，复用前回滚未提交的事务并恢复自动提交、隔离级别、只读、catalog 及 schema，
+ * 避免一个模块的脚本修改的会话状态影响后续模块；无法恢复的连接直接关闭。不在会话中时与普通数据源行为一致。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywaySharedSessionDataSource extends DelegatingDataSource {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywaySharedSessionDataSource.class);
+
+	private final Deque<SessionConnection> idleConnections = new ArrayDeque<>();
+
+	/**
+	 * Results of the no-argument {@link DatabaseMetaData} getters, shared by the connections of a session.
+	 */
+	private final Map<String, Object> metaData = new ConcurrentHashMap<>();
+
+	private volatile boolean active;
+
+	private int reused;
+
+	public FlywaySharedSessionDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	/**
+	 * Start a session: connections closed from now on are kept for reuse.
+	 */
+	public synchronized void open() {
+		this.metaData.clear();
+		this.active = true;
+		this.reused = 0;
+	}
+
+	/**
+	 * End the session and close the kept connections.
+	 */
+	public synchronized void close() {
+		this.active = false;
+		this.metaData.clear();
+		int count = this.idleConnections.size();
+		while (!this.idleConnections.isEmpty()) {
+			closeQuietly(this.idleConnections.pop().target);
+		}
+		LOG.debug("Shared session closed, {} connections released, {} reuses", count, this.reused);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		synchronized (this) {
+			if (this.active && !this.idleConnections.isEmpty()) {
+				this.reused++;
+				return this.idleConnections.pop().createProxy();
+			}
+		}
+		Connection target = obtainTargetDataSource().getConnection();
+		try {
+			return new SessionConnection(target, this.active).createProxy();
+		}
+		catch (SQLException | RuntimeException ex) {
+			closeQuietly(target);
+			throw ex;
+		}
+	}
+
+	private void release(SessionConnection connection) {
+		synchronized (this) {
+			if (this.active && connection.reset()) {
+				this.idleConnections.push(connection);
+				return;
+			}
+		}
+		closeQuietly(connection.target);
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		}
+		catch (SQLException ex) {
+			LOG.debug("Could not close JDBC connection", ex);
+		}
+	}
+
+	/**
+	 * Return the schema of the given connection, or {@code null} if the driver does not support it.
+	 */
+	private static String getSchema(Connection connection) throws SQLException {
+		try {
+			return connection.getSchema();
+		}
+		catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+			return null;
+		}
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		}
+		catch (InvocationTargetException ex) {
+			throw ex.getTargetException();
+		}
+	}
+
+	/**
+	 * A physical connection, handed out as a proxy whose close keeps it for the session.
+	 */
+	private class SessionConnection {
+
+		private final Connection target;
+
+		/**
+		 * Whether the initial state was captured, only connections obtained during a session are kept.
+		 */
+		private final boolean reusable;
+
+		private boolean autoCommit;
+
+		private int transactionIsolation;
+
+		private boolean readOnly;
+
+		private String catalog;
+
+		private String schema;
+
+		SessionConnection(Connection target, boolean reusable) throws SQLException {
+			this.target = target;
+			this.reusable = reusable;
+			if (reusable) {
+				this.autoCommit = target.getAutoCommit();
+				this.transactionIsolation = target.getTransactionIsolation();
+				this.readOnly = target.isReadOnly();
+				this.catalog = target.getCatalog();
+				this.schema = getSchema(target);
+			}
+		}
+
+		Connection createProxy() {
+			return (Connection) Proxy.newProxyInstance(FlywaySharedSessionDataSource.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new ConnectionHandler(this));
+		}
+
+		/**
+		 * Restore the state of the connection before it is reused.
+		 * @return {@code false} if the connection cannot be reused
+		 */
+		boolean reset() {
+			if (!this.reusable) {
+				return false;
+			}
+			try {
+				if (this.target.isClosed()) {
+					return false;
+				}
+				if (!this.target.getAutoCommit()) {
+					this.target.rollback();
+				}
+				if (this.target.getAutoCommit() != this.autoCommit) {
+					this.target.setAutoCommit(this.autoCommit);
+				}
+				if (this.target.getTransactionIsolation() != this.transactionIsolation) {
+					this.target.setTransactionIsolation(this.transactionIsolation);
+				}
+				if (this.target.isReadOnly() != this.readOnly) {
+					this.target.setReadOnly(this.readOnly);
+				}
+				if (!Objects.equals(this.target.getCatalog(), this.catalog)) {
+					this.target.setCatalog(this.catalog);
+				}
+				if (this.schema != null && !this.schema.equals(getSchema(this.target))) {
+					this.target.setSchema(this.schema);
+				}
+				this.target.clearWarnings();
+				return true;
+			}
+			catch (SQLException ex) {
+				LOG.debug("JDBC connection cannot be reused", ex);
+				return false;
+			}
+		}
+
+	}
+
+	private class ConnectionHandler implements InvocationHandler {
+
+		private final SessionConnection connection;
+
+		private boolean closed;
+
+		ConnectionHandler(SessionConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "equals":
+					return (proxy == args[0]);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "Shared session proxy for target Connection [" + this.connection.target + "]";
+				case "isClosed":
+					return this.closed;
+				case "close":
+					if (!this.closed) {
+						this.closed = true;
+						release(this.connection);
+					}
+					return null;
+				case "unwrap":
+					return ((Class<?>) args[0]).isInstance(proxy) ? proxy : this.connection.target.unwrap((Class<?>) args[0]);
+				case "isWrapperFor":
+					return ((Class<?>) args[0]).isInstance(proxy) || this.connection.target.isWrapperFor((Class<?>) args[0]);
+				default:
+					break;
+			}
+			if (this.closed) {
+				throw new SQLException("Connection is closed");
+			}
+			if ("getMetaData".equals(method.getName())) {
+				DatabaseMetaData metaData = this.connection.target.getMetaData();
+				return Proxy.newProxyInstance(FlywaySharedSessionDataSource.class.getClassLoader(),
+						new Class<?>[] { DatabaseMetaData.class }, new MetaDataHandler(metaData, (Connection) proxy));
+			}
+			return FlywaySharedSessionDataSource.invoke(this.connection.target, method, args);
+		}
+
+	}
+
+	private class MetaDataHandler implements InvocationHandler {
+
+		private final DatabaseMetaData target;
+
+		private final Connection connection;
+
+		MetaDataHandler(DatabaseMetaData target, Connection connection) {
+			this.target = target;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if ("getConnection".equals(method.getName())) {
+				return this.connection;
+			}
+			if (active && method.getParameterCount() == 0 && method.getName().startsWith("get")
+					&& (method.getReturnType().isPrimitive() || method.getReturnType() == String.class)) {
+				// 同一数据源上的元数据不会变化，只查询一次
+				Object value = metaData.get(method.getName());
+				if (value == null) {
+					value = FlywaySharedSessionDataSource.invoke(this.target, method, args);
+					if (value != null) {
+						metaData.put(method.getName(), value);
+					}
+				}
+				return value;
+			}
+			return FlywaySharedSessionDataSource.invoke(this.target, method, args);
+		}
+
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+
+/**
+ * 测试用的数据库快照：空数据库存在相同指纹（各模块脚本的版本及校验和）的快照时直接恢复，
+ * 否则正常迁移后保存快照，之后的 Spring 上下文及测试类不再重复迁移
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayDatabaseSnapshots {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayDatabaseSnapshots.class);
+
+	private final List<FlywaySnapshotStrategy> strategies;
+
+	private final Function<DataSource, String> vendorResolver;
+
+	private final Map<DataSource, String> unsaved = new IdentityHashMap<>();
+
+	/**
+	 * Create a new instance.
+	 * @param strategies the snapshot strategies, the first supporting the vendor being used
+	 * @param vendorResolver resolves the vendor id of a DataSource
+	 */
+	public FlywayDatabaseSnapshots(List<FlywaySnapshotStrategy> strategies,
+			Function<DataSource, String> vendorResolver) {
+		Assert.notNull(strategies, "Strategies must not be null");
+		Assert.notNull(vendorResolver, "Vendor resolver must not be null");
+		this.strategies = new ArrayList<>(strategies);
+		this.vendorResolver = vendorResolver;
+	}
+
+	/**
+	 * Restore the snapshots into the empty databases of the given modules. Databases without a
+	 * snapshot of their fingerprint are saved by {@link #save()} once migrated.
+	 * @param flyways all modules, a snapshot holding every module of its database
+	 */
+	public synchronized void restore(List<Flyway> flyways) {
+		for (Map.Entry<DataSource, List<Flyway>> database : groupByDataSource(flyways).entrySet()) {
+			DataSource dataSource = database.getKey();
+			FlywaySnapshotStrategy strategy = getStrategy(dataSource);
+			// 已迁移过的数据库不使用快照
+			if (strategy == null || !isEmpty(database.getValue())) {
+				continue;
+			}
+			String fingerprint = getFingerprint(database.getValue());
+			long start = System.currentTimeMillis();
+			if (strategy.restore(dataSource, fingerprint)) {
+				LOG.info("Restored snapshot {} of {} module(s) in {}ms", fingerprint, database.getValue().size(),
+						System.currentTimeMillis() - start);
+			}
+			else {
+				this.unsaved.put(dataSource, fingerprint);
+			}
+		}
+	}
+
+	/**
+	 * Save the snapshots of the databases migrated since {@link #restore(List)}.
+	 */
+	public synchronized void save() {
+		this.unsaved.forEach((dataSource, fingerprint) -> {
+			try {
+				getStrategy(dataSource).save(dataSource, fingerprint);
+				LOG.info("Saved snapshot {}", fingerprint);
+			}
+			catch (RuntimeException ex) {
+				// 快照只用于加速，保存失败不影响本次启动
+				LOG.warn("Unable to save snapshot {}: {}", fingerprint, ex.getMessage());
+			}
+		});
+		this.unsaved.clear();
+	}
+
+	/**
+	 * Forget the databases to save, e.g. after a failed migration.
+	 */
+	public synchronized void discard() {
+		this.unsaved.clear();
+	}
+
+	/**
+	 * Return the fingerprint of the scripts of the given modules: version, script and checksum
+	 * of every resolved migration, see {@link FlywayModule#getChecksum}. Modules sharing a
+	 * database are listed in migration order.
+	 */
+	public static String getFingerprint(List<Flyway> flyways) {
+		StringBuilder scripts = new StringBuilder();
+		for (Flyway flyway : flyways) {
+			scripts.append(FlywayModule.getModule(flyway)).append('@').append(FlywayModule.getTenant(flyway))
+					.append(' ').append(Arrays.toString(flyway.getConfiguration().getSchemas())).append(' ')
+					.append(flyway.getConfiguration().getTable()).append('\n');
+			for (MigrationInfo migration : flyway.info().all()) {
+				scripts.append(migration.getVersion()).append(' ').append(migration.getType()).append(' ')
+						.append(migration.getScript()).append(' ')
+						.append(FlywayModule.getChecksum(flyway.getConfiguration(), migration)).append('\n');
+			}
+		}
+		return DigestUtils.md5DigestAsHex(scripts.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private FlywaySnapshotStrategy getStrategy(DataSource dataSource) {
+		String vendor = this.vendorResolver.apply(dataSource);
+		for (FlywaySnapshotStrategy strategy : this.strategies) {
+			if (strategy.supports(vendor)) {
+				return strategy;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isEmpty(List<Flyway> flyways) {
+		for (Flyway flyway : flyways) {
+			if (flyway.info().applied().length > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Map<DataSource, List<Flyway>> groupByDataSource(List<Flyway> flyways) {
+		Map<DataSource, List<Flyway>> databases = new LinkedHashMap<>();
+		for (Flyway flyway : flyways) {
+			DataSource dataSource = flyway.getConfiguration().getDataSource();
+			// 快照针对实际的数据库，绕过迁移时的拦截及会话共享包装
+			while (dataSource instanceof DelegatingDataSource) {
+				dataSource = ((DelegatingDataSource) dataSource).getTargetDataSource();
+			}
+			databases.computeIfAbsent(dataSource, (key) -> new ArrayList<>()).add(flyway);
+		}
+		return databases;
+	}
+
+}
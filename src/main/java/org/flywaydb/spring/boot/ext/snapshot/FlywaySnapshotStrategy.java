@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.snapshot;
+
+import javax.sql.DataSource;
+
+/**
+ * 数据库快照策略：把迁移后的数据库保存为按模块脚本指纹命名的快照，并在新的空数据库中恢复，
+ * 免去测试中每个 Spring 上下文重复执行全部模块迁移
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public interface FlywaySnapshotStrategy {
+
+	/**
+	 * Determine whether this strategy supports databases of the given vendor.
+	 * @param vendor the vendor id, e.g. <code>h2</code>, or {@code null} if unknown
+	 */
+	boolean supports(String vendor);
+
+	/**
+	 * Restore the snapshot of the given fingerprint into the empty database.
+	 * @param dataSource the DataSource of the empty database
+	 * @param fingerprint the fingerprint of the module scripts
+	 * @return {@code true} if restored, {@code false} if there is no such snapshot
+	 */
+	boolean restore(DataSource dataSource, String fingerprint);
+
+	/**
+	 * Save the migrated database as the snapshot of the given fingerprint.
+	 * @param dataSource the DataSource of the migrated database
+	 * @param fingerprint the fingerprint of the module scripts
+	 */
+	void save(DataSource dataSource, String fingerprint);
+
+}
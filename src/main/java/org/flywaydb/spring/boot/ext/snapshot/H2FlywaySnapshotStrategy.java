@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * H2 快照：以 <code>SCRIPT TO</code> 将迁移后的数据库导出为脚本文件，新数据库以 <code>RUNSCRIPT FROM</code> 恢复；
+ * 快照文件按指纹命名，可在多次测试运行及并行的测试 JVM 之间共享
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class H2FlywaySnapshotStrategy implements FlywaySnapshotStrategy {
+
+	protected static Logger LOG = LoggerFactory.getLogger(H2FlywaySnapshotStrategy.class);
+
+	private final Path directory;
+
+	public H2FlywaySnapshotStrategy(Path directory) {
+		Assert.notNull(directory, "Snapshot directory must not be null");
+		this.directory = directory;
+	}
+
+	@Override
+	public boolean supports(String vendor) {
+		return "h2".equals(vendor);
+	}
+
+	@Override
+	public boolean restore(DataSource dataSource, String fingerprint) {
+		Path snapshot = getSnapshot(fingerprint);
+		if (!Files.isReadable(snapshot)) {
+			return false;
+		}
+		new JdbcTemplate(dataSource).execute("RUNSCRIPT FROM '" + toSql(snapshot) + "'");
+		return true;
+	}
+
+	@Override
+	public void save(DataSource dataSource, String fingerprint) {
+		Path snapshot = getSnapshot(fingerprint);
+		try {
+			Files.createDirectories(this.directory);
+			// 先导出到临时文件再移动，并行的测试 JVM 不会读到不完整的快照
+			Path temporary = this.directory.resolve(fingerprint + "." + UUID.randomUUID() + ".tmp");
+			new JdbcTemplate(dataSource).execute("SCRIPT TO '" + toSql(temporary) + "'");
+			Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to save snapshot " + snapshot + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	private Path getSnapshot(String fingerprint) {
+		return this.directory.resolve(fingerprint + ".sql");
+	}
+
+	private static String toSql(Path path) {
+		return path.toAbsolutePath().toString().replace(File.separatorChar, '/').replace("'", "''");
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+}
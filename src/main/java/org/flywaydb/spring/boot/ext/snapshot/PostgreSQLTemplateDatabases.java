@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.snapshot;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * PostgreSQL 模板数据库：迁移一次后以 <code>CREATE DATABASE ... TEMPLATE</code> 为每个上下文或测试类复制数据库。
+ * <p>
+ * PostgreSQL 复制时模板库不能有其他会话，无法在上下文自身的连接池上原地恢复，需由测试在创建数据源之前调用：
+ * 以 {@link FlywayDatabaseSnapshots#getFingerprint(java.util.List)} 得到模板名，模板不存在时迁移一个新库并
+ * {@link #createTemplate(String, String)}，之后每次 {@link #clone(String)} 得到新的数据库。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class PostgreSQLTemplateDatabases {
+
+	private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,62}");
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Create a new instance.
+	 * @param adminDataSource a DataSource allowed to create databases, connected to another
+	 * database than the templates, e.g. <code>postgres</code>
+	 */
+	public PostgreSQLTemplateDatabases(DataSource adminDataSource) {
+		Assert.notNull(adminDataSource, "DataSource must not be null");
+		this.jdbcTemplate = new JdbcTemplate(adminDataSource);
+	}
+
+	/**
+	 * Return the name of the template database of the given fingerprint.
+	 */
+	public static String getTemplateName(String fingerprint) {
+		return "flyway_template_" + fingerprint.substring(0, Math.min(fingerprint.length(), 32));
+	}
+
+	public boolean exists(String database) {
+		return !this.jdbcTemplate.queryForList("SELECT 1 FROM pg_database WHERE datname = ?", Integer.class,
+				checkName(database)).isEmpty();
+	}
+
+	/**
+	 * Create a template from the given migrated database. No session may use the source
+	 * database, i.e. its connection pool must be closed.
+	 * @param source the migrated database
+	 * @param template the name of the template, see {@link #getTemplateName(String)}
+	 */
+	public void createTemplate(String source, String template) {
+		this.jdbcTemplate.execute("CREATE DATABASE " + checkName(template) + " TEMPLATE " + checkName(source));
+	}
+
+	/**
+	 * Create a new database from the given template.
+	 * @return the name of the new database
+	 */
+	public String clone(String template) {
+		String database = template.substring(0, Math.min(template.length(), 40)) + "_"
+				+ UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+		this.jdbcTemplate.execute("CREATE DATABASE " + checkName(database) + " TEMPLATE " + checkName(template));
+		return database;
+	}
+
+	public void drop(String database) {
+		this.jdbcTemplate.execute("DROP DATABASE IF EXISTS " + checkName(database));
+	}
+
+	private static String checkName(String database) {
+		Assert.isTrue(database != null && NAME.matcher(database).matches(),
+				() -> "Invalid database name '" + database + "'");
+		return database;
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.squash;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.springframework.util.Assert;
+
+/**
+ * 模块的基线合并脚本：按顺序保存迁移到指定版本时执行的全部语句，以及被合并的版本化迁移及其校验和；
+ * 语句之间以独立的分隔行隔开，恢复时无需再解析 SQL
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayBaselineSquash {
+
+	public static final String PREFIX = "S";
+
+	public static final String SUFFIX = "__baseline_squash.sql";
+
+	static final String MIGRATION_PREFIX = "-- flyway:migration ";
+
+	static final String STATEMENTS = "-- flyway:statements";
+
+	static final String STATEMENT_END = "-- flyway:end-statement";
+
+	private static final Pattern FILENAME = Pattern.compile(Pattern.quote(PREFIX) + "(.+?)__.*\\.sql");
+
+	private final String module;
+
+	private final MigrationVersion version;
+
+	private final Map<String, Integer> migrations;
+
+	private final List<String> statements;
+
+	/**
+	 * Create a new squash.
+	 * @param module the module name
+	 * @param version the version the squash brings an empty database to
+	 * @param migrations the checksum of every squashed versioned migration, keyed by version
+	 * @param statements the statements, in execution order
+	 */
+	public FlywayBaselineSquash(String module, MigrationVersion version, Map<String, Integer> migrations,
+			List<String> statements) {
+		Assert.notNull(version, "Version must not be null");
+		this.module = module;
+		this.version = version;
+		this.migrations = Collections.unmodifiableMap(new LinkedHashMap<>(migrations));
+		this.statements = Collections.unmodifiableList(new ArrayList<>(statements));
+	}
+
+	/**
+	 * Return the version of the squash file of the given name.
+	 * @return the version, or {@code null} if the name is not the one of a squash
+	 */
+	public static MigrationVersion getVersion(String filename) {
+		Matcher matcher = (filename != null) ? FILENAME.matcher(filename) : null;
+		return (matcher != null && matcher.matches()) ? MigrationVersion.fromVersion(matcher.group(1).replace('_', '.'))
+				: null;
+	}
+
+	public static String getFilename(MigrationVersion version) {
+		return PREFIX + version.getVersion().replace('.', '_') + SUFFIX;
+	}
+
+	/**
+	 * Parse the text of a squash file.
+	 */
+	public static FlywayBaselineSquash parse(String module, MigrationVersion version, String text) {
+		Map<String, Integer> migrations = new LinkedHashMap<>();
+		List<String> statements = new ArrayList<>();
+		StringBuilder statement = new StringBuilder();
+		boolean header = true;
+		try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (header) {
+					if (line.startsWith(MIGRATION_PREFIX)) {
+						String[] migration = line.substring(MIGRATION_PREFIX.length()).trim().split(" ");
+						migrations.put(migration[0], "null".equals(migration[1]) ? null : Integer.valueOf(migration[1]));
+					}
+					header = !line.equals(STATEMENTS);
+				}
+				else if (line.equals(STATEMENT_END)) {
+					statements.add(statement.toString());
+					statement.setLength(0);
+				}
+				else {
+					statement.append((statement.length() > 0) ? "\n" : "").append(line);
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return new FlywayBaselineSquash(module, version, migrations, statements);
+	}
+
+	/**
+	 * Return the text of the squash file.
+	 */
+	public String format() {
+		StringBuilder text = new StringBuilder();
+		text.append("-- Baseline squash of module '").append(this.module).append("' at version ")
+				.append(this.version.getVersion()).append(", do not edit\n");
+		this.migrations.forEach((version, checksum) -> text.append(MIGRATION_PREFIX).append(version).append(' ')
+				.append(checksum).append('\n'));
+		text.append(STATEMENTS).append('\n');
+		for (String statement : this.statements) {
+			text.append(statement).append('\n').append(STATEMENT_END).append('\n');
+		}
+		return text.toString();
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	public MigrationVersion getVersion() {
+		return version;
+	}
+
+	public Map<String, Integer> getMigrations() {
+		return migrations;
+	}
+
+	public List<String> getStatements() {
+		return statements;
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.squash;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementInterceptingDataSource;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementListener;
+import org.flywaydb.spring.boot.ext.resource.FlywayScriptLocator;
+import org.flywaydb.spring.boot.ext.resource.FlywaySpringResourceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 生成模块的基线合并脚本：在一个空的临时数据库中把模块迁移到指定版本，记录各版本化迁移实际执行的语句
+ * （占位符已替换，含 Java 迁移经迁移连接执行的语句），写入 <code>S{版本}__baseline_squash.sql</code>。
+ * 可重复迁移不合并，基线之后仍由 Flyway 执行
+ * <p>
+ * 记录的语句只对生成时的占位符取值有效，故拒绝合并租户模块及脚本中使用占位符的模块。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayBaselineSquashGenerator {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayBaselineSquashGenerator.class);
+
+	private final FlywayScriptLocator scriptLocator = new FlywayScriptLocator();
+
+	/**
+	 * Generate the squash of the given module.
+	 * @param flyway the module
+	 * @param version the version to squash up to, inclusive
+	 * @param scratchDataSource an empty database of the same vendor, migrated by the generation
+	 * @return the squash
+	 * @throws FlywayException if the module is migrated per tenant or its scripts use placeholders
+	 */
+	public FlywayBaselineSquash generate(Flyway flyway, String version, DataSource scratchDataSource) {
+		Assert.hasText(version, "Version must not be empty");
+		Assert.notNull(scratchDataSource, "Scratch DataSource must not be null");
+		String module = FlywayModule.getModule(flyway);
+		if (FlywayModule.getTenant(flyway) != null) {
+			// 各租户的 schema 等取值不同，按某个租户记录的语句不能用于其他租户
+			throw new FlywayException("Unable to squash module '" + module + "', it is migrated per tenant");
+		}
+		Configuration configuration = flyway.getConfiguration();
+		Recorder recorder = new Recorder();
+		List<Callback> callbacks = new ArrayList<>(Arrays.asList(configuration.getCallbacks()));
+		callbacks.add(recorder);
+		Flyway scratch = Flyway.configure(configuration.getClassLoader()).configuration(configuration)
+				.dataSource(new FlywayStatementInterceptingDataSource(scratchDataSource,
+						Collections.singletonList(recorder)))
+				.callbacks(callbacks.toArray(new Callback[0])).target(MigrationVersion.fromVersion(version))
+				.load();
+		MigrationInfoService info = scratch.info();
+		Assert.state(info.applied().length == 0, "Scratch database must be empty");
+		checkPlaceholders(module, configuration, info.all(), MigrationVersion.fromVersion(version));
+		scratch.migrate();
+		Map<String, Integer> migrations = new LinkedHashMap<>();
+		for (MigrationInfo migration : scratch.info().applied()) {
+			if (migration.getVersion() != null && migration.getState().isApplied()) {
+				migrations.put(migration.getVersion().getVersion(), migration.getChecksum());
+			}
+		}
+		LOG.info("Squashed {} migration(s) of module '{}' into {} statement(s)", migrations.size(), module,
+				recorder.statements.size());
+		return new FlywayBaselineSquash(module, MigrationVersion.fromVersion(version), migrations,
+				recorder.statements);
+	}
+
+	/**
+	 * Refuse the scripts squashed up to the given version containing placeholders, the
+	 * recorded statements holding the values of the generation.
+	 */
+	private void checkPlaceholders(String module, Configuration configuration, MigrationInfo[] migrations,
+			MigrationVersion version) {
+		// 占位符模板关闭了 Flyway 自身的替换，仍会替换占位符
+		if (!configuration.isPlaceholderReplacement() && !isTemplate(configuration)) {
+			return;
+		}
+		for (MigrationInfo migration : migrations) {
+			if (migration.getVersion() == null || migration.getVersion().compareTo(version) > 0) {
+				continue;
+			}
+			// Java 迁移找不到脚本，跳过
+			String text = this.scriptLocator.load(configuration, migration.getScript());
+			if (text != null && text.contains(configuration.getPlaceholderPrefix())) {
+				throw new FlywayException("Unable to squash module '" + module + "', script " + migration.getScript()
+						+ " uses placeholders");
+			}
+		}
+	}
+
+	private static boolean isTemplate(Configuration configuration) {
+		return configuration.getResourceProvider() instanceof FlywaySpringResourceProvider
+				&& ((FlywaySpringResourceProvider) configuration.getResourceProvider()).isTemplate();
+	}
+
+	/**
+	 * Generate the squash of the given module and write it to
+	 * <code>{outputDirectory}/{module}/S{version}__baseline_squash.sql</code>.
+	 * @return the written file
+	 */
+	public Path generate(Flyway flyway, String version, DataSource scratchDataSource, Path outputDirectory) {
+		FlywayBaselineSquash squash = generate(flyway, version, scratchDataSource);
+		Path file = outputDirectory.resolve(squash.getModule()).resolve(FlywayBaselineSquash.getFilename(squash.getVersion()));
+		try {
+			Files.createDirectories(file.getParent());
+			Files.write(file, squash.format().getBytes(StandardCharsets.UTF_8));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to write " + file + ": " + ex.getMessage(), ex);
+		}
+		return file;
+	}
+
+	/**
+	 * Records the statements executed by the versioned migrations, between
+	 * BEFORE_EACH_MIGRATE and AFTER_EACH_MIGRATE, skipping the schema history updates.
+	 */
+	private static class Recorder implements Callback, FlywayStatementListener {
+
+		private final List<String> statements = new ArrayList<>();
+
+		private volatile boolean recording;
+
+		@Override
+		public boolean supports(Event event, Context context) {
+			return event == Event.BEFORE_EACH_MIGRATE || event == Event.AFTER_EACH_MIGRATE
+					|| event == Event.AFTER_EACH_MIGRATE_ERROR;
+		}
+
+		@Override
+		public boolean canHandleInTransaction(Event event, Context context) {
+			return true;
+		}
+
+		@Override
+		public void handle(Event event, Context context) {
+			MigrationInfo migration = context.getMigrationInfo();
+			this.recording = (event == Event.BEFORE_EACH_MIGRATE && migration != null
+					&& migration.getVersion() != null);
+		}
+
+		@Override
+		public String getCallbackName() {
+			return "baseline-squash";
+		}
+
+		@Override
+		public void beforeStatement(Statement statement, String sql) throws SQLException {
+			if (!this.recording) {
+				return;
+			}
+			if (sql == null || (statement instanceof PreparedStatement && sql.indexOf('?') >= 0)) {
+				// 参数及批量语句无法按文本重放
+				throw new FlywayException("Unable to squash a batch or parameterized statement: " + sql);
+			}
+			this.statements.add(sql.trim());
+		}
+
+	}
+
+}
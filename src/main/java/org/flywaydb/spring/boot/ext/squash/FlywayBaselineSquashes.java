@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.squash;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.lease.FlywayModuleLeaseCoordinator;
+import org.flywaydb.spring.boot.ext.lease.FlywayModuleLeaseRepository;
+import org.flywaydb.spring.boot.ext.resolver.FlywayTemplateResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * 新安装时应用基线合并脚本：模块尚无任何已执行的迁移时，执行其最新的合并脚本并以合并版本作为基线，
+ * 之后只迁移基线之后的脚本；已有迁移历史的数据库照常增量迁移。被合并的迁移校验和有变化时不使用合并脚本
+ * <p>
+ * 多个节点可能同时发现模块为空，检查及应用合并脚本时持有租约表中该模块的合并锁（<code>{模块}#squash</code>），
+ * 未启用模块租约时同样如此；锁在到期前未释放（例如节点崩溃）时可被其他节点获取
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayBaselineSquashes {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayBaselineSquashes.class);
+
+	public static final String BASELINE_DESCRIPTION = "<< Baseline Squash >>";
+
+	private static final String LOCK_SUFFIX = "#squash";
+
+	private final ResourcePatternResolver resourcePatternResolver;
+
+	private final FlywayTemplateResolver templateResolver;
+
+	private final String location;
+
+	private String lockTable = "flyway_module_lease";
+
+	private String owner = FlywayModuleLeaseCoordinator.defaultOwner();
+
+	private Duration lockDuration = Duration.ofMinutes(10);
+
+	private Duration pollInterval = Duration.ofSeconds(2);
+
+	private Duration waitTimeout = Duration.ofMinutes(30);
+
+	/**
+	 * Create a new instance.
+	 * @param resourcePatternResolver resolves the squash files
+	 * @param templateResolver resolves the variables of the location
+	 * @param location the location template of the squash files of a module, e.g.
+	 * <code>classpath:db/squash/{module}</code>
+	 */
+	public FlywayBaselineSquashes(ResourcePatternResolver resourcePatternResolver,
+			FlywayTemplateResolver templateResolver, String location) {
+		Assert.notNull(resourcePatternResolver, "ResourcePatternResolver must not be null");
+		Assert.notNull(templateResolver, "TemplateResolver must not be null");
+		Assert.hasText(location, "Location must not be empty");
+		this.resourcePatternResolver = resourcePatternResolver;
+		this.templateResolver = templateResolver;
+		this.location = location;
+	}
+
+	/**
+	 * Apply the latest squash of the given module if it has no applied migration yet.
+	 * @param flyway the module
+	 * @return {@code true} if a squash was applied and the module baselined at its version
+	 */
+	public boolean baselineIfEmpty(Flyway flyway) {
+		Resource resource = findSquash(flyway);
+		if (resource == null || flyway.info().applied().length > 0) {
+			return false;
+		}
+		String module = FlywayModule.getModule(flyway);
+		String tenant = FlywayModule.getTenant(flyway);
+		String lock = module + ((tenant != null) ? "@" + tenant : "") + LOCK_SUFFIX;
+		FlywayModuleLeaseRepository repository = getLockRepository(flyway.getConfiguration().getDataSource());
+		repository.createTableIfNecessary();
+		acquire(repository, lock);
+		try {
+			// 等待期间其他节点可能已应用合并脚本，持有锁后重新检查
+			return baselineIfEmpty(flyway, module, resource);
+		}
+		finally {
+			repository.release(lock, this.owner);
+		}
+	}
+
+	/**
+	 * Return the repository of the lock table in the given DataSource.
+	 */
+	protected FlywayModuleLeaseRepository getLockRepository(DataSource dataSource) {
+		return new FlywayModuleLeaseRepository(dataSource, this.lockTable);
+	}
+
+	private void acquire(FlywayModuleLeaseRepository repository, String lock) {
+		long deadline = System.currentTimeMillis() + this.waitTimeout.toMillis();
+		while (true) {
+			long now = repository.currentTimeMillis();
+			if (repository.tryAcquire(lock, this.owner, now, now + this.lockDuration.toMillis())) {
+				return;
+			}
+			if (System.currentTimeMillis() >= deadline) {
+				throw new FlywayException("Timed out after " + this.waitTimeout + " waiting for lock " + lock);
+			}
+			LOG.debug("Lock {} is held by another node, waiting", lock);
+			try {
+				Thread.sleep(this.pollInterval.toMillis());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new FlywayException("Interrupted while waiting for lock " + lock, ex);
+			}
+		}
+	}
+
+	private boolean baselineIfEmpty(Flyway flyway, String module, Resource resource) {
+		Configuration configuration = flyway.getConfiguration();
+		MigrationInfoService info = flyway.info();
+		if (info.applied().length > 0) {
+			return false;
+		}
+		FlywayBaselineSquash squash = read(module, resource);
+		// 被合并的迁移须与当前脚本一致，否则合并脚本已过期
+		Map<String, Integer> migrations = new LinkedHashMap<>();
+		for (MigrationInfo migration : info.all()) {
+			if (migration.getVersion() != null && migration.getVersion().compareTo(squash.getVersion()) <= 0) {
+				migrations.put(migration.getVersion().getVersion(), migration.getChecksum());
+			}
+		}
+		if (!migrations.equals(squash.getMigrations())) {
+			LOG.warn("Squash {} of module '{}' does not match its migrations anymore, migrating from scratch",
+					resource.getFilename(), module);
+			return false;
+		}
+		long start = System.currentTimeMillis();
+		DataSource dataSource = configuration.getDataSource();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		Set<String> schemas = getSchemas(configuration);
+		// Flyway 在 baseline 时才创建配置的 schema，合并脚本中的对象位于其中，故先创建
+		if (configuration.isCreateSchemas()) {
+			jdbcTemplate.execute((ConnectionCallback<Void>) (connection) -> createSchemas(connection, module, schemas));
+		}
+		String defaultSchema = schemas.isEmpty() ? null : schemas.iterator().next();
+		// 支持 DDL 事务的数据库在一个事务中执行，失败时不留下部分对象
+		new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult((status) -> jdbcTemplate
+				.execute((ConnectionCallback<Void>) (connection) -> execute(connection, defaultSchema, squash)));
+		Flyway.configure(configuration.getClassLoader()).configuration(configuration)
+				.baselineVersion(squash.getVersion()).baselineDescription(BASELINE_DESCRIPTION).load().baseline();
+		LOG.info("Module '{}' baselined at version {} from squash of {} migration(s) in {}ms", module,
+				squash.getVersion(), squash.getMigrations().size(), System.currentTimeMillis() - start);
+		return true;
+	}
+
+	/**
+	 * Return the schemas of the module, the default one first, as Flyway creates them.
+	 */
+	private static Set<String> getSchemas(Configuration configuration) {
+		Set<String> schemas = new LinkedHashSet<>();
+		if (configuration.getDefaultSchema() != null) {
+			schemas.add(configuration.getDefaultSchema());
+		}
+		for (String schema : configuration.getSchemas()) {
+			schemas.add(schema);
+		}
+		return schemas;
+	}
+
+	private static Void createSchemas(Connection connection, String module, Set<String> schemas) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		Set<String> existing = new HashSet<>();
+		try (ResultSet resultSet = metaData.getSchemas()) {
+			while (resultSet.next()) {
+				existing.add(resultSet.getString("TABLE_SCHEM"));
+			}
+		}
+		// MySQL 等以 catalog 作为 schema
+		try (ResultSet resultSet = metaData.getCatalogs()) {
+			while (resultSet.next()) {
+				existing.add(resultSet.getString("TABLE_CAT"));
+			}
+		}
+		String quote = metaData.getIdentifierQuoteString().trim();
+		try (Statement statement = connection.createStatement()) {
+			for (String schema : schemas) {
+				if (!existing.contains(schema)) {
+					LOG.info("Creating schema {} of module '{}' before applying its squash", schema, module);
+					statement.execute("CREATE SCHEMA " + quote + schema + quote);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Void execute(Connection connection, String defaultSchema, FlywayBaselineSquash squash)
+			throws SQLException {
+		// 与 Flyway 执行迁移时一致，语句在模块的默认 schema 中执行
+		String previous = (defaultSchema != null) ? setSchema(connection, defaultSchema) : null;
+		try (Statement statement = connection.createStatement()) {
+			for (String sql : squash.getStatements()) {
+				statement.execute(sql);
+			}
+		}
+		finally {
+			if (previous != null) {
+				setSchema(connection, previous);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Switch the current schema of the given connection.
+	 * @return the previous schema, or {@code null} if the driver does not support schemas
+	 */
+	private static String setSchema(Connection connection, String schema) throws SQLException {
+		try {
+			String previous = connection.getSchema();
+			connection.setSchema(schema);
+			return previous;
+		}
+		catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+			LOG.warn("Unable to switch to schema {}, applying the squash in the current schema", schema);
+			return null;
+		}
+	}
+
+	private Resource findSquash(Flyway flyway) {
+		Configuration configuration = flyway.getConfiguration();
+		String root = this.templateResolver.resolve(this.location, this.templateResolver
+				.variables(FlywayModule.getModule(flyway), FlywayModule.getTenant(flyway), configuration.getDataSource()));
+		MigrationVersion target = configuration.getTarget();
+		Resource latest = null;
+		MigrationVersion latestVersion = null;
+		try {
+			for (Resource resource : this.resourcePatternResolver.getResources(root + "/" + FlywayBaselineSquash.PREFIX
+					+ "*" + FlywayBaselineSquash.SUFFIX)) {
+				MigrationVersion version = FlywayBaselineSquash.getVersion(resource.getFilename());
+				if (version == null || (isBounded(target) && version.compareTo(target) > 0)) {
+					continue;
+				}
+				if (latestVersion == null || version.compareTo(latestVersion) > 0) {
+					latest = resource;
+					latestVersion = version;
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new FlywayException("Unable to scan squash location " + root + ": " + ex.getMessage(), ex);
+		}
+		return latest;
+	}
+
+	private static boolean isBounded(MigrationVersion target) {
+		return target != null && !MigrationVersion.LATEST.equals(target) && !MigrationVersion.CURRENT.equals(target)
+				&& !MigrationVersion.NEXT.equals(target);
+	}
+
+	private static FlywayBaselineSquash read(String module, Resource resource) {
+		try {
+			String text = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+			return FlywayBaselineSquash.parse(module, FlywayBaselineSquash.getVersion(resource.getFilename()), text);
+		}
+		catch (IOException ex) {
+			throw new FlywayException("Unable to read squash " + resource + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public String getLockTable() {
+		return lockTable;
+	}
+
+	/**
+	 * Set the table holding the squash locks, the lease table of the modules by default.
+	 */
+	public void setLockTable(String lockTable) {
+		Assert.hasText(lockTable, "Lock table must not be empty");
+		this.lockTable = lockTable;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public void setOwner(String owner) {
+		Assert.hasText(owner, "Owner must not be empty");
+		this.owner = owner;
+	}
+
+	public Duration getLockDuration() {
+		return lockDuration;
+	}
+
+	/**
+	 * Set the time after which a lock that is not released can be claimed by another node,
+	 * longer than applying a squash takes.
+	 */
+	public void setLockDuration(Duration lockDuration) {
+		Assert.notNull(lockDuration, "Lock duration must not be null");
+		this.lockDuration = lockDuration;
+	}
+
+	public Duration getPollInterval() {
+		return pollInterval;
+	}
+
+	public void setPollInterval(Duration pollInterval) {
+		Assert.notNull(pollInterval, "Poll interval must not be null");
+		this.pollInterval = pollInterval;
+	}
+
+	public Duration getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	public void setWaitTimeout(Duration waitTimeout) {
+		Assert.notNull(waitTimeout, "Wait timeout must not be null");
+		this.waitTimeout = waitTimeout;
+	}
+
+}
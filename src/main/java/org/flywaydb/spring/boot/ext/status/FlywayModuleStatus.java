@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.status;
+
+import java.time.Instant;
+
+/**
+ * 模块迁移状态快照：当前版本、待执行脚本数、最近一次迁移耗时及结果
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleStatus {
+
+	public enum State {
+
+		/**
+		 * The module was not migrated yet.
+		 */
+		NOT_RUN,
+
+		MIGRATED,
+
+		/**
+		 * The module has pending migrations.
+		 */
+		PENDING,
+
+		FAILED
+
+	}
+
+	private final String module;
+
+	private final String tenant;
+
+	private final String version;
+
+	private final int pending;
+
+	private final Long lastDurationMillis;
+
+	private final State state;
+
+	private final String error;
+
+	private final Instant capturedAt;
+
+	public FlywayModuleStatus(String module, String tenant, String version, int pending, Long lastDurationMillis,
+			State state, String error, Instant capturedAt) {
+		this.module = module;
+		this.tenant = tenant;
+		this.version = version;
+		this.pending = pending;
+		this.lastDurationMillis = lastDurationMillis;
+		this.state = state;
+		this.error = error;
+		this.capturedAt = capturedAt;
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	public Long getLastDurationMillis() {
+		return lastDurationMillis;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public Instant getCapturedAt() {
+		return capturedAt;
+	}
+
+	@Override
+	public String toString() {
+		return this.module + ((this.tenant != null) ? "@" + this.tenant : "") + ": " + this.state + " (version "
+				+ this.version + ", " + this.pending + " pending)";
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.status.FlywayModuleStatus.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * 模块迁移状态快照：迁移结束时记录各模块的状态，之后按固定间隔在后台调用 info() 刷新；
+ * 健康检查与监控端点只读取快照，不会在每次请求时访问数据库
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayModuleStatusRegistry implements SmartLifecycle {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayModuleStatusRegistry.class);
+
+	private final List<Flyway> flyways;
+
+	private final Map<Flyway, FlywayModuleStatus> statuses = new ConcurrentHashMap<>();
+
+	private Duration refreshInterval = Duration.ofMinutes(5);
+
+	private volatile ScheduledExecutorService scheduler;
+
+	public FlywayModuleStatusRegistry(List<Flyway> flyways) {
+		this.flyways = flyways;
+		Instant now = Instant.now();
+		for (Flyway flyway : flyways) {
+			this.statuses.put(flyway, new FlywayModuleStatus(FlywayModule.getModule(flyway),
+					FlywayModule.getTenant(flyway), null, 0, null, State.NOT_RUN, null, now));
+		}
+	}
+
+	/**
+	 * Record a successful migration.
+	 * @param flyway the migrated module
+	 * @param result the result of the migration, or {@code null} if a migration strategy
+	 * ran it, in which case the status is read with {@link Flyway#info()}
+	 * @param durationMillis the duration of the migration
+	 */
+	public void migrated(Flyway flyway, MigrateResult result, long durationMillis) {
+		if (result == null) {
+			this.statuses.put(flyway, capture(flyway, durationMillis, null));
+			return;
+		}
+		String version = (result.targetSchemaVersion != null) ? result.targetSchemaVersion
+				: result.initialSchemaVersion;
+		this.statuses.put(flyway, new FlywayModuleStatus(FlywayModule.getModule(flyway),
+				FlywayModule.getTenant(flyway), version, 0, durationMillis, State.MIGRATED, null, Instant.now()));
+	}
+
+	/**
+	 * Record a failed migration.
+	 */
+	public void failed(Flyway flyway, Throwable failure, long durationMillis) {
+		FlywayModuleStatus previous = this.statuses.get(flyway);
+		this.statuses.put(flyway, new FlywayModuleStatus(FlywayModule.getModule(flyway),
+				FlywayModule.getTenant(flyway), (previous != null) ? previous.getVersion() : null,
+				(previous != null) ? previous.getPending() : 0, durationMillis, State.FAILED, failure.getMessage(),
+				Instant.now()));
+	}
+
+	/**
+	 * Refresh the status of every module from its schema history.
+	 */
+	public void refresh() {
+		for (Flyway flyway : this.flyways) {
+			FlywayModuleStatus previous = this.statuses.get(flyway);
+			try {
+				this.statuses.put(flyway, capture(flyway, previous.getLastDurationMillis(), previous.getError()));
+			}
+			catch (RuntimeException ex) {
+				LOG.warn("Unable to refresh the status of module '{}'", previous.getModule(), ex);
+			}
+		}
+	}
+
+	private FlywayModuleStatus capture(Flyway flyway, Long durationMillis, String error) {
+		MigrationInfoService info = flyway.info();
+		MigrationInfo current = info.current();
+		int pending = info.pending().length;
+		boolean failed = false;
+		for (MigrationInfo migration : info.applied()) {
+			failed |= migration.getState().isFailed();
+		}
+		State state = (failed || (error != null && pending > 0)) ? State.FAILED
+				: (pending > 0) ? State.PENDING : State.MIGRATED;
+		String version = (current != null && current.getVersion() != null) ? current.getVersion().getVersion() : null;
+		return new FlywayModuleStatus(FlywayModule.getModule(flyway), FlywayModule.getTenant(flyway), version,
+				pending, durationMillis, state, (state == State.FAILED) ? error : null, Instant.now());
+	}
+
+	/**
+	 * Return the last captured status of every module, in migration order.
+	 */
+	public List<FlywayModuleStatus> getStatuses() {
+		List<FlywayModuleStatus> statuses = new ArrayList<>(this.flyways.size());
+		for (Flyway flyway : this.flyways) {
+			statuses.add(this.statuses.get(flyway));
+		}
+		return statuses;
+	}
+
+	@Override
+	public void start() {
+		if (this.refreshInterval == null || this.refreshInterval.isZero() || this.refreshInterval.isNegative()) {
+			return;
+		}
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "flyway-status-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = this.refreshInterval.toMillis();
+		scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public void stop() {
+		ScheduledExecutorService scheduler = this.scheduler;
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			this.scheduler = null;
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.scheduler != null;
+	}
+
+	public Duration getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	/**
+	 * Set the interval at which the statuses are refreshed in the background, or zero to only
+	 * capture them when the modules are migrated.
+	 */
+	public void setRefreshInterval(Duration refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+}
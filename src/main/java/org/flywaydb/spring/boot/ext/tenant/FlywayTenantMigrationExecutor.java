@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.tenant;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantMigrationReport.Result;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantMigrationReport.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadata;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.util.Assert;
+
+/**
+ * 多租户并行迁移：各租户的模块按声明顺序依次迁移，租户之间并行，同一数据源上同时迁移的租户数受并发上限及连接池大小约束；
+ * 单个租户失败时跳过该租户的后续模块，不影响其他租户
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayTenantMigrationExecutor {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayTenantMigrationExecutor.class);
+
+	private int concurrency = 4;
+
+	private boolean failOnError = true;
+
+	private DataSourcePoolMetadataProvider poolMetadataProvider;
+
+	private volatile FlywayTenantMigrationReport lastReport;
+
+	/**
+	 * Migrate the given tenant modules.
+	 * @param flyways the modules to migrate, created by {@link FlywayModule} with a tenant
+	 * @param migration the migration to apply to a module
+	 * @return the report of the migration
+	 * @throws FlywayException if a tenant failed and {@link #setFailOnError(boolean) failOnError} is set
+	 */
+	public FlywayTenantMigrationReport migrate(List<Flyway> flyways, Consumer<Flyway> migration) {
+		Map<String, List<Flyway>> tenants = new LinkedHashMap<>();
+		Map<DataSource, Semaphore> permits = new IdentityHashMap<>();
+		for (Flyway flyway : flyways) {
+			tenants.computeIfAbsent(FlywayModule.getTenant(flyway), (tenant) -> new ArrayList<>()).add(flyway);
+			permits.computeIfAbsent(flyway.getConfiguration().getDataSource(),
+					(dataSource) -> new Semaphore(getConcurrency(dataSource)));
+		}
+		FlywayTenantMigrationReport report = new FlywayTenantMigrationReport(tenants.size());
+		if (tenants.isEmpty()) {
+			this.lastReport = report;
+			return report;
+		}
+		int threads = Math.min(tenants.size(),
+				permits.values().stream().mapToInt(Semaphore::availablePermits).sum());
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+			Thread thread = new Thread(runnable, "flyway-tenant-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		LOG.info("Migrating {} tenants with {} threads .. ", tenants.size(), threads);
+		AtomicInteger completed = new AtomicInteger();
+		try {
+			List<Future<?>> futures = new ArrayList<>(tenants.size());
+			tenants.forEach((tenant, modules) -> futures.add(executor.submit(
+					() -> migrateTenant(tenant, modules, permits, migration, report, completed))));
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while migrating tenants", ex);
+		}
+		catch (ExecutionException ex) {
+			throw new IllegalStateException("Unexpected error while migrating tenants", ex.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		this.lastReport = report;
+		if (report.hasFailures()) {
+			LOG.error("Flyway tenant migration finished with failures, {}", report);
+			if (this.failOnError) {
+				throw new FlywayException("Unable to migrate tenants " + report.getFailedTenants(),
+						report.getFailures().get(0).getFailure());
+			}
+		}
+		else {
+			LOG.info("Flyway tenant migration finished, {}", report);
+		}
+		return report;
+	}
+
+	private void migrateTenant(String tenant, List<Flyway> modules, Map<DataSource, Semaphore> permits,
+			Consumer<Flyway> migration, FlywayTenantMigrationReport report, AtomicInteger completed) {
+		boolean failed = false;
+		for (Flyway flyway : modules) {
+			String module = FlywayModule.getModule(flyway);
+			if (failed) {
+				report.add(new Result(tenant, module, Status.SKIPPED, 0, null));
+				continue;
+			}
+			Semaphore permit = permits.get(flyway.getConfiguration().getDataSource());
+			long start = System.currentTimeMillis();
+			try {
+				permit.acquire();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				report.add(new Result(tenant, module, Status.FAILED, 0, ex));
+				return;
+			}
+			try {
+				migration.accept(flyway);
+				report.add(new Result(tenant, module, Status.SUCCESS, System.currentTimeMillis() - start, null));
+			}
+			catch (RuntimeException ex) {
+				failed = true;
+				LOG.error("Failed to migrate module '{}' of tenant '{}'", module, tenant, ex);
+				report.add(new Result(tenant, module, Status.FAILED, System.currentTimeMillis() - start, ex));
+			}
+			finally {
+				permit.release();
+			}
+		}
+		LOG.info("Tenant '{}' {} ({}/{})", tenant, failed ? "failed" : "migrated", completed.incrementAndGet(),
+				report.getTenantCount());
+	}
+
+	/**
+	 * Return the number of tenants migrated at the same time on the given DataSource: the
+	 * configured concurrency, capped by the size of its connection pool when known. Each
+	 * migration holds up to two connections, the main one and the migration one.
+	 */
+	protected int getConcurrency(DataSource dataSource) {
+		DataSourcePoolMetadata metadata = (this.poolMetadataProvider != null && dataSource != null)
+				? this.poolMetadataProvider.getDataSourcePoolMetadata(dataSource) : null;
+		Integer max = (metadata != null) ? metadata.getMax() : null;
+		// -1 表示连接池无上限
+		return (max != null && max > 0) ? Math.min(this.concurrency, Math.max(1, max / 2)) : this.concurrency;
+	}
+
+	/**
+	 * Return the report of the last migration, or {@code null} if none ran yet.
+	 */
+	public FlywayTenantMigrationReport getLastReport() {
+		return lastReport;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Set the maximum number of tenants migrated at the same time on one DataSource.
+	 */
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "Concurrency must be greater than 0");
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Set the provider used to cap the concurrency of a DataSource to its pool size.
+	 */
+	public void setPoolMetadataProvider(DataSourcePoolMetadataProvider poolMetadataProvider) {
+		this.poolMetadataProvider = poolMetadataProvider;
+	}
+
+	public boolean isFailOnError() {
+		return failOnError;
+	}
+
+	/**
+	 * Set whether to fail, once every tenant was attempted, when a tenant failed.
+	 */
+	public void setFailOnError(boolean failOnError) {
+		this.failOnError = failOnError;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.tenant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 多租户迁移结果：按租户、模块记录成功、失败及因前序模块失败而跳过的迁移
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayTenantMigrationReport {
+
+	private final List<Result> results = Collections.synchronizedList(new ArrayList<>());
+
+	private final int tenantCount;
+
+	public FlywayTenantMigrationReport(int tenantCount) {
+		this.tenantCount = tenantCount;
+	}
+
+	void add(Result result) {
+		this.results.add(result);
+	}
+
+	public List<Result> getResults() {
+		synchronized (this.results) {
+			return new ArrayList<>(this.results);
+		}
+	}
+
+	public List<Result> getFailures() {
+		return getResults().stream().filter((result) -> result.getStatus() == Status.FAILED)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Return the tenants with at least one failed module, in completion order.
+	 */
+	public Set<String> getFailedTenants() {
+		return getFailures().stream().map(Result::getTenant).collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+
+	public boolean hasFailures() {
+		return !getFailures().isEmpty();
+	}
+
+	public int getTenantCount() {
+		return tenantCount;
+	}
+
+	@Override
+	public String toString() {
+		Set<String> failedTenants = getFailedTenants();
+		return this.tenantCount + " tenants, " + failedTenants.size() + " failed"
+				+ (failedTenants.isEmpty() ? "" : ": " + failedTenants);
+	}
+
+	public enum Status {
+
+		SUCCESS,
+
+		FAILED,
+
+		/**
+		 * Not attempted because a previous module of the same tenant failed.
+		 */
+		SKIPPED
+
+	}
+
+	/**
+	 * The migration result of one module of a tenant.
+	 */
+	public static class Result {
+
+		private final String tenant;
+
+		private final String module;
+
+		private final Status status;
+
+		private final long elapsedMillis;
+
+		private final Throwable failure;
+
+		Result(String tenant, String module, Status status, long elapsedMillis, Throwable failure) {
+			this.tenant = tenant;
+			this.module = module;
+			this.status = status;
+			this.elapsedMillis = elapsedMillis;
+			this.failure = failure;
+		}
+
+		public String getTenant() {
+			return tenant;
+		}
+
+		public String getModule() {
+			return module;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		@Override
+		public String toString() {
+			return this.module + "@" + this.tenant + ": " + this.status
+					+ ((this.failure != null) ? " (" + this.failure.getMessage() + ")" : "");
+		}
+
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.tenant;
+
+import java.util.List;
+
+/**
+ * 租户提供者：返回需要迁移的租户，每个租户与各模块组合后独立迁移（如每租户一个 schema）
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+@FunctionalInterface
+public interface FlywayTenantProvider {
+
+	/**
+	 * Return the tenants to migrate, each one becoming the "{tenant}" variable of the
+	 * tenant-aware modules.
+	 * @return the tenants, never {@code null}
+	 */
+	List<String> getTenants();
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.tenant;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * 通过 SQL 查询租户，取结果集第一列作为租户名称（如 <code>SELECT code FROM sys_tenant WHERE status = 1</code>）
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class JdbcFlywayTenantProvider implements FlywayTenantProvider {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String query;
+
+	public JdbcFlywayTenantProvider(DataSource dataSource, String query) {
+		Assert.notNull(dataSource, "DataSource must not be null");
+		Assert.hasText(query, "Tenant query must not be empty");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.query = query;
+	}
+
+	@Override
+	public List<String> getTenants() {
+		return this.jdbcTemplate.queryForList(this.query, String.class);
+	}
+
+}
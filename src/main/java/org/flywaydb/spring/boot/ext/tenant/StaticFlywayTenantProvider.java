@@ -13,33 +13,28 @@
  * License for the specific language governing permissions and limitations under
  * the License.
  */
-package org.flywaydb.spring.boot.ext.resolver;
+package org.flywaydb.spring.boot.ext.tenant;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * TODO
+ * 固定租户列表
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
  */
-public class TableModuleResolver {
+public class StaticFlywayTenantProvider implements FlywayTenantProvider {
 
-	private static final String MODULE_PLACEHOLDER = "{module}";
-	private final String module;
-	
-	public TableModuleResolver(String module) {
-		this.module = module;
-	}
+	private final List<String> tenants;
 
-	public String resolveTable(String table) {
-		if (usesModuleTable(table)) {
-			return table.replace(MODULE_PLACEHOLDER, module);
-		}
-		return table;
+	public StaticFlywayTenantProvider(Collection<String> tenants) {
+		this.tenants = Collections.unmodifiableList(new ArrayList<>(tenants));
 	}
 
-	private boolean usesModuleTable(String table) {
-		if (table.contains(MODULE_PLACEHOLDER)) {
-			return true;
-		}
-		return false;
+	@Override
+	public List<String> getTenants() {
+		return this.tenants;
 	}
-	
+
 }
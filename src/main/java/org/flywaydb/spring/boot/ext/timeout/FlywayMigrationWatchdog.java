@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.timeout;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.jdbc.FlywayStatementListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * 模块迁移看门狗：为每条语句设置 {@link Statement#setQueryTimeout(int)}（取语句超时与模块剩余时间中较小者），
+ * 模块超时后取消正在执行的语句并拒绝后续语句；启用 fail-fast 时，任一模块失败即以同样方式取消同一轮次（{@link Round}）
+ * 中并行执行的其他模块，不影响其他轮次，例如后台层级或按需迁移
+ * <p>
+ * 取消是协作式的：只作用于经 {@link FlywayStatementListener} 拦截的语句，尚未开始的模块在开始时即失败。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayMigrationWatchdog implements FlywayStatementListener, DisposableBean {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayMigrationWatchdog.class);
+
+	private final ThreadLocal<Run> current = new ThreadLocal<>();
+
+	private final Map<String, Duration[]> moduleTimeouts = new ConcurrentHashMap<>();
+
+	private final ScheduledThreadPoolExecutor scheduler;
+
+	private Duration timeout;
+
+	private Duration statementTimeout;
+
+	private boolean failFast = false;
+
+	public FlywayMigrationWatchdog() {
+		this.scheduler = new ScheduledThreadPoolExecutor(1, (runnable) -> {
+			Thread thread = new Thread(runnable, "flyway-watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Start a round of modules migrated together, cancelled together on a failure in fail-fast mode.
+	 */
+	public Round newRound() {
+		return new Round();
+	}
+
+	/**
+	 * Run the migration of the given module under the time budgets of the module, on its own,
+	 * e.g. on demand: a failure does not cancel other modules.
+	 * @param flyway the module
+	 * @param migration the migration of the module
+	 * @return the result of the migration
+	 * @throws FlywayException if the module timed out
+	 */
+	public <T> T call(Flyway flyway, Supplier<T> migration) {
+		return call(null, flyway, migration);
+	}
+
+	/**
+	 * Run the migration of the given module under the time budgets of the module.
+	 * @param round the round of the module, {@code null} if migrated on its own
+	 * @param flyway the module
+	 * @param migration the migration of the module
+	 * @return the result of the migration
+	 * @throws FlywayException if the module timed out or was cancelled after a module of the
+	 * same round failed
+	 */
+	public <T> T call(Round round, Flyway flyway, Supplier<T> migration) {
+		Run run = begin(round, flyway);
+		try {
+			return migration.get();
+		}
+		catch (RuntimeException ex) {
+			String reason = run.reason;
+			if (this.failFast && round != null) {
+				round.abort("module '" + run.module + "' failed");
+			}
+			if (reason != null) {
+				// 由看门狗取消，以原因替换驱动的取消异常
+				throw new FlywayException("Migration of module '" + run.module + "' cancelled: " + reason, ex);
+			}
+			throw ex;
+		}
+		finally {
+			end(round, run);
+		}
+	}
+
+	private Run begin(Round round, Flyway flyway) {
+		String module = FlywayModule.getModule(flyway);
+		Duration[] timeouts = this.moduleTimeouts.get(module);
+		Duration timeout = (timeouts != null && timeouts[0] != null) ? timeouts[0] : this.timeout;
+		Duration statementTimeout = (timeouts != null && timeouts[1] != null) ? timeouts[1] : this.statementTimeout;
+		Run run = new Run(module, statementTimeout);
+		if (round != null) {
+			// 先登记再检查，与 abort 先记录原因再取消相对，不会漏掉同时开始的模块
+			round.runs.add(run);
+			String abortReason = round.abortReason;
+			if (abortReason != null) {
+				round.runs.remove(run);
+				throw new FlywayException("Migration of module '" + module + "' cancelled: " + abortReason);
+			}
+		}
+		if (timeout != null) {
+			run.deadline = System.nanoTime() + timeout.toNanos();
+			run.future = this.scheduler.schedule(() -> run.cancel("timed out after " + timeout),
+					timeout.toNanos(), TimeUnit.NANOSECONDS);
+		}
+		this.current.set(run);
+		return run;
+	}
+
+	private void end(Round round, Run run) {
+		if (run.future != null) {
+			run.future.cancel(false);
+		}
+		if (round != null) {
+			round.runs.remove(run);
+		}
+		this.current.remove();
+	}
+
+	@Override
+	public void beforeStatement(Statement statement, String sql) throws SQLException {
+		Run run = this.current.get();
+		if (run == null) {
+			return;
+		}
+		if (run.reason != null) {
+			throw new SQLTimeoutException("Migration of module '" + run.module + "' cancelled: " + run.reason);
+		}
+		long seconds = (run.statementTimeout != null) ? Math.max(1, run.statementTimeout.getSeconds()) : 0;
+		if (run.deadline != 0) {
+			long remaining = TimeUnit.NANOSECONDS.toSeconds(run.deadline - System.nanoTime()) + 1;
+			seconds = (seconds > 0) ? Math.min(seconds, remaining) : remaining;
+		}
+		if (seconds > 0) {
+			statement.setQueryTimeout((int) Math.min(seconds, Integer.MAX_VALUE));
+		}
+		run.statement = statement;
+	}
+
+	@Override
+	public void afterStatement(Statement statement, String sql, long elapsedNanos, Throwable failure) {
+		Run run = this.current.get();
+		if (run != null) {
+			run.statement = null;
+		}
+	}
+
+	/**
+	 * Set the time budgets of a module, overriding the defaults.
+	 * @param module the module
+	 * @param timeout the budget of the whole migration, or {@code null} for the default
+	 * @param statementTimeout the budget of a single statement, or {@code null} for the default
+	 */
+	public void setModuleTimeouts(String module, Duration timeout, Duration statementTimeout) {
+		this.moduleTimeouts.put(module, new Duration[] { timeout, statementTimeout });
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	public void setStatementTimeout(Duration statementTimeout) {
+		this.statementTimeout = statementTimeout;
+	}
+
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	@Override
+	public void destroy() {
+		this.scheduler.shutdownNow();
+	}
+
+	/**
+	 * 一轮一起迁移的模块，例如启动时的一个层级
+	 */
+	public static final class Round {
+
+		private final Set<Run> runs = ConcurrentHashMap.newKeySet();
+
+		private volatile String abortReason;
+
+		private Round() {
+		}
+
+		/**
+		 * Cancel the running modules of this round and refuse to start its remaining ones.
+		 * @param reason the reason of the cancellation
+		 */
+		public void abort(String reason) {
+			if (this.abortReason == null) {
+				this.abortReason = reason;
+			}
+			for (Run run : this.runs) {
+				run.cancel(reason);
+			}
+		}
+
+		/**
+		 * Return the reason this round was aborted, {@code null} if it was not.
+		 */
+		public String getAbortReason() {
+			return this.abortReason;
+		}
+
+	}
+
+	private static class Run {
+
+		private final String module;
+
+		private final Duration statementTimeout;
+
+		private long deadline;
+
+		private ScheduledFuture<?> future;
+
+		private volatile Statement statement;
+
+		private volatile String reason;
+
+		Run(String module, Duration statementTimeout) {
+			this.module = module;
+			this.statementTimeout = statementTimeout;
+		}
+
+		void cancel(String reason) {
+			if (this.reason != null) {
+				return;
+			}
+			this.reason = reason;
+			LOG.warn("Cancelling migration of module '{}': {}", this.module, reason);
+			Statement statement = this.statement;
+			if (statement != null) {
+				try {
+					statement.cancel();
+				}
+				catch (SQLException | RuntimeException ex) {
+					LOG.warn("Unable to cancel the running statement of module '{}'", this.module, ex);
+				}
+			}
+		}
+
+	}
+
+}
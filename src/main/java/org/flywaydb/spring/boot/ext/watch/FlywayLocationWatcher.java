@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.ErrorCode;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.core.api.output.ValidateOutput;
+import org.flywaydb.core.api.output.ValidateResult;
+import org.flywaydb.spring.boot.ext.FlywayModularizedMigrationInitializer;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.resource.FlywaySpringResourceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * 开发模式：监听模块 filesystem: 路径下的脚本变化，防抖后只重新迁移受影响的模块；
+ * 已执行的脚本被修改（校验和等不一致）时可选地先 clean 再 migrate，其他模块使用同一数据源及 schema 时拒绝 clean。
+ * 仅用于开发环境。
+ * <p>
+ * 迁移经过 {@link FlywayModularizedMigrationInitializer}，与启动迁移及按需迁移共用模块锁。
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public class FlywayLocationWatcher implements SmartLifecycle {
+
+	protected static Logger LOG = LoggerFactory.getLogger(FlywayLocationWatcher.class);
+
+	/**
+	 * Validation errors meaning that an applied migration was changed or removed.
+	 */
+	private static final Set<ErrorCode> MODIFIED_ERRORS = EnumSet.of(ErrorCode.CHECKSUM_MISMATCH,
+			ErrorCode.DESCRIPTION_MISMATCH, ErrorCode.TYPE_MISMATCH, ErrorCode.APPLIED_VERSIONED_MIGRATION_NOT_RESOLVED,
+			ErrorCode.APPLIED_REPEATABLE_MIGRATION_NOT_RESOLVED);
+
+	private final FlywayModularizedMigrationInitializer initializer;
+
+	private final List<Flyway> flyways;
+
+	private final Map<Path, List<Flyway>> roots = new LinkedHashMap<>();
+
+	private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+
+	private Duration debounce = Duration.ofMillis(500);
+
+	private boolean cleanOnChange = false;
+
+	private volatile WatchService watchService;
+
+	private Thread thread;
+
+	public FlywayLocationWatcher(FlywayModularizedMigrationInitializer initializer) {
+		this.initializer = initializer;
+		this.flyways = initializer.getFlyways();
+	}
+
+	@Override
+	public synchronized void start() {
+		for (Flyway flyway : this.flyways) {
+			for (Location location : flyway.getConfiguration().getLocations()) {
+				if (!location.isFileSystem()) {
+					continue;
+				}
+				Path root = Paths.get(location.getRootPath()).toAbsolutePath().normalize();
+				if (Files.isDirectory(root)) {
+					this.roots.computeIfAbsent(root, (key) -> new ArrayList<>()).add(flyway);
+				}
+			}
+		}
+		if (this.roots.isEmpty()) {
+			LOG.info("No filesystem: migration locations to watch");
+			return;
+		}
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+			for (Path root : this.roots.keySet()) {
+				register(root);
+			}
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to watch migration locations " + this.roots.keySet(), ex);
+		}
+		LOG.warn("Watching migration locations {}, changed modules are migrated again (development only)",
+				this.roots.keySet());
+		this.thread = new Thread(this::watch, "flyway-location-watcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public synchronized void stop() {
+		WatchService watchService = this.watchService;
+		if (watchService == null) {
+			return;
+		}
+		this.watchService = null;
+		try {
+			watchService.close();
+		}
+		catch (IOException ex) {
+			LOG.debug("Unable to close watch service", ex);
+		}
+		this.thread.interrupt();
+		this.roots.clear();
+		this.directories.clear();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.watchService != null;
+	}
+
+	private void register(Path root) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			for (Path directory : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+				this.directories.put(directory.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+						directory);
+			}
+		}
+	}
+
+	private void watch() {
+		Set<Flyway> changed = new LinkedHashSet<>();
+		try {
+			while (true) {
+				WatchService watchService = this.watchService;
+				if (watchService == null) {
+					return;
+				}
+				// 有待处理的变化时，在防抖时间内没有新事件才开始迁移
+				WatchKey key = changed.isEmpty() ? watchService.take()
+						: watchService.poll(this.debounce.toMillis(), TimeUnit.MILLISECONDS);
+				if (key == null) {
+					remigrate(changed);
+					changed.clear();
+					continue;
+				}
+				Path directory = this.directories.get(key);
+				if (directory != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						Path path = (event.kind() == OVERFLOW) ? directory : directory.resolve((Path) event.context());
+						if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+							register(path);
+						}
+						collect(path, event.kind() == OVERFLOW || Files.isDirectory(path), changed);
+					}
+				}
+				if (!key.reset()) {
+					this.directories.remove(key);
+				}
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException ex) {
+			// 停止监听
+		}
+		catch (IOException ex) {
+			LOG.error("Stopped watching migration locations", ex);
+		}
+	}
+
+	private void collect(Path path, boolean directory, Set<Flyway> changed) {
+		String filename = (path.getFileName() != null) ? path.getFileName().toString() : "";
+		this.roots.forEach((root, flyways) -> {
+			if (!path.startsWith(root)) {
+				return;
+			}
+			for (Flyway flyway : flyways) {
+				if (directory || isMigration(flyway, filename)) {
+					changed.add(flyway);
+				}
+			}
+		});
+	}
+
+	private boolean isMigration(Flyway flyway, String filename) {
+		for (String suffix : flyway.getConfiguration().getSqlMigrationSuffixes()) {
+			if (filename.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void remigrate(Set<Flyway> changed) {
+		for (Flyway flyway : this.flyways) {
+			if (changed.contains(flyway)) {
+				try {
+					remigrate(flyway);
+				}
+				catch (RuntimeException ex) {
+					LOG.error("Failed to migrate module '{}' again", FlywayModule.getModule(flyway), ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Migrate a module whose scripts changed, cleaning it first when an applied script was
+	 * modified or removed.
+	 */
+	protected void remigrate(Flyway flyway) {
+		String module = FlywayModule.getModule(flyway);
+		this.initializer.locked(flyway, () -> {
+			if (flyway.getConfiguration().getResourceProvider() instanceof FlywaySpringResourceProvider) {
+				((FlywaySpringResourceProvider) flyway.getConfiguration().getResourceProvider()).refresh();
+			}
+			ValidateResult validation = flyway.validateWithResult();
+			if (isModified(validation)) {
+				if (!this.cleanOnChange) {
+					LOG.warn("Applied scripts of module '{}' changed, clean disabled: {}", module,
+							validation.getAllErrorMessages());
+					return null;
+				}
+				Flyway sharing = findSharing(flyway);
+				if (sharing != null) {
+					// clean 删除整个 schema，会一并删除其他模块的对象
+					LOG.warn("Applied scripts of module '{}' changed, clean refused as module '{}' uses the same "
+							+ "schema: {}", module, FlywayModule.getModule(sharing), validation.getAllErrorMessages());
+					return null;
+				}
+				LOG.warn("Applied scripts of module '{}' changed, cleaning .. ", module);
+				flyway.clean();
+			}
+			// 状态由初始化器记录
+			MigrateResult result = this.initializer.migrateModule(flyway);
+			LOG.info("Module '{}' migrated again, {} migrations executed", module, result.migrationsExecuted);
+			return result;
+		});
+	}
+
+	/**
+	 * Return another module migrating the same schema of the same database, {@code null} if none.
+	 */
+	private Flyway findSharing(Flyway flyway) {
+		DataSource dataSource = getTargetDataSource(flyway);
+		Set<String> schemas = getSchemas(flyway);
+		for (Flyway other : this.flyways) {
+			if (other == flyway || getTargetDataSource(other) != dataSource) {
+				continue;
+			}
+			for (String schema : getSchemas(other)) {
+				if (schemas.contains(schema)) {
+					return other;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static DataSource getTargetDataSource(Flyway flyway) {
+		DataSource dataSource = flyway.getConfiguration().getDataSource();
+		// 绕过迁移时的拦截及会话共享包装
+		while (dataSource instanceof DelegatingDataSource) {
+			dataSource = ((DelegatingDataSource) dataSource).getTargetDataSource();
+		}
+		return dataSource;
+	}
+
+	/**
+	 * Return the schemas cleaned by the given module, the empty name standing for the default
+	 * schema of the connection.
+	 */
+	private static Set<String> getSchemas(Flyway flyway) {
+		Set<String> schemas = new HashSet<>();
+		for (String schema : flyway.getConfiguration().getSchemas()) {
+			schemas.add(schema.toLowerCase());
+		}
+		String defaultSchema = flyway.getConfiguration().getDefaultSchema();
+		if (defaultSchema != null) {
+			schemas.add(defaultSchema.toLowerCase());
+		}
+		if (schemas.isEmpty()) {
+			schemas.add("");
+		}
+		return schemas;
+	}
+
+	private static boolean isModified(ValidateResult validation) {
+		if (validation.validationSuccessful || validation.invalidMigrations == null) {
+			return false;
+		}
+		for (ValidateOutput output : validation.invalidMigrations) {
+			if (output.errorDetails != null && MODIFIED_ERRORS.contains(output.errorDetails.errorCode)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Duration getDebounce() {
+		return debounce;
+	}
+
+	/**
+	 * Set the quiet period after the last change before the changed modules are migrated.
+	 */
+	public void setDebounce(Duration debounce) {
+		this.debounce = debounce;
+	}
+
+	public boolean isCleanOnChange() {
+		return cleanOnChange;
+	}
+
+	/**
+	 * Set whether to clean a module whose applied scripts changed before migrating it again,
+	 * refused when another module migrates the same schema. Default is {@code false}.
+	 */
+	public void setCleanOnChange(boolean cleanOnChange) {
+		this.cleanOnChange = cleanOnChange;
+	}
+
+}
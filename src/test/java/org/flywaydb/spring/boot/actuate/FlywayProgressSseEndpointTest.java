@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.actuate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.flywaydb.spring.boot.ext.progress.FlywayProgressEvent;
+import org.flywaydb.spring.boot.ext.progress.FlywayProgressEvent.Type;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Checks that {@link FlywayProgressSseEndpoint} sends events off the migrating thread and
+ * drops them when its subscribers are too slow.
+ */
+public class FlywayProgressSseEndpointTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger sent = new AtomicInteger();
+
+    @Test
+    public void testSlowSubscriberDoesNotBlockMigration() throws Exception {
+        FlywayProgressSseEndpoint endpoint = new BlockingEndpoint(2);
+        try {
+            endpoint.subscribe();
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                endpoint.onApplicationEvent(event());
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "Migration thread was blocked");
+            // 一个事件发送中，两个排队，其余丢弃
+            assertEquals(7, endpoint.getDropped());
+
+            this.release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (this.sent.get() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, this.sent.get());
+        }
+        finally {
+            this.release.countDown();
+            endpoint.destroy();
+        }
+    }
+
+    private static FlywayProgressEvent event() {
+        return new FlywayProgressEvent(new Object(), Type.SCRIPT_PROGRESS, "order", null, "V1__init.sql", 1, 10, 100,
+                5);
+    }
+
+    /**
+     * An endpoint whose subscriber blocks on the first event until released.
+     */
+    private class BlockingEndpoint extends FlywayProgressSseEndpoint {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        BlockingEndpoint(int queueCapacity) {
+            super(0, queueCapacity);
+        }
+
+        @Override
+        protected SseEmitter createEmitter(long timeout) {
+            return new SseEmitter(timeout) {
+
+                @Override
+                public void send(SseEventBuilder builder) throws IOException {
+                    sending.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    sent.incrementAndGet();
+                }
+
+            };
+        }
+
+        @Override
+        public void onApplicationEvent(FlywayProgressEvent event) {
+            super.onApplicationEvent(event);
+            try {
+                // 首个事件进入发送后再发布其余事件，使排队数量确定
+                sending.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link FlywayDataSourceScheduler} migrates the modules of a database in order
+ * and different databases in parallel.
+ */
+public class FlywayDataSourceSchedulerTest {
+
+    private final FlywayDataSourceScheduler scheduler = new FlywayDataSourceScheduler();
+
+    @Test
+    public void testModulesOnSameUrlAreGrouped() throws Exception {
+        // 两个数据源实例指向同一数据库
+        Flyway order = module("order", newDataSource("jdbc:mysql://db/shop", "app"));
+        Flyway user = module("user", newDataSource("jdbc:mysql://db/shop", "app"));
+        List<List<String>> groups = Collections.synchronizedList(new ArrayList<>());
+
+        this.scheduler.migrateGroups(Arrays.asList(order, user), (group) -> groups.add(modules(group)));
+
+        assertEquals(Collections.singletonList(Arrays.asList("order", "user")), groups);
+    }
+
+    @Test
+    public void testModulesOnDifferentUsersAreNotGrouped() throws Exception {
+        Flyway order = module("order", newDataSource("jdbc:mysql://db/shop", "app"));
+        Flyway audit = module("audit", newDataSource("jdbc:mysql://db/shop", "auditor"));
+        List<List<String>> groups = Collections.synchronizedList(new ArrayList<>());
+
+        this.scheduler.migrateGroups(Arrays.asList(order, audit), (group) -> groups.add(modules(group)));
+
+        assertEquals(2, groups.size());
+    }
+
+    @Test
+    public void testDatabasesAreMigratedInParallel() throws Exception {
+        DataSource shard0 = newDataSource("jdbc:mysql://db0/shop", "app");
+        List<Flyway> flyways = Arrays.asList(module("order", shard0), module("user", shard0),
+                module("order", newDataSource("jdbc:mysql://db1/shop", "app")));
+        CountDownLatch started = new CountDownLatch(2);
+        List<String> migrated = Collections.synchronizedList(new ArrayList<>());
+
+        this.scheduler.migrate(flyways, (flyway) -> {
+            if (FlywayModule.getModule(flyway).equals("order")) {
+                started.countDown();
+                try {
+                    assertTrue(started.await(5, TimeUnit.SECONDS), "Databases were not migrated in parallel");
+                }
+                catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            migrated.add(FlywayModule.getModule(flyway));
+        });
+
+        assertEquals(3, migrated.size());
+        assertTrue(migrated.indexOf("user") > migrated.indexOf("order"));
+    }
+
+    @Test
+    public void testFailureIsRethrownAfterAllDatabases() throws Exception {
+        List<Flyway> flyways = Arrays.asList(module("order", newDataSource("jdbc:mysql://db0/shop", "app")),
+                module("user", newDataSource("jdbc:mysql://db1/shop", "app")));
+        List<String> migrated = Collections.synchronizedList(new ArrayList<>());
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> this.scheduler.migrate(flyways,
+                (flyway) -> {
+                    if (FlywayModule.getModule(flyway).equals("order")) {
+                        throw new IllegalStateException("order failed");
+                    }
+                    migrated.add(FlywayModule.getModule(flyway));
+                }));
+
+        assertEquals("order failed", ex.getMessage());
+        assertEquals(new HashSet<>(Collections.singletonList("user")), new HashSet<>(migrated));
+    }
+
+    private static List<String> modules(List<Flyway> group) {
+        List<String> modules = new ArrayList<>();
+        group.forEach((flyway) -> modules.add(FlywayModule.getModule(flyway)));
+        return modules;
+    }
+
+    private static Flyway module(String module, DataSource dataSource) {
+        return new FlywayModule(module, Flyway.configure().dataSource(dataSource));
+    }
+
+    private static DataSource newDataSource(String url, String user) throws SQLException {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getURL()).thenReturn(url);
+        when(metaData.getUserName()).thenReturn(user);
+        Connection connection = mock(Connection.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+}
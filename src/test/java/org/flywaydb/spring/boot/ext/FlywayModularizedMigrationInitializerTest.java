@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.spring.boot.ext.retry.FlywayRetryPolicy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that failures of module migrations reach the retry policy and the barrier through
+ * the default {@link FlywayMigrationProvider} strategy.
+ */
+public class FlywayModularizedMigrationInitializerTest {
+
+    @Test
+    public void testTransientFailureIsRetried() {
+        MigrateResult migrated = new MigrateResult("8.0.4", "h2", "PUBLIC");
+        FailingFlyway flyway = new FailingFlyway("order", 1, migrated);
+        FlywayModuleBarrier barrier = new FlywayModuleBarrier(Collections.singletonList(flyway));
+        FlywayModularizedMigrationInitializer initializer = newInitializer(flyway, barrier);
+
+        assertSame(migrated, initializer.migrateModule(flyway));
+        assertEquals(2, flyway.attempts.get());
+        assertTrue(barrier.getModule("order").isDone());
+        assertFalse(barrier.getModule("order").isCompletedExceptionally());
+    }
+
+    @Test
+    public void testFinalFailurePropagates() {
+        FailingFlyway flyway = new FailingFlyway("order", Integer.MAX_VALUE, null);
+        FlywayModuleBarrier barrier = new FlywayModuleBarrier(Collections.singletonList(flyway));
+        FlywayModularizedMigrationInitializer initializer = newInitializer(flyway, barrier);
+
+        FlywayException ex = assertThrows(FlywayException.class, () -> initializer.migrateModule(flyway));
+        assertEquals("40001", ((SQLException) ex.getCause()).getSQLState());
+        assertEquals(3, flyway.attempts.get());
+        assertTrue(barrier.getModule("order").isCompletedExceptionally());
+    }
+
+    @Test
+    public void testStartupFailurePropagates() {
+        FailingFlyway flyway = new FailingFlyway("order", Integer.MAX_VALUE, null);
+        FlywayModuleBarrier barrier = new FlywayModuleBarrier(Collections.singletonList(flyway));
+        FlywayModularizedMigrationInitializer initializer = newInitializer(flyway, barrier);
+
+        assertThrows(FlywayException.class, initializer::afterPropertiesSet);
+        assertTrue(barrier.getModule("order").isCompletedExceptionally());
+    }
+
+    private static FlywayModularizedMigrationInitializer newInitializer(Flyway flyway, FlywayModuleBarrier barrier) {
+        FlywayMigrationProvider strategy = new FlywayMigrationProvider();
+        strategy.setApplicationEventPublisher((event) -> {
+        });
+        FlywayRetryPolicy retryPolicy = new FlywayRetryPolicy((dataSource) -> "default");
+        retryPolicy.setInitialInterval(Duration.ofMillis(1));
+        FlywayModularizedMigrationInitializer initializer = new FlywayModularizedMigrationInitializer(
+                Collections.singletonList(flyway), strategy);
+        initializer.setRetryPolicy(retryPolicy);
+        initializer.setBarrier(barrier);
+        return initializer;
+    }
+
+    /**
+     * A module failing with a serialization failure a number of times before migrating.
+     */
+    private static class FailingFlyway extends FlywayModule {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private final int failures;
+
+        private final MigrateResult result;
+
+        FailingFlyway(String module, int failures, MigrateResult result) {
+            super(module, Flyway.configure());
+            this.failures = failures;
+            this.result = result;
+        }
+
+        @Override
+        public MigrateResult migrate() {
+            if (this.attempts.incrementAndGet() <= this.failures) {
+                throw new FlywayException("Deadlock", new SQLException("Deadlock", "40001"));
+            }
+            return this.result;
+        }
+
+        @Override
+        public MigrationInfoService info() {
+            MigrationInfoService info = mock(MigrationInfoService.class);
+            when(info.all()).thenReturn(new MigrationInfo[0]);
+            return info;
+        }
+
+    }
+
+}
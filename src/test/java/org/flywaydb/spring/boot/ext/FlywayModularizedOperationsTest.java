@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationState;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+
+/**
+ * Checks that {@link FlywayModularizedOperations} returns the results of the migrations and
+ * completes its futures exceptionally when they fail.
+ */
+public class FlywayModularizedOperationsTest {
+
+    @Test
+    public void testMigrateReturnsResult() throws Exception {
+        MigrateResult migrated = new MigrateResult("8.0.4", "h2", "PUBLIC");
+        FlywayModularizedOperations operations = newOperations(new FlywayMigrationProvider(),
+                new TestFlyway("order", migrated));
+
+        List<MigrateResult> results = operations.migrate("order").get();
+        assertEquals(1, results.size());
+        assertSame(migrated, results.get(0));
+    }
+
+    @Test
+    public void testMigrateFailureCompletesExceptionally() {
+        FlywayModularizedOperations operations = newOperations(new FlywayMigrationProvider(),
+                new TestFlyway("order", null));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> operations.migrate("order").get());
+        assertEquals("Migration of order failed", ex.getCause().getMessage());
+    }
+
+    @Test
+    public void testMigrateAllStopsAtFirstFailure() {
+        TestFlyway order = new TestFlyway("order", null);
+        TestFlyway user = new TestFlyway("user", new MigrateResult("8.0.4", "h2", "PUBLIC"));
+        FlywayModularizedOperations operations = newOperations(new FlywayMigrationProvider(), order, user);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> operations.migrateAll().get());
+        assertTrue(ex.getCause() instanceof FlywayException);
+        assertFalse(user.migrated);
+    }
+
+    @Test
+    public void testCustomStrategyResultFromHistory() throws Exception {
+        FlywayModularizedOperations operations = newOperations(Flyway::migrate,
+                new TestFlyway("order", new MigrateResult("8.0.4", "h2", "PUBLIC")));
+
+        MigrateResult result = operations.migrate("order").get().get(0);
+        assertTrue(result.success);
+        assertEquals("1", result.initialSchemaVersion);
+        assertEquals("2", result.targetSchemaVersion);
+        assertEquals(1, result.migrationsExecuted);
+        assertEquals("add status", result.migrations.get(0).description);
+    }
+
+    @Test
+    public void testCustomStrategySwallowingFailure() {
+        FlywayModularizedOperations operations = newOperations((flyway) -> {
+            try {
+                flyway.migrate();
+            }
+            catch (FlywayException ex) {
+                // 吞掉失败
+            }
+        }, new TestFlyway("order", null));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> operations.migrate("order").get());
+        assertEquals("Migration V2__add_status.sql of module 'order' failed", ex.getCause().getMessage());
+    }
+
+    private static FlywayModularizedOperations newOperations(FlywayMigrationStrategy strategy, Flyway... flyways) {
+        if (strategy instanceof FlywayMigrationProvider) {
+            ((FlywayMigrationProvider) strategy).setApplicationEventPublisher((event) -> {
+            });
+        }
+        FlywayModularizedMigrationInitializer initializer = new FlywayModularizedMigrationInitializer(
+                Arrays.asList(flyways), strategy);
+        return new FlywayModularizedOperations(initializer, Runnable::run);
+    }
+
+    private static MigrationInfo migration(int version, String description, MigrationState state) {
+        MigrationInfo migration = mock(MigrationInfo.class);
+        when(migration.getVersion()).thenReturn(MigrationVersion.fromVersion(String.valueOf(version)));
+        when(migration.getDescription()).thenReturn(description);
+        when(migration.getScript()).thenReturn("V" + version + "__" + description.replace(' ', '_') + ".sql");
+        when(migration.getType()).thenReturn(MigrationType.SQL);
+        when(migration.getInstalledRank()).thenReturn(version);
+        when(migration.getState()).thenReturn(state);
+        return migration;
+    }
+
+    /**
+     * A module applying version 2 on top of version 1, or recording it as failed without a result.
+     */
+    private static class TestFlyway extends FlywayModule {
+
+        private final MigrateResult result;
+
+        private volatile boolean migrated;
+
+        TestFlyway(String module, MigrateResult result) {
+            super(module, Flyway.configure());
+            this.result = result;
+        }
+
+        @Override
+        public MigrateResult migrate() {
+            this.migrated = true;
+            if (this.result == null) {
+                throw new FlywayException("Migration of " + getModule() + " failed");
+            }
+            return this.result;
+        }
+
+        @Override
+        public MigrationInfoService info() {
+            MigrationInfo initial = migration(1, "init", MigrationState.SUCCESS);
+            List<MigrationInfo> applied = !this.migrated ? Collections.singletonList(initial)
+                    : Arrays.asList(initial, migration(2, "add status",
+                            (this.result != null) ? MigrationState.SUCCESS : MigrationState.FAILED));
+            MigrationInfoService info = mock(MigrationInfoService.class);
+            when(info.all()).thenReturn(applied.toArray(new MigrationInfo[0]));
+            when(info.applied()).thenReturn(applied.toArray(new MigrationInfo[0]));
+            when(info.current()).thenReturn(applied.get(applied.size() - 1));
+            return info;
+        }
+
+    }
+
+}
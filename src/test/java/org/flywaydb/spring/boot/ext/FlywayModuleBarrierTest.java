@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link FlywayModuleBarrier} completes modules and tiers once all of their
+ * instances arrived.
+ */
+public class FlywayModuleBarrierTest {
+
+    private final Flyway orderA = new FlywayModule("order", "a", 0, Flyway.configure());
+
+    private final Flyway orderB = new FlywayModule("order", "b", 0, Flyway.configure());
+
+    private final Flyway report = new FlywayModule("report", null, 1, Flyway.configure());
+
+    private final FlywayModuleBarrier barrier = new FlywayModuleBarrier(
+            Arrays.asList(this.orderA, this.orderB, this.report));
+
+    @Test
+    public void testModuleWaitsForEveryTenant() {
+        this.barrier.migrated(this.orderA);
+        assertFalse(this.barrier.getModule("order").isDone());
+        assertFalse(this.barrier.getTier(0).isDone());
+
+        this.barrier.migrated(this.orderB);
+        assertTrue(this.barrier.getModule("order").isDone());
+        assertTrue(this.barrier.getTier(0).isDone());
+        assertFalse(this.barrier.getTier(1).isDone());
+        this.barrier.awaitTier(0, Duration.ofMillis(10));
+    }
+
+    @Test
+    public void testFailedTenantFailsModule() {
+        IllegalStateException failure = new IllegalStateException("Tenant b failed");
+        this.barrier.failed(this.orderB, failure);
+        assertTrue(this.barrier.getModule("order").isCompletedExceptionally());
+
+        this.barrier.migrated(this.orderA);
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> this.barrier.awaitModule("order", null));
+        assertEquals("Migration of module 'order' failed", ex.getMessage());
+        assertSame(failure, ex.getCause());
+    }
+
+    @Test
+    public void testAwaitTimesOut() {
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> this.barrier.awaitModule("report", Duration.ofMillis(10)));
+        assertEquals("Timed out waiting for the migration of module 'report'", ex.getMessage());
+    }
+
+    @Test
+    public void testTiers() {
+        assertEquals(0, this.barrier.getModuleTier("order"));
+        assertEquals(1, this.barrier.getModuleTier("report"));
+        assertTrue(this.barrier.getTier(2).isDone());
+        assertFalse(this.barrier.hasModule("user"));
+        assertThrows(IllegalStateException.class, () -> this.barrier.getModule("user"));
+    }
+
+}
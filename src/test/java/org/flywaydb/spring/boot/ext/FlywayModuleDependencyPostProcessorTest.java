@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Checks that under concurrent startup {@link FlywayModuleDependencyPostProcessor} only makes
+ * annotated beans and EntityManagerFactory beans wait for the migrations.
+ */
+public class FlywayModuleDependencyPostProcessorTest {
+
+    private final Flyway order = new FlywayModule("order", Flyway.configure());
+
+    private final Flyway user = new FlywayModule("user", Flyway.configure());
+
+    private final FlywayModuleBarrier barrier = new FlywayModuleBarrier(Arrays.asList(this.order, this.user));
+
+    private final FlywayModuleDependencyPostProcessor postProcessor = newPostProcessor();
+
+    @Test
+    public void testJdbcOperationsDoNotWait() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(mock(DataSource.class));
+
+        assertSame(jdbcTemplate, this.postProcessor.postProcessBeforeInitialization(jdbcTemplate, "jdbcTemplate"));
+    }
+
+    @Test
+    public void testAnnotatedBeanWaitsForItsModulesOnly() {
+        OrderRepository repository = new OrderRepository();
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> this.postProcessor.postProcessBeforeInitialization(repository, "orderRepository"));
+        assertTrue(ex.getMessage().startsWith("Timed out"), ex.getMessage());
+
+        this.barrier.migrated(this.order);
+        // 模块 user 仍未完成
+        assertSame(repository, this.postProcessor.postProcessBeforeInitialization(repository, "orderRepository"));
+    }
+
+    @Test
+    public void testEntityManagerFactoryWaitsForTier() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        this.barrier.migrated(this.order);
+
+        assertThrows(IllegalStateException.class,
+                () -> this.postProcessor.postProcessBeforeInitialization(entityManagerFactory, "entityManagerFactory"));
+        this.barrier.migrated(this.user);
+        assertSame(entityManagerFactory,
+                this.postProcessor.postProcessBeforeInitialization(entityManagerFactory, "entityManagerFactory"));
+    }
+
+    private FlywayModuleDependencyPostProcessor newPostProcessor() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("flywayModuleInitializer", mock(FlywayModularizedMigrationInitializer.class));
+        beanFactory.registerSingleton("flywayModuleBarrier", this.barrier);
+        FlywayModuleDependencyPostProcessor postProcessor = new FlywayModuleDependencyPostProcessor(true);
+        postProcessor.setBeanFactory(beanFactory);
+        postProcessor.setStartupTimeout(Duration.ofMillis(50));
+        return postProcessor;
+    }
+
+    @DependsOnFlywayModule("order")
+    static class OrderRepository {
+
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.backfill;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the parsing of backfill files by {@link FlywayBackfill#parse(String)}.
+ */
+public class FlywayBackfillTest {
+
+    @Test
+    public void testHeadersAndStatement() {
+        FlywayBackfill backfill = FlywayBackfill.parse("-- backfill the status codes\n"
+                + "# generated\n"
+                + "table: orders\n"
+                + "Key: id\n"
+                + "batch-size: 500\n"
+                + "where: status = 'NEW'\n"
+                + "\n"
+                + "UPDATE orders SET status_code = 1\n"
+                + " WHERE status = 'NEW' AND id > :from AND id <= :to;\n");
+        assertEquals("orders", backfill.getTable());
+        assertEquals("id", backfill.getKey());
+        assertEquals(Integer.valueOf(500), backfill.getBatchSize());
+        assertEquals("status = 'NEW'", backfill.getWhere());
+        assertEquals("UPDATE orders SET status_code = 1\n WHERE status = 'NEW' AND id > ? AND id <= ?",
+                backfill.getUpdate());
+        assertEquals(Arrays.asList("from", "to"), backfill.getBounds());
+    }
+
+    @Test
+    public void testDefaults() {
+        FlywayBackfill backfill = FlywayBackfill.parse("\n\ntable: app.orders\nkey: id\n\n"
+                + "UPDATE app.orders SET flag = 0 WHERE id > :from AND id <= :to");
+        assertEquals("app.orders", backfill.getTable());
+        assertNull(backfill.getBatchSize());
+        assertNull(backfill.getWhere());
+        assertEquals("UPDATE app.orders SET flag = 0 WHERE id > ? AND id <= ?", backfill.getUpdate());
+    }
+
+    @Test
+    public void testBoundsInStatementOrder() {
+        FlywayBackfill backfill = FlywayBackfill.parse("table: orders\nkey: id\n\n"
+                + "UPDATE orders SET flag = 1 WHERE id BETWEEN :from + 1 AND :to AND :to > :from");
+        assertEquals("UPDATE orders SET flag = 1 WHERE id BETWEEN ? + 1 AND ? AND ? > ?", backfill.getUpdate());
+        assertEquals(Arrays.asList("from", "to", "to", "from"), backfill.getBounds());
+    }
+
+    @Test
+    public void testMissingBound() {
+        FlywayException ex = assertThrows(FlywayException.class, () -> FlywayBackfill
+                .parse("table: orders\nkey: id\n\nUPDATE orders SET flag = 1 WHERE id > :from"));
+        assertTrue(ex.getMessage().startsWith("Backfill statement must restrict the key with :from and :to"));
+    }
+
+    @Test
+    public void testUnknownHeader() {
+        FlywayException ex = assertThrows(FlywayException.class, () -> FlywayBackfill
+                .parse("table: orders\norder: id\n\nUPDATE orders SET flag = 1 WHERE id > :from AND id <= :to"));
+        assertEquals("Unknown backfill header: order: id", ex.getMessage());
+    }
+
+    @Test
+    public void testInvalidHeaderLine() {
+        FlywayException ex = assertThrows(FlywayException.class, () -> FlywayBackfill
+                .parse("table orders\nkey: id\n\nUPDATE orders SET flag = 1 WHERE id > :from AND id <= :to"));
+        assertEquals("Invalid backfill header line: table orders", ex.getMessage());
+    }
+
+    @Test
+    public void testInvalidIdentifiers() {
+        FlywayException table = assertThrows(FlywayException.class, () -> FlywayBackfill
+                .parse("table: orders; DROP TABLE users\nkey: id\n\nUPDATE orders SET flag = 1 WHERE id > :from AND id <= :to"));
+        assertEquals("Invalid backfill table: orders; DROP TABLE users", table.getMessage());
+        FlywayException key = assertThrows(FlywayException.class, () -> FlywayBackfill
+                .parse("table: orders\n\nUPDATE orders SET flag = 1 WHERE id > :from AND id <= :to"));
+        assertEquals("Invalid backfill key: null", key.getMessage());
+    }
+
+    @Test
+    public void testMissingStatement() {
+        FlywayException ex = assertThrows(FlywayException.class,
+                () -> FlywayBackfill.parse("table: orders\nkey: id\n\n  ;\n"));
+        assertEquals("Backfill has no update statement", ex.getMessage());
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.background;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.FlywayModuleBarrier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+
+/**
+ * Checks that {@link FlywayBackgroundMigrations} waits for the modules and isolates the
+ * failures of the background migrations.
+ */
+public class FlywayBackgroundMigrationsTest {
+
+    private final List<String> migrated = Collections.synchronizedList(new ArrayList<>());
+
+    private final Flyway order = new FlywayModule("order", Flyway.configure());
+
+    private final Flyway user = new FlywayModule("user", Flyway.configure());
+
+    private final FlywayModuleBarrier barrier = new FlywayModuleBarrier(Arrays.asList(this.order, this.user));
+
+    private final FlywayBackgroundMigrations migrations = new TestBackgroundMigrations();
+
+    @AfterEach
+    public void destroy() {
+        this.migrations.destroy();
+    }
+
+    @Test
+    public void testFailedModuleSkipsItsBackgroundMigrations() throws Exception {
+        this.barrier.failed(this.order, new FlywayException("Migration of order failed"));
+        this.barrier.migrated(this.user);
+        start();
+
+        assertEquals(Collections.singletonList("user"), this.migrated);
+    }
+
+    @Test
+    public void testBackgroundMigrationsWaitForTheirModule() throws Exception {
+        this.migrations.setMaxConcurrent(2);
+        this.migrations.onApplicationEvent(mock(ApplicationReadyEvent.class));
+        Thread.sleep(50);
+        assertEquals(Collections.emptyList(), this.migrated);
+
+        this.barrier.migrated(this.order);
+        this.barrier.migrated(this.user);
+        this.migrations.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(2, this.migrated.size());
+    }
+
+    @Test
+    public void testFailedBackgroundMigrationDoesNotFailOthers() throws Exception {
+        this.barrier.migrated(this.order);
+        this.barrier.migrated(this.user);
+        this.migrated.add("fail:order");
+        start();
+
+        assertFalse(this.migrations.getCompletion().isCompletedExceptionally());
+        assertEquals(Arrays.asList("fail:order", "user"), this.migrated);
+    }
+
+    private void start() throws Exception {
+        this.migrations.onApplicationEvent(mock(ApplicationReadyEvent.class));
+        this.migrations.getCompletion().get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records the background migrations instead of running them, failing the modules
+     * recorded with a "fail:" prefix.
+     */
+    private class TestBackgroundMigrations extends FlywayBackgroundMigrations {
+
+        TestBackgroundMigrations() {
+            super(Arrays.asList(order, user), new FlywayBackgroundThrottle());
+            setBarrier(barrier);
+        }
+
+        @Override
+        protected Flyway createBackgroundFlyway(Flyway flyway) {
+            String module = FlywayModule.getModule(flyway);
+            return new FlywayModule(module, Flyway.configure()) {
+
+                @Override
+                public MigrationInfoService info() {
+                    MigrationInfoService info = mock(MigrationInfoService.class);
+                    when(info.pending()).thenReturn(new MigrationInfo[] { mock(MigrationInfo.class) });
+                    return info;
+                }
+
+                @Override
+                public MigrateResult migrate() {
+                    if (migrated.contains("fail:" + module)) {
+                        throw new FlywayException("Background migration of " + module + " failed");
+                    }
+                    migrated.add(module);
+                    return new MigrateResult("8.0.4", "h2", "PUBLIC");
+                }
+
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.background;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link FlywayBackgroundThrottle} only waits when the connection holds no open
+ * transaction.
+ */
+public class FlywayBackgroundThrottleTest {
+
+    @Test
+    public void testAutoCommitStatementsAreThrottled() throws Exception {
+        FlywayBackgroundThrottle throttle = newThrottle();
+        Statement statement = statement(true);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            throttle.beforeStatement(statement, "UPDATE orders SET flag = 1");
+        }
+        assertTrue(elapsedMillis(start) >= 180, "Statements were not throttled");
+    }
+
+    @Test
+    public void testTransactionIsThrottledAfterCompletion() throws Exception {
+        FlywayBackgroundThrottle throttle = newThrottle();
+        Statement statement = statement(false);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            throttle.beforeStatement(statement, "UPDATE orders SET flag = 1");
+        }
+        assertTrue(elapsedMillis(start) < 100, "Throttle slept inside a transaction");
+
+        throttle.afterCompletion(statement.getConnection());
+        assertTrue(elapsedMillis(start) >= 180, "Transaction was not throttled after its completion");
+    }
+
+    @Test
+    public void testInterruptAbortsBeforeNextStatement() throws Exception {
+        FlywayBackgroundThrottle throttle = newThrottle();
+        Statement statement = statement(false);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(SQLException.class, () -> throttle.beforeStatement(statement, "UPDATE orders SET flag = 1"));
+        }
+        finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static FlywayBackgroundThrottle newThrottle() {
+        FlywayBackgroundThrottle throttle = new FlywayBackgroundThrottle();
+        // 每条语句间隔 100ms
+        throttle.setStatementsPerSecond(10);
+        return throttle;
+    }
+
+    private static Statement statement(boolean autoCommit) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(autoCommit);
+        Statement statement = mock(Statement.class);
+        when(statement.getConnection()).thenReturn(connection);
+        return statement;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.flywaydb.spring.boot.ext.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link WildcardMatcher} gives the same answers as
+ * {@link FilenameUtils#wildcardMatch(String, String, IOCase)}.
+ */
+public class WildcardMatcherTest {
+
+    /** Includes characters whose upper and lower case forms do not round trip. */
+    private static final String NAME_CHARS = "aAbB./_İıiIkKsSß";
+
+    private static final String PATTERN_CHARS = NAME_CHARS + "**??";
+
+    @Test
+    public void testShapes() {
+        for (final IOCase caseSensitivity : IOCase.values()) {
+            for (final String pattern : Arrays.asList("", "*", "V1__init.sql", "*.sql", "db/*", "V?__*.sql",
+                    "db/migration/module1*/*/V*__*.sql", "*module?/mysql/*", "a*b*c", "***", "*a*")) {
+                for (final String name : Arrays.asList("", "V1__init.sql", "v1__INIT.SQL", "db/V1__init.sql",
+                        "DB/x", "V12__init.sql", "db/migration/module1/mysql/V1__a.sql", "x_module1/mysql/y",
+                        "abc", "aXbYc", "acb", "a")) {
+                    assertSame(pattern, name, caseSensitivity);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCaseSensitivity() {
+        assertTrue(FilenameUtils.compileWildcard("*.SQL", IOCase.INSENSITIVE).matches("V1__init.sql"));
+        assertFalse(FilenameUtils.compileWildcard("*.SQL", IOCase.SENSITIVE).matches("V1__init.sql"));
+        assertFalse(FilenameUtils.compileWildcard("*.SQL", null).matches("V1__init.sql"));
+        assertEquals(IOCase.SYSTEM.isCaseSensitive(),
+                FilenameUtils.compileWildcard("V*", IOCase.SYSTEM).isCaseSensitive());
+    }
+
+    @Test
+    public void testNullFilename() {
+        assertFalse(FilenameUtils.compileWildcard("*", IOCase.SENSITIVE).matches(null));
+        assertFalse(WildcardMatcher.matchesAny(null, Arrays.asList(FilenameUtils.compileWildcard("*", null))));
+        assertFalse(WildcardMatcher.matchesAny("a", null));
+    }
+
+    @Test
+    public void testRandomEquivalence() {
+        final Random random = new Random(20211115L);
+        for (final IOCase caseSensitivity : IOCase.values()) {
+            for (int i = 0; i < 200000; i++) {
+                final String pattern = random(random, PATTERN_CHARS, 8);
+                // documented as not working in wildcardMatch
+                if (pattern.contains("*?")) {
+                    continue;
+                }
+                assertSame(pattern, random(random, NAME_CHARS, 10), caseSensitivity);
+            }
+        }
+    }
+
+    private static void assertSame(final String pattern, final String name, final IOCase caseSensitivity) {
+        assertEquals(FilenameUtils.wildcardMatch(name, pattern, caseSensitivity),
+                FilenameUtils.compileWildcard(pattern, caseSensitivity).matches(name),
+                () -> "'" + pattern + "' against '" + name + "' (" + caseSensitivity + ")");
+    }
+
+    private static String random(final Random random, final String chars, final int maxLength) {
+        final char[] text = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = chars.charAt(random.nextInt(chars.length()));
+        }
+        return new String(text);
+    }
+
+}
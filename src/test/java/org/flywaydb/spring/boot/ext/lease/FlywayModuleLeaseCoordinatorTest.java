@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.lease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationState;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link FlywayModuleLeaseCoordinator} shares independent modules between nodes,
+ * orders dependent ones and migrates each module once.
+ */
+public class FlywayModuleLeaseCoordinatorTest {
+
+    private final Set<String> applied = ConcurrentHashMap.newKeySet();
+
+    private final List<String> migrations = Collections.synchronizedList(new ArrayList<>());
+
+    private final InMemoryLeaseRepository repository = new InMemoryLeaseRepository();
+
+    @Test
+    public void testIndependentModulesMigrateInParallel() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        Consumer<Flyway> migration = (flyway) -> {
+            started.countDown();
+            try {
+                // 两个模块同时处于迁移中，说明由两个节点并行迁移
+                assertTrue(started.await(5, TimeUnit.SECONDS), "Modules were not migrated in parallel");
+            }
+            catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            migrate(flyway);
+        };
+        runNodes(migration, module("order"), module("user"));
+
+        assertEquals(2, this.migrations.size());
+        assertEquals(new HashSet<>(Arrays.asList("order", "user")), new HashSet<>(this.migrations));
+    }
+
+    @Test
+    public void testDependentModuleWaitsForItsDependency() throws Exception {
+        Consumer<Flyway> migration = (flyway) -> {
+            if (FlywayModule.getModule(flyway).equals("user")) {
+                assertTrue(this.applied.contains("order"), "Module 'user' migrated before 'order'");
+            }
+            sleep(50);
+            migrate(flyway);
+        };
+        runNodes(migration, module("user", "order"), module("order"));
+
+        assertEquals(Arrays.asList("order", "user"), this.migrations);
+    }
+
+    @Test
+    public void testCompletedModuleIsSkipped() {
+        Flyway order = module("order");
+        newCoordinator("a").migrate(Collections.singletonList(order), this::migrate);
+        newCoordinator("b").migrate(Collections.singletonList(module("order")), this::migrate);
+
+        assertEquals(Collections.singletonList("order"), this.migrations);
+    }
+
+    @Test
+    public void testCompletedModuleIsMigratedWithNewMigrations() {
+        newCoordinator("a").migrate(Collections.singletonList(module("order")), this::migrate);
+        this.applied.clear();
+        newCoordinator("b").migrate(Collections.singletonList(module("order", 2)), this::migrate);
+
+        assertEquals(Arrays.asList("order", "order"), this.migrations);
+    }
+
+    @Test
+    public void testCompletedModuleIsMigratedOnDemand() {
+        newCoordinator("a").migrate(Collections.singletonList(module("order")), this::migrate);
+        newCoordinator("b").migrate(Collections.singletonList(module("order")), this::migrate, false);
+
+        assertEquals(Arrays.asList("order", "order"), this.migrations);
+    }
+
+    private void runNodes(Consumer<Flyway> migration, Flyway... flyways) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> nodes = new ArrayList<>();
+            for (String owner : Arrays.asList("a", "b")) {
+                FlywayModuleLeaseCoordinator coordinator = newCoordinator(owner);
+                nodes.add(executor.submit(() -> coordinator.migrate(Arrays.asList(flyways), migration)));
+            }
+            for (Future<?> node : nodes) {
+                node.get(10, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FlywayModuleLeaseCoordinator newCoordinator(String owner) {
+        FlywayModuleLeaseCoordinator coordinator = new FlywayModuleLeaseCoordinator(this.repository);
+        coordinator.setOwner(owner);
+        coordinator.setPollInterval(Duration.ofMillis(10));
+        coordinator.setWaitTimeout(Duration.ofSeconds(10));
+        return coordinator;
+    }
+
+    private void migrate(Flyway flyway) {
+        this.migrations.add(FlywayModule.getModule(flyway));
+        this.applied.add(FlywayModule.getModule(flyway));
+    }
+
+    private Flyway module(String module, String... dependsOn) {
+        return module(module, 1, dependsOn);
+    }
+
+    private Flyway module(String module, int version, String... dependsOn) {
+        return new FlywayModule(module, null, 0, Arrays.asList(dependsOn), Flyway.configure()) {
+
+            @Override
+            public MigrationInfoService info() {
+                boolean current = applied.contains(module);
+                MigrationInfo migration = mock(MigrationInfo.class);
+                when(migration.getVersion()).thenReturn(MigrationVersion.fromVersion(String.valueOf(version)));
+                when(migration.getDescription()).thenReturn("init");
+                when(migration.getType()).thenReturn(MigrationType.SQL);
+                when(migration.getChecksum()).thenReturn(version);
+                when(migration.getState()).thenReturn(current ? MigrationState.SUCCESS : MigrationState.PENDING);
+                MigrationInfoService info = mock(MigrationInfoService.class);
+                when(info.all()).thenReturn(new MigrationInfo[] { migration });
+                when(info.pending()).thenReturn(current ? new MigrationInfo[0] : new MigrationInfo[] { migration });
+                return info;
+            }
+
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The lease table of a shared database.
+     */
+    private static class InMemoryLeaseRepository extends FlywayModuleLeaseRepository {
+
+        private final Map<String, String[]> leases = new HashMap<>();
+
+        InMemoryLeaseRepository() {
+            super(mock(DataSource.class), "flyway_module_lease");
+        }
+
+        @Override
+        public void createTableIfNecessary() {
+        }
+
+        @Override
+        public synchronized boolean tryAcquire(String module, String owner, long now, long expiresAt) {
+            String[] lease = this.leases.get(module);
+            if (lease != null && Long.parseLong(lease[1]) >= now && !lease[0].equals(owner)) {
+                return false;
+            }
+            this.leases.put(module, new String[] { owner, String.valueOf(expiresAt), (lease != null) ? lease[2] : null });
+            return true;
+        }
+
+        @Override
+        public synchronized boolean renew(String module, String owner, long expiresAt) {
+            String[] lease = this.leases.get(module);
+            if (lease == null || !lease[0].equals(owner)) {
+                return false;
+            }
+            lease[1] = String.valueOf(expiresAt);
+            return true;
+        }
+
+        @Override
+        public synchronized void release(String module, String owner) {
+            String[] lease = this.leases.get(module);
+            if (lease != null && lease[0].equals(owner)) {
+                lease[1] = "0";
+            }
+        }
+
+        @Override
+        public synchronized void complete(String module, String owner, String fingerprint) {
+            String[] lease = this.leases.get(module);
+            if (lease != null && lease[0].equals(owner)) {
+                lease[1] = "0";
+                lease[2] = fingerprint;
+            }
+        }
+
+        @Override
+        public synchronized boolean isHeld(String module, String owner, long now) {
+            String[] lease = this.leases.get(module);
+            return lease != null && !lease[0].equals(owner) && Long.parseLong(lease[1]) >= now;
+        }
+
+        @Override
+        public synchronized String getCompleted(String module) {
+            String[] lease = this.leases.get(module);
+            return (lease != null) ? lease[2] : null;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.migration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Checks that {@link FlywayModuleMigrationCustomizer} keeps module migrations out of other
+ * Flyway configurations.
+ */
+public class FlywayModuleMigrationCustomizerTest {
+
+    @Test
+    public void testModuleMigrationsAreRemoved() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Migrations.class)) {
+            JavaMigration main = context.getBean("mainMigration", JavaMigration.class);
+            FluentConfiguration configuration = Flyway.configure()
+                    .javaMigrations(context.getBeansOfType(JavaMigration.class).values().toArray(new JavaMigration[0]));
+
+            new FlywayModuleMigrationCustomizer(context).customize(configuration);
+
+            assertArrayEquals(new JavaMigration[] { main }, configuration.getJavaMigrations());
+        }
+    }
+
+    @Test
+    public void testModuleMigrationsAreCollected() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Migrations.class)) {
+            FlywayModuleMigrations migrations = FlywayModuleMigrations.of(context);
+
+            assertEquals(1, migrations.getMigrations("order").size());
+            assertEquals(1, migrations.getMigrations("user").size());
+            assertEquals(migrations.getMigrations("order"), migrations.getMigrations("user"));
+        }
+    }
+
+    @Configuration
+    static class Migrations {
+
+        @Bean
+        @FlywayModuleMigration({ "order", "user" })
+        public JavaMigration moduleMigration() {
+            return new V2__Module();
+        }
+
+        @Bean
+        public JavaMigration mainMigration() {
+            return new V3__Main();
+        }
+
+    }
+
+    static class V2__Module extends BaseJavaMigration {
+
+        @Override
+        public void migrate(Context context) {
+        }
+
+    }
+
+    static class V3__Main extends BaseJavaMigration {
+
+        @Override
+        public void migrate(Context context) {
+        }
+
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.resource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.spring.boot.ext.placeholder.FlywayPlaceholderTemplateCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Checks the placeholders and checksums of scripts read with compiled templates, and the
+ * use of the location index by {@link FlywaySpringResourceProvider}.
+ */
+public class FlywaySpringResourceProviderTest {
+
+    private static final String SCRIPT = "CREATE TABLE ${flyway:defaultSchema}.orders (id INT);\n"
+            + "-- ${flyway:database} ${flyway:user} ${flyway:table} ${flyway:filename}\n";
+
+    @TempDir
+    Path locations;
+
+    @Test
+    public void testConnectionPlaceholders() throws Exception {
+        FlywaySpringResource resource = getResource(Flyway.configure());
+
+        assertTrue(resource.isTemplate());
+        assertEquals("CREATE TABLE app.orders (id INT);\n"
+                + "-- shop deployer flyway_schema_history V1__init.sql\n", read(resource));
+    }
+
+    @Test
+    public void testConfiguredSchemaTakesPrecedence() throws Exception {
+        FlywaySpringResource resource = getResource(Flyway.configure().defaultSchema("sales"));
+
+        assertTrue(read(resource).startsWith("CREATE TABLE sales.orders"));
+    }
+
+    @Test
+    public void testChecksums() throws Exception {
+        FlywaySpringResource resource = getResource(Flyway.configure());
+        FlywaySpringResource raw = new FlywaySpringResource(resource.getResource(), resource.getAbsolutePath(),
+                resource.getRelativePath(), StandardCharsets.UTF_8);
+
+        assertFalse(raw.isTemplate());
+        assertEquals(raw.getChecksum(), resource.getRawChecksum());
+        assertNotEquals(resource.getRawChecksum(), resource.getChecksum());
+        assertEquals(raw.getChecksum(), raw.getRawChecksum());
+    }
+
+    @Test
+    public void testChecksumIgnoresLineEndingsAndBom() throws Exception {
+        FlywaySpringResource unix = getResource(Flyway.configure(), "A;\nB;\n");
+        int checksum = unix.getRawChecksum();
+        assertEquals(checksum, getResource(Flyway.configure(), "\uFEFFA;\r\nB;\r\n").getRawChecksum());
+    }
+
+    @Test
+    public void testRepairOfRawChecksum() throws Exception {
+        FluentConfiguration configuration = Flyway.configure();
+        FlywaySpringResourceProvider provider = getProvider(configuration, SCRIPT);
+        FlywaySpringResource resource = (FlywaySpringResource) provider.getResource("V1__init.sql");
+        PreparedStatement update = repair(provider, configuration, resource.getRawChecksum());
+
+        verify(update).setInt(1, resource.getChecksum());
+        verify(update).setInt(2, 1);
+        verify(update).executeUpdate();
+    }
+
+    @Test
+    public void testChangedChecksumIsNotRepaired() throws Exception {
+        FluentConfiguration configuration = Flyway.configure();
+        FlywaySpringResourceProvider provider = getProvider(configuration, SCRIPT);
+        FlywaySpringResource resource = (FlywaySpringResource) provider.getResource("V1__init.sql");
+        PreparedStatement update = repair(provider, configuration, resource.getRawChecksum() + 1);
+
+        verify(update, never()).executeUpdate();
+    }
+
+    @Test
+    public void testIndexedLocation() throws Exception {
+        FlywaySpringResourceProvider provider = getIndexedProvider("db/migration/V1__init.sql",
+                "db/migration/V2__orders.sql");
+
+        assertEquals(new TreeSet<>(Arrays.asList("V1__init.sql", "V2__orders.sql")),
+                new TreeSet<>(provider.getResources().keySet()));
+    }
+
+    @Test
+    public void testLocationMissingFromIndexIsScanned() throws Exception {
+        FlywaySpringResourceProvider provider = getIndexedProvider("db/other/V1__init.sql");
+
+        assertEquals(2, provider.getResources().size());
+    }
+
+    @Test
+    public void testStaleIndexFails() throws Exception {
+        FlywaySpringResourceProvider provider = getIndexedProvider("db/migration/V1__init.sql");
+
+        FlywayException ex = assertThrows(FlywayException.class, provider::getResources);
+        assertTrue(ex.getMessage().contains("[V2__orders.sql]"), ex.getMessage());
+    }
+
+    private FlywaySpringResourceProvider getIndexedProvider(String... indexed) throws Exception {
+        Path classpath = Files.createTempDirectory(this.locations, "classes");
+        Path location = Files.createDirectories(classpath.resolve("db/migration"));
+        Files.write(location.resolve("V1__init.sql"), "SELECT 1;\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(location.resolve("V2__orders.sql"), "SELECT 2;\n".getBytes(StandardCharsets.UTF_8));
+        ClassLoader classLoader = new URLClassLoader(new URL[] { classpath.toUri().toURL() }, null);
+        FlywaySpringResourceProvider provider = new FlywaySpringResourceProvider(
+                new PathMatchingResourcePatternResolver(classLoader),
+                Flyway.configure(classLoader).locations("classpath:db/migration"));
+        provider.setLocationIndex(new FlywayLocationIndex(new LinkedHashSet<>(Arrays.asList(indexed))));
+        return provider;
+    }
+
+    private static PreparedStatement repair(FlywaySpringResourceProvider provider, FluentConfiguration configuration,
+            int recorded) throws SQLException {
+        ResultSet history = mock(ResultSet.class);
+        when(history.next()).thenReturn(true, false);
+        when(history.getInt(1)).thenReturn(1);
+        when(history.getString(2)).thenReturn("V1__init.sql");
+        when(history.getInt(3)).thenReturn(recorded);
+        PreparedStatement select = mock(PreparedStatement.class);
+        when(select.executeQuery()).thenReturn(history);
+        PreparedStatement update = mock(PreparedStatement.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getIdentifierQuoteString()).thenReturn("\"");
+        Connection connection = mock(Connection.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(connection.prepareStatement(anyString()))
+                .thenAnswer((invocation) -> invocation.<String>getArgument(0).startsWith("SELECT") ? select : update);
+        Context context = mock(Context.class);
+        when(context.getConnection()).thenReturn(connection);
+        when(context.getConfiguration()).thenReturn(configuration);
+
+        FlywayTemplateChecksumRepair repair = new FlywayTemplateChecksumRepair(provider);
+        assertTrue(repair.supports(Event.BEFORE_VALIDATE, context));
+        repair.handle(Event.BEFORE_VALIDATE, context);
+        return update;
+    }
+
+    private FlywaySpringResource getResource(FluentConfiguration configuration) throws Exception {
+        return getResource(configuration, SCRIPT);
+    }
+
+    private FlywaySpringResource getResource(FluentConfiguration configuration, String script) throws Exception {
+        return (FlywaySpringResource) getProvider(configuration, script).getResource("V1__init.sql");
+    }
+
+    private FlywaySpringResourceProvider getProvider(FluentConfiguration configuration, String script)
+            throws Exception {
+        Path location = Files.createTempDirectory(this.locations, "db");
+        FileCopyUtils.copy(script.getBytes(StandardCharsets.UTF_8), location.resolve("V1__init.sql").toFile());
+        configuration.dataSource(newDataSource()).locations("filesystem:" + location);
+        return new FlywaySpringResourceProvider(new PathMatchingResourcePatternResolver(), configuration,
+                new FlywayPlaceholderTemplateCache(16));
+    }
+
+    private static DataSource newDataSource() throws SQLException {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getUserName()).thenReturn("deployer");
+        Connection connection = mock(Connection.class);
+        when(connection.getCatalog()).thenReturn("shop");
+        when(connection.getSchema()).thenReturn("app");
+        when(connection.getMetaData()).thenReturn(metaData);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    private static String read(FlywaySpringResource resource) throws IOException {
+        return FileCopyUtils.copyToString(resource.read());
+    }
+
+}
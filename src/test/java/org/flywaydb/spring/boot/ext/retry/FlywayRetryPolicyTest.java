@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.retry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationState;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which failures {@link FlywayRetryPolicy} retries.
+ */
+public class FlywayRetryPolicyTest {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    public void testVendorSqlStateIsRetried() {
+        FlywayRetryPolicy policy = newPolicy("postgresql");
+        assertEquals("migrated", policy.call(module(), failing(2, new SQLException("Deadlock", "40P01"))));
+        assertEquals(3, this.attempts.get());
+    }
+
+    @Test
+    public void testSqlStateOfOtherVendorIsNotRetried() {
+        FlywayRetryPolicy policy = newPolicy("mysql");
+        assertThrows(FlywayException.class,
+                () -> policy.call(module(), failing(1, new SQLException("Deadlock", "40P01"))));
+        assertEquals(1, this.attempts.get());
+    }
+
+    @Test
+    public void testConfiguredSqlStates() {
+        FlywayRetryPolicy policy = newPolicy("mysql");
+        policy.setSqlStates("mysql", Collections.singleton("HY000"));
+        assertEquals("migrated", policy.call(module(), failing(1, new SQLException("Lock wait", "HY000"))));
+        this.attempts.set(0);
+        assertThrows(FlywayException.class,
+                () -> policy.call(module(), failing(1, new SQLException("Deadlock", "40001"))));
+    }
+
+    @Test
+    public void testTimeoutIsNotRetried() {
+        FlywayRetryPolicy policy = newPolicy("postgresql");
+        SQLException timeout = new SQLTimeoutException("Canceled", "40001");
+        assertThrows(FlywayException.class, () -> policy.call(module(), failing(1, timeout)));
+        assertEquals(1, this.attempts.get());
+    }
+
+    @Test
+    public void testFailedMigrationInHistoryIsNotRetried() {
+        FlywayRetryPolicy policy = newPolicy("postgresql");
+        assertThrows(FlywayException.class, () -> policy.call(module(failed("V2__orders.sql", MigrationType.SQL)),
+                failing(1, new SQLException("Deadlock", "40001"))));
+        assertEquals(1, this.attempts.get());
+    }
+
+    @Test
+    public void testFailedBackfillIsRetried() {
+        FlywayRetryPolicy policy = newPolicy("postgresql");
+        assertEquals("migrated", policy.call(module(failed("V2__orders.backfill", MigrationType.CUSTOM)),
+                failing(1, new SQLException("Deadlock", "40001"))));
+        assertEquals(2, this.attempts.get());
+    }
+
+    @Test
+    public void testMaxAttempts() {
+        FlywayRetryPolicy policy = newPolicy("postgresql");
+        policy.setMaxAttempts(2);
+        assertThrows(FlywayException.class,
+                () -> policy.call(module(), failing(Integer.MAX_VALUE, new SQLException("Deadlock", "40001"))));
+        assertEquals(2, this.attempts.get());
+    }
+
+    private static FlywayRetryPolicy newPolicy(String vendor) {
+        FlywayRetryPolicy policy = new FlywayRetryPolicy((dataSource) -> vendor);
+        policy.setInitialInterval(Duration.ofMillis(1));
+        return policy;
+    }
+
+    private Supplier<String> failing(int failures, SQLException cause) {
+        return () -> {
+            if (this.attempts.incrementAndGet() <= failures) {
+                throw new FlywayException(cause.getMessage(), cause);
+            }
+            return "migrated";
+        };
+    }
+
+    private static MigrationInfo failed(String script, MigrationType type) {
+        MigrationInfo migration = mock(MigrationInfo.class);
+        when(migration.getScript()).thenReturn(script);
+        when(migration.getType()).thenReturn(type);
+        when(migration.getState()).thenReturn(MigrationState.FAILED);
+        return migration;
+    }
+
+    private static Flyway module(MigrationInfo... history) {
+        return new FlywayModule("order", Flyway.configure().dataSource(mock(DataSource.class))) {
+
+            @Override
+            public MigrationInfoService info() {
+                MigrationInfoService info = mock(MigrationInfoService.class);
+                when(info.all()).thenReturn(history);
+                return info;
+            }
+
+        };
+    }
+
+}
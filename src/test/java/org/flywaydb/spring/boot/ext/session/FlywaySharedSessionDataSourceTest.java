@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link FlywaySharedSessionDataSource} reuses connections during a session and
+ * restores their state before reuse.
+ */
+public class FlywaySharedSessionDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+
+    private final FlywaySharedSessionDataSource dataSource = new FlywaySharedSessionDataSource(this.target);
+
+    @Test
+    public void testConnectionIsReusedDuringSession() throws SQLException {
+        Connection connection = connection(true);
+        when(this.target.getConnection()).thenReturn(connection);
+        this.dataSource.open();
+
+        this.dataSource.getConnection().close();
+        this.dataSource.getConnection().close();
+        verify(this.target, times(1)).getConnection();
+        verify(connection, never()).close();
+
+        this.dataSource.close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testStateIsRestoredBeforeReuse() throws SQLException {
+        Connection connection = connection(true);
+        when(this.target.getConnection()).thenReturn(connection);
+        this.dataSource.open();
+
+        Connection first = this.dataSource.getConnection();
+        first.setAutoCommit(false);
+        when(connection.getAutoCommit()).thenReturn(false);
+        first.close();
+
+        // 未提交的事务回滚，自动提交恢复
+        verify(connection).rollback();
+        verify(connection).setAutoCommit(true);
+        this.dataSource.close();
+    }
+
+    @Test
+    public void testConnectionIsClosedOutsideSession() throws SQLException {
+        Connection connection = connection(true);
+        when(this.target.getConnection()).thenReturn(connection);
+
+        this.dataSource.getConnection().close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testMetaDataIsCachedDuringSession() throws SQLException {
+        Connection connection = connection(true);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(this.target.getConnection()).thenReturn(connection);
+        this.dataSource.open();
+
+        Connection session = this.dataSource.getConnection();
+        assertEquals("PostgreSQL", session.getMetaData().getDatabaseProductName());
+        assertEquals("PostgreSQL", session.getMetaData().getDatabaseProductName());
+        assertSame(session, session.getMetaData().getConnection());
+        verify(metaData, times(1)).getDatabaseProductName();
+        session.close();
+        this.dataSource.close();
+    }
+
+    private static Connection connection(boolean autoCommit) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(autoCommit);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        when(connection.getSchema()).thenReturn("public");
+        return connection;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationType;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the fingerprint of {@link FlywayDatabaseSnapshots} changes with the Java
+ * migrations, which have no checksum.
+ */
+public class FlywayDatabaseSnapshotsTest {
+
+    @Test
+    public void testJavaMigrationIsFingerprintedByItsClass() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        String fingerprint = fingerprint(classLoader, V1__Init.class.getName(), null);
+        assertEquals(fingerprint, fingerprint(classLoader, V1__Init.class.getName(), null));
+        assertNotEquals(fingerprint, fingerprint(new ChangedClassLoader(classLoader), V1__Init.class.getName(), null));
+    }
+
+    @Test
+    public void testOverriddenChecksumIsUsed() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        String fingerprint = fingerprint(classLoader, V1__Init.class.getName(), 42);
+        assertEquals(fingerprint, fingerprint(new ChangedClassLoader(classLoader), V1__Init.class.getName(), 42));
+        assertNotEquals(fingerprint, fingerprint(classLoader, V1__Init.class.getName(), 43));
+    }
+
+    @Test
+    public void testProxyIsChecksummedByItsUserClass() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        MigrationInfo proxy = migration(V1__Init.class.getName() + "$$EnhancerBySpringCGLIB$$1a2b3c", null);
+        assertEquals(FlywayModule.getChecksum(Flyway.configure(classLoader), migration(V1__Init.class.getName(), null)),
+                FlywayModule.getChecksum(Flyway.configure(classLoader), proxy));
+    }
+
+    private static String fingerprint(ClassLoader classLoader, String className, Integer checksum) {
+        MigrationInfo migration = migration(className, checksum);
+        Flyway module = new FlywayModule("order", Flyway.configure(classLoader)) {
+
+            @Override
+            public MigrationInfoService info() {
+                MigrationInfoService info = mock(MigrationInfoService.class);
+                when(info.all()).thenReturn(new MigrationInfo[] { migration });
+                return info;
+            }
+
+        };
+        return FlywayDatabaseSnapshots.getFingerprint(Collections.singletonList(module));
+    }
+
+    private static MigrationInfo migration(String className, Integer checksum) {
+        MigrationInfo migration = mock(MigrationInfo.class);
+        when(migration.getVersion()).thenReturn(MigrationVersion.fromVersion("1"));
+        when(migration.getType()).thenReturn(MigrationType.JDBC);
+        when(migration.getScript()).thenReturn(className);
+        when(migration.getChecksum()).thenReturn(checksum);
+        return migration;
+    }
+
+    /**
+     * Serves the class file of {@link V1__Changed} as the one of {@link V1__Init}, as after
+     * changing the class.
+     */
+    private static class ChangedClassLoader extends ClassLoader {
+
+        ChangedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            return super.getResourceAsStream(name.replace("V1__Init", "V1__Changed"));
+        }
+
+    }
+
+    public static class V1__Init extends BaseJavaMigration {
+
+        @Override
+        public void migrate(Context context) {
+        }
+
+    }
+
+    public static class V1__Changed extends BaseJavaMigration {
+
+        @Override
+        public void migrate(Context context) throws Exception {
+            context.getConnection().createStatement().execute("UPDATE orders SET flag = 1");
+        }
+
+    }
+
+}
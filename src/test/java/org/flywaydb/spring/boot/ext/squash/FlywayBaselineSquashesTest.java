@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.squash;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.lease.FlywayModuleLeaseRepository;
+import org.flywaydb.spring.boot.ext.resolver.FlywayTemplateResolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+/**
+ * Checks that {@link FlywayBaselineSquashes} checks and applies a squash holding the lock of
+ * the module.
+ */
+public class FlywayBaselineSquashesTest {
+
+    @TempDir
+    Path location;
+
+    private final InMemoryLockRepository repository = new InMemoryLockRepository();
+
+    private final AtomicBoolean applied = new AtomicBoolean();
+
+    @Test
+    public void testModuleAppliedWhileWaitingIsSkipped() throws Exception {
+        this.repository.locks.put("order#squash", "other");
+        Thread other = new Thread(() -> {
+            sleep(100);
+            // 另一节点应用合并脚本后释放锁
+            this.applied.set(true);
+            this.repository.release("order#squash", "other");
+        });
+        other.start();
+
+        assertFalse(newSquashes(Duration.ofSeconds(10)).baselineIfEmpty(module()));
+        other.join();
+        assertFalse(this.repository.locks.containsKey("order#squash"));
+    }
+
+    @Test
+    public void testWaitForLockTimesOut() throws Exception {
+        this.repository.locks.put("order#squash", "other");
+
+        FlywayException ex = assertThrows(FlywayException.class,
+                () -> newSquashes(Duration.ofMillis(50)).baselineIfEmpty(module()));
+        assertTrue(ex.getMessage().contains("order#squash"));
+        assertEquals("other", this.repository.locks.get("order#squash"));
+    }
+
+    @Test
+    public void testAppliedModuleTakesNoLock() throws Exception {
+        this.applied.set(true);
+
+        assertFalse(newSquashes(Duration.ofSeconds(10)).baselineIfEmpty(module()));
+        assertEquals(0, this.repository.acquired);
+    }
+
+    private FlywayBaselineSquashes newSquashes(Duration waitTimeout) throws Exception {
+        Path squashes = Files.createDirectories(this.location.resolve("order"));
+        Files.write(squashes.resolve("S2" + FlywayBaselineSquash.SUFFIX),
+                "CREATE TABLE orders (id INT);\n".getBytes(StandardCharsets.UTF_8));
+        FlywayBaselineSquashes baselineSquashes = new FlywayBaselineSquashes(new PathMatchingResourcePatternResolver(),
+                new FlywayTemplateResolver(), "file:" + this.location + "/{module}") {
+
+            @Override
+            protected FlywayModuleLeaseRepository getLockRepository(DataSource dataSource) {
+                return repository;
+            }
+
+        };
+        baselineSquashes.setOwner("node");
+        baselineSquashes.setPollInterval(Duration.ofMillis(10));
+        baselineSquashes.setWaitTimeout(waitTimeout);
+        return baselineSquashes;
+    }
+
+    private Flyway module() {
+        return new FlywayModule("order", Flyway.configure().dataSource(mock(DataSource.class))) {
+
+            @Override
+            public MigrationInfoService info() {
+                MigrationInfoService info = mock(MigrationInfoService.class);
+                when(info.applied()).thenReturn(applied.get() ? new MigrationInfo[] { mock(MigrationInfo.class) }
+                        : new MigrationInfo[0]);
+                return info;
+            }
+
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The lock table of a shared database, locks never expiring.
+     */
+    private static class InMemoryLockRepository extends FlywayModuleLeaseRepository {
+
+        private final Map<String, String> locks = new HashMap<>();
+
+        private int acquired;
+
+        InMemoryLockRepository() {
+            super(mock(DataSource.class), "flyway_module_lease");
+        }
+
+        @Override
+        public void createTableIfNecessary() {
+        }
+
+        @Override
+        public synchronized boolean tryAcquire(String module, String owner, long now, long expiresAt) {
+            String lock = this.locks.putIfAbsent(module, owner);
+            if (lock != null && !lock.equals(owner)) {
+                return false;
+            }
+            this.acquired++;
+            return true;
+        }
+
+        @Override
+        public synchronized void release(String module, String owner) {
+            this.locks.remove(module, owner);
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+    }
+
+}
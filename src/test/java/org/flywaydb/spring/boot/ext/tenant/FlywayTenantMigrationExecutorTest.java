@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.tenant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantMigrationReport.Result;
+import org.flywaydb.spring.boot.ext.tenant.FlywayTenantMigrationReport.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadata;
+
+/**
+ * Checks that {@link FlywayTenantMigrationExecutor} isolates the failure of a tenant and
+ * reports every tenant.
+ */
+public class FlywayTenantMigrationExecutorTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+
+    private final List<String> migrated = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void testFailedTenantDoesNotStopOthers() {
+        FlywayTenantMigrationExecutor executor = new FlywayTenantMigrationExecutor();
+        executor.setFailOnError(false);
+        FlywayTenantMigrationReport report = executor.migrate(modules("a", "b", "c"), failing("b"));
+
+        assertEquals(3, report.getTenantCount());
+        assertEquals(Collections.singleton("b"), report.getFailedTenants());
+        Map<String, Status> statuses = statuses(report);
+        assertEquals(Status.SUCCESS, statuses.get("order@a"));
+        assertEquals(Status.SUCCESS, statuses.get("user@a"));
+        assertEquals(Status.FAILED, statuses.get("order@b"));
+        assertEquals(Status.SKIPPED, statuses.get("user@b"));
+        assertEquals(Status.SUCCESS, statuses.get("order@c"));
+        assertEquals(Status.SUCCESS, statuses.get("user@c"));
+        assertEquals(6, report.getResults().size());
+        assertSame(report, executor.getLastReport());
+    }
+
+    @Test
+    public void testFailOnErrorAfterEveryTenant() {
+        FlywayTenantMigrationExecutor executor = new FlywayTenantMigrationExecutor();
+        FlywayException ex = assertThrows(FlywayException.class,
+                () -> executor.migrate(modules("a", "b", "c"), failing("b")));
+
+        assertEquals("Unable to migrate tenants [b]", ex.getMessage());
+        assertEquals("Migration of order@b failed", ex.getCause().getMessage());
+        // 失败之前其他租户均已迁移
+        assertTrue(this.migrated.containsAll(Arrays.asList("order@a", "user@a", "order@c", "user@c")));
+        assertTrue(executor.getLastReport().hasFailures());
+    }
+
+    @Test
+    public void testModulesOfTenantMigrateInOrder() {
+        FlywayTenantMigrationExecutor executor = new FlywayTenantMigrationExecutor();
+        executor.migrate(modules("a"), failing(null));
+
+        assertEquals(Arrays.asList("order@a", "user@a"), this.migrated);
+    }
+
+    @Test
+    public void testConcurrencyCappedByPoolSize() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        FlywayTenantMigrationExecutor executor = new FlywayTenantMigrationExecutor();
+        executor.setConcurrency(4);
+        DataSourcePoolMetadata metadata = mock(DataSourcePoolMetadata.class);
+        when(metadata.getMax()).thenReturn(4);
+        executor.setPoolMetadataProvider((dataSource) -> metadata);
+        executor.migrate(modules("a", "b", "c", "d", "e"), (flyway) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        });
+
+        // 每次迁移占用两个连接，4 个连接最多同时迁移 2 个租户
+        assertEquals(2, executor.getConcurrency(this.dataSource));
+        assertTrue(maxRunning.get() <= 2, "Too many tenants migrated at the same time: " + maxRunning.get());
+    }
+
+    private Consumer<Flyway> failing(String tenant) {
+        return (flyway) -> {
+            String name = FlywayModule.getModule(flyway) + "@" + FlywayModule.getTenant(flyway);
+            if (FlywayModule.getTenant(flyway).equals(tenant)) {
+                throw new FlywayException("Migration of " + name + " failed");
+            }
+            this.migrated.add(name);
+        };
+    }
+
+    private List<Flyway> modules(String... tenants) {
+        List<Flyway> flyways = new ArrayList<>();
+        for (String tenant : tenants) {
+            for (String module : Arrays.asList("order", "user")) {
+                flyways.add(new FlywayModule(module, tenant, Flyway.configure().dataSource(this.dataSource)));
+            }
+        }
+        return flyways;
+    }
+
+    private static Map<String, Status> statuses(FlywayTenantMigrationReport report) {
+        Map<String, Status> statuses = new HashMap<>();
+        for (Result result : report.getResults()) {
+            statuses.put(result.getModule() + "@" + result.getTenant(), result.getStatus());
+        }
+        return statuses;
+    }
+
+}
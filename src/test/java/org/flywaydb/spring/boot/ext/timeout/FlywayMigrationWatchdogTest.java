@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.flywaydb.spring.boot.ext.timeout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.spring.boot.ext.FlywayModule;
+import org.flywaydb.spring.boot.ext.timeout.FlywayMigrationWatchdog.Round;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the time budgets of {@link FlywayMigrationWatchdog} and that fail-fast only cancels the
+ * modules of the failed round.
+ */
+public class FlywayMigrationWatchdogTest {
+
+    private final FlywayMigrationWatchdog watchdog = new FlywayMigrationWatchdog();
+
+    private final Flyway order = new FlywayModule("order", Flyway.configure());
+
+    private final Flyway user = new FlywayModule("user", Flyway.configure());
+
+    @AfterEach
+    public void destroy() {
+        this.watchdog.destroy();
+    }
+
+    @Test
+    public void testFailFastCancelsRemainingModulesOfRound() {
+        this.watchdog.setFailFast(true);
+        Round round = this.watchdog.newRound();
+        assertThrows(IllegalStateException.class, () -> this.watchdog.call(round, this.order, this::fail));
+
+        FlywayException ex = assertThrows(FlywayException.class,
+                () -> this.watchdog.call(round, this.user, () -> "migrated"));
+        assertEquals("Migration of module 'user' cancelled: module 'order' failed", ex.getMessage());
+    }
+
+    @Test
+    public void testFailFastDoesNotCancelOtherRounds() {
+        this.watchdog.setFailFast(true);
+        Round round = this.watchdog.newRound();
+        assertThrows(IllegalStateException.class, () -> this.watchdog.call(round, this.order, this::fail));
+
+        assertEquals("migrated", this.watchdog.call(this.watchdog.newRound(), this.user, () -> "migrated"));
+        assertEquals("migrated", this.watchdog.call(this.user, () -> "migrated"));
+    }
+
+    @Test
+    public void testFailureOnItsOwnDoesNotAbortRound() {
+        this.watchdog.setFailFast(true);
+        Round round = this.watchdog.newRound();
+        assertThrows(IllegalStateException.class, () -> this.watchdog.call(this.order, this::fail));
+
+        assertNull(round.getAbortReason());
+        assertEquals("migrated", this.watchdog.call(round, this.user, () -> "migrated"));
+    }
+
+    @Test
+    public void testTimeoutCancelsModule() {
+        this.watchdog.setTimeout(Duration.ofMillis(50));
+        Statement statement = mock(Statement.class);
+        FlywayException ex = assertThrows(FlywayException.class, () -> this.watchdog.call(this.order, () -> {
+            sleep(200);
+            try {
+                this.watchdog.beforeStatement(statement, "UPDATE orders SET status = 1");
+            }
+            catch (SQLException e) {
+                throw new FlywayException(e);
+            }
+            return "migrated";
+        }));
+        assertEquals("Migration of module 'order' cancelled: timed out after PT0.05S", ex.getMessage());
+        assertEquals(SQLTimeoutException.class, ex.getCause().getCause().getClass());
+    }
+
+    private String fail() {
+        throw new IllegalStateException("Migration failed");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}